@@ -0,0 +1,92 @@
+package fi.tietoevry.backend.admission;
+
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+@Configuration
+@EnableConfigurationProperties(AdmissionProperties.class)
+public class AdmissionConfiguration {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionConfiguration.class);
+
+    @Bean
+    public AdmissionControl admissionControl(AdmissionProperties properties, ObjectProvider<DataSource> dataSource) {
+        dataSource.ifAvailable(pool -> usePoolSize(properties, pool));
+        if (properties.isEnabled()) {
+            checkConnectionBudget(properties);
+        }
+        return new AdmissionControl(properties);
+    }
+
+    // Sharded, the application's DataSource routes between pools and there is no single pool size: Hikari's default stays
+    static void usePoolSize(AdmissionProperties properties, DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                properties.usePoolSize(dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize());
+            }
+        } catch (SQLException e) {
+            log.debug("Can't read the size of the connection pool", e);
+        }
+    }
+
+    static void checkConnectionBudget(AdmissionProperties properties) {
+        int poolSize = properties.getPoolSize();
+        if (properties.connectionBudget() > poolSize) {
+            log.warn("The admission permits allow {} connections at once, the pool has {}: order entry may wait for a connection, "
+                    + "lower backend.admission.*.permits or raise spring.datasource.hikari.maximum-pool-size",
+                    properties.connectionBudget(), poolSize);
+        }
+    }
+
+    // GET /actuator/metrics/backend.admission.queue.depth?tag=class:ORDER_ENTRY etc.
+    @Bean
+    public MeterBinder admissionMetrics(AdmissionControl admissionControl) {
+        return registry -> {
+            for (Bulkhead bulkhead : admissionControl.getBulkheads()) {
+                Tags tags = Tags.of("class", bulkhead.getPriority().name());
+                BulkheadStats stats = bulkhead.getStats();
+                Gauge.builder("backend.admission.in.flight", bulkhead, Bulkhead::getInFlight).tags(tags).register(registry);
+                Gauge.builder("backend.admission.queue.depth", bulkhead, Bulkhead::getQueueDepth).tags(tags).register(registry);
+                Gauge.builder("backend.admission.permits", bulkhead, Bulkhead::getPermits).tags(tags).register(registry);
+                FunctionCounter.builder("backend.admission.requests", stats, BulkheadStats::getAdmitted).tags(tags).tag("outcome", "admitted")
+                        .register(registry);
+                FunctionCounter.builder("backend.admission.requests", stats, BulkheadStats::getRejected).tags(tags).tag("outcome", "rejected")
+                        .register(registry);
+                FunctionCounter.builder("backend.admission.requests", stats, BulkheadStats::getTimedOut).tags(tags).tag("outcome", "timed.out")
+                        .register(registry);
+                FunctionCounter.builder("backend.admission.queued", stats, BulkheadStats::getQueued).tags(tags).register(registry);
+                Gauge.builder("backend.admission.wait.average", stats, BulkheadStats::getMeanWaitMillis).tags(tags).baseUnit("milliseconds")
+                        .register(registry);
+                Gauge.builder("backend.admission.wait.p99", stats, BulkheadStats::getP99WaitMillis).tags(tags).baseUnit("milliseconds")
+                        .register(registry);
+                Gauge.builder("backend.admission.wait.max", stats, BulkheadStats::getMaxWaitMillis).tags(tags).baseUnit("milliseconds")
+                        .register(registry);
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<AdmissionFilter> admissionFilter(AdmissionControl admissionControl, AdmissionProperties properties) {
+        FilterRegistrationBean<AdmissionFilter> registration = new FilterRegistrationBean<>(new AdmissionFilter(admissionControl, properties));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 100); // before anything that might touch the database
+        return registration;
+    }
+}
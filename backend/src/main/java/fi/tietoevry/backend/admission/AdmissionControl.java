@@ -0,0 +1,68 @@
+package fi.tietoevry.backend.admission;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.util.AntPathMatcher;
+
+import fi.tietoevry.backend.admission.AdmissionProperties.ClassProperties;
+
+// Sorts requests into priority classes (first matching pattern wins, ORDER_ENTRY is checked first) and owns their bulkheads;
+// PASS_THROUGH has none
+public class AdmissionControl {
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Map<Priority, Bulkhead> bulkheads = new EnumMap<>(Priority.class);
+    private final List<Rule> rules = new ArrayList<>();
+
+    public AdmissionControl(AdmissionProperties properties) {
+        for (Priority priority : Priority.values()) {
+            if (priority == Priority.PASS_THROUGH) {
+                properties.getPassThrough().forEach(pattern -> addRule(pattern, priority));
+                continue;
+            }
+            ClassProperties settings = properties.get(priority);
+            bulkheads.put(priority, new Bulkhead(priority, properties.permits(priority), settings.getMaxQueued(), settings.getMaxWait()));
+            settings.getPatterns().forEach(pattern -> addRule(pattern, priority));
+        }
+    }
+
+    public Priority classify(String method, String path) {
+        for (Rule rule : rules) {
+            if ((rule.method == null || rule.method.equalsIgnoreCase(method)) && pathMatcher.match(rule.pattern, path)) {
+                return rule.priority;
+            }
+        }
+        return Priority.INTERACTIVE;
+    }
+
+    // null for PASS_THROUGH
+    public Bulkhead bulkhead(Priority priority) {
+        return bulkheads.get(priority);
+    }
+
+    public Collection<Bulkhead> getBulkheads() {
+        return bulkheads.values();
+    }
+
+    private void addRule(String pattern, Priority priority) {
+        int space = pattern.indexOf(' ');
+        rules.add(space < 0 ? new Rule(null, pattern.trim(), priority)
+                : new Rule(pattern.substring(0, space).trim(), pattern.substring(space + 1).trim(), priority));
+    }
+
+    private static final class Rule {
+        private final String method;
+        private final String pattern;
+        private final Priority priority;
+
+        private Rule(String method, String pattern, Priority priority) {
+            this.method = method;
+            this.pattern = pattern;
+            this.priority = priority;
+        }
+    }
+}
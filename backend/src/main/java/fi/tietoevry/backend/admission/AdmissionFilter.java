@@ -0,0 +1,57 @@
+package fi.tietoevry.backend.admission;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+// Holds every API request at the door until its priority class has a free permit; turned away requests get 503
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private final AdmissionControl admissionControl;
+    private final AdmissionProperties properties;
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    public AdmissionFilter(AdmissionControl admissionControl, AdmissionProperties properties) {
+        this.admissionControl = admissionControl;
+        this.properties = properties;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!properties.isEnabled()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        Priority priority = admissionControl.classify(request.getMethod(), urlPathHelper.getPathWithinApplication(request));
+        Bulkhead bulkhead = admissionControl.bulkhead(priority);
+        if (bulkhead == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        boolean admitted;
+        try {
+            admitted = bulkhead.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            response.setHeader("Retry-After", "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many " + priority + " requests, try again later");
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            bulkhead.release();
+        }
+    }
+}
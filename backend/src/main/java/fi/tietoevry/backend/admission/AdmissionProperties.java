@@ -0,0 +1,176 @@
+package fi.tietoevry.backend.admission;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+Concurrent requests per priority class. Interactive gets what order entry and reporting leave of the pool:
+4 order entry * 1 + 2 interactive * 1 + 1 reporting * 4 connections = the default pool of 10 (connectionBudget()).
+*/
+@ConfigurationProperties(prefix = "backend.admission")
+public class AdmissionProperties {
+
+    private boolean enabled = true;
+
+    private ClassProperties orderEntry = new ClassProperties(4, 1, 200, Duration.ofSeconds(2),
+            "POST /api/orders", "PUT /api/orders/**", "POST /api/payments");
+
+    private ClassProperties interactive = new ClassProperties(0, 1, 100, Duration.ofSeconds(1)); // 0: sized from the pool
+
+    private List<String> passThrough = new ArrayList<>(Arrays.asList("GET /api/products", "GET /api/productlines",
+            "GET /api/products/*/recommendations", "/api/prices/**", "GET /api/customers/search", "GET /api/leaderboard/**"));
+
+    private int poolSize = 10; // Hikari's default, AdmissionConfiguration sets the real one
+
+    private ClassProperties reporting = new ClassProperties(1, 4, 20, Duration.ofSeconds(30),
+            "/api/lookup/**", "/api/timeseries/**");
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public void usePoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    public int permits(Priority priority) {
+        ClassProperties settings = get(priority);
+        if (priority != Priority.INTERACTIVE || settings.getPermits() > 0) {
+            return settings.getPermits();
+        }
+        int others = connections(Priority.ORDER_ENTRY) + connections(Priority.REPORTING);
+        return Math.max(1, (poolSize - others) / Math.max(1, settings.getConnectionsPerRequest()));
+    }
+
+    public ClassProperties get(Priority priority) {
+        switch (priority) {
+            case ORDER_ENTRY:
+                return orderEntry;
+            case REPORTING:
+                return reporting;
+            case INTERACTIVE:
+                return interactive;
+            default:
+                throw new IllegalArgumentException(priority + " has no settings");
+        }
+    }
+
+    // Connections all classes together may hold when every permit is taken
+    public int connectionBudget() {
+        return connections(Priority.ORDER_ENTRY) + permits(Priority.INTERACTIVE) * Math.max(1, interactive.getConnectionsPerRequest())
+                + connections(Priority.REPORTING);
+    }
+
+    private int connections(Priority priority) {
+        return get(priority).getPermits() * Math.max(1, get(priority).getConnectionsPerRequest());
+    }
+
+    public ClassProperties getOrderEntry() {
+        return orderEntry;
+    }
+
+    public void setOrderEntry(ClassProperties orderEntry) {
+        this.orderEntry = orderEntry;
+    }
+
+    public ClassProperties getInteractive() {
+        return interactive;
+    }
+
+    public void setInteractive(ClassProperties interactive) {
+        this.interactive = interactive;
+    }
+
+    public List<String> getPassThrough() {
+        return passThrough;
+    }
+
+    public void setPassThrough(List<String> passThrough) {
+        this.passThrough = passThrough;
+    }
+
+    public ClassProperties getReporting() {
+        return reporting;
+    }
+
+    public void setReporting(ClassProperties reporting) {
+        this.reporting = reporting;
+    }
+
+    public static class ClassProperties {
+
+        // "METHOD /path/**" or "/path/**" for any method; INTERACTIVE is the fallback and needs none
+        private List<String> patterns = new ArrayList<>();
+
+        private int permits; // requests of the class running at the same time
+
+        private int connectionsPerRequest; // database connections one request of the class holds at most
+
+        private int maxQueued; // requests of the class waiting for a permit; more are turned away right away
+
+        private Duration maxWait; // a request that didn't get a permit by then is turned away
+
+        public ClassProperties() {
+        }
+
+        public ClassProperties(int permits, int connectionsPerRequest, int maxQueued, Duration maxWait, String... patterns) {
+            this.permits = permits;
+            this.connectionsPerRequest = connectionsPerRequest;
+            this.maxQueued = maxQueued;
+            this.maxWait = maxWait;
+            this.patterns = new ArrayList<>(Arrays.asList(patterns));
+        }
+
+        public List<String> getPatterns() {
+            return patterns;
+        }
+
+        public void setPatterns(List<String> patterns) {
+            this.patterns = patterns;
+        }
+
+        public int getPermits() {
+            return permits;
+        }
+
+        public void setPermits(int permits) {
+            this.permits = permits;
+        }
+
+        public int getConnectionsPerRequest() {
+            return connectionsPerRequest;
+        }
+
+        public void setConnectionsPerRequest(int connectionsPerRequest) {
+            this.connectionsPerRequest = connectionsPerRequest;
+        }
+
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        public void setMaxQueued(int maxQueued) {
+            this.maxQueued = maxQueued;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+    }
+}
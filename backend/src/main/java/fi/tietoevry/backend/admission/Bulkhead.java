@@ -0,0 +1,87 @@
+package fi.tietoevry.backend.admission;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+A fixed number of permits for one priority class. Requests over the limit queue in arrival order (fair semaphore)
+for at most maxWait; once maxQueued are waiting, new ones are turned away immediately instead of piling up.
+*/
+public class Bulkhead {
+
+    private final Priority priority;
+    private final int permits;
+    private final int maxQueued;
+    private final Duration maxWait;
+    private final Semaphore semaphore;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final BulkheadStats stats = new BulkheadStats();
+
+    public Bulkhead(Priority priority, int permits, int maxQueued, Duration maxWait) {
+        this.priority = priority;
+        this.permits = permits;
+        this.maxQueued = maxQueued;
+        this.maxWait = maxWait;
+        this.semaphore = new Semaphore(permits, true);
+    }
+
+    // true if the caller got a permit and has to release() it
+    public boolean acquire() throws InterruptedException {
+        if (semaphore.tryAcquire(0, TimeUnit.NANOSECONDS)) { // unlike tryAcquire(), doesn't barge past the queue
+            stats.recordAdmitted(0);
+            return true;
+        }
+        if (waiting.incrementAndGet() > maxQueued) {
+            waiting.decrementAndGet();
+            stats.recordRejected();
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            boolean acquired = semaphore.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+            long waited = System.nanoTime() - start;
+            if (acquired) {
+                stats.recordAdmitted(waited);
+            } else {
+                stats.recordTimedOut(waited);
+            }
+            return acquired;
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    public void release() {
+        semaphore.release();
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public int getPermits() {
+        return permits;
+    }
+
+    public int getInFlight() {
+        return permits - semaphore.availablePermits();
+    }
+
+    public int getQueueDepth() {
+        return waiting.get();
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWait.toMillis();
+    }
+
+    public BulkheadStats getStats() {
+        return stats;
+    }
+}
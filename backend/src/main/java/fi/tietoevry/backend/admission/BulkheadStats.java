@@ -0,0 +1,95 @@
+package fi.tietoevry.backend.admission;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class BulkheadStats {
+
+    private static final int RECENT = 1024; // wait times kept for the percentiles
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder queued = new LongAdder(); // admitted or not, had to wait
+    private final LongAdder rejected = new LongAdder(); // queue full
+    private final LongAdder timedOut = new LongAdder(); // waited maxWait without getting a permit
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLongArray recentWaitNanos = new AtomicLongArray(RECENT);
+    private final AtomicLong recentCount = new AtomicLong();
+
+    void recordAdmitted(long waitNanos) {
+        admitted.increment();
+        recordWait(waitNanos);
+    }
+
+    void recordRejected() {
+        rejected.increment();
+    }
+
+    void recordTimedOut(long waitNanos) {
+        timedOut.increment();
+        recordWait(waitNanos);
+    }
+
+    private void recordWait(long waitNanos) {
+        if (waitNanos > 0) {
+            queued.increment();
+        }
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        recentWaitNanos.set((int) (recentCount.getAndIncrement() % RECENT), waitNanos);
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    public long getQueued() {
+        return queued.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getTimedOut() {
+        return timedOut.sum();
+    }
+
+    public double getMeanWaitMillis() {
+        long waits = admitted.sum() + timedOut.sum();
+        return waits == 0 ? 0 : totalWaitNanos.sum() / 1e6 / waits;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1e6;
+    }
+
+    // over the last 1024 requests that got a permit or timed out
+    public double getP99WaitMillis() {
+        int count = (int) Math.min(recentCount.get(), RECENT);
+        if (count == 0) {
+            return 0;
+        }
+        long[] waits = new long[count];
+        for (int i = 0; i < count; i++) {
+            waits[i] = recentWaitNanos.get(i);
+        }
+        Arrays.sort(waits);
+        return waits[Math.min(count - 1, count * 99 / 100)] / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkheadStats{" +
+                "admitted=" + getAdmitted() +
+                ", queued=" + getQueued() +
+                ", rejected=" + getRejected() +
+                ", timedOut=" + getTimedOut() +
+                ", meanWaitMillis=" + String.format("%.2f", getMeanWaitMillis()) +
+                ", p99WaitMillis=" + String.format("%.2f", getP99WaitMillis()) +
+                ", maxWaitMillis=" + String.format("%.2f", getMaxWaitMillis()) +
+                '}';
+    }
+}
@@ -0,0 +1,8 @@
+package fi.tietoevry.backend.admission;
+
+public enum Priority {
+    ORDER_ENTRY, // placing orders and payments: must stay fast whatever else is going on
+    INTERACTIVE, // everything not classified otherwise
+    REPORTING, // exports, bulk lookups, analytics: may wait and may be turned away
+    PASS_THROUGH // served from memory without a database connection: never held at the door
+}
@@ -0,0 +1,24 @@
+package fi.tietoevry.backend.audit;
+
+import org.hibernate.integrator.spi.Integrator;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import fi.tietoevry.backend.config.EventListenerIntegrator;
+
+@Configuration
+@EnableConfigurationProperties(AuditProperties.class)
+public class AuditConfiguration {
+
+    @Bean
+    public AuditTrail auditTrail(JdbcTemplate jdbcTemplate, AuditProperties properties) {
+        return new AuditTrail(new AuditWriter(jdbcTemplate), properties);
+    }
+
+    @Bean
+    public Integrator auditListenerIntegrator(AuditTrail auditTrail) {
+        return new EventListenerIntegrator(new AuditEventListener(auditTrail));
+    }
+}
@@ -0,0 +1,69 @@
+package fi.tietoevry.backend.audit;
+
+// One changed field of one entity row; inserts have no old value, deletes have no new value
+public final class AuditEvent {
+
+    public enum Operation {
+        INSERT, UPDATE, DELETE
+    }
+
+    private final String entityType;
+    private final String entityId;
+    private final Operation operation;
+    private final String field;
+    private final String oldValue;
+    private final String newValue;
+    private final long changedAt; // epoch millis, when Hibernate flushed the change
+
+    public AuditEvent(String entityType, String entityId, Operation operation, String field,
+                      String oldValue, String newValue, long changedAt) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.operation = operation;
+        this.field = field;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+        this.changedAt = changedAt;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public String getEntityId() {
+        return entityId;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public String getOldValue() {
+        return oldValue;
+    }
+
+    public String getNewValue() {
+        return newValue;
+    }
+
+    public long getChangedAt() {
+        return changedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "AuditEvent{" +
+                "entityType='" + entityType + '\'' +
+                ", entityId='" + entityId + '\'' +
+                ", operation=" + operation +
+                ", field='" + field + '\'' +
+                ", oldValue='" + oldValue + '\'' +
+                ", newValue='" + newValue + '\'' +
+                ", changedAt=" + changedAt +
+                '}';
+    }
+}
@@ -0,0 +1,150 @@
+package fi.tietoevry.backend.audit;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import fi.tietoevry.backend.audit.AuditEvent.Operation;
+import fi.tietoevry.backend.audit.AuditProperties.DurabilityMode;
+import fi.tietoevry.backend.config.TransactionScopedListener;
+import fi.tietoevry.backend.model.Customer;
+import fi.tietoevry.backend.model.Order;
+import fi.tietoevry.backend.model.Payment;
+import fi.tietoevry.backend.model.Product;
+
+/*
+Hibernate (not JPA) listener: Hibernate hands us the state before and after the change, so we can audit a diff
+of just the fields we care about. Runs during flush, so it only collects the events and hands them over to the
+AuditTrail after commit (ASYNC) or writes them right away in the same transaction (SYNC).
+*/
+public class AuditEventListener extends TransactionScopedListener<AuditEventListener.PendingEvents>
+        implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final Map<Class<?>, Set<String>> AUDITED_FIELDS = new HashMap<>();
+
+    static {
+        AUDITED_FIELDS.put(Customer.class, Collections.singleton("creditLimit"));
+        AUDITED_FIELDS.put(Product.class, new HashSet<>(Arrays.asList("buyPrice", "msrp")));
+        AUDITED_FIELDS.put(Order.class, Collections.singleton("status"));
+        AUDITED_FIELDS.put(Payment.class, new HashSet<>(Arrays.asList("paymentDate", "amount")));
+    }
+
+    private final transient AuditTrail trail;
+
+    public AuditEventListener(AuditTrail trail) {
+        this.trail = trail;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        capture(event.getSession(), event.getEntity(), event.getPersister(), Operation.INSERT, null, event.getState());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        capture(event.getSession(), event.getEntity(), event.getPersister(), Operation.UPDATE, event.getOldState(), event.getState());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        capture(event.getSession(), event.getEntity(), event.getPersister(), Operation.DELETE, event.getDeletedState(), null);
+    }
+
+    private void capture(EventSource session, Object entity, EntityPersister persister, Operation operation, Object[] oldState,
+                         Object[] newState) {
+        Set<String> fields = AUDITED_FIELDS.get(persister.getMappedClass());
+        if (fields == null || !trail.isEnabled()) {
+            return;
+        }
+        String[] names = persister.getPropertyNames();
+        long now = System.currentTimeMillis();
+        List<AuditEvent> events = new ArrayList<>(fields.size());
+        for (int i = 0; i < names.length; i++) {
+            if (!fields.contains(names[i])) {
+                continue;
+            }
+            Object oldValue = oldState == null ? null : oldState[i];
+            Object newValue = newState == null ? null : newState[i];
+            if (operation == Operation.UPDATE && oldState != null && sameValue(oldValue, newValue)) {
+                continue;
+            }
+            events.add(new AuditEvent(persister.getMappedClass().getSimpleName(), entityId(entity), operation, names[i],
+                    asString(oldValue), asString(newValue), now));
+        }
+        if (!events.isEmpty()) {
+            dispatch(session, events);
+        }
+    }
+
+    private void dispatch(EventSource session, List<AuditEvent> events) {
+        if (trail.getMode() == DurabilityMode.SYNC && TransactionSynchronizationManager.isActualTransactionActive()) {
+            trail.writeNow(events);
+        } else {
+            pendingFor(session).events.addAll(events); // a rolled back change must not show up in the audit log
+        }
+    }
+
+    @Override
+    protected PendingEvents newPending() {
+        return new PendingEvents();
+    }
+
+    private static String entityId(Object entity) {
+        if (entity instanceof Customer) {
+            return String.valueOf(((Customer) entity).getCustomerNumber());
+        }
+        if (entity instanceof Product) {
+            return ((Product) entity).getProductCode();
+        }
+        if (entity instanceof Order) {
+            return String.valueOf(((Order) entity).getOrderNumber());
+        }
+        Payment payment = (Payment) entity;
+        return payment.getJsonCustomerNumber() + "/" + payment.getCheckNumber();
+    }
+
+    private static boolean sameValue(Object oldValue, Object newValue) {
+        if (oldValue instanceof BigDecimal && newValue instanceof BigDecimal) {
+            return ((BigDecimal) oldValue).compareTo((BigDecimal) newValue) == 0; // 10.5 and 10.50 are the same price
+        }
+        return Objects.equals(oldValue, newValue);
+    }
+
+    private static String asString(Object value) {
+        if (value == null) {
+            return null;
+        }
+        return value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString();
+    }
+
+    class PendingEvents implements AfterTransactionCompletionProcess {
+
+        private final List<AuditEvent> events = new ArrayList<>();
+
+        @Override
+        public void doAfterTransactionCompletion(boolean success, SharedSessionContractImplementor session) {
+            if (success && !events.isEmpty()) {
+                trail.enqueue(events);
+            }
+        }
+    }
+}
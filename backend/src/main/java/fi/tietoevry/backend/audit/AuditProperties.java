@@ -0,0 +1,91 @@
+package fi.tietoevry.backend.audit;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "backend.audit")
+public class AuditProperties {
+
+    public enum DurabilityMode {
+        SYNC, // audit rows are inserted in the same transaction as the change: never lost, but the write waits for them
+        ASYNC // buffered after commit and written in batches by a background thread: lost on a crash before the next batch
+    }
+
+    public enum BackpressurePolicy {
+        DROP, // the event is dropped and counted, the request never waits
+        BLOCK, // the request waits up to blockTimeout for space, then drops
+        CALLER_RUNS // the request writes the event itself, like SYNC but outside the business transaction
+    }
+
+    private boolean enabled = true;
+
+    private DurabilityMode mode = DurabilityMode.ASYNC;
+
+    private BackpressurePolicy backpressure = BackpressurePolicy.BLOCK;
+
+    private int bufferSize = 16384; // power of two
+
+    private int batchSize = 500;
+
+    private Duration blockTimeout = Duration.ofMillis(100);
+
+    // How long the writer sleeps when the buffer is empty; also the worst case delay of an audit row in ASYNC mode
+    private Duration idleWait = Duration.ofMillis(20);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public DurabilityMode getMode() {
+        return mode;
+    }
+
+    public void setMode(DurabilityMode mode) {
+        this.mode = mode;
+    }
+
+    public BackpressurePolicy getBackpressure() {
+        return backpressure;
+    }
+
+    public void setBackpressure(BackpressurePolicy backpressure) {
+        this.backpressure = backpressure;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getBlockTimeout() {
+        return blockTimeout;
+    }
+
+    public void setBlockTimeout(Duration blockTimeout) {
+        this.blockTimeout = blockTimeout;
+    }
+
+    public Duration getIdleWait() {
+        return idleWait;
+    }
+
+    public void setIdleWait(Duration idleWait) {
+        this.idleWait = idleWait;
+    }
+}
@@ -0,0 +1,67 @@
+package fi.tietoevry.backend.audit;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class AuditStats {
+
+    private final LongAdder captured = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+    private volatile long lagMillis; // age of the oldest event in the last batch when it was written
+
+    void recordCaptured(int count) {
+        captured.add(count);
+    }
+
+    void recordWritten(int count, long oldestChangedAt) {
+        written.add(count);
+        batches.increment();
+        lagMillis = Math.max(0, System.currentTimeMillis() - oldestChangedAt);
+    }
+
+    void recordDropped(int count) {
+        dropped.add(count);
+    }
+
+    void recordWriteFailure(int count) {
+        writeFailures.add(count);
+    }
+
+    public long getCaptured() {
+        return captured.sum();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getWriteFailures() {
+        return writeFailures.sum();
+    }
+
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "AuditStats{" +
+                "captured=" + getCaptured() +
+                ", written=" + getWritten() +
+                ", batches=" + getBatches() +
+                ", dropped=" + getDropped() +
+                ", writeFailures=" + getWriteFailures() +
+                ", lagMillis=" + getLagMillis() +
+                '}';
+    }
+}
@@ -0,0 +1,162 @@
+package fi.tietoevry.backend.audit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import fi.tietoevry.backend.audit.AuditProperties.DurabilityMode;
+
+/*
+Where captured audit events go: SYNC into audit_log in the same transaction, ASYNC into a ring buffer that a
+background thread drains in batches (the BackpressurePolicy decides what happens when it is full).
+*/
+public class AuditTrail implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditTrail.class);
+
+    private final AuditWriter writer;
+    private final AuditProperties properties;
+    private final AuditRingBuffer<AuditEvent> buffer;
+    private final AuditStats stats = new AuditStats();
+
+    private volatile boolean running;
+    private volatile Thread drainer;
+
+    public AuditTrail(AuditWriter writer, AuditProperties properties) {
+        this.writer = writer;
+        this.properties = properties;
+        this.buffer = new AuditRingBuffer<>(properties.getBufferSize());
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public DurabilityMode getMode() {
+        return properties.getMode();
+    }
+
+    // SYNC mode: the caller is inside the business transaction
+    public void writeNow(List<AuditEvent> events) {
+        stats.recordCaptured(events.size());
+        writer.write(events);
+        stats.recordWritten(events.size(), events.get(0).getChangedAt());
+    }
+
+    // ASYNC mode: called after the business transaction committed
+    public void enqueue(List<AuditEvent> events) {
+        stats.recordCaptured(events.size());
+        List<AuditEvent> overflow = null;
+        for (AuditEvent event : events) {
+            if (!buffer.offer(event) && !waitForSpace(event)) {
+                if (overflow == null) {
+                    overflow = new ArrayList<>();
+                }
+                overflow.add(event);
+            }
+        }
+        if (overflow != null) {
+            handleOverflow(overflow);
+        }
+        Thread thread = drainer;
+        if (thread != null && buffer.size() >= properties.getBatchSize()) {
+            LockSupport.unpark(thread); // a full batch is ready, don't wait for the idle timeout
+        }
+    }
+
+    public AuditStats getStats() {
+        return stats;
+    }
+
+    public int getBuffered() {
+        return buffer.size();
+    }
+
+    public int getCapacity() {
+        return buffer.capacity();
+    }
+
+    private boolean waitForSpace(AuditEvent event) {
+        if (properties.getBackpressure() != AuditProperties.BackpressurePolicy.BLOCK) {
+            return false;
+        }
+        long deadline = System.nanoTime() + properties.getBlockTimeout().toNanos();
+        while (System.nanoTime() < deadline) {
+            LockSupport.unpark(drainer);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+            if (buffer.offer(event)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void handleOverflow(List<AuditEvent> overflow) {
+        if (properties.getBackpressure() == AuditProperties.BackpressurePolicy.CALLER_RUNS) {
+            try {
+                writer.write(overflow);
+                stats.recordWritten(overflow.size(), overflow.get(0).getChangedAt());
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Writing {} audit events on the caller's thread failed", overflow.size(), e);
+            }
+        }
+        stats.recordDropped(overflow.size());
+    }
+
+    private void drainLoop() {
+        List<AuditEvent> batch = new ArrayList<>(properties.getBatchSize());
+        while (running || buffer.size() > 0) {
+            batch.clear();
+            if (buffer.drainTo(batch, properties.getBatchSize()) == 0) {
+                if (!running) {
+                    break;
+                }
+                LockSupport.parkNanos(properties.getIdleWait().toNanos());
+                continue;
+            }
+            try {
+                writer.write(batch);
+                stats.recordWritten(batch.size(), batch.get(0).getChangedAt());
+            } catch (RuntimeException e) {
+                // the database is gone: keep draining, otherwise the buffer fills up and requests start to block
+                log.warn("Writing a batch of {} audit events failed, they are lost", batch.size(), e);
+                stats.recordWriteFailure(batch.size());
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::drainLoop, "audit-writer");
+        thread.setDaemon(true);
+        drainer = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = drainer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10)); // flush what is still buffered
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        drainer = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,35 @@
+package fi.tietoevry.backend.audit;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// Appends to audit_log; rows are never updated or deleted by the application
+public class AuditWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO audit_log (entity_type, entity_id, operation, field, old_value, new_value, changed_at)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AuditWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Joins the current transaction if there is one (JdbcTemplate shares the connection of the JPA transaction)
+    public void write(List<AuditEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, events, events.size(), (ps, event) -> {
+            ps.setString(1, event.getEntityType());
+            ps.setString(2, event.getEntityId());
+            ps.setString(3, event.getOperation().name());
+            ps.setString(4, event.getField());
+            ps.setString(5, event.getOldValue());
+            ps.setString(6, event.getNewValue());
+            ps.setTimestamp(7, new Timestamp(event.getChangedAt()));
+        });
+    }
+}
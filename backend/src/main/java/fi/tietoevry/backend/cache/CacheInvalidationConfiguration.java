@@ -0,0 +1,32 @@
+package fi.tietoevry.backend.cache;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@Configuration
+@EnableConfigurationProperties(InvalidationBusProperties.class)
+public class CacheInvalidationConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "backend.cache.invalidation.transport", havingValue = "jdbc", matchIfMissing = true)
+    public InvalidationBus jdbcInvalidationBus(JdbcTemplate jdbcTemplate, InvalidationBusProperties properties,
+                                               ObjectProvider<CacheManager> cacheManager) {
+        return withCacheEviction(new JdbcInvalidationBus(jdbcTemplate, properties), cacheManager);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "backend.cache.invalidation.transport", havingValue = "local")
+    public InvalidationBus localInvalidationBus(ObjectProvider<CacheManager> cacheManager) {
+        return withCacheEviction(new LocalInvalidationBus(), cacheManager);
+    }
+
+    private static InvalidationBus withCacheEviction(InvalidationBus bus, ObjectProvider<CacheManager> cacheManager) {
+        cacheManager.ifAvailable(manager -> bus.subscribe(new CacheManagerInvalidationListener(manager)));
+        return bus;
+    }
+}
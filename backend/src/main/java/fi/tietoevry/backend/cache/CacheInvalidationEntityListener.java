@@ -0,0 +1,74 @@
+package fi.tietoevry.backend.cache;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import fi.tietoevry.backend.model.Customer;
+import fi.tietoevry.backend.model.Employee;
+import fi.tietoevry.backend.model.Office;
+import fi.tietoevry.backend.model.Product;
+import fi.tietoevry.backend.model.ProductLine;
+
+/*
+JPA entity listener (see @EntityListeners on Product, ProductLine, Customer, Employee and Office).
+Spring Boot lets Hibernate create entity listeners as Spring beans, so we can get the bus injected here.
+*/
+@Component
+public class CacheInvalidationEntityListener {
+
+    private final ObjectProvider<InvalidationBus> bus; // lazy: listeners are created while the EntityManagerFactory is still being built
+
+    public CacheInvalidationEntityListener(ObjectProvider<InvalidationBus> bus) {
+        this.bus = bus;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void entityChanged(Object entity) {
+        InvalidationMessage message = toMessage(entity);
+        if (message == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Other instances must not re-read the row before our transaction has committed
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(message);
+                }
+            });
+        } else {
+            publish(message);
+        }
+    }
+
+    private void publish(InvalidationMessage message) {
+        bus.ifAvailable(b -> b.publish(message));
+    }
+
+    private static InvalidationMessage toMessage(Object entity) {
+        if (entity instanceof Product) {
+            return InvalidationMessage.of(Product.class, ((Product) entity).getProductCode());
+        }
+        if (entity instanceof ProductLine) {
+            return InvalidationMessage.of(ProductLine.class, ((ProductLine) entity).getProductLine());
+        }
+        if (entity instanceof Customer) {
+            return InvalidationMessage.of(Customer.class, ((Customer) entity).getCustomerNumber());
+        }
+        if (entity instanceof Employee) {
+            return InvalidationMessage.of(Employee.class, ((Employee) entity).getEmployeeNumber());
+        }
+        if (entity instanceof Office) {
+            return InvalidationMessage.of(Office.class, ((Office) entity).getOfficeCode());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,29 @@
+package fi.tietoevry.backend.cache;
+
+import java.util.Collection;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+/*
+Evicts invalidated entities from Spring caches. Caches are expected to be named after the entity type
+("Product", "Customer", "Office") and keyed by the id as a String, e.g. @Cacheable(cacheNames = "Product", key = "#code").
+*/
+public class CacheManagerInvalidationListener implements InvalidationListener {
+
+    private final CacheManager cacheManager;
+
+    public CacheManagerInvalidationListener(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public void onInvalidation(Collection<InvalidationMessage> messages) {
+        for (InvalidationMessage message : messages) {
+            Cache cache = cacheManager.getCache(message.getEntityType());
+            if (cache != null) {
+                cache.evict(message.getEntityId());
+            }
+        }
+    }
+}
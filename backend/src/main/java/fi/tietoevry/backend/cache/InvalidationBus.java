@@ -0,0 +1,19 @@
+package fi.tietoevry.backend.cache;
+
+/*
+Broadcasts entity invalidations to every backend instance.
+Local listeners are notified straight away on publish(), other instances are notified by the transport
+(see JdbcInvalidationBus for the default database-polled implementation).
+*/
+public interface InvalidationBus {
+
+    void publish(InvalidationMessage message);
+
+    default void publish(Class<?> entityClass, Object id) {
+        publish(InvalidationMessage.of(entityClass, id));
+    }
+
+    void subscribe(InvalidationListener listener);
+
+    InvalidationBusStats getStats();
+}
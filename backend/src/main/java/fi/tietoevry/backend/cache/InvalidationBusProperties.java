@@ -0,0 +1,93 @@
+package fi.tietoevry.backend.cache;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "backend.cache.invalidation")
+public class InvalidationBusProperties {
+
+    public enum Transport {
+        LOCAL, // single instance, nothing leaves the JVM
+        JDBC // cache_invalidation table polled by every instance
+    }
+
+    private Transport transport = Transport.JDBC;
+
+    // Must be unique per running instance; a random default is fine unless you want readable logs
+    private String nodeId = UUID.randomUUID().toString();
+
+    // How long publishes are collected (and coalesced) before they are written in one batch insert
+    private Duration flushInterval = Duration.ofMillis(50);
+
+    private Duration pollInterval = Duration.ofMillis(200);
+
+    // Max rows written per insert batch and read per poll
+    private int batchSize = 500;
+
+    /*
+    AUTO_INCREMENT values are handed out before commit, so a row with a lower seq can become visible after
+    a higher one was already read. Such holes are re-checked for this long before they are given up on.
+    */
+    private Duration gapTimeout = Duration.ofSeconds(10);
+
+    // Rows older than this are deleted; must comfortably exceed the longest expected instance pause
+    private Duration retention = Duration.ofHours(1);
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public Duration getPollInterval() {
+        return pollInterval;
+    }
+
+    public void setPollInterval(Duration pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getGapTimeout() {
+        return gapTimeout;
+    }
+
+    public void setGapTimeout(Duration gapTimeout) {
+        this.gapTimeout = gapTimeout;
+    }
+
+    public Duration getRetention() {
+        return retention;
+    }
+
+    public void setRetention(Duration retention) {
+        this.retention = retention;
+    }
+}
@@ -0,0 +1,68 @@
+package fi.tietoevry.backend.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Cheap counters for the bus; propagation latency is "received on this node" minus "published on the other node"
+public class InvalidationBusStats {
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder sent = new LongAdder(); // after coalescing, i.e. rows actually written
+    private final LongAdder sendBatches = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder latencyTotalMillis = new LongAdder();
+    private final AtomicLong latencyMaxMillis = new AtomicLong();
+
+    void recordPublished() {
+        published.increment();
+    }
+
+    void recordSent(int batchSize) {
+        sent.add(batchSize);
+        sendBatches.increment();
+    }
+
+    void recordReceived(InvalidationMessage message, long nowMillis) {
+        long latency = Math.max(0, nowMillis - message.getPublishedAt());
+        received.increment();
+        latencyTotalMillis.add(latency);
+        latencyMaxMillis.accumulateAndGet(latency, Math::max);
+    }
+
+    public long getPublished() {
+        return published.sum();
+    }
+
+    public long getSent() {
+        return sent.sum();
+    }
+
+    public long getSendBatches() {
+        return sendBatches.sum();
+    }
+
+    public long getReceived() {
+        return received.sum();
+    }
+
+    public double getAverageLatencyMillis() {
+        long count = received.sum();
+        return count == 0 ? 0 : (double) latencyTotalMillis.sum() / count;
+    }
+
+    public long getMaxLatencyMillis() {
+        return latencyMaxMillis.get();
+    }
+
+    @Override
+    public String toString() {
+        return "InvalidationBusStats{" +
+                "published=" + getPublished() +
+                ", sent=" + getSent() +
+                ", sendBatches=" + getSendBatches() +
+                ", received=" + getReceived() +
+                ", averageLatencyMillis=" + getAverageLatencyMillis() +
+                ", maxLatencyMillis=" + getMaxLatencyMillis() +
+                '}';
+    }
+}
@@ -0,0 +1,10 @@
+package fi.tietoevry.backend.cache;
+
+import java.util.Collection;
+
+// Receives already coalesced batches: the same entity type + id appears at most once per call
+@FunctionalInterface
+public interface InvalidationListener {
+
+    void onInvalidation(Collection<InvalidationMessage> messages);
+}
@@ -0,0 +1,63 @@
+package fi.tietoevry.backend.cache;
+
+import java.util.Objects;
+
+/*
+A single "forget this entity" notification: entity type (simple class name, e.g. "Product") plus its id.
+equals() and hashCode() only look at type and id, so putting messages into a Set coalesces duplicates.
+*/
+public final class InvalidationMessage {
+
+    private final String entityType;
+    private final String entityId;
+    private final long publishedAt; // epoch millis on the publishing node, used to measure propagation latency
+
+    public InvalidationMessage(String entityType, String entityId, long publishedAt) {
+        this.entityType = Objects.requireNonNull(entityType, "entityType");
+        this.entityId = Objects.requireNonNull(entityId, "entityId");
+        this.publishedAt = publishedAt;
+    }
+
+    public static InvalidationMessage of(Class<?> entityClass, Object id) {
+        return new InvalidationMessage(entityClass.getSimpleName(), String.valueOf(id), System.currentTimeMillis());
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public String getEntityId() {
+        return entityId;
+    }
+
+    public long getPublishedAt() {
+        return publishedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        InvalidationMessage that = (InvalidationMessage) o;
+        return entityType.equals(that.entityType) &&
+                entityId.equals(that.entityId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(entityType, entityId);
+    }
+
+    @Override
+    public String toString() {
+        return "InvalidationMessage{" +
+                "entityType='" + entityType + '\'' +
+                ", entityId='" + entityId + '\'' +
+                ", publishedAt=" + publishedAt +
+                '}';
+    }
+}
@@ -0,0 +1,229 @@
+package fi.tietoevry.backend.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/*
+Cross-instance transport on the cache_invalidation table of our own database: published messages are coalesced
+and written with one batch insert, every instance polls for the rows of the others.
+*/
+public class JdbcInvalidationBus extends LocalInvalidationBus implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(JdbcInvalidationBus.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO cache_invalidation (entity_type, entity_id, node_id, published_at) VALUES (?, ?, ?, ?)";
+    private static final String SELECT_COLUMNS = "SELECT seq, entity_type, entity_id, node_id, published_at FROM cache_invalidation ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final InvalidationBusProperties properties;
+
+    private final Object pendingLock = new Object();
+    private Set<InvalidationMessage> pending = new LinkedHashSet<>(); // guarded by pendingLock
+
+    // Only written by the single scheduler thread
+    private volatile long lastSeq;
+    private final TreeMap<Long, Long> gaps = new TreeMap<>(); // missing seq -> when we noticed it
+    private long lastPurge;
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    public JdbcInvalidationBus(JdbcTemplate jdbcTemplate, InvalidationBusProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    @Override
+    public void publish(InvalidationMessage message) {
+        super.publish(message); // evict locally right away, this node must never read its own stale data
+        boolean full;
+        synchronized (pendingLock) {
+            pending.remove(message); // keep the newest publishedAt so latency is not overstated
+            pending.add(message);
+            full = pending.size() >= properties.getBatchSize();
+        }
+        if (full && running) {
+            scheduler.execute(this::flush);
+        }
+    }
+
+    @Override
+    public void start() {
+        lastSeq = -1; // read on the first poll, so the application can start before the database is reachable
+        lastPurge = System.currentTimeMillis();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-invalidation-" + properties.getNodeId());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush,
+                properties.getFlushInterval().toMillis(), properties.getFlushInterval().toMillis(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::pollAndPurge,
+                properties.getPollInterval().toMillis(), properties.getPollInterval().toMillis(), TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush(); // don't lose what was published during shutdown
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // true once the starting position in cache_invalidation is known, from then on nothing published elsewhere is missed
+    boolean isPolling() {
+        return running && lastSeq >= 0;
+    }
+
+    void flush() {
+        List<InvalidationMessage> batch;
+        synchronized (pendingLock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pending);
+            pending = new LinkedHashSet<>();
+        }
+        int sent = 0;
+        try {
+            while (sent < batch.size()) {
+                List<InvalidationMessage> chunk = batch.subList(sent, Math.min(batch.size(), sent + properties.getBatchSize()));
+                jdbcTemplate.batchUpdate(INSERT_SQL, chunk, chunk.size(), (ps, message) -> {
+                    ps.setString(1, message.getEntityType());
+                    ps.setString(2, message.getEntityId());
+                    ps.setString(3, properties.getNodeId());
+                    ps.setLong(4, message.getPublishedAt());
+                });
+                stats.recordSent(chunk.size());
+                sent += chunk.size();
+            }
+        } catch (RuntimeException e) {
+            List<InvalidationMessage> unsent = batch.subList(sent, batch.size());
+            log.warn("Could not write {} cache invalidations, retrying on next flush", unsent.size(), e);
+            synchronized (pendingLock) {
+                pending.addAll(unsent); // messages published meanwhile stay, duplicates coalesce
+            }
+        }
+    }
+
+    void pollAndPurge() {
+        try {
+            int read;
+            do {
+                read = poll();
+            } while (read == properties.getBatchSize()); // keep draining while we are behind
+            purgeIfDue();
+        } catch (RuntimeException e) {
+            log.warn("Polling cache invalidations failed", e); // next poll starts from the same seq
+        }
+    }
+
+    int poll() {
+        if (lastSeq < 0) {
+            Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(seq), 0) FROM cache_invalidation", Long.class);
+            lastSeq = max == null ? 0 : max; // whatever happened before we started can't be in our (empty) caches
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        List<Row> rows = new ArrayList<>();
+        if (!gaps.isEmpty()) {
+            String placeholders = String.join(",", Collections.nCopies(gaps.size(), "?"));
+            rows.addAll(jdbcTemplate.query(SELECT_COLUMNS + "WHERE seq IN (" + placeholders + ")",
+                    (rs, i) -> new Row(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getLong(5)),
+                    gaps.keySet().toArray()));
+        }
+        List<Row> fresh = jdbcTemplate.query(SELECT_COLUMNS + "WHERE seq > ? ORDER BY seq LIMIT " + properties.getBatchSize(),
+                (rs, i) -> new Row(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getLong(5)),
+                lastSeq);
+        for (Row row : fresh) {
+            // remember skipped values, they may belong to a transaction that has not committed yet;
+            // only the ones right below the row are worth watching, huge holes come from rollbacks or purges
+            for (long missing = Math.max(lastSeq + 1, row.seq - properties.getBatchSize()); missing < row.seq; missing++) {
+                gaps.put(missing, now);
+            }
+            while (gaps.size() > properties.getBatchSize()) {
+                gaps.pollFirstEntry();
+            }
+            lastSeq = row.seq;
+        }
+        rows.addAll(fresh);
+
+        Set<InvalidationMessage> received = new LinkedHashSet<>();
+        for (Row row : rows) {
+            gaps.remove(row.seq);
+            if (!properties.getNodeId().equals(row.nodeId)) {
+                InvalidationMessage message = new InvalidationMessage(row.entityType, row.entityId, row.publishedAt);
+                if (received.add(message)) {
+                    stats.recordReceived(message, now);
+                }
+            }
+        }
+        expireGaps(now);
+        if (!received.isEmpty()) {
+            dispatch(received);
+        }
+        return fresh.size();
+    }
+
+    private void expireGaps(long now) {
+        long timeout = properties.getGapTimeout().toMillis();
+        for (Iterator<Map.Entry<Long, Long>> it = gaps.entrySet().iterator(); it.hasNext(); ) {
+            if (now - it.next().getValue() > timeout) {
+                it.remove(); // rolled back insert or an auto-increment hole, it will never show up
+            }
+        }
+    }
+
+    private void purgeIfDue() {
+        long now = System.currentTimeMillis();
+        long retention = properties.getRetention().toMillis();
+        if (now - lastPurge > retention / 10) {
+            lastPurge = now;
+            int deleted = jdbcTemplate.update("DELETE FROM cache_invalidation WHERE published_at < ?", now - retention);
+            log.debug("Purged {} old cache invalidations", deleted);
+        }
+    }
+
+    private static final class Row {
+        final long seq;
+        final String entityType;
+        final String entityId;
+        final String nodeId;
+        final long publishedAt;
+
+        Row(long seq, String entityType, String entityId, String nodeId, long publishedAt) {
+            this.seq = seq;
+            this.entityType = entityType;
+            this.entityId = entityId;
+            this.nodeId = nodeId;
+            this.publishedAt = publishedAt;
+        }
+    }
+}
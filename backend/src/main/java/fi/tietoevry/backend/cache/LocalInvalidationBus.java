@@ -0,0 +1,45 @@
+package fi.tietoevry.backend.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Single instance deployments (and the base for other transports): only notifies listeners of this JVM
+public class LocalInvalidationBus implements InvalidationBus {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalInvalidationBus.class);
+
+    private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+    protected final InvalidationBusStats stats = new InvalidationBusStats();
+
+    @Override
+    public void publish(InvalidationMessage message) {
+        stats.recordPublished();
+        dispatch(Collections.singletonList(message));
+    }
+
+    @Override
+    public void subscribe(InvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public InvalidationBusStats getStats() {
+        return stats;
+    }
+
+    protected void dispatch(Collection<InvalidationMessage> messages) {
+        for (InvalidationListener listener : listeners) {
+            try {
+                listener.onInvalidation(messages);
+            } catch (RuntimeException e) {
+                // one broken listener must not keep the others serving stale data
+                log.warn("Invalidation listener {} failed", listener, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package fi.tietoevry.backend.catalog;
+
+// A full catalog serialized once per version, plain and gzip-ed
+public final class CatalogBody {
+
+    private final long version;
+    private final String etag;
+    private final byte[] json;
+    private final byte[] gzip; // null when the body is too small to be worth compressing
+
+    CatalogBody(long version, String etag, byte[] json, byte[] gzip) {
+        this.version = version;
+        this.etag = etag;
+        this.json = json;
+        this.gzip = gzip;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public byte[] getJson() {
+        return json;
+    }
+
+    public byte[] getGzip() {
+        return gzip;
+    }
+}
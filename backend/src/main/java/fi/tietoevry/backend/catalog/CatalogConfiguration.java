@@ -0,0 +1,71 @@
+package fi.tietoevry.backend.catalog;
+
+import java.time.Clock;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import fi.tietoevry.backend.cache.InvalidationBus;
+import fi.tietoevry.backend.repository.ProductLineRepository;
+import fi.tietoevry.backend.repository.ProductRepository;
+
+@Configuration
+@EnableConfigurationProperties(CatalogProperties.class)
+public class CatalogConfiguration {
+
+    @Bean
+    public CatalogStats catalogStats() {
+        return new CatalogStats();
+    }
+
+    // GET /actuator/metrics/backend.catalog.requests etc.
+    @Bean
+    public MeterBinder catalogMetrics(CatalogStats stats) {
+        return registry -> {
+            FunctionCounter.builder("backend.catalog.requests", stats, CatalogStats::getRequests).register(registry);
+            FunctionCounter.builder("backend.catalog.not.modified", stats, CatalogStats::getNotModified)
+                    .description("Answered with 304 without touching a repository").register(registry);
+            FunctionCounter.builder("backend.catalog.version.reads", stats, CatalogStats::getVersionReads).register(registry);
+            FunctionCounter.builder("backend.catalog.list.loads", stats, CatalogStats::getCatalogLoads).register(registry);
+            FunctionCounter.builder("backend.catalog.item.loads", stats, CatalogStats::getItemLoads).register(registry);
+            FunctionCounter.builder("backend.catalog.bytes.served", stats, CatalogStats::getBytesServed).baseUnit("bytes").register(registry);
+            FunctionCounter.builder("backend.catalog.bytes.uncompressed", stats, CatalogStats::getUncompressedBytes).baseUnit("bytes")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public CatalogVersions catalogVersions(JdbcTemplate jdbcTemplate, CatalogProperties properties, CatalogStats stats,
+                                           ObjectProvider<InvalidationBus> invalidationBus) {
+        CatalogVersions versions = new CatalogVersions(jdbcTemplate, Clock.systemUTC(), properties.getVersionTtl(), stats);
+        invalidationBus.ifAvailable(bus -> bus.subscribe(versions));
+        return versions;
+    }
+
+    @Bean
+    public CatalogService catalogService(CatalogVersions versions, ProductRepository productRepository,
+                                         ProductLineRepository productLineRepository, ObjectMapper objectMapper,
+                                         PlatformTransactionManager transactionManager, CatalogProperties properties, CatalogStats stats) {
+        Map<CatalogTable, Supplier<List<?>>> loaders = new EnumMap<>(CatalogTable.class);
+        loaders.put(CatalogTable.PRODUCTS, () -> productRepository.findAll(Sort.by("productCode")));
+        loaders.put(CatalogTable.PRODUCT_LINES, () -> productLineRepository.findAll(Sort.by("productLine")));
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return new CatalogService(versions, loaders, objectMapper, readOnly, (int) properties.getCompressionMinSize().toBytes(), stats);
+    }
+}
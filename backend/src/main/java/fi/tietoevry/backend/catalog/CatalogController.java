@@ -0,0 +1,115 @@
+package fi.tietoevry.backend.catalog;
+
+import java.util.Locale;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import fi.tietoevry.backend.model.Product;
+import fi.tietoevry.backend.model.ProductLine;
+import fi.tietoevry.backend.repository.ProductLineRepository;
+import fi.tietoevry.backend.repository.ProductRepository;
+
+/*
+Products and product lines with conditional GET: every response carries the table's ETag, and a request whose
+If-None-Match still matches gets 304 before any repository is asked. Clients should revalidate (Cache-Control: no-cache),
+a revalidation costs at most one small read of table_versions per second.
+*/
+@RestController
+public class CatalogController {
+
+    private final CatalogService catalogService;
+    private final ProductRepository productRepository;
+    private final ProductLineRepository productLineRepository;
+    private final CatalogStats stats;
+
+    public CatalogController(CatalogService catalogService, ProductRepository productRepository, ProductLineRepository productLineRepository) {
+        this.catalogService = catalogService;
+        this.productRepository = productRepository;
+        this.productLineRepository = productLineRepository;
+        this.stats = catalogService.getStats();
+    }
+
+    @GetMapping("/api/products")
+    public ResponseEntity<byte[]> products(@RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                           WebRequest request) {
+        return catalog(CatalogTable.PRODUCTS, acceptEncoding, request);
+    }
+
+    @GetMapping("/api/productlines")
+    public ResponseEntity<byte[]> productLines(@RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                               WebRequest request) {
+        return catalog(CatalogTable.PRODUCT_LINES, acceptEncoding, request);
+    }
+
+    @GetMapping("/api/products/{productCode}")
+    public ResponseEntity<Product> product(@PathVariable String productCode, WebRequest request) {
+        stats.recordRequest();
+        String etag = catalogService.etag(CatalogTable.PRODUCTS);
+        if (request.checkNotModified(etag)) {
+            stats.recordNotModified();
+            return null;
+        }
+        stats.recordItemLoad();
+        Product product = productRepository.findById(productCode)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No product " + productCode));
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(product);
+    }
+
+    @GetMapping("/api/productlines/{productLine}")
+    public ResponseEntity<ProductLine> productLine(@PathVariable String productLine, WebRequest request) {
+        stats.recordRequest();
+        String etag = catalogService.etag(CatalogTable.PRODUCT_LINES);
+        if (request.checkNotModified(etag)) {
+            stats.recordNotModified();
+            return null;
+        }
+        stats.recordItemLoad();
+        ProductLine line = productLineRepository.findById(productLine)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No product line " + productLine));
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(line);
+    }
+
+    private ResponseEntity<byte[]> catalog(CatalogTable table, String acceptEncoding, WebRequest request) {
+        stats.recordRequest();
+        if (request.checkNotModified(catalogService.etag(table))) {
+            stats.recordNotModified();
+            return null;
+        }
+        CatalogBody body = catalogService.catalog(table);
+        boolean gzip = body.getGzip() != null && acceptsGzip(acceptEncoding);
+        byte[] bytes = gzip ? body.getGzip() : body.getJson();
+        stats.recordBody(bytes.length, body.getJson().length);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(body.getEtag())
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip"); // Tomcat doesn't compress what already has a Content-Encoding
+        }
+        return response.body(bytes);
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equals("gzip")) {
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
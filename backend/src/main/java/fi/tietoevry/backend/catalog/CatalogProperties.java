@@ -0,0 +1,32 @@
+package fi.tietoevry.backend.catalog;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@ConfigurationProperties(prefix = "backend.catalog")
+public class CatalogProperties {
+
+    // How long a read of table_versions is trusted; changes made through JPA are seen right away anyway
+    private Duration versionTtl = Duration.ofSeconds(1);
+
+    // Precompress full catalogs from this size on, like server.compression.min-response-size does for everything else
+    private DataSize compressionMinSize = DataSize.ofKilobytes(2);
+
+    public Duration getVersionTtl() {
+        return versionTtl;
+    }
+
+    public void setVersionTtl(Duration versionTtl) {
+        this.versionTtl = versionTtl;
+    }
+
+    public DataSize getCompressionMinSize() {
+        return compressionMinSize;
+    }
+
+    public void setCompressionMinSize(DataSize compressionMinSize) {
+        this.compressionMinSize = compressionMinSize;
+    }
+}
@@ -0,0 +1,86 @@
+package fi.tietoevry.backend.catalog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+Full catalogs (all products, all product lines) as ready-to-send bytes: loaded, serialized and gzip-ed once per
+table version, then served from memory until the version moves. The version is read before the rows, and the
+triggers bump it in the writing transaction, so a cached body is never older than the version it is filed under.
+*/
+public class CatalogService {
+
+    private final CatalogVersions versions;
+    private final Map<CatalogTable, Supplier<List<?>>> loaders;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int compressionMinSize;
+    private final CatalogStats stats;
+    private final Map<CatalogTable, CatalogBody> bodies = new ConcurrentHashMap<>();
+
+    public CatalogService(CatalogVersions versions, Map<CatalogTable, Supplier<List<?>>> loaders, ObjectMapper objectMapper,
+                          TransactionTemplate readOnlyTransaction, int compressionMinSize, CatalogStats stats) {
+        this.versions = versions;
+        this.loaders = loaders;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = readOnlyTransaction;
+        this.compressionMinSize = compressionMinSize;
+        this.stats = stats;
+    }
+
+    public String etag(CatalogTable table) {
+        return table.etag(versions.version(table));
+    }
+
+    public CatalogBody catalog(CatalogTable table) {
+        long version = versions.version(table);
+        CatalogBody body = bodies.get(table);
+        if (body != null && body.getVersion() >= version) {
+            return body;
+        }
+        // compute() lets one request build a new version while the others for the same table wait for it
+        return bodies.compute(table, (key, existing) -> existing != null && existing.getVersion() >= version ? existing : build(key, version));
+    }
+
+    public CatalogStats getStats() {
+        return stats;
+    }
+
+    private CatalogBody build(CatalogTable table, long version) {
+        byte[] json = readOnlyTransaction.execute(status -> {
+            try {
+                return objectMapper.writeValueAsBytes(loaders.get(table).get()); // inside the transaction: lazy references still resolve
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Could not serialize the " + table.getTableName() + " catalog", e);
+            }
+        });
+        stats.recordCatalogLoad();
+        return new CatalogBody(version, table.etag(version), json, json.length >= compressionMinSize ? gzip(json) : null);
+    }
+
+    static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION); // compressed once per version, sent many times
+            }
+        }) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+}
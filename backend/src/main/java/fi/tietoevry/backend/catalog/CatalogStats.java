@@ -0,0 +1,77 @@
+package fi.tietoevry.backend.catalog;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters of the catalog endpoints, published as backend.catalog.* meters (see CatalogConfiguration)
+public class CatalogStats {
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder versionReads = new LongAdder();
+    private final LongAdder catalogLoads = new LongAdder();
+    private final LongAdder itemLoads = new LongAdder();
+    private final LongAdder bytesServed = new LongAdder();
+    private final LongAdder uncompressedBytes = new LongAdder();
+
+    void recordRequest() {
+        requests.increment();
+    }
+
+    void recordNotModified() {
+        notModified.increment();
+    }
+
+    void recordVersionRead() {
+        versionReads.increment();
+    }
+
+    void recordCatalogLoad() {
+        catalogLoads.increment();
+    }
+
+    void recordItemLoad() {
+        itemLoads.increment();
+    }
+
+    void recordBody(long served, long uncompressed) {
+        bytesServed.add(served);
+        uncompressedBytes.add(uncompressed);
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    // Answered with 304 without touching a repository
+    public long getNotModified() {
+        return notModified.sum();
+    }
+
+    // SELECTs on table_versions
+    public long getVersionReads() {
+        return versionReads.sum();
+    }
+
+    // Full catalogs loaded, serialized and compressed
+    public long getCatalogLoads() {
+        return catalogLoads.sum();
+    }
+
+    // Single products / product lines read from the repository
+    public long getItemLoads() {
+        return itemLoads.sum();
+    }
+
+    public long getDatabaseCalls() {
+        return getVersionReads() + getCatalogLoads() + getItemLoads();
+    }
+
+    // Precompressed catalog bodies as sent; single items before the server's own compression
+    public long getBytesServed() {
+        return bytesServed.sum();
+    }
+
+    public long getUncompressedBytes() {
+        return uncompressedBytes.sum();
+    }
+}
@@ -0,0 +1,28 @@
+package fi.tietoevry.backend.catalog;
+
+// A table the catalog endpoints serve, its row in table_versions and the entity type its invalidation messages carry
+public enum CatalogTable {
+    PRODUCTS("products", "Product"),
+    PRODUCT_LINES("productlines", "ProductLine");
+
+    private final String tableName;
+    private final String entityType;
+
+    CatalogTable(String tableName, String entityType) {
+        this.tableName = tableName;
+        this.entityType = entityType;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    // Weak: gzip-ed and plain bodies of the same version carry the same tag
+    public String etag(long version) {
+        return "W/\"" + tableName + "-" + version + "\"";
+    }
+}
@@ -0,0 +1,89 @@
+package fi.tietoevry.backend.catalog;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import fi.tietoevry.backend.cache.InvalidationListener;
+import fi.tietoevry.backend.cache.InvalidationMessage;
+
+/*
+The current table_versions of the catalog tables, read from the database at most once per ttl.
+Changes made through JPA (on this or another instance) arrive as invalidation messages and force a read on the next
+request, so a client sees its own writes immediately; plain SQL writes show up within the ttl.
+*/
+public class CatalogVersions implements InvalidationListener {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Clock clock;
+    private final long ttlMillis;
+    private final CatalogStats stats;
+
+    private volatile Versions versions;
+    private volatile boolean stale = true;
+
+    public CatalogVersions(JdbcTemplate jdbcTemplate, Clock clock, Duration ttl, CatalogStats stats) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+        this.ttlMillis = ttl.toMillis();
+        this.stats = stats;
+    }
+
+    public long version(CatalogTable table) {
+        Versions current = versions;
+        if (stale || current == null || clock.millis() - current.readAt >= ttlMillis) {
+            current = refresh();
+        }
+        return current.byTable[table.ordinal()];
+    }
+
+    @Override
+    public void onInvalidation(Collection<InvalidationMessage> messages) {
+        for (InvalidationMessage message : messages) {
+            for (CatalogTable table : CatalogTable.values()) {
+                if (table.getEntityType().equals(message.getEntityType())) {
+                    stale = true;
+                    return;
+                }
+            }
+        }
+    }
+
+    private synchronized Versions refresh() {
+        Versions current = versions;
+        if (!stale && current != null && clock.millis() - current.readAt < ttlMillis) {
+            return current; // another request just read them
+        }
+        stale = false; // before the read: an invalidation arriving meanwhile makes the next request read again
+        long[] byTable = new long[CatalogTable.values().length];
+        long readAt = clock.millis();
+        try {
+            jdbcTemplate.query("SELECT table_name, version FROM table_versions", rs -> {
+                for (CatalogTable table : CatalogTable.values()) {
+                    if (table.getTableName().equals(rs.getString(1))) {
+                        byTable[table.ordinal()] = rs.getLong(2);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            stale = true;
+            throw e;
+        }
+        stats.recordVersionRead();
+        current = new Versions(byTable, readAt);
+        versions = current;
+        return current;
+    }
+
+    private static final class Versions {
+        private final long[] byTable;
+        private final long readAt;
+
+        private Versions(long[] byTable, long readAt) {
+            this.byTable = byTable;
+            this.readAt = readAt;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package fi.tietoevry.backend.config;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+// Appends a listener to whichever of the post insert / update / delete events it implements
+public class EventListenerIntegrator implements Integrator {
+
+    private final Object listener;
+
+    public EventListenerIntegrator(Object listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
+        if (listener instanceof PostInsertEventListener) {
+            registry.appendListeners(EventType.POST_INSERT, (PostInsertEventListener) listener);
+        }
+        if (listener instanceof PostUpdateEventListener) {
+            registry.appendListeners(EventType.POST_UPDATE, (PostUpdateEventListener) listener);
+        }
+        if (listener instanceof PostDeleteEventListener) {
+            registry.appendListeners(EventType.POST_DELETE, (PostDeleteEventListener) listener);
+        }
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+}
@@ -0,0 +1,27 @@
+package fi.tietoevry.backend.config;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+Hibernate accepts only one integrator provider, so every Integrator bean (audit, outbox, ...) is handed over here.
+Integrators run while the session factory is built, which also works with deferred JPA bootstrap.
+*/
+@Configuration
+public class HibernateIntegratorConfiguration {
+
+    @Bean
+    public HibernatePropertiesCustomizer integratorProviderCustomizer(ObjectProvider<Integrator> integrators) {
+        return hibernateProperties -> {
+            List<Integrator> all = integrators.orderedStream().collect(Collectors.toList());
+            hibernateProperties.put("hibernate.integrator_provider", (IntegratorProvider) () -> all);
+        };
+    }
+}
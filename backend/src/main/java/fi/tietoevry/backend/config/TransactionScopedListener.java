@@ -0,0 +1,70 @@
+package fi.tietoevry.backend.config;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.ActionQueue;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/*
+Base of the flush listeners that collect changes into one P per transaction: P is registered as the
+before and/or after transaction completion process it implements.
+*/
+public abstract class TransactionScopedListener<P> {
+
+    private final transient Map<ActionQueue, P> unsynchronized = Collections.synchronizedMap(new WeakHashMap<>());
+
+    protected abstract P newPending();
+
+    protected P pendingFor(EventSource session) {
+        ActionQueue actionQueue = session.getActionQueue();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            P pending = unsynchronized.get(actionQueue);
+            if (pending == null) {
+                pending = register(actionQueue);
+                unsynchronized.put(actionQueue, pending);
+                actionQueue.registerProcess((success, completed) -> unsynchronized.remove(actionQueue));
+            }
+            return pending;
+        }
+        @SuppressWarnings("unchecked")
+        P pending = (P) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = register(actionQueue);
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TransactionScopedListener.this);
+                }
+            });
+        }
+        return pending;
+    }
+
+    private P register(ActionQueue actionQueue) {
+        P pending = newPending();
+        if (pending instanceof BeforeTransactionCompletionProcess) {
+            actionQueue.registerProcess((BeforeTransactionCompletionProcess) pending);
+        }
+        if (pending instanceof AfterTransactionCompletionProcess) {
+            actionQueue.registerProcess((AfterTransactionCompletionProcess) pending);
+        }
+        return pending;
+    }
+
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false; // the pending changes are completion processes themselves
+    }
+
+    @Deprecated // still abstract in Hibernate 5.6, which only calls requiresPostCommitHandling
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+}
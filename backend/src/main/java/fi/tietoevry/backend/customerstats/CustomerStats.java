@@ -0,0 +1,61 @@
+package fi.tietoevry.backend.customerstats;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+// A customer_stats row with the customer's name, as listed by GET /api/customers/stats
+public class CustomerStats {
+
+    private final Long customerNumber;
+    private final String customerName;
+    private final String country;
+    private final BigDecimal lifetimeRevenue;
+    private final BigDecimal totalPaid;
+    private final BigDecimal outstandingBalance;
+    private final int orderCount;
+    private final Date lastOrderDate;
+
+    public CustomerStats(Long customerNumber, String customerName, String country, BigDecimal lifetimeRevenue, BigDecimal totalPaid,
+                         BigDecimal outstandingBalance, int orderCount, Date lastOrderDate) {
+        this.customerNumber = customerNumber;
+        this.customerName = customerName;
+        this.country = country;
+        this.lifetimeRevenue = lifetimeRevenue;
+        this.totalPaid = totalPaid;
+        this.outstandingBalance = outstandingBalance;
+        this.orderCount = orderCount;
+        this.lastOrderDate = lastOrderDate;
+    }
+
+    public Long getCustomerNumber() {
+        return customerNumber;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public BigDecimal getLifetimeRevenue() {
+        return lifetimeRevenue;
+    }
+
+    public BigDecimal getTotalPaid() {
+        return totalPaid;
+    }
+
+    public BigDecimal getOutstandingBalance() {
+        return outstandingBalance;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public Date getLastOrderDate() {
+        return lastOrderDate;
+    }
+}
@@ -0,0 +1,56 @@
+package fi.tietoevry.backend.customerstats;
+
+import java.util.List;
+
+import org.hibernate.integrator.spi.Integrator;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import fi.tietoevry.backend.config.EventListenerIntegrator;
+import fi.tietoevry.backend.sharding.ScatterGather;
+import fi.tietoevry.backend.sharding.ShardRouter;
+
+@Configuration
+@EnableConfigurationProperties(CustomerStatsProperties.class)
+public class CustomerStatsConfiguration {
+
+    @Bean
+    public CustomerStatsUpdater customerStatsUpdater() {
+        return new CustomerStatsUpdater();
+    }
+
+    @Bean
+    public Integrator customerStatsListenerIntegrator(CustomerStatsUpdater updater, CustomerStatsProperties properties) {
+        return new EventListenerIntegrator(new CustomerStatsListener(updater, properties));
+    }
+
+    @Bean
+    public CustomerStatsService customerStatsService(ScatterGather scatterGather) {
+        return new CustomerStatsService(scatterGather);
+    }
+
+    @Bean
+    public CustomerStatsRebuild customerStatsRebuild(ShardRouter shardRouter, CustomerStatsUpdater updater, CustomerStatsProperties properties) {
+        return new CustomerStatsRebuild(shardRouter, updater, properties);
+    }
+
+    // One runner so the check always sees the rebuilt table; without repair a drift fails the start-up, so it can gate a deployment
+    @Bean
+    @ConditionalOnExpression("${backend.customer-stats.rebuild:false} or ${backend.customer-stats.check:false}")
+    public ApplicationRunner customerStatsRunner(CustomerStatsRebuild rebuild, CustomerStatsProperties properties) {
+        return args -> {
+            if (properties.isRebuild()) {
+                rebuild.rebuild();
+            }
+            if (properties.isCheck()) {
+                List<Long> mismatches = rebuild.check(properties.isRepair());
+                if (!mismatches.isEmpty() && !properties.isRepair()) {
+                    throw new IllegalStateException("customer_stats differs from the orders for " + mismatches.size() + " customers");
+                }
+            }
+        };
+    }
+}
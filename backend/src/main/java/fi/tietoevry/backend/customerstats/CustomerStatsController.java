@@ -0,0 +1,42 @@
+package fi.tietoevry.backend.customerstats;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+public class CustomerStatsController {
+
+    private static final int MAX_LIMIT = 500;
+
+    private final CustomerStatsService statsService;
+
+    public CustomerStatsController(CustomerStatsService statsService) {
+        this.statsService = statsService;
+    }
+
+    // e.g. /api/customers/stats?sort=outstandingBalance&minBalance=10000&limit=20
+    @GetMapping("/api/customers/stats")
+    public List<CustomerStats> list(@RequestParam(defaultValue = "outstandingBalance") String sort,
+                                    @RequestParam(defaultValue = "desc") String direction,
+                                    @RequestParam(required = false) BigDecimal minBalance,
+                                    @RequestParam(required = false) BigDecimal minRevenue,
+                                    @RequestParam(defaultValue = "50") int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_LIMIT);
+        }
+        if (!"asc".equalsIgnoreCase(direction) && !"desc".equalsIgnoreCase(direction)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "direction must be asc or desc");
+        }
+        try {
+            return statsService.list(CustomerStatsService.sortByName(sort), "desc".equalsIgnoreCase(direction), minBalance, minRevenue, limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package fi.tietoevry.backend.customerstats;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// What one transaction changed, folded per order / customer; turned into customer_stats updates right before commit
+class CustomerStatsDelta {
+
+    final Map<Long, BigDecimal> lineRevenueByOrder = new HashMap<>();
+    final Set<Long> newOrders = new HashSet<>();
+    final Map<Long, BigDecimal> paidByCustomer = new HashMap<>();
+    final Set<Long> recomputeOrders = new HashSet<>(); // the customer of the order is recomputed from scratch
+    final Set<Long> recomputeCustomers = new HashSet<>();
+
+    void addLineRevenue(Long orderNumber, BigDecimal delta) {
+        lineRevenueByOrder.merge(orderNumber, delta, BigDecimal::add);
+    }
+
+    void addOrder(Long orderNumber) {
+        newOrders.add(orderNumber);
+    }
+
+    void addPayment(Long customerNumber, BigDecimal delta) {
+        paidByCustomer.merge(customerNumber, delta, BigDecimal::add);
+    }
+
+    void recomputeOrder(Long orderNumber) {
+        recomputeOrders.add(orderNumber);
+    }
+
+    void recomputeCustomer(Long customerNumber) {
+        if (customerNumber != null) {
+            recomputeCustomers.add(customerNumber);
+        }
+    }
+
+    boolean isEmpty() {
+        return lineRevenueByOrder.isEmpty() && newOrders.isEmpty() && paidByCustomer.isEmpty()
+                && recomputeOrders.isEmpty() && recomputeCustomers.isEmpty();
+    }
+}
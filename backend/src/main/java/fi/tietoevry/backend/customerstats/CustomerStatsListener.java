@@ -0,0 +1,167 @@
+package fi.tietoevry.backend.customerstats;
+
+import java.math.BigDecimal;
+
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import fi.tietoevry.backend.config.TransactionScopedListener;
+import fi.tietoevry.backend.model.Customer;
+import fi.tietoevry.backend.model.Order;
+import fi.tietoevry.backend.model.OrderDetail;
+import fi.tietoevry.backend.model.Payment;
+
+/*
+Keeps customer_stats in step with order, order line and payment changes made through JPA: the changes are
+folded into one CustomerStatsDelta and written right before the commit.
+*/
+public class CustomerStatsListener extends TransactionScopedListener<CustomerStatsListener.PendingStats>
+        implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final transient CustomerStatsUpdater updater;
+    private final transient CustomerStatsProperties properties;
+
+    public CustomerStatsListener(CustomerStatsUpdater updater, CustomerStatsProperties properties) {
+        this.updater = updater;
+        this.properties = properties;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        Object entity = event.getEntity();
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (entity instanceof Order) {
+            deltaFor(event.getSession()).addOrder(((Order) entity).getOrderNumber());
+        } else if (entity instanceof OrderDetail) {
+            OrderDetail detail = (OrderDetail) entity;
+            deltaFor(event.getSession()).addLineRevenue(detail.getOrderNumber(), lineTotal(detail.getQuantityOrdered(), detail.getPriceEach()));
+        } else if (entity instanceof Payment) {
+            Payment payment = (Payment) entity;
+            deltaFor(event.getSession()).addPayment(payment.getJsonCustomerNumber(), orZero(payment.getAmount()));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        Object entity = event.getEntity();
+        if (!properties.isEnabled()) {
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        Object[] oldState = event.getOldState();
+        if (entity instanceof Order) {
+            if (!anyDirty(event, "status", "orderDate", "customer")) {
+                return; // e.g. a new comment or shipped date
+            }
+            Order order = (Order) entity;
+            CustomerStatsDelta delta = deltaFor(event.getSession());
+            delta.recomputeCustomer(order.getJsonCustomerNumber());
+            delta.recomputeOrder(order.getOrderNumber());
+            Customer previous = oldState == null ? null : (Customer) value(persister, oldState, "customer");
+            if (previous != null) {
+                delta.recomputeCustomer(previous.getCustomerNumber()); // the order moved away from it
+            }
+        } else if (entity instanceof OrderDetail) {
+            OrderDetail detail = (OrderDetail) entity;
+            if (oldState == null) { // merged without loading, no idea what changed
+                deltaFor(event.getSession()).recomputeOrder(detail.getOrderNumber());
+                return;
+            }
+            BigDecimal before = lineTotal((Long) value(persister, oldState, "quantityOrdered"), (BigDecimal) value(persister, oldState, "priceEach"));
+            BigDecimal after = lineTotal(detail.getQuantityOrdered(), detail.getPriceEach());
+            deltaFor(event.getSession()).addLineRevenue(detail.getOrderNumber(), after.subtract(before));
+        } else if (entity instanceof Payment) {
+            Payment payment = (Payment) entity;
+            if (oldState == null) {
+                deltaFor(event.getSession()).recomputeCustomer(payment.getJsonCustomerNumber());
+                return;
+            }
+            BigDecimal before = orZero((BigDecimal) value(persister, oldState, "amount"));
+            deltaFor(event.getSession()).addPayment(payment.getJsonCustomerNumber(), orZero(payment.getAmount()).subtract(before));
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        Object entity = event.getEntity();
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (entity instanceof Order) {
+            deltaFor(event.getSession()).recomputeCustomer(((Order) entity).getJsonCustomerNumber());
+        } else if (entity instanceof OrderDetail) {
+            OrderDetail detail = (OrderDetail) entity;
+            deltaFor(event.getSession()).addLineRevenue(detail.getOrderNumber(), lineTotal(detail.getQuantityOrdered(), detail.getPriceEach()).negate());
+        } else if (entity instanceof Payment) {
+            Payment payment = (Payment) entity;
+            deltaFor(event.getSession()).addPayment(payment.getJsonCustomerNumber(), orZero(payment.getAmount()).negate());
+        }
+    }
+
+    @Override
+    protected PendingStats newPending() {
+        return new PendingStats();
+    }
+
+    private CustomerStatsDelta deltaFor(EventSource session) {
+        return pendingFor(session).delta;
+    }
+
+    private static boolean anyDirty(PostUpdateEvent event, String... properties) {
+        int[] dirty = event.getDirtyProperties();
+        if (dirty == null) {
+            return true;
+        }
+        String[] names = event.getPersister().getPropertyNames();
+        for (int index : dirty) {
+            for (String property : properties) {
+                if (property.equals(names[index])) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Object value(EntityPersister persister, Object[] state, String property) {
+        String[] names = persister.getPropertyNames();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(property)) {
+                return state[i];
+            }
+        }
+        throw new IllegalArgumentException(persister.getEntityName() + " has no property " + property);
+    }
+
+    private static BigDecimal lineTotal(Long quantity, BigDecimal price) {
+        return quantity == null || price == null ? BigDecimal.ZERO : price.multiply(BigDecimal.valueOf(quantity));
+    }
+
+    private static BigDecimal orZero(BigDecimal amount) {
+        return amount == null ? BigDecimal.ZERO : amount;
+    }
+
+    class PendingStats implements BeforeTransactionCompletionProcess {
+
+        private final CustomerStatsDelta delta = new CustomerStatsDelta();
+
+        @Override
+        public void doBeforeTransactionCompletion(SessionImplementor session) {
+            if (!delta.isEmpty()) {
+                session.doWork(connection -> updater.apply(new JdbcTemplate(new SingleConnectionDataSource(connection, true)), delta));
+            }
+        }
+    }
+}
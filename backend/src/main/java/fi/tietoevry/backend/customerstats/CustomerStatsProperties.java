@@ -0,0 +1,68 @@
+package fi.tietoevry.backend.customerstats;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "backend.customer-stats")
+public class CustomerStatsProperties {
+
+    private boolean enabled = true; // incremental maintenance; when off the table goes stale until the next rebuild
+
+    // One-off commands on application start, e.g. mvn spring-boot:run -Dspring-boot.run.arguments="--backend.customer-stats.check=true"
+    private boolean rebuild;
+
+    private boolean check;
+
+    private boolean repair; // let the check recompute the customers it found to be wrong
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private int customersPerTransaction = 500; // rebuild unit of work
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isRebuild() {
+        return rebuild;
+    }
+
+    public void setRebuild(boolean rebuild) {
+        this.rebuild = rebuild;
+    }
+
+    public boolean isCheck() {
+        return check;
+    }
+
+    public void setCheck(boolean check) {
+        this.check = check;
+    }
+
+    public boolean isRepair() {
+        return repair;
+    }
+
+    public void setRepair(boolean repair) {
+        this.repair = repair;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getCustomersPerTransaction() {
+        return customersPerTransaction;
+    }
+
+    public void setCustomersPerTransaction(int customersPerTransaction) {
+        this.customersPerTransaction = customersPerTransaction;
+    }
+}
@@ -0,0 +1,141 @@
+package fi.tietoevry.backend.customerstats;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import fi.tietoevry.backend.sharding.Shard;
+import fi.tietoevry.backend.sharding.ShardRouter;
+
+/*
+Full rebuild and consistency check of customer_stats, in chunks of customersPerTransaction on a pool of threads.
+Sharded, every shard keeps the rows of its own customers and drops the others.
+*/
+public class CustomerStatsRebuild {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerStatsRebuild.class);
+
+    private final ShardRouter shardRouter;
+    private final CustomerStatsUpdater updater;
+    private final CustomerStatsProperties properties;
+
+    public CustomerStatsRebuild(ShardRouter shardRouter, CustomerStatsUpdater updater, CustomerStatsProperties properties) {
+        this.shardRouter = shardRouter;
+        this.updater = updater;
+        this.properties = properties;
+    }
+
+    // Returns the number of customers rebuilt
+    public int rebuild() {
+        long start = System.currentTimeMillis();
+        int customers = 0;
+        int chunkCount = 0;
+        for (Shard shard : shardRouter.getShards()) {
+            JdbcTemplate jdbcTemplate = shard.getJdbcTemplate();
+            TransactionTemplate transactionTemplate = transactionTemplate(shard);
+            List<List<Long>> foreign = chunks(customers(shard, false));
+            forEachChunk(foreign, chunk -> {
+                transactionTemplate.executeWithoutResult(status -> updater.delete(jdbcTemplate, chunk));
+                return Collections.<Long>emptyList();
+            });
+            List<List<Long>> chunks = chunks(customers(shard, true));
+            forEachChunk(chunks, chunk -> {
+                transactionTemplate.executeWithoutResult(status -> updater.recompute(jdbcTemplate, chunk));
+                return Collections.<Long>emptyList();
+            });
+            customers += jdbcTemplate.queryForObject("SELECT COUNT(*) FROM customer_stats", Integer.class);
+            chunkCount += chunks.size();
+        }
+        log.info("Rebuilt customer_stats for {} customers in {} chunks in {} ms", customers, chunkCount, System.currentTimeMillis() - start);
+        return customers;
+    }
+
+    // Customers whose row doesn't match the aggregate; with repair they are recomputed on the way
+    public List<Long> check(boolean repair) {
+        List<Long> mismatches = new ArrayList<>();
+        for (Shard shard : shardRouter.getShards()) {
+            JdbcTemplate jdbcTemplate = shard.getJdbcTemplate();
+            TransactionTemplate transactionTemplate = transactionTemplate(shard);
+            mismatches.addAll(forEachChunk(chunks(customers(shard, true)), chunk -> transactionTemplate.execute(status -> {
+                List<Long> wrong = updater.findMismatches(jdbcTemplate, chunk);
+                if (repair && !wrong.isEmpty()) {
+                    updater.recompute(jdbcTemplate, wrong);
+                }
+                return wrong;
+            })));
+        }
+        Collections.sort(mismatches);
+        if (mismatches.isEmpty()) {
+            log.info("customer_stats is consistent");
+        } else {
+            log.warn("customer_stats differs for {} customers{}: {}", mismatches.size(), repair ? " (repaired)" : "",
+                    mismatches.size() > 20 ? mismatches.subList(0, 20) + "..." : mismatches);
+        }
+        return mismatches;
+    }
+
+    // The customers the shard keeps the stats of (routed), or the ones it holds the reference data of only
+    private List<Long> customers(Shard shard, boolean routed) {
+        List<Long> customers = shard.getJdbcTemplate().queryForList("SELECT customerNumber FROM customers ORDER BY customerNumber", Long.class);
+        if (!shardRouter.isSharded()) {
+            return routed ? customers : Collections.<Long>emptyList();
+        }
+        return customers.stream().filter(customer -> (shardRouter.shardForCustomer(customer) == shard) == routed).collect(Collectors.toList());
+    }
+
+    private List<List<Long>> chunks(List<Long> customers) {
+        List<List<Long>> chunks = new ArrayList<>();
+        int size = Math.max(1, properties.getCustomersPerTransaction());
+        for (int from = 0; from < customers.size(); from += size) {
+            chunks.add(customers.subList(from, Math.min(from + size, customers.size())));
+        }
+        return chunks;
+    }
+
+    private static TransactionTemplate transactionTemplate(Shard shard) {
+        return new TransactionTemplate(new DataSourceTransactionManager(shard.getDataSource()));
+    }
+
+    private List<Long> forEachChunk(List<List<Long>> chunks, ChunkTask task) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, properties.getThreads()),
+                runnable -> new Thread(runnable, "customer-stats-" + threadNumber.incrementAndGet()));
+        try {
+            List<Future<List<Long>>> results = new ArrayList<>();
+            for (List<Long> chunk : chunks) {
+                results.add(workers.submit(() -> task.run(chunk)));
+            }
+            List<Long> collected = new ArrayList<>();
+            for (Future<List<Long>> result : results) {
+                collected.addAll(result.get());
+            }
+            return collected;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while processing customer_stats", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Processing customer_stats failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private interface ChunkTask {
+        List<Long> run(List<Long> chunk);
+    }
+}
@@ -0,0 +1,81 @@
+package fi.tietoevry.backend.customerstats;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import fi.tietoevry.backend.sharding.ScatterGather;
+
+/*
+Customer lists sorted / filtered on customer_stats; the sort columns are indexed, so a LIMIT reads only that many rows.
+Sharded, every shard returns its first limit rows and ScatterGather merges them, hence the comparators mirroring the SQL.
+*/
+public class CustomerStatsService {
+
+    public enum Sort {
+        OUTSTANDING_BALANCE("s.outstanding_balance", CustomerStats::getOutstandingBalance),
+        LIFETIME_REVENUE("s.lifetime_revenue", CustomerStats::getLifetimeRevenue),
+        LAST_ORDER_DATE("s.last_order_date", CustomerStats::getLastOrderDate);
+
+        private final String column;
+        private final Comparator<CustomerStats> ascending;
+
+        <T extends Comparable<? super T>> Sort(String column, Function<CustomerStats, T> value) {
+            this.column = column;
+            // NULL sorts first, like in MySQL
+            this.ascending = Comparator.comparing(value, Comparator.nullsFirst(Comparator.<T>naturalOrder()))
+                    .thenComparing(CustomerStats::getCustomerNumber);
+        }
+    }
+
+    private static final RowMapper<CustomerStats> ROW_MAPPER = (rs, rowNum) -> new CustomerStats(rs.getLong(1), rs.getString(2),
+            rs.getString(3), rs.getBigDecimal(4), rs.getBigDecimal(5), rs.getBigDecimal(6), rs.getInt(7), rs.getDate(8));
+
+    private static final Map<String, Sort> SORT_NAMES = new HashMap<>();
+
+    static {
+        SORT_NAMES.put("outstandingBalance", Sort.OUTSTANDING_BALANCE);
+        SORT_NAMES.put("lifetimeRevenue", Sort.LIFETIME_REVENUE);
+        SORT_NAMES.put("lastOrderDate", Sort.LAST_ORDER_DATE);
+    }
+
+    private final ScatterGather scatterGather;
+
+    public CustomerStatsService(ScatterGather scatterGather) {
+        this.scatterGather = scatterGather;
+    }
+
+    public static Sort sortByName(String name) {
+        Sort sort = SORT_NAMES.get(name);
+        if (sort == null) {
+            throw new IllegalArgumentException("Can't sort by " + name + ", only by " + SORT_NAMES.keySet());
+        }
+        return sort;
+    }
+
+    // Filters are optional (null); ties are broken by customer number so pages are stable
+    public List<CustomerStats> list(Sort sort, boolean descending, BigDecimal minBalance, BigDecimal minRevenue, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT s.customerNumber, c.customerName, c.country, s.lifetime_revenue, s.total_paid, " +
+                "s.outstanding_balance, s.order_count, s.last_order_date FROM customer_stats s " +
+                "JOIN customers c ON c.customerNumber = s.customerNumber WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (minBalance != null) {
+            sql.append(" AND s.outstanding_balance >= ?");
+            args.add(minBalance);
+        }
+        if (minRevenue != null) {
+            sql.append(" AND s.lifetime_revenue >= ?");
+            args.add(minRevenue);
+        }
+        String direction = descending ? " DESC" : " ASC";
+        sql.append(" ORDER BY ").append(sort.column).append(direction).append(", s.customerNumber").append(direction).append(" LIMIT ?");
+        args.add(limit);
+        return scatterGather.querySorted(sql.toString(), ROW_MAPPER, descending ? sort.ascending.reversed() : sort.ascending, limit, args.toArray());
+    }
+}
@@ -0,0 +1,131 @@
+package fi.tietoevry.backend.customerstats;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/*
+All SQL on customer_stats. The aggregate below is the definition of the table: a rebuild or recompute runs it,
+the incremental path has to end up with the same numbers (CustomerStatsRebuild.check() verifies that).
+*/
+public class CustomerStatsUpdater {
+
+    static final String EXCLUDED_STATUS = "Cancelled";
+
+    static final String AGGREGATE = "SELECT c.customerNumber, " +
+            "COALESCE((SELECT SUM(d.quantityOrdered * d.priceEach) FROM orders o JOIN orderdetails d ON d.orderNumber = o.orderNumber " +
+            "WHERE o.customerNumber = c.customerNumber AND o.status <> '" + EXCLUDED_STATUS + "'), 0) AS lifetime_revenue, " +
+            "COALESCE((SELECT SUM(p.amount) FROM payments p WHERE p.customerNumber = c.customerNumber), 0) AS total_paid, " +
+            "(SELECT COUNT(*) FROM orders o WHERE o.customerNumber = c.customerNumber AND o.status <> '" + EXCLUDED_STATUS + "') AS order_count, " +
+            "(SELECT MAX(o.orderDate) FROM orders o WHERE o.customerNumber = c.customerNumber AND o.status <> '" + EXCLUDED_STATUS + "') AS last_order_date " +
+            "FROM customers c ";
+
+    private static final String INSERT = "INSERT INTO customer_stats (customerNumber, lifetime_revenue, total_paid, order_count, last_order_date, updated_at) ";
+
+    // every column is aggregated over the customer's rows, so the aggregate can be used as INSERT ... SELECT with a timestamp
+    private static final String INSERT_AGGREGATE = INSERT + AGGREGATE.replace(" FROM customers c ", ", CURRENT_TIMESTAMP FROM customers c ");
+
+    private static final String UPDATE = "UPDATE customer_stats SET lifetime_revenue = lifetime_revenue + ?, total_paid = total_paid + ?, " +
+            "order_count = order_count + ?, " +
+            "last_order_date = CASE WHEN last_order_date IS NULL OR last_order_date < CAST(? AS DATE) THEN CAST(? AS DATE) ELSE last_order_date END, " +
+            "updated_at = CURRENT_TIMESTAMP WHERE customerNumber = ?";
+
+    // Runs in the transaction that made the changes (its own rows are visible to the lookups)
+    void apply(JdbcTemplate jdbcTemplate, CustomerStatsDelta delta) {
+        Map<Long, Change> changes = new TreeMap<>(); // updates in customer order, so concurrent transactions lock rows in the same order
+        Set<Long> recompute = new TreeSet<>(delta.recomputeCustomers);
+
+        Set<Long> orderNumbers = new HashSet<>(delta.lineRevenueByOrder.keySet());
+        orderNumbers.addAll(delta.newOrders);
+        orderNumbers.addAll(delta.recomputeOrders);
+        if (!orderNumbers.isEmpty()) {
+            jdbcTemplate.query("SELECT orderNumber, customerNumber, status, orderDate FROM orders WHERE orderNumber IN (" + inList(orderNumbers) + ")", rs -> {
+                long orderNumber = rs.getLong(1);
+                long customerNumber = rs.getLong(2);
+                if (delta.recomputeOrders.contains(orderNumber)) {
+                    recompute.add(customerNumber);
+                }
+                if (EXCLUDED_STATUS.equals(rs.getString(3))) {
+                    return;
+                }
+                Change change = changes.computeIfAbsent(customerNumber, number -> new Change());
+                BigDecimal revenue = delta.lineRevenueByOrder.get(orderNumber);
+                if (revenue != null) {
+                    change.revenue = change.revenue.add(revenue);
+                }
+                if (delta.newOrders.contains(orderNumber)) {
+                    change.orders++;
+                    Date orderDate = rs.getDate(4);
+                    if (orderDate != null && (change.lastOrderDate == null || orderDate.after(change.lastOrderDate))) {
+                        change.lastOrderDate = orderDate;
+                    }
+                }
+            });
+        }
+        delta.paidByCustomer.forEach((customerNumber, paid) -> {
+            Change change = changes.computeIfAbsent(customerNumber, number -> new Change());
+            change.paid = change.paid.add(paid);
+        });
+
+        changes.keySet().removeAll(recompute);
+        for (Map.Entry<Long, Change> entry : changes.entrySet()) {
+            Change change = entry.getValue();
+            int updated = jdbcTemplate.update(UPDATE, change.revenue, change.paid, change.orders, change.lastOrderDate, change.lastOrderDate, entry.getKey());
+            if (updated == 0) {
+                recompute.add(entry.getKey()); // no row yet (new customer): the aggregate already includes this transaction
+            }
+        }
+        if (!recompute.isEmpty()) {
+            recompute(jdbcTemplate, recompute);
+        }
+    }
+
+    public void recompute(JdbcTemplate jdbcTemplate, Collection<Long> customerNumbers) {
+        delete(jdbcTemplate, customerNumbers);
+        jdbcTemplate.update(INSERT_AGGREGATE + "WHERE c.customerNumber IN (" + inList(customerNumbers) + ")");
+    }
+
+    public void delete(JdbcTemplate jdbcTemplate, Collection<Long> customerNumbers) {
+        jdbcTemplate.update("DELETE FROM customer_stats WHERE customerNumber IN (" + inList(customerNumbers) + ")");
+    }
+
+    // Customers whose stored row differs from the aggregate (or is missing)
+    public List<Long> findMismatches(JdbcTemplate jdbcTemplate, Collection<Long> customerNumbers) {
+        List<Long> mismatches = new ArrayList<>();
+        jdbcTemplate.query("SELECT a.customerNumber, a.lifetime_revenue, a.total_paid, a.order_count, a.last_order_date, " +
+                "s.lifetime_revenue, s.total_paid, s.order_count, s.last_order_date FROM (" + AGGREGATE +
+                "WHERE c.customerNumber IN (" + inList(customerNumbers) + ")) a LEFT JOIN customer_stats s ON s.customerNumber = a.customerNumber", rs -> {
+            boolean same = rs.getBigDecimal(6) != null
+                    && rs.getBigDecimal(2).compareTo(rs.getBigDecimal(6)) == 0
+                    && rs.getBigDecimal(3).compareTo(rs.getBigDecimal(7)) == 0
+                    && rs.getLong(4) == rs.getLong(8)
+                    && Objects.equals(rs.getDate(5), rs.getDate(9));
+            if (!same) {
+                mismatches.add(rs.getLong(1));
+            }
+        });
+        return mismatches;
+    }
+
+    private static String inList(Collection<Long> numbers) {
+        return numbers.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
+    private static final class Change {
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private BigDecimal paid = BigDecimal.ZERO;
+        private int orders;
+        private Date lastOrderDate;
+    }
+}
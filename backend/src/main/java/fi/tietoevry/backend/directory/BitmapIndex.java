@@ -0,0 +1,39 @@
+package fi.tietoevry.backend.directory;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+// One bitmap of customer slots per value; meant for columns with few distinct values (country, state, sales rep)
+final class BitmapIndex<K> {
+
+    private static final BitSet NONE = new BitSet();
+
+    private final Map<K, BitSet> bitmaps = new HashMap<>();
+
+    void add(K value, int slot) {
+        if (value != null) {
+            bitmaps.computeIfAbsent(value, v -> new BitSet()).set(slot);
+        }
+    }
+
+    void remove(K value, int slot) {
+        BitSet bitmap = value != null ? bitmaps.get(value) : null;
+        if (bitmap != null) {
+            bitmap.clear(slot);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(value);
+            }
+        }
+    }
+
+    // Not a copy, callers only and() it into their own bitmap
+    BitSet get(K value) {
+        BitSet bitmap = bitmaps.get(value);
+        return bitmap != null ? bitmap : NONE;
+    }
+
+    int distinctValues() {
+        return bitmaps.size();
+    }
+}
@@ -0,0 +1,152 @@
+package fi.tietoevry.backend.directory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import fi.tietoevry.backend.cache.InvalidationListener;
+import fi.tietoevry.backend.cache.InvalidationMessage;
+import fi.tietoevry.backend.model.Customer;
+import fi.tietoevry.backend.repository.CustomerRepository;
+
+/*
+Customer search on in-memory indexes; only the matching customers are read, by primary key.
+Invalidation messages mark changed customers, the next search reloads them with one query before it runs.
+*/
+public class CustomerDirectory implements InvalidationListener {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerDirectory.class);
+
+    private static final String SELECT = "SELECT customerNumber, customerName, city, state, postalCode, country, salesRepEmployeeNumber FROM customers";
+
+    private static final RowMapper<CustomerEntry> ROW_MAPPER = (rs, rowNum) -> new CustomerEntry(rs.getLong(1), rs.getString(2),
+            rs.getString(3), rs.getString(4), rs.getString(5), rs.getString(6), rs.getObject(7, Long.class));
+
+    private static final String CUSTOMER = Customer.class.getSimpleName();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CustomerRepository customerRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+
+    private CustomerIndexes indexes; // guarded by lock, null until the first search
+
+    public CustomerDirectory(JdbcTemplate jdbcTemplate, CustomerRepository customerRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.customerRepository = customerRepository;
+    }
+
+    public List<Customer> find(CustomerQuery query, int limit) {
+        List<Long> customerNumbers = findCustomerNumbers(query, limit);
+        if (customerNumbers.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, Customer> customers = customerRepository.findAllById(customerNumbers).stream()
+                .collect(Collectors.toMap(Customer::getCustomerNumber, Function.identity()));
+        List<Customer> result = new ArrayList<>(customerNumbers.size());
+        for (Long customerNumber : customerNumbers) {
+            Customer customer = customers.get(customerNumber);
+            if (customer != null) { // deleted since the index lookup
+                result.add(customer);
+            }
+        }
+        return result;
+    }
+
+    public List<Long> findCustomerNumbers(CustomerQuery query, int limit) {
+        refresh();
+        long[] customerNumbers;
+        lock.readLock().lock();
+        try {
+            customerNumbers = indexes.search(query, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Long> result = new ArrayList<>(customerNumbers.length);
+        for (long customerNumber : customerNumbers) {
+            result.add(customerNumber);
+        }
+        return result;
+    }
+
+    // Drops everything and loads all customers again
+    public int reload() {
+        lock.writeLock().lock();
+        try {
+            changed.clear();
+            CustomerIndexes loaded = new CustomerIndexes();
+            jdbcTemplate.query(SELECT, rs -> {
+                loaded.put(ROW_MAPPER.mapRow(rs, 0));
+            });
+            indexes = loaded;
+            log.info("Loaded {} customers into the directory", loaded.size());
+            return loaded.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onInvalidation(Collection<InvalidationMessage> messages) {
+        for (InvalidationMessage message : messages) {
+            if (CUSTOMER.equals(message.getEntityType())) {
+                try {
+                    changed.add(Long.valueOf(message.getEntityId()));
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring invalidation of customer {}", message.getEntityId());
+                }
+            }
+        }
+    }
+
+    private void refresh() {
+        lock.readLock().lock();
+        try {
+            if (indexes != null && changed.isEmpty()) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            if (indexes == null) {
+                reload();
+                return;
+            }
+            Set<Long> customerNumbers = new HashSet<>(changed);
+            if (customerNumbers.isEmpty()) {
+                return; // another search refreshed meanwhile
+            }
+            changed.removeAll(customerNumbers);
+            String inList = customerNumbers.stream().map(String::valueOf).collect(Collectors.joining(","));
+            List<CustomerEntry> rows;
+            try {
+                rows = jdbcTemplate.query(SELECT + " WHERE customerNumber IN (" + inList + ")", ROW_MAPPER);
+            } catch (RuntimeException e) {
+                changed.addAll(customerNumbers); // try again with the next search
+                throw e;
+            }
+            for (CustomerEntry row : rows) {
+                customerNumbers.remove(row.customerNumber);
+                indexes.put(row);
+            }
+            customerNumbers.forEach(indexes::remove); // not found: deleted
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package fi.tietoevry.backend.directory;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import fi.tietoevry.backend.cache.InvalidationBus;
+import fi.tietoevry.backend.repository.CustomerRepository;
+
+@Configuration
+public class CustomerDirectoryConfiguration {
+
+    @Bean
+    public CustomerDirectory customerDirectory(JdbcTemplate jdbcTemplate, CustomerRepository customerRepository,
+                                               ObjectProvider<InvalidationBus> invalidationBus) {
+        CustomerDirectory directory = new CustomerDirectory(jdbcTemplate, customerRepository);
+        invalidationBus.ifAvailable(bus -> bus.subscribe(directory)); // customer changes of this and the other instances
+        return directory;
+    }
+}
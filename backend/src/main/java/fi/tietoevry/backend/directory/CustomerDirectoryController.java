@@ -0,0 +1,35 @@
+package fi.tietoevry.backend.directory;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import fi.tietoevry.backend.model.Customer;
+
+@RestController
+public class CustomerDirectoryController {
+
+    private static final int MAX_LIMIT = 500;
+
+    private final CustomerDirectory directory;
+
+    public CustomerDirectoryController(CustomerDirectory directory) {
+        this.directory = directory;
+    }
+
+    // e.g. /api/customers/search?country=USA&state=CA&name=mini
+    @GetMapping("/api/customers/search")
+    public List<Customer> search(CustomerQuery query, @RequestParam(defaultValue = "50") int limit) {
+        if (query.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one of name, city, state, postalCode, country or salesRep is required");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_LIMIT);
+        }
+        return directory.find(query, limit);
+    }
+}
@@ -0,0 +1,23 @@
+package fi.tietoevry.backend.directory;
+
+// The searchable columns of one customer row, as loaded into CustomerIndexes
+final class CustomerEntry {
+
+    final long customerNumber;
+    final String name;
+    final String city;
+    final String state;
+    final String postalCode;
+    final String country;
+    final Long salesRep;
+
+    CustomerEntry(long customerNumber, String name, String city, String state, String postalCode, String country, Long salesRep) {
+        this.customerNumber = customerNumber;
+        this.name = name;
+        this.city = city;
+        this.state = state;
+        this.postalCode = postalCode;
+        this.country = country;
+        this.salesRep = salesRep;
+    }
+}
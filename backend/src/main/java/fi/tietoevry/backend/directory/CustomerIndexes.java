@@ -0,0 +1,106 @@
+package fi.tietoevry.backend.directory;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.util.StringUtils;
+
+/*
+Secondary indexes over the customers on dense slot numbers: every filter yields a BitSet, a query and()s them.
+Bitmaps for country, state and sales rep, sorted arrays for the prefixes; text is indexed lower case.
+Not thread safe, CustomerDirectory guards it.
+*/
+final class CustomerIndexes {
+
+    private final Map<Long, Integer> slotsByCustomer = new HashMap<>();
+    private CustomerEntry[] entries = new CustomerEntry[256]; // by slot
+    private final BitSet live = new BitSet();
+    private final BitSet free = new BitSet();
+
+    private final BitmapIndex<String> countries = new BitmapIndex<>();
+    private final BitmapIndex<String> states = new BitmapIndex<>();
+    private final BitmapIndex<Long> salesReps = new BitmapIndex<>();
+    private final SortedIndex names = new SortedIndex();
+    private final SortedIndex cities = new SortedIndex();
+    private final SortedIndex postalCodes = new SortedIndex();
+
+    void put(CustomerEntry customer) {
+        remove(customer.customerNumber);
+        int slot = free.isEmpty() ? slotsByCustomer.size() : free.nextSetBit(0);
+        free.clear(slot);
+        if (slot == entries.length) {
+            entries = Arrays.copyOf(entries, slot * 2);
+        }
+        CustomerEntry entry = new CustomerEntry(customer.customerNumber, normalize(customer.name), normalize(customer.city),
+                normalize(customer.state), normalize(customer.postalCode), normalize(customer.country), customer.salesRep);
+        entries[slot] = entry;
+        slotsByCustomer.put(entry.customerNumber, slot);
+        live.set(slot);
+        countries.add(entry.country, slot);
+        states.add(entry.state, slot);
+        salesReps.add(entry.salesRep, slot);
+        names.add(entry.name, slot);
+        cities.add(entry.city, slot);
+        postalCodes.add(entry.postalCode, slot);
+    }
+
+    boolean remove(long customerNumber) {
+        Integer slot = slotsByCustomer.remove(customerNumber);
+        if (slot == null) {
+            return false;
+        }
+        CustomerEntry entry = entries[slot];
+        countries.remove(entry.country, slot);
+        states.remove(entry.state, slot);
+        salesReps.remove(entry.salesRep, slot);
+        names.remove(entry.name, slot);
+        cities.remove(entry.city, slot);
+        postalCodes.remove(entry.postalCode, slot);
+        entries[slot] = null;
+        live.clear(slot);
+        free.set(slot);
+        return true;
+    }
+
+    // Matching customer numbers, ascending, at most limit of them
+    long[] search(CustomerQuery query, int limit) {
+        BitSet matches = (BitSet) live.clone();
+        // the bitmaps first: cheapest, and they usually narrow the result down the most
+        if (StringUtils.hasText(query.getCountry())) {
+            matches.and(countries.get(normalize(query.getCountry())));
+        }
+        if (StringUtils.hasText(query.getState())) {
+            matches.and(states.get(normalize(query.getState())));
+        }
+        if (query.getSalesRep() != null) {
+            matches.and(salesReps.get(query.getSalesRep()));
+        }
+        if (StringUtils.hasText(query.getCity()) && !matches.isEmpty()) {
+            matches.and(cities.equalTo(normalize(query.getCity())));
+        }
+        if (StringUtils.hasText(query.getName()) && !matches.isEmpty()) {
+            matches.and(names.startingWith(normalize(query.getName())));
+        }
+        if (StringUtils.hasText(query.getPostalCode()) && !matches.isEmpty()) {
+            matches.and(postalCodes.startingWith(normalize(query.getPostalCode())));
+        }
+        long[] customerNumbers = new long[matches.cardinality()];
+        int found = 0;
+        for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+            customerNumbers[found++] = entries[slot].customerNumber;
+        }
+        Arrays.sort(customerNumbers); // slots are reused, so slot order isn't customer number order
+        return found > limit ? Arrays.copyOf(customerNumbers, limit) : customerNumbers;
+    }
+
+    int size() {
+        return slotsByCustomer.size();
+    }
+
+    private static String normalize(String value) {
+        return value != null ? value.trim().toLowerCase(Locale.ROOT) : null;
+    }
+}
@@ -0,0 +1,82 @@
+package fi.tietoevry.backend.directory;
+
+import org.springframework.util.StringUtils;
+
+// Filters of GET /api/customers/search, all optional and combined with AND; text matches ignore case
+public class CustomerQuery {
+
+    private String name; // prefix of customerName
+    private String city;
+    private String state;
+    private String postalCode; // prefix
+    private String country;
+    private Long salesRep; // salesRepEmployeeNumber
+
+    public CustomerQuery() {
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public void setCity(String city) {
+        this.city = city;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public String getPostalCode() {
+        return postalCode;
+    }
+
+    public void setPostalCode(String postalCode) {
+        this.postalCode = postalCode;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public void setCountry(String country) {
+        this.country = country;
+    }
+
+    public Long getSalesRep() {
+        return salesRep;
+    }
+
+    public void setSalesRep(Long salesRep) {
+        this.salesRep = salesRep;
+    }
+
+    public boolean isEmpty() {
+        return !StringUtils.hasText(name) && !StringUtils.hasText(city) && !StringUtils.hasText(state)
+                && !StringUtils.hasText(postalCode) && !StringUtils.hasText(country) && salesRep == null;
+    }
+
+    @Override
+    public String toString() {
+        return "CustomerQuery{" +
+                "name='" + name + '\'' +
+                ", city='" + city + '\'' +
+                ", state='" + state + '\'' +
+                ", postalCode='" + postalCode + '\'' +
+                ", country='" + country + '\'' +
+                ", salesRep=" + salesRep +
+                '}';
+    }
+}
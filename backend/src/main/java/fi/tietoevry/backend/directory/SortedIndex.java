@@ -0,0 +1,80 @@
+package fi.tietoevry.backend.directory;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/*
+(key, slot) pairs in one sorted array, for exact and prefix matches on columns with many distinct values
+(name, city, postal code): a prefix is a contiguous range found with one binary search.
+Inserts and removals shift the arrays, which is fine for a customer table that changes a few times a minute.
+*/
+final class SortedIndex {
+
+    private String[] keys = new String[64];
+    private int[] slots = new int[64];
+    private int size;
+
+    void add(String key, int slot) {
+        if (key == null) {
+            return;
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            slots = Arrays.copyOf(slots, size * 2);
+        }
+        int position = lowerBound(key, slot);
+        System.arraycopy(keys, position, keys, position + 1, size - position);
+        System.arraycopy(slots, position, slots, position + 1, size - position);
+        keys[position] = key;
+        slots[position] = slot;
+        size++;
+    }
+
+    void remove(String key, int slot) {
+        if (key == null) {
+            return;
+        }
+        int position = lowerBound(key, slot);
+        if (position < size && keys[position].equals(key) && slots[position] == slot) {
+            System.arraycopy(keys, position + 1, keys, position, size - position - 1);
+            System.arraycopy(slots, position + 1, slots, position, size - position - 1);
+            keys[--size] = null;
+        }
+    }
+
+    BitSet equalTo(String key) {
+        BitSet result = new BitSet();
+        for (int i = lowerBound(key, Integer.MIN_VALUE); i < size && keys[i].equals(key); i++) {
+            result.set(slots[i]);
+        }
+        return result;
+    }
+
+    BitSet startingWith(String prefix) {
+        BitSet result = new BitSet();
+        for (int i = lowerBound(prefix, Integer.MIN_VALUE); i < size && keys[i].startsWith(prefix); i++) {
+            result.set(slots[i]);
+        }
+        return result;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // First position whose (key, slot) is not smaller than the given one
+    private int lowerBound(String key, int slot) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int compared = keys[middle].compareTo(key);
+            if (compared < 0 || (compared == 0 && slots[middle] < slot)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
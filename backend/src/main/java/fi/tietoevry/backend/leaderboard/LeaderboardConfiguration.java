@@ -0,0 +1,59 @@
+package fi.tietoevry.backend.leaderboard;
+
+import java.time.Clock;
+
+import org.hibernate.integrator.spi.Integrator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import fi.tietoevry.backend.cache.InvalidationBus;
+import fi.tietoevry.backend.config.EventListenerIntegrator;
+import fi.tietoevry.backend.sharding.ScatterGather;
+
+@Configuration
+@EnableConfigurationProperties(LeaderboardProperties.class)
+@ConditionalOnProperty(name = "backend.leaderboard.enabled", havingValue = "true", matchIfMissing = true)
+public class LeaderboardConfiguration {
+
+    @Bean
+    public Leaderboards leaderboards(JdbcTemplate jdbcTemplate, ScatterGather scatterGather, LeaderboardProperties properties) {
+        return new Leaderboards(jdbcTemplate, scatterGather, Clock.systemDefaultZone(), properties.getWindows());
+    }
+
+    @Bean
+    public Integrator leaderboardListenerIntegrator(Leaderboards leaderboards) {
+        return new EventListenerIntegrator(new LeaderboardListener(leaderboards));
+    }
+
+    // GET /actuator/metrics/backend.leaderboard.reps etc.; every read takes a stats() snapshot
+    @Bean
+    public MeterBinder leaderboardMetrics(Leaderboards leaderboards) {
+        return registry -> {
+            Gauge.builder("backend.leaderboard.reps", leaderboards, boards -> boards.stats().getReps()).register(registry);
+            Gauge.builder("backend.leaderboard.offices", leaderboards, boards -> boards.stats().getOffices()).register(registry);
+            Gauge.builder("backend.leaderboard.customers", leaderboards, boards -> boards.stats().getCustomers()).register(registry);
+            Gauge.builder("backend.leaderboard.loaded.orders", leaderboards, boards -> boards.stats().getLoadedOrders()).register(registry);
+            Gauge.builder("backend.leaderboard.added.orders", leaderboards, boards -> boards.stats().getAddedOrders())
+                    .description("Orders added as they committed since the last rebuild").register(registry);
+            Gauge.builder("backend.leaderboard.memory", leaderboards, boards -> boards.stats().getMemoryBytes()).baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("backend.leaderboard.last.build", leaderboards, boards -> boards.stats().getLastBuildMillis())
+                    .baseUnit("milliseconds").register(registry);
+        };
+    }
+
+    @Bean
+    public LeaderboardRefresher leaderboardRefresher(Leaderboards leaderboards, LeaderboardProperties properties,
+                                                     ObjectProvider<InvalidationBus> invalidationBus) {
+        LeaderboardRefresher refresher = new LeaderboardRefresher(leaderboards, properties.getRebuildInterval());
+        invalidationBus.ifAvailable(bus -> bus.subscribe(refresher));
+        return refresher;
+    }
+}
@@ -0,0 +1,54 @@
+package fi.tietoevry.backend.leaderboard;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/api/leaderboard")
+public class LeaderboardController {
+
+    private final Leaderboards leaderboards;
+    private final LeaderboardProperties properties;
+
+    public LeaderboardController(Leaderboards leaderboards, LeaderboardProperties properties) {
+        this.leaderboards = leaderboards;
+        this.properties = properties;
+    }
+
+    // The shortest window if none is given
+    @GetMapping("/reps")
+    public List<RepStanding> reps(@RequestParam(required = false) String window, @RequestParam(required = false) Integer limit) {
+        try {
+            return leaderboards.reps(window(window), limit(limit));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @GetMapping("/offices")
+    public List<OfficeStanding> offices(@RequestParam(required = false) String window, @RequestParam(required = false) Integer limit) {
+        try {
+            return leaderboards.offices(window(window), limit(limit));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    private String window(String window) {
+        return window != null ? window : leaderboards.getWindows().get(0);
+    }
+
+    private int limit(Integer limit) {
+        int count = limit != null ? limit : properties.getDefaultLimit();
+        if (count < 1 || count > properties.getMaxLimit()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + properties.getMaxLimit());
+        }
+        return count;
+    }
+}
@@ -0,0 +1,71 @@
+package fi.tietoevry.backend.leaderboard;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+
+import fi.tietoevry.backend.config.TransactionScopedListener;
+import fi.tietoevry.backend.model.Order;
+import fi.tietoevry.backend.model.OrderDetail;
+
+/*
+Adds new orders to the Leaderboards once their transaction has committed, with the revenue of the lines inserted
+in the same transaction. Like the recommendations, lines added to an existing order, changed lines and cancellations
+wait for the next rebuild.
+*/
+public class LeaderboardListener extends TransactionScopedListener<LeaderboardListener.PendingOrders> implements PostInsertEventListener {
+
+    private static final String CANCELLED = "Cancelled";
+
+    private final transient Leaderboards leaderboards;
+
+    public LeaderboardListener(Leaderboards leaderboards) {
+        this.leaderboards = leaderboards;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Order) {
+            Order order = (Order) entity;
+            if (!CANCELLED.equals(order.getStatus())) {
+                pendingFor(event.getSession()).newOrders.put(order.getOrderNumber(), order);
+            }
+        } else if (entity instanceof OrderDetail) {
+            OrderDetail detail = (OrderDetail) entity;
+            if (detail.getQuantityOrdered() != null && detail.getPriceEach() != null) {
+                pendingFor(event.getSession()).revenue.merge(detail.getOrderNumber(),
+                        detail.getPriceEach().multiply(BigDecimal.valueOf(detail.getQuantityOrdered())), BigDecimal::add);
+            }
+        }
+    }
+
+    @Override
+    protected PendingOrders newPending() {
+        return new PendingOrders();
+    }
+
+    class PendingOrders implements AfterTransactionCompletionProcess {
+
+        private final Map<Long, Order> newOrders = new LinkedHashMap<>();
+        private final Map<Long, BigDecimal> revenue = new LinkedHashMap<>();
+
+        @Override
+        public void doAfterTransactionCompletion(boolean success, SharedSessionContractImplementor session) {
+            if (!success) {
+                return;
+            }
+            revenue.forEach((orderNumber, amount) -> {
+                Order order = newOrders.get(orderNumber);
+                if (order != null) {
+                    leaderboards.addOrder(orderNumber, order.getJsonCustomerNumber(), order.getOrderDate(), amount);
+                }
+            });
+        }
+    }
+}
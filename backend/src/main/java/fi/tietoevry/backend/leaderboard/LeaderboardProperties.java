@@ -0,0 +1,64 @@
+package fi.tietoevry.backend.leaderboard;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "backend.leaderboard")
+public class LeaderboardProperties {
+
+    private boolean enabled = true;
+
+    // Rolling windows the reps and offices are ranked over, whole days up to today; ?window=30d picks one
+    private List<Duration> windows = new ArrayList<>(Arrays.asList(Duration.ofDays(7), Duration.ofDays(30), Duration.ofDays(90)));
+
+    // Full reload from the orders; cancellations and changed order lines only show up after it
+    private Duration rebuildInterval = Duration.ofHours(1);
+
+    private int defaultLimit = 10;
+
+    private int maxLimit = 100;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<Duration> getWindows() {
+        return windows;
+    }
+
+    public void setWindows(List<Duration> windows) {
+        this.windows = windows;
+    }
+
+    public Duration getRebuildInterval() {
+        return rebuildInterval;
+    }
+
+    public void setRebuildInterval(Duration rebuildInterval) {
+        this.rebuildInterval = rebuildInterval;
+    }
+
+    public int getDefaultLimit() {
+        return defaultLimit;
+    }
+
+    public void setDefaultLimit(int defaultLimit) {
+        this.defaultLimit = defaultLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+}
@@ -0,0 +1,88 @@
+package fi.tietoevry.backend.leaderboard;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import fi.tietoevry.backend.cache.InvalidationListener;
+import fi.tietoevry.backend.cache.InvalidationMessage;
+
+/*
+Builds the leaderboards in the background right after start-up (until then they are empty) and rebuilds them every
+rebuildInterval. In between it applies customer changes, woken up by their invalidation messages; a customer moved
+to a rep hired after the last build brings the rebuild forward.
+*/
+public class LeaderboardRefresher implements SmartLifecycle, InvalidationListener {
+
+    private static final Logger log = LoggerFactory.getLogger(LeaderboardRefresher.class);
+
+    private final Leaderboards leaderboards;
+    private final Duration rebuildInterval;
+
+    private volatile boolean running;
+    private volatile Thread refreshThread;
+
+    public LeaderboardRefresher(Leaderboards leaderboards, Duration rebuildInterval) {
+        this.leaderboards = leaderboards;
+        this.rebuildInterval = rebuildInterval;
+    }
+
+    @Override
+    public void onInvalidation(Collection<InvalidationMessage> messages) {
+        leaderboards.onInvalidation(messages);
+        Thread thread = refreshThread;
+        if (thread != null && leaderboards.hasCustomerChanges()) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void refreshLoop() {
+        long nextRebuild = System.nanoTime();
+        while (running) {
+            try {
+                if (System.nanoTime() - nextRebuild >= 0 || leaderboards.applyCustomerChanges()) {
+                    leaderboards.rebuild();
+                    nextRebuild = System.nanoTime() + rebuildInterval.toNanos();
+                }
+            } catch (RuntimeException e) {
+                log.warn("Refreshing the leaderboards failed, next try in {}", rebuildInterval, e);
+                nextRebuild = System.nanoTime() + rebuildInterval.toNanos();
+            }
+            LockSupport.parkNanos(Math.max(0, nextRebuild - System.nanoTime()));
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::refreshLoop, "leaderboard-refresh");
+        thread.setDaemon(true);
+        refreshThread = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = refreshThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        refreshThread = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
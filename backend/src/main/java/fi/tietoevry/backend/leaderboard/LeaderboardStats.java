@@ -0,0 +1,76 @@
+package fi.tietoevry.backend.leaderboard;
+
+import java.util.List;
+
+// State of the leaderboards, published as backend.leaderboard.* meters (see LeaderboardConfiguration)
+public class LeaderboardStats {
+
+    private final List<String> windows;
+    private final String today;
+    private final int reps;
+    private final int offices;
+    private final int customers;
+    private final long loadedOrders;
+    private final long addedOrders;
+    private final long memoryBytes;
+    private final long lastBuildMillis;
+    private final long lastBuildAt;
+
+    public LeaderboardStats(List<String> windows, String today, int reps, int offices, int customers, long loadedOrders,
+                            long addedOrders, long memoryBytes, long lastBuildMillis, long lastBuildAt) {
+        this.windows = windows;
+        this.today = today;
+        this.reps = reps;
+        this.offices = offices;
+        this.customers = customers;
+        this.loadedOrders = loadedOrders;
+        this.addedOrders = addedOrders;
+        this.memoryBytes = memoryBytes;
+        this.lastBuildMillis = lastBuildMillis;
+        this.lastBuildAt = lastBuildAt;
+    }
+
+    public List<String> getWindows() {
+        return windows;
+    }
+
+    // The last day of every window
+    public String getToday() {
+        return today;
+    }
+
+    public int getReps() {
+        return reps;
+    }
+
+    public int getOffices() {
+        return offices;
+    }
+
+    public int getCustomers() {
+        return customers;
+    }
+
+    // Orders of the longest window read by the last rebuild
+    public long getLoadedOrders() {
+        return loadedOrders;
+    }
+
+    // Orders added as they committed since the last rebuild
+    public long getAddedOrders() {
+        return addedOrders;
+    }
+
+    // Estimated size of the day buckets, totals and rankings of reps and offices
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public long getLastBuildMillis() {
+        return lastBuildMillis;
+    }
+
+    public long getLastBuildAt() {
+        return lastBuildAt;
+    }
+}
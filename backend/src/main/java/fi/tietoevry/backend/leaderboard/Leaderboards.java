@@ -0,0 +1,301 @@
+package fi.tietoevry.backend.leaderboard;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import fi.tietoevry.backend.cache.InvalidationMessage;
+import fi.tietoevry.backend.model.Customer;
+import fi.tietoevry.backend.sharding.ScatterGather;
+
+/*
+Sales reps and offices ranked by revenue over rolling windows of days, from memory. New orders are added as they
+commit; cancellations and changed lines wait for the next rebuild, which credits the customer's current rep.
+*/
+public class Leaderboards {
+
+    private static final Logger log = LoggerFactory.getLogger(Leaderboards.class);
+
+    private static final String CUSTOMER = Customer.class.getSimpleName();
+
+    static final String LOAD_OFFICES = "SELECT officeCode, city, country FROM offices ORDER BY officeCode";
+    static final String LOAD_REPS = "SELECT employeeNumber, firstName, lastName, officeCode FROM employees ORDER BY employeeNumber";
+    static final String LOAD_CUSTOMERS = "SELECT customerNumber, salesRepEmployeeNumber FROM customers";
+    static final String LOAD_REVENUE = "SELECT o.orderNumber, o.orderDate, o.customerNumber, SUM(d.quantityOrdered * d.priceEach) " +
+            "FROM orders o JOIN orderdetails d ON d.orderNumber = o.orderNumber " +
+            "WHERE o.status <> 'Cancelled' AND o.orderDate > ? GROUP BY o.orderNumber, o.orderDate, o.customerNumber";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ScatterGather scatterGather;
+    private final Clock clock;
+    private final int[] windowDays;
+    private final List<String> windowNames;
+    private final Object rebuildLock = new Object();
+    private final Set<Long> changedCustomers = ConcurrentHashMap.newKeySet();
+
+    private volatile Board board; // null until the first build
+    private List<AddedOrder> addedDuringRebuild; // guarded by this, not null while a rebuild loads
+    private volatile long loadedOrders;
+    private volatile long addedOrders;
+    private volatile long lastBuildMillis;
+    private volatile long lastBuildAt;
+
+    public Leaderboards(JdbcTemplate jdbcTemplate, ScatterGather scatterGather, Clock clock, List<Duration> windows) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.scatterGather = scatterGather;
+        this.clock = clock;
+        this.windowDays = windows.stream().mapToInt(window -> (int) window.toDays()).toArray();
+        this.windowNames = Collections.unmodifiableList(windows.stream().map(window -> window.toDays() + "d").collect(Collectors.toList()));
+        new RollingRevenue(windowDays, 0, 0); // fail at start-up on windows below a day
+    }
+
+    public List<String> getWindows() {
+        return windowNames;
+    }
+
+    // Empty until the first build has finished
+    public List<RepStanding> reps(String window, int limit) {
+        int w = windowIndex(window);
+        Board current = upToDate();
+        if (current == null) {
+            return Collections.emptyList();
+        }
+        List<RepStanding> standings = new ArrayList<>(limit);
+        for (RollingRevenue.Score score : current.reps.top(w, limit)) {
+            SalesTeam.Rep rep = current.team.rep(score.getMember());
+            standings.add(new RepStanding(standings.size() + 1, rep.employeeNumber, rep.name,
+                    current.team.office(rep.office).officeCode, BigDecimal.valueOf(score.getCents(), 2)));
+        }
+        return standings;
+    }
+
+    public List<OfficeStanding> offices(String window, int limit) {
+        int w = windowIndex(window);
+        Board current = upToDate();
+        if (current == null) {
+            return Collections.emptyList();
+        }
+        List<OfficeStanding> standings = new ArrayList<>(limit);
+        for (RollingRevenue.Score score : current.offices.top(w, limit)) {
+            SalesTeam.Office office = current.team.office(score.getMember());
+            standings.add(new OfficeStanding(standings.size() + 1, office.officeCode, office.city, office.country,
+                    BigDecimal.valueOf(score.getCents(), 2)));
+        }
+        return standings;
+    }
+
+    // A committed new order; orderDate decides which windows it counts in
+    public synchronized void addOrder(long orderNumber, Long customerNumber, Date orderDate, BigDecimal revenue) {
+        AddedOrder order = new AddedOrder(orderNumber, customerNumber, day(orderDate), cents(revenue));
+        if (addedDuringRebuild != null) {
+            addedDuringRebuild.add(order);
+        }
+        Board current = board;
+        if (current != null) {
+            advance(current);
+            apply(current, order);
+            addedOrders++;
+        }
+    }
+
+    public LeaderboardStats rebuild() {
+        synchronized (rebuildLock) {
+            long start = System.currentTimeMillis();
+            synchronized (this) {
+                addedDuringRebuild = new ArrayList<>();
+            }
+            try {
+                long today = today();
+                SalesTeam team = new SalesTeam();
+                jdbcTemplate.query(LOAD_OFFICES, rs -> {
+                    team.addOffice(rs.getString(1), rs.getString(2), rs.getString(3));
+                });
+                jdbcTemplate.query(LOAD_REPS, rs -> {
+                    team.addRep(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4));
+                });
+                jdbcTemplate.query(LOAD_CUSTOMERS, rs -> {
+                    long employeeNumber = rs.getLong(2);
+                    team.assign(rs.getLong(1), rs.wasNull() ? null : employeeNumber);
+                });
+                Board built = new Board(team, new RollingRevenue(windowDays, today, team.repCount()),
+                        new RollingRevenue(windowDays, today, team.officeCount()));
+                Set<Long> loaded = new HashSet<>();
+                scatterGather.stream(LOAD_REVENUE, rs -> {
+                    loaded.add(rs.getLong(1));
+                    apply(built, new AddedOrder(rs.getLong(1), rs.getLong(3), rs.getDate(2).toLocalDate().toEpochDay(), cents(rs.getBigDecimal(4))));
+                }, java.sql.Date.valueOf(LocalDate.ofEpochDay(today - max(windowDays))));
+
+                synchronized (this) {
+                    for (AddedOrder order : addedDuringRebuild) {
+                        if (!loaded.contains(order.orderNumber)) {
+                            apply(built, order);
+                        }
+                    }
+                    advance(built);
+                    board = built;
+                    loadedOrders = loaded.size();
+                    addedOrders = 0;
+                }
+                lastBuildMillis = System.currentTimeMillis() - start;
+                lastBuildAt = System.currentTimeMillis();
+                log.info("Loaded the leaderboards of {} reps and {} offices from {} orders in {} ms",
+                        team.repCount(), team.officeCount(), loaded.size(), lastBuildMillis);
+                return stats();
+            } finally {
+                synchronized (this) {
+                    addedDuringRebuild = null;
+                }
+            }
+        }
+    }
+
+    // Applies the customers' rep changes since the last call; true if one needs a rep the leaderboards don't know yet
+    public boolean applyCustomerChanges() {
+        Board current = board;
+        if (current == null || changedCustomers.isEmpty()) {
+            return false;
+        }
+        Set<Long> customerNumbers = new HashSet<>(changedCustomers);
+        changedCustomers.removeAll(customerNumbers);
+        String inList = customerNumbers.stream().map(String::valueOf).collect(Collectors.joining(","));
+        boolean unknownRep = false;
+        synchronized (this) {
+            for (Map<String, Object> row : jdbcTemplate.queryForList(LOAD_CUSTOMERS + " WHERE customerNumber IN (" + inList + ")")) {
+                long customerNumber = ((Number) row.get("customerNumber")).longValue();
+                Number employeeNumber = (Number) row.get("salesRepEmployeeNumber");
+                customerNumbers.remove(customerNumber);
+                unknownRep |= !current.team.assign(customerNumber, employeeNumber == null ? null : employeeNumber.longValue());
+            }
+            customerNumbers.forEach(current.team::remove); // not found: deleted
+        }
+        return unknownRep;
+    }
+
+    public boolean hasCustomerChanges() {
+        return !changedCustomers.isEmpty();
+    }
+
+    // Customer messages of the cache invalidation bus, forwarded by LeaderboardRefresher
+    public void onInvalidation(Collection<InvalidationMessage> messages) {
+        for (InvalidationMessage message : messages) {
+            if (CUSTOMER.equals(message.getEntityType())) {
+                try {
+                    changedCustomers.add(Long.valueOf(message.getEntityId()));
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring invalidation of customer {}", message.getEntityId());
+                }
+            }
+        }
+    }
+
+    public LeaderboardStats stats() {
+        Board current = board;
+        LocalDate today = LocalDate.ofEpochDay(current != null ? current.reps.getToday() : today());
+        return new LeaderboardStats(windowNames, today.toString(),
+                current != null ? current.team.repCount() : 0,
+                current != null ? current.team.officeCount() : 0,
+                current != null ? current.team.customerCount() : 0,
+                loadedOrders, addedOrders,
+                current != null ? current.reps.memoryBytes() + current.offices.memoryBytes() : 0,
+                lastBuildMillis, lastBuildAt);
+    }
+
+    // The current board with its windows ending today
+    private Board upToDate() {
+        Board current = board;
+        if (current != null && current.reps.getToday() < today()) {
+            synchronized (this) {
+                advance(current);
+            }
+        }
+        return current;
+    }
+
+    private void advance(Board current) {
+        long today = today();
+        current.reps.advanceTo(today);
+        current.offices.advanceTo(today);
+    }
+
+    private static void apply(Board board, AddedOrder order) {
+        SalesTeam.Rep rep = board.team.repOf(order.customerNumber);
+        if (rep != null) { // revenue of customers without a rep counts for nobody
+            board.reps.add(rep.id, order.day, order.cents);
+            board.offices.add(rep.office, order.day, order.cents);
+        }
+    }
+
+    private int windowIndex(String window) {
+        int w = windowNames.indexOf(window);
+        if (w < 0) {
+            throw new IllegalArgumentException("Unknown window " + window + ", one of " + windowNames);
+        }
+        return w;
+    }
+
+    private long today() {
+        return LocalDate.now(clock).toEpochDay();
+    }
+
+    private long day(Date date) {
+        if (date instanceof java.sql.Date) {
+            return ((java.sql.Date) date).toLocalDate().toEpochDay();
+        }
+        return Instant.ofEpochMilli(date.getTime()).atZone(clock.getZone()).toLocalDate().toEpochDay();
+    }
+
+    private static long cents(BigDecimal revenue) {
+        return revenue.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static int max(int[] values) {
+        int max = values[0];
+        for (int value : values) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    private static final class Board {
+        private final SalesTeam team;
+        private final RollingRevenue reps;
+        private final RollingRevenue offices;
+
+        private Board(SalesTeam team, RollingRevenue reps, RollingRevenue offices) {
+            this.team = team;
+            this.reps = reps;
+            this.offices = offices;
+        }
+    }
+
+    private static final class AddedOrder {
+        private final long orderNumber;
+        private final Long customerNumber;
+        private final long day;
+        private final long cents;
+
+        private AddedOrder(long orderNumber, Long customerNumber, long day, long cents) {
+            this.orderNumber = orderNumber;
+            this.customerNumber = customerNumber;
+            this.day = day;
+            this.cents = cents;
+        }
+    }
+}
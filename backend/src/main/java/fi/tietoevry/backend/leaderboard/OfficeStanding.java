@@ -0,0 +1,41 @@
+package fi.tietoevry.backend.leaderboard;
+
+import java.math.BigDecimal;
+
+// One row of GET /api/leaderboard/offices
+public class OfficeStanding {
+
+    private final int rank;
+    private final String officeCode;
+    private final String city;
+    private final String country;
+    private final BigDecimal revenue;
+
+    public OfficeStanding(int rank, String officeCode, String city, String country, BigDecimal revenue) {
+        this.rank = rank;
+        this.officeCode = officeCode;
+        this.city = city;
+        this.country = country;
+        this.revenue = revenue;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public String getOfficeCode() {
+        return officeCode;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+}
@@ -0,0 +1,41 @@
+package fi.tietoevry.backend.leaderboard;
+
+import java.math.BigDecimal;
+
+// One row of GET /api/leaderboard/reps
+public class RepStanding {
+
+    private final int rank;
+    private final long employeeNumber;
+    private final String name;
+    private final String officeCode;
+    private final BigDecimal revenue;
+
+    public RepStanding(int rank, long employeeNumber, String name, String officeCode, BigDecimal revenue) {
+        this.rank = rank;
+        this.employeeNumber = employeeNumber;
+        this.name = name;
+        this.officeCode = officeCode;
+        this.revenue = revenue;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public long getEmployeeNumber() {
+        return employeeNumber;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getOfficeCode() {
+        return officeCode;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+}
@@ -0,0 +1,230 @@
+package fi.tietoevry.backend.leaderboard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/*
+Revenue per member (a rep or an office) over rolling windows of whole days: a ring of daily buckets plus a running
+total per window, which subtracts the day that falls out of it. Each window ranks its members in a skip list.
+Changes are synchronized, top() reads without a lock and retries when a change overlapped it (seqlock style).
+*/
+final class RollingRevenue {
+
+    private static final int OPTIMISTIC_READS = 3;
+
+    private final int[] windowDays;
+    private final int span; // days in the longest window
+    private final long[][] buckets; // by day slot: cents per member, null = no revenue that day
+    private final long[] bucketDays; // the day each slot holds
+    private final long[][] totals; // by window: cents per member
+    private final List<ConcurrentSkipListSet<Score>> rankings; // by window
+
+    private volatile long today;
+    private volatile long changes; // odd while a change is under way
+    private int capacity;
+
+    RollingRevenue(int[] windowDays, long today, int members) {
+        this.windowDays = windowDays.clone();
+        this.span = Arrays.stream(windowDays).max().orElseThrow(() -> new IllegalArgumentException("At least one window is needed"));
+        if (Arrays.stream(windowDays).anyMatch(days -> days < 1)) {
+            throw new IllegalArgumentException("Windows are at least one day: " + Arrays.toString(windowDays));
+        }
+        this.buckets = new long[span][];
+        this.bucketDays = new long[span];
+        Arrays.fill(bucketDays, Long.MIN_VALUE);
+        this.capacity = Math.max(16, members);
+        this.totals = new long[windowDays.length][capacity];
+        this.rankings = new ArrayList<>(windowDays.length);
+        for (int w = 0; w < windowDays.length; w++) {
+            rankings.add(new ConcurrentSkipListSet<>());
+        }
+        this.today = today;
+    }
+
+    // Revenue of an order on day (epoch day); later days count as today, days before the longest window are ignored
+    synchronized void add(int member, long day, long cents) {
+        long effective = Math.min(day, today);
+        if (cents == 0 || effective <= today - span) {
+            return;
+        }
+        changes++;
+        try {
+            if (member >= capacity) {
+                grow(member);
+            }
+            int slot = slot(effective);
+            if (bucketDays[slot] != effective) {
+                bucketDays[slot] = effective;
+                buckets[slot] = null; // a day out of every window
+            }
+            long[] bucket = buckets[slot];
+            if (bucket == null || bucket.length <= member) {
+                bucket = buckets[slot] = bucket == null ? new long[capacity] : Arrays.copyOf(bucket, capacity);
+            }
+            bucket[member] += cents;
+            for (int w = 0; w < windowDays.length; w++) {
+                if (effective > today - windowDays[w]) {
+                    change(w, member, cents);
+                }
+            }
+        } finally {
+            changes++;
+        }
+    }
+
+    // Moves the windows on to day, expiring the days that fall out of each of them
+    synchronized void advanceTo(long day) {
+        if (day <= today) {
+            return;
+        }
+        changes++;
+        try {
+            if (day - today >= span) { // everything expired
+                for (int w = 0; w < windowDays.length; w++) {
+                    Arrays.fill(totals[w], 0);
+                    rankings.get(w).clear();
+                }
+                Arrays.fill(buckets, null);
+                Arrays.fill(bucketDays, Long.MIN_VALUE);
+            } else {
+                for (long d = today + 1; d <= day; d++) {
+                    for (int w = 0; w < windowDays.length; w++) {
+                        long[] leaving = bucket(d - windowDays[w]);
+                        if (leaving != null) {
+                            for (int member = 0; member < leaving.length; member++) {
+                                if (leaving[member] != 0) {
+                                    change(w, member, -leaving[member]);
+                                }
+                            }
+                        }
+                    }
+                    int slot = slot(d); // held d - span, which just left the longest window
+                    buckets[slot] = null;
+                    bucketDays[slot] = d;
+                }
+            }
+            today = day;
+        } finally {
+            changes++;
+        }
+    }
+
+    // The members with the most revenue in a window, most first
+    List<Score> top(int window, int limit) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READS; attempt++) {
+            long before = changes;
+            if ((before & 1) == 0) {
+                List<Score> top = collect(window, limit);
+                if (changes == before) {
+                    return top;
+                }
+            }
+            Thread.yield();
+        }
+        synchronized (this) {
+            return collect(window, limit);
+        }
+    }
+
+    // Cents of a member in a window, under the lock: for tests and single lookups
+    synchronized long revenue(int window, int member) {
+        return member < capacity ? totals[window][member] : 0;
+    }
+
+    synchronized int ranked(int window) {
+        return rankings.get(window).size();
+    }
+
+    long getToday() {
+        return today;
+    }
+
+    synchronized long memoryBytes() {
+        long bytes = 8L * totals.length * capacity;
+        for (long[] bucket : buckets) {
+            bytes += bucket == null ? 0 : 8L * bucket.length;
+        }
+        long entries = 0;
+        for (ConcurrentSkipListSet<Score> ranking : rankings) {
+            entries += ranking.size();
+        }
+        return bytes + 8L * bucketDays.length + 64 * entries; // a skip list node, its index levels and the Score
+    }
+
+    private List<Score> collect(int window, int limit) {
+        List<Score> top = new ArrayList<>(Math.min(limit, 64));
+        for (Score score : rankings.get(window)) {
+            if (top.size() >= limit) {
+                break;
+            }
+            top.add(score);
+        }
+        return top;
+    }
+
+    private void change(int window, int member, long delta) {
+        long old = totals[window][member];
+        long updated = old + delta;
+        totals[window][member] = updated;
+        ConcurrentSkipListSet<Score> ranking = rankings.get(window);
+        if (updated != 0) {
+            ranking.add(new Score(member, updated));
+        }
+        if (old != 0) {
+            ranking.remove(new Score(member, old));
+        }
+    }
+
+    private long[] bucket(long day) {
+        int slot = slot(day);
+        return bucketDays[slot] == day ? buckets[slot] : null;
+    }
+
+    private int slot(long day) {
+        return (int) Math.floorMod(day, (long) span);
+    }
+
+    private void grow(int member) {
+        capacity = Math.max(member + 1, capacity * 2);
+        for (int w = 0; w < totals.length; w++) {
+            totals[w] = Arrays.copyOf(totals[w], capacity);
+        }
+    }
+
+    // A member's revenue in a window; ordered by revenue, most first, then by member id
+    static final class Score implements Comparable<Score> {
+        private final int member;
+        private final long cents;
+
+        Score(int member, long cents) {
+            this.member = member;
+            this.cents = cents;
+        }
+
+        int getMember() {
+            return member;
+        }
+
+        long getCents() {
+            return cents;
+        }
+
+        @Override
+        public int compareTo(Score other) {
+            int byCents = Long.compare(other.cents, cents);
+            return byCents != 0 ? byCents : Integer.compare(member, other.member);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Score && ((Score) o).member == member && ((Score) o).cents == cents;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * member + Long.hashCode(cents);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package fi.tietoevry.backend.leaderboard;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/*
+Who sells to whom: sales reps and offices interned to the dense ids RollingRevenue works with, and the rep of every
+customer. Reps and offices are only ever added (a rep that left keeps its id until the next rebuild), so a reader
+can resolve an id without locks while Leaderboards adds new ones.
+*/
+final class SalesTeam {
+
+    private final List<Rep> reps = new CopyOnWriteArrayList<>(); // by rep id
+    private final Map<Long, Integer> repIds = new ConcurrentHashMap<>(); // employeeNumber -> rep id
+    private final List<Office> offices = new CopyOnWriteArrayList<>(); // by office id
+    private final Map<String, Integer> officeIds = new ConcurrentHashMap<>(); // officeCode -> office id
+    private final Map<Long, Integer> repOfCustomer = new ConcurrentHashMap<>(); // customerNumber -> rep id
+
+    int addOffice(String officeCode, String city, String country) {
+        return officeIds.computeIfAbsent(officeCode, code -> {
+            offices.add(new Office(offices.size(), code, city, country));
+            return offices.size() - 1;
+        });
+    }
+
+    // The office has to be added first
+    int addRep(long employeeNumber, String firstName, String lastName, String officeCode) {
+        Integer office = officeIds.get(officeCode);
+        if (office == null) {
+            throw new IllegalArgumentException("Unknown office " + officeCode + " of employee " + employeeNumber);
+        }
+        return repIds.computeIfAbsent(employeeNumber, number -> {
+            reps.add(new Rep(reps.size(), number, firstName + " " + lastName, office));
+            return reps.size() - 1;
+        });
+    }
+
+    // false if the rep isn't known (hired after the last rebuild)
+    boolean assign(long customerNumber, Long employeeNumber) {
+        if (employeeNumber == null) {
+            repOfCustomer.remove(customerNumber);
+            return true;
+        }
+        Integer rep = repIds.get(employeeNumber);
+        if (rep == null) {
+            return false;
+        }
+        repOfCustomer.put(customerNumber, rep);
+        return true;
+    }
+
+    void remove(long customerNumber) {
+        repOfCustomer.remove(customerNumber);
+    }
+
+    // null for customers without a sales rep
+    Rep repOf(Long customerNumber) {
+        Integer rep = customerNumber == null ? null : repOfCustomer.get(customerNumber);
+        return rep == null ? null : reps.get(rep);
+    }
+
+    Rep rep(int id) {
+        return reps.get(id);
+    }
+
+    Office office(int id) {
+        return offices.get(id);
+    }
+
+    int repCount() {
+        return reps.size();
+    }
+
+    int officeCount() {
+        return offices.size();
+    }
+
+    int customerCount() {
+        return repOfCustomer.size();
+    }
+
+    static final class Rep {
+        final int id;
+        final long employeeNumber;
+        final String name;
+        final int office;
+
+        Rep(int id, long employeeNumber, String name, int office) {
+            this.id = id;
+            this.employeeNumber = employeeNumber;
+            this.name = name;
+            this.office = office;
+        }
+    }
+
+    static final class Office {
+        final int id;
+        final String officeCode;
+        final String city;
+        final String country;
+
+        Office(int id, String officeCode, String city, String country) {
+            this.id = id;
+            this.officeCode = officeCode;
+            this.city = city;
+            this.country = country;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package fi.tietoevry.backend.lookup;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import fi.tietoevry.backend.sharding.ShardRouter;
+
+@Configuration
+@EnableConfigurationProperties(BulkLookupProperties.class)
+public class BulkLookupConfiguration {
+
+    @Bean(destroyMethod = "shutdown")
+    public BulkLookupService bulkLookupService(ShardRouter shardRouter, BulkLookupProperties properties) {
+        return new BulkLookupService(shardRouter, properties);
+    }
+}
@@ -0,0 +1,45 @@
+package fi.tietoevry.backend.lookup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import fi.tietoevry.backend.model.OrderDetail;
+import fi.tietoevry.backend.model.Payment;
+
+// POST because hundreds of ids don't fit comfortably into a URL
+@RestController
+@RequestMapping("/api/lookup")
+public class BulkLookupController {
+
+    private final BulkLookupService lookupService;
+
+    public BulkLookupController(BulkLookupService lookupService) {
+        this.lookupService = lookupService;
+    }
+
+    @PostMapping("/order-details")
+    public Map<Long, List<OrderDetail>> orderDetails(@RequestBody List<Long> orderNumbers) {
+        try {
+            return lookupService.findOrderDetails(orderNumbers);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @PostMapping("/payments")
+    public List<Payment> payments(@RequestBody List<PaymentKey> keys) {
+        try {
+            return new ArrayList<>(lookupService.findPayments(keys).values());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+}
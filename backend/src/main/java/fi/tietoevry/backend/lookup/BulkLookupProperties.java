@@ -0,0 +1,37 @@
+package fi.tietoevry.backend.lookup;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "backend.lookup")
+public class BulkLookupProperties {
+
+    private int maxChunkSize = 512; // ids per IN-list; a power of two, so padding never goes past it
+
+    private int parallelism = 4; // chunks queried at the same time, each takes a connection from the pool
+
+    private int maxIds = 20_000; // per request
+
+    public int getMaxChunkSize() {
+        return maxChunkSize;
+    }
+
+    public void setMaxChunkSize(int maxChunkSize) {
+        this.maxChunkSize = maxChunkSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getMaxIds() {
+        return maxIds;
+    }
+
+    public void setMaxIds(int maxIds) {
+        this.maxIds = maxIds;
+    }
+}
@@ -0,0 +1,163 @@
+package fi.tietoevry.backend.lookup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import fi.tietoevry.backend.model.Customer;
+import fi.tietoevry.backend.model.OrderDetail;
+import fi.tietoevry.backend.model.Payment;
+import fi.tietoevry.backend.sharding.Shard;
+import fi.tietoevry.backend.sharding.ShardRouter;
+
+/*
+Order lines and payments for many keys at once, around JPA: findAllById() with composite ids is a SELECT per id.
+The keys are cut into padded IN-lists that run in parallel; the rows are detached, without their associations.
+*/
+public class BulkLookupService {
+
+    static final String ORDER_DETAILS_SQL = "SELECT orderNumber, productCode, quantityOrdered, priceEach, orderLineNumber " +
+            "FROM orderdetails WHERE orderNumber IN (%s)";
+
+    // a row value IN-list is resolved with range lookups on the (customerNumber, checkNumber) primary key
+    static final String PAYMENTS_SQL = "SELECT customerNumber, checkNumber, paymentDate, amount " +
+            "FROM payments WHERE (customerNumber, checkNumber) IN (%s)";
+
+    private static final RowMapper<OrderDetail> ORDER_DETAIL_MAPPER = (rs, rowNum) -> {
+        OrderDetail detail = new OrderDetail();
+        detail.setOrderNumber(rs.getLong(1));
+        detail.setProductCode(rs.getString(2));
+        detail.setQuantityOrdered(rs.getLong(3));
+        detail.setPriceEach(rs.getBigDecimal(4));
+        detail.setOrderLineNumber(rs.getInt(5));
+        return detail;
+    };
+
+    private static final RowMapper<Payment> PAYMENT_MAPPER = (rs, rowNum) -> {
+        Customer customer = new Customer();
+        customer.setCustomerNumber(rs.getLong(1));
+        Payment payment = new Payment();
+        payment.setCustomerNumber(customer);
+        payment.setCheckNumber(rs.getString(2));
+        payment.setPaymentDate(rs.getDate(3));
+        payment.setAmount(rs.getBigDecimal(4));
+        return payment;
+    };
+
+    private final ShardRouter router;
+    private final BulkLookupProperties properties;
+    private final ExecutorService executor;
+
+    public BulkLookupService(ShardRouter router, BulkLookupProperties properties) {
+        this.router = router;
+        this.properties = properties;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, properties.getParallelism()), runnable -> {
+            Thread thread = new Thread(runnable, "bulk-lookup-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Lines of every order asked for, keyed by order number in request order; unknown orders map to an empty list
+    public Map<Long, List<OrderDetail>> findOrderDetails(Collection<Long> orderNumbers) {
+        List<Long> distinct = distinct(orderNumbers);
+        Map<Long, List<OrderDetail>> result = new LinkedHashMap<>();
+        distinct.forEach(orderNumber -> result.put(orderNumber, new ArrayList<>()));
+        Map<Shard, List<Long>> byShard = new LinkedHashMap<>();
+        for (Long orderNumber : distinct) {
+            router.shardsForOrder(orderNumber).forEach(shard -> byShard.computeIfAbsent(shard, s -> new ArrayList<>()).add(orderNumber));
+        }
+        for (List<OrderDetail> rows : query(byShard, (shard, chunk) -> shard.getJdbcTemplate().query(
+                String.format(ORDER_DETAILS_SQL, PaddedInList.placeholders(chunk.size(), "?")), ORDER_DETAIL_MAPPER, chunk.toArray()))) {
+            rows.forEach(detail -> result.get(detail.getOrderNumber()).add(detail));
+        }
+        result.values().forEach(lines -> lines.sort((a, b) -> Integer.compare(a.getOrderLineNumber(), b.getOrderLineNumber())));
+        return result;
+    }
+
+    // Payments found for the keys, in request order; unknown keys are left out
+    public Map<PaymentKey, Payment> findPayments(Collection<PaymentKey> keys) {
+        List<PaymentKey> distinct = distinct(keys);
+        Map<PaymentKey, Payment> found = new LinkedHashMap<>();
+        Map<Shard, List<PaymentKey>> byShard = new LinkedHashMap<>();
+        router.getShards().forEach(shard -> byShard.put(shard, distinct));
+        for (List<Payment> rows : query(byShard, (shard, chunk) -> {
+            Object[] args = new Object[chunk.size() * 2];
+            for (int i = 0; i < chunk.size(); i++) {
+                args[2 * i] = chunk.get(i).getCustomerNumber();
+                args[2 * i + 1] = chunk.get(i).getCheckNumber();
+            }
+            return shard.getJdbcTemplate().query(String.format(PAYMENTS_SQL, PaddedInList.placeholders(chunk.size(), "(?,?)")), PAYMENT_MAPPER, args);
+        })) {
+            rows.forEach(payment -> found.put(new PaymentKey(payment.getJsonCustomerNumber(), payment.getCheckNumber()), payment));
+        }
+        Map<PaymentKey, Payment> result = new LinkedHashMap<>();
+        for (PaymentKey key : distinct) {
+            Payment payment = found.get(key);
+            if (payment != null) {
+                result.put(key, payment);
+            }
+        }
+        return result;
+    }
+
+    private <K> List<K> distinct(Collection<K> keys) {
+        List<K> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+        distinct.remove(null);
+        if (distinct.size() > properties.getMaxIds()) {
+            throw new IllegalArgumentException("At most " + properties.getMaxIds() + " ids per lookup, got " + distinct.size());
+        }
+        return distinct;
+    }
+
+    private <K, R> List<List<R>> query(Map<Shard, List<K>> keysByShard, BiFunction<Shard, List<K>, List<R>> chunkQuery) {
+        List<Shard> shards = new ArrayList<>();
+        List<List<K>> chunks = new ArrayList<>();
+        keysByShard.forEach((shard, keys) -> PaddedInList.chunks(keys, properties.getMaxChunkSize()).forEach(chunk -> {
+            shards.add(shard);
+            chunks.add(chunk);
+        }));
+        if (chunks.size() <= 1 || properties.getParallelism() <= 1) {
+            List<List<R>> results = new ArrayList<>(chunks.size());
+            for (int i = 0; i < chunks.size(); i++) {
+                results.add(chunkQuery.apply(shards.get(i), chunks.get(i)));
+            }
+            return results;
+        }
+        List<CompletableFuture<List<R>>> futures = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            Shard shard = shards.get(i);
+            List<K> chunk = chunks.get(i);
+            futures.add(CompletableFuture.supplyAsync(() -> chunkQuery.apply(shard, chunk), executor));
+        }
+        List<List<R>> results = new ArrayList<>(chunks.size());
+        try {
+            for (CompletableFuture<List<R>> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(false));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause(); // keep Spring's DataAccessException for the caller
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
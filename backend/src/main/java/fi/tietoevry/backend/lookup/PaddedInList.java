@@ -0,0 +1,54 @@
+package fi.tietoevry.backend.lookup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+Splits ids into IN-list chunks whose sizes are powers of two (1, 2, 4, ... maxChunkSize); a short chunk is padded
+by repeating its last id. Every lookup then uses one of a handful of SQL strings, so the driver's and the database's
+statement caches stay small and warm no matter how many ids a client sends.
+*/
+final class PaddedInList {
+
+    private PaddedInList() {
+    }
+
+    static int paddedSize(int size, int maxChunkSize) {
+        if (size >= maxChunkSize) {
+            return maxChunkSize;
+        }
+        int padded = Integer.highestOneBit(Math.max(1, size));
+        return padded == size ? size : Math.min(padded << 1, maxChunkSize);
+    }
+
+    // ids must already be distinct; every returned chunk is padded to its paddedSize
+    static <T> List<List<T>> chunks(List<T> ids, int maxChunkSize) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<List<T>> chunks = new ArrayList<>((ids.size() + maxChunkSize - 1) / maxChunkSize);
+        for (int from = 0; from < ids.size(); from += maxChunkSize) {
+            List<T> chunk = new ArrayList<>(ids.subList(from, Math.min(from + maxChunkSize, ids.size())));
+            T last = chunk.get(chunk.size() - 1);
+            int padded = paddedSize(chunk.size(), maxChunkSize);
+            while (chunk.size() < padded) {
+                chunk.add(last);
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    // "?,?,?" or "(?,?),(?,?)" for row values
+    static String placeholders(int count, String placeholder) {
+        StringBuilder sql = new StringBuilder(count * (placeholder.length() + 1));
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(placeholder);
+        }
+        return sql.toString();
+    }
+}
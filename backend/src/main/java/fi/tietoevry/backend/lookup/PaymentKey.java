@@ -0,0 +1,57 @@
+package fi.tietoevry.backend.lookup;
+
+import java.util.Objects;
+
+// Primary key of a payment as clients send it (Payment.PaymentId holds a Customer entity instead of its number)
+public class PaymentKey {
+
+    private Long customerNumber;
+    private String checkNumber;
+
+    public PaymentKey() {
+    }
+
+    public PaymentKey(Long customerNumber, String checkNumber) {
+        this.customerNumber = customerNumber;
+        this.checkNumber = checkNumber;
+    }
+
+    public Long getCustomerNumber() {
+        return customerNumber;
+    }
+
+    public void setCustomerNumber(Long customerNumber) {
+        this.customerNumber = customerNumber;
+    }
+
+    public String getCheckNumber() {
+        return checkNumber;
+    }
+
+    public void setCheckNumber(String checkNumber) {
+        this.checkNumber = checkNumber;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        PaymentKey that = (PaymentKey) o;
+        return Objects.equals(customerNumber, that.customerNumber) &&
+                Objects.equals(checkNumber, that.checkNumber);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(customerNumber, checkNumber);
+    }
+
+    @Override
+    public String toString() {
+        return customerNumber + "/" + checkNumber;
+    }
+}
@@ -5,6 +5,7 @@ import java.util.Objects;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
@@ -16,9 +17,12 @@ import com.fasterxml.jackson.annotation.JsonGetter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
+import fi.tietoevry.backend.cache.CacheInvalidationEntityListener;
+
 @Entity
 @Table(name = "customers") // Name of the table in database is actually "customers"
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"}) // We don't need these Hibernate guys in the JSON output
+@EntityListeners(CacheInvalidationEntityListener.class) // Tell other backend instances to drop their cached copy after a change
 public class Customer {
 
     @Id
@@ -4,6 +4,7 @@ import java.util.Objects;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
@@ -15,9 +16,12 @@ import com.fasterxml.jackson.annotation.JsonGetter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
+import fi.tietoevry.backend.cache.CacheInvalidationEntityListener;
+
 @Entity
 @Table(name = "employees") // Name of the table in database is actually "employees"
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"}) // We don't need these Hibernate guys in the JSON output
+@EntityListeners(CacheInvalidationEntityListener.class) // A sales rep changing office moves their customers to another shard
 public class Employee {
     @Id
     @GeneratedValue
@@ -2,14 +2,18 @@ package fi.tietoevry.backend.model;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.Id;
 import javax.persistence.Table;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
+import fi.tietoevry.backend.cache.CacheInvalidationEntityListener;
+
 @Entity
 @Table(name = "offices") // Name of the table in database is actually "offices"
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"}) // We don't need these Hibernate guys in the JSON output
+@EntityListeners(CacheInvalidationEntityListener.class) // Tell other backend instances to drop their cached copy after a change
 public class Office {
     @Id
     @Column(length = 10, unique = true)
@@ -140,6 +140,11 @@ public class OrderDetail {
         public OrderDetailId() {
         }
 
+        public OrderDetailId(Long orderNumber, String productCode) {
+            this.orderNumber = orderNumber;
+            this.productCode = productCode;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) {
@@ -108,6 +108,11 @@ public class Payment {
         public PaymentId() {
         }
 
+        public PaymentId(Customer customerNumber, String checkNumber) {
+            this.customerNumber = customerNumber;
+            this.checkNumber = checkNumber;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) {
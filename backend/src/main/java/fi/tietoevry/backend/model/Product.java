@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
@@ -14,9 +15,12 @@ import com.fasterxml.jackson.annotation.JsonGetter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
+import fi.tietoevry.backend.cache.CacheInvalidationEntityListener;
+
 @Entity
 @Table(name = "products") // Name of the table in database is actually "products"
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"}) // We don't need these Hibernate guys in the JSON output
+@EntityListeners(CacheInvalidationEntityListener.class) // Tell other backend instances to drop their cached copy after a change
 public class Product {
 
     @Id
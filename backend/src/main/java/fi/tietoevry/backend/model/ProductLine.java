@@ -4,14 +4,18 @@ import java.util.Arrays;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.Id;
 import javax.persistence.Table;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
+import fi.tietoevry.backend.cache.CacheInvalidationEntityListener;
+
 @Entity
 @Table(name = "productlines") // Name of the table in database is actually "productlines"
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"}) // We don't need these Hibernate guys in the JSON output
+@EntityListeners(CacheInvalidationEntityListener.class) // Tell other backend instances (and the catalog ETags) about changes
 public class ProductLine {
 
     @Id
@@ -0,0 +1,52 @@
+package fi.tietoevry.backend.order;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import fi.tietoevry.backend.sharding.ShardRouter;
+
+@Configuration
+@EnableConfigurationProperties(GroupCommitProperties.class)
+@ConditionalOnProperty(name = "backend.group-commit.enabled", havingValue = "true")
+public class GroupCommitConfiguration {
+
+    @Bean
+    public GroupCommitter groupCommitter(OrderService orderService, ShardRouter shardRouter, PlatformTransactionManager transactionManager,
+                                         EntityManager entityManager, GroupCommitProperties properties) {
+        return new GroupCommitter(orderService, shardRouter, new TransactionTemplate(transactionManager), entityManager, properties);
+    }
+
+    // GET /actuator/metrics/backend.group-commit.orders?tag=outcome:committed etc.
+    @Bean
+    public MeterBinder groupCommitMetrics(GroupCommitter groupCommitter) {
+        GroupCommitStats stats = groupCommitter.getStats();
+        return registry -> {
+            FunctionCounter.builder("backend.group-commit.orders", stats, GroupCommitStats::getSubmitted).tag("outcome", "submitted")
+                    .register(registry);
+            FunctionCounter.builder("backend.group-commit.orders", stats, GroupCommitStats::getCommitted).tag("outcome", "committed")
+                    .register(registry);
+            FunctionCounter.builder("backend.group-commit.orders", stats, GroupCommitStats::getInvalid).tag("outcome", "invalid")
+                    .register(registry);
+            FunctionCounter.builder("backend.group-commit.orders", stats, GroupCommitStats::getFailed).tag("outcome", "failed")
+                    .register(registry);
+            FunctionCounter.builder("backend.group-commit.orders", stats, GroupCommitStats::getRefused).tag("outcome", "refused")
+                    .register(registry);
+            FunctionCounter.builder("backend.group-commit.transactions", stats, GroupCommitStats::getTransactions).register(registry);
+            FunctionCounter.builder("backend.group-commit.rollbacks", stats, GroupCommitStats::getRollbacks).register(registry);
+            Gauge.builder("backend.group-commit.batch.size.average", stats, GroupCommitStats::getAverageBatchSize).register(registry);
+            Gauge.builder("backend.group-commit.batch.size.max", stats, GroupCommitStats::getLargestBatch).register(registry);
+            Gauge.builder("backend.group-commit.wait.average", stats, GroupCommitStats::getAverageWaitMillis).baseUnit("milliseconds")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,64 @@
+package fi.tietoevry.backend.order;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "backend.group-commit")
+public class GroupCommitProperties {
+
+    // Off: every POST /api/orders is its own transaction
+    private boolean enabled = false;
+
+    // Orders committed together at most
+    private int maxBatchSize = 64;
+
+    // How long the first order of a batch may wait for more; only waited while orders arrive concurrently
+    private Duration maxDelay = Duration.ofMillis(2);
+
+    // Orders waiting for a batch at most, further requests are turned down with 503
+    private int queueCapacity = 4096;
+
+    // JDBC batch size of the batch transaction's session (MySQL needs rewriteBatchedStatements=true to send it as one)
+    private int jdbcBatchSize = 50;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public Duration getMaxDelay() {
+        return maxDelay;
+    }
+
+    public void setMaxDelay(Duration maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getJdbcBatchSize() {
+        return jdbcBatchSize;
+    }
+
+    public void setJdbcBatchSize(int jdbcBatchSize) {
+        this.jdbcBatchSize = jdbcBatchSize;
+    }
+}
@@ -0,0 +1,101 @@
+package fi.tietoevry.backend.order;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class GroupCommitStats {
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder committed = new LongAdder();
+    private final LongAdder invalid = new LongAdder(); // turned down by OrderService.prepare(), the batch went on
+    private final LongAdder failed = new LongAdder(); // failed on their own after splitting
+    private final LongAdder refused = new LongAdder(); // queue full or shutting down
+    private final LongAdder transactions = new LongAdder();
+    private final LongAdder rollbacks = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder(); // submit to completion of the committed orders
+    private volatile int largestBatch;
+
+    void recordSubmitted() {
+        submitted.increment();
+    }
+
+    void recordCommitted(int orders, long waitedNanos) {
+        committed.add(orders);
+        transactions.increment();
+        waitNanos.add(waitedNanos);
+        if (orders > largestBatch) {
+            largestBatch = orders; // only the committer thread writes it
+        }
+    }
+
+    void recordInvalid() {
+        invalid.increment();
+    }
+
+    void recordFailed() {
+        failed.increment();
+    }
+
+    void recordRefused() {
+        refused.increment();
+    }
+
+    void recordRollback() {
+        rollbacks.increment();
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getCommitted() {
+        return committed.sum();
+    }
+
+    public long getInvalid() {
+        return invalid.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getRefused() {
+        return refused.sum();
+    }
+
+    public long getTransactions() {
+        return transactions.sum();
+    }
+
+    public long getRollbacks() {
+        return rollbacks.sum();
+    }
+
+    public double getAverageBatchSize() {
+        long count = transactions.sum();
+        return count == 0 ? 0 : committed.sum() / (double) count;
+    }
+
+    public int getLargestBatch() {
+        return largestBatch;
+    }
+
+    public double getAverageWaitMillis() {
+        long orders = committed.sum();
+        return orders == 0 ? 0 : waitNanos.sum() / 1_000_000.0 / orders;
+    }
+
+    @Override
+    public String toString() {
+        return "GroupCommitStats{" +
+                "submitted=" + getSubmitted() +
+                ", committed=" + getCommitted() +
+                ", invalid=" + getInvalid() +
+                ", failed=" + getFailed() +
+                ", refused=" + getRefused() +
+                ", transactions=" + getTransactions() +
+                ", rollbacks=" + getRollbacks() +
+                ", averageBatchSize=" + getAverageBatchSize() +
+                '}';
+    }
+}
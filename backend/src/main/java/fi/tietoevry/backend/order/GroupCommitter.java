@@ -0,0 +1,256 @@
+package fi.tietoevry.backend.order;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import fi.tietoevry.backend.model.Order;
+import fi.tietoevry.backend.sharding.Shard;
+import fi.tietoevry.backend.sharding.ShardRouter;
+
+/*
+Group commit for new orders: one committer thread places whatever is queued in one transaction, so concurrent orders
+share a commit. An idle committer doesn't wait; under load it waits up to maxDelay for a batch of maxBatchSize.
+A failed transaction is split in halves and retried down to single orders, so failures stay with their order.
+*/
+public class GroupCommitter implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitter.class);
+
+    private final OrderService orderService;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transaction;
+    private final EntityManager entityManager;
+    private final GroupCommitProperties properties;
+    private final BlockingQueue<Submission> queue;
+    private final GroupCommitStats stats = new GroupCommitStats();
+
+    private volatile boolean running;
+    private volatile Thread committer;
+    private int lastBatchSize; // committer thread only
+
+    public GroupCommitter(OrderService orderService, ShardRouter shardRouter, TransactionTemplate transaction,
+                          EntityManager entityManager, GroupCommitProperties properties) {
+        this.orderService = orderService;
+        this.shardRouter = shardRouter;
+        this.transaction = transaction;
+        this.entityManager = entityManager;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+    }
+
+    // Places the order with the next batch and waits for its commit
+    public Order placeOrder(NewOrder request) {
+        try {
+            return submit(request).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the order to commit", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public CompletableFuture<Order> submit(NewOrder request) {
+        Submission submission = new Submission(request, shardRouter.shardForCustomer(request.getCustomerNumber()));
+        if (!running || !queue.offer(submission)) {
+            stats.recordRefused();
+            throw new RejectedExecutionException(running ? "Too many orders waiting for a commit" : "Not accepting orders");
+        }
+        stats.recordSubmitted();
+        return submission.future;
+    }
+
+    public GroupCommitStats getStats() {
+        return stats;
+    }
+
+    public int getQueued() {
+        return queue.size();
+    }
+
+    private void commitLoop() {
+        List<Submission> batch = new ArrayList<>(properties.getMaxBatchSize());
+        while (running || !queue.isEmpty()) {
+            batch.clear();
+            try {
+                Submission first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, properties.getMaxBatchSize() - 1);
+                if (lastBatchSize > 1) {
+                    linger(batch, first.submittedAt + properties.getMaxDelay().toNanos());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (batch.isEmpty()) {
+                    break;
+                }
+            }
+            lastBatchSize = batch.size();
+            commit(batch);
+        }
+    }
+
+    // More orders are coming in concurrently: wait for them until the batch is full or the first order waited maxDelay
+    private void linger(List<Submission> batch, long deadline) throws InterruptedException {
+        while (batch.size() < properties.getMaxBatchSize()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            Submission next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            queue.drainTo(batch, properties.getMaxBatchSize() - batch.size());
+        }
+    }
+
+    private void commit(List<Submission> batch) {
+        Map<Shard, List<Submission>> byShard = new LinkedHashMap<>();
+        for (Submission submission : batch) {
+            byShard.computeIfAbsent(submission.shard, shard -> new ArrayList<>()).add(submission);
+        }
+        byShard.forEach(this::commitIsolated);
+    }
+
+    private void commitIsolated(Shard shard, List<Submission> orders) {
+        List<Submission> pending = new ArrayList<>(orders.size());
+        for (Submission submission : orders) {
+            if (!submission.future.isDone()) { // turned down as invalid in an earlier attempt
+                pending.add(submission);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Placed> placed;
+        try {
+            placed = shardRouter.onShard(shard, () -> transaction.execute(status -> write(pending)));
+        } catch (RuntimeException e) {
+            stats.recordRollback();
+            if (pending.size() == 1 || e instanceof CannotCreateTransactionException) {
+                log.debug("Placing {} order(s) failed", pending.size(), e);
+                for (Submission submission : pending) {
+                    stats.recordFailed();
+                    submission.future.completeExceptionally(e);
+                }
+                return;
+            }
+            int half = pending.size() / 2;
+            commitIsolated(shard, pending.subList(0, half));
+            commitIsolated(shard, pending.subList(half, pending.size()));
+            return;
+        }
+        if (placed.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long waited = 0;
+        for (Placed order : placed) {
+            waited += now - order.submission.submittedAt;
+        }
+        stats.recordCommitted(placed.size(), waited);
+        for (Placed order : placed) {
+            order.submission.future.complete(order.prepared.getOrder());
+        }
+    }
+
+    // Inside the batch transaction
+    private List<Placed> write(List<Submission> orders) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(properties.getJdbcBatchSize());
+        List<Placed> placed = new ArrayList<>(orders.size());
+        List<OrderService.PreparedOrder> prepared = new ArrayList<>(orders.size());
+        for (Submission submission : orders) {
+            try {
+                OrderService.PreparedOrder order = orderService.prepare(submission.request);
+                placed.add(new Placed(submission, order));
+                prepared.add(order);
+            } catch (IllegalArgumentException | NullPointerException e) {
+                stats.recordInvalid();
+                submission.future.completeExceptionally(e);
+            }
+        }
+        orderService.persist(prepared);
+        entityManager.flush(); // fail here rather than in commit, with the same outcome but a clearer stack trace
+        return placed;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::commitLoop, "order-group-commit");
+        thread.setDaemon(true);
+        committer = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false; // submit() refuses from now on, the committer commits what is queued and ends
+        Thread thread = committer;
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        committer = null;
+        Submission left;
+        while ((left = queue.poll()) != null) {
+            stats.recordRefused();
+            left.future.completeExceptionally(new RejectedExecutionException("Not accepting orders"));
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private static final class Submission {
+        private final NewOrder request;
+        private final Shard shard;
+        private final long submittedAt = System.nanoTime();
+        private final CompletableFuture<Order> future = new CompletableFuture<>();
+
+        private Submission(NewOrder request, Shard shard) {
+            this.request = request;
+            this.shard = shard;
+        }
+    }
+
+    private static final class Placed {
+        private final Submission submission;
+        private final OrderService.PreparedOrder prepared;
+
+        private Placed(Submission submission, OrderService.PreparedOrder prepared) {
+            this.submission = submission;
+            this.prepared = prepared;
+        }
+    }
+}
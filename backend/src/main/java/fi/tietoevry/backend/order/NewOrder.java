@@ -0,0 +1,98 @@
+package fi.tietoevry.backend.order;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// Request body of POST /api/orders
+public class NewOrder {
+
+    private Long customerNumber;
+    private Date requiredDate; // a week from now if not given
+    private String comments;
+    private Long priceListVersion; // lines without priceEach are priced at this version (from a quote), the current one if not given
+    private List<Line> lines = new ArrayList<>();
+
+    public NewOrder() {
+    }
+
+    public Long getCustomerNumber() {
+        return customerNumber;
+    }
+
+    public void setCustomerNumber(Long customerNumber) {
+        this.customerNumber = customerNumber;
+    }
+
+    public Date getRequiredDate() {
+        return requiredDate;
+    }
+
+    public void setRequiredDate(Date requiredDate) {
+        this.requiredDate = requiredDate;
+    }
+
+    public String getComments() {
+        return comments;
+    }
+
+    public void setComments(String comments) {
+        this.comments = comments;
+    }
+
+    public Long getPriceListVersion() {
+        return priceListVersion;
+    }
+
+    public void setPriceListVersion(Long priceListVersion) {
+        this.priceListVersion = priceListVersion;
+    }
+
+    public List<Line> getLines() {
+        return lines;
+    }
+
+    public void setLines(List<Line> lines) {
+        this.lines = lines;
+    }
+
+    public static class Line {
+        private String productCode;
+        private Long quantityOrdered;
+        private BigDecimal priceEach; // the product's MSRP if not given
+
+        public Line() {
+        }
+
+        public Line(String productCode, Long quantityOrdered, BigDecimal priceEach) {
+            this.productCode = productCode;
+            this.quantityOrdered = quantityOrdered;
+            this.priceEach = priceEach;
+        }
+
+        public String getProductCode() {
+            return productCode;
+        }
+
+        public void setProductCode(String productCode) {
+            this.productCode = productCode;
+        }
+
+        public Long getQuantityOrdered() {
+            return quantityOrdered;
+        }
+
+        public void setQuantityOrdered(Long quantityOrdered) {
+            this.quantityOrdered = quantityOrdered;
+        }
+
+        public BigDecimal getPriceEach() {
+            return priceEach;
+        }
+
+        public void setPriceEach(BigDecimal priceEach) {
+            this.priceEach = priceEach;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package fi.tietoevry.backend.order;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+// Request body of POST /api/payments
+public class NewPayment {
+
+    private Long customerNumber;
+    private String checkNumber;
+    private Date paymentDate; // today if not given
+    private BigDecimal amount;
+
+    public NewPayment() {
+    }
+
+    public Long getCustomerNumber() {
+        return customerNumber;
+    }
+
+    public void setCustomerNumber(Long customerNumber) {
+        this.customerNumber = customerNumber;
+    }
+
+    public String getCheckNumber() {
+        return checkNumber;
+    }
+
+    public void setCheckNumber(String checkNumber) {
+        this.checkNumber = checkNumber;
+    }
+
+    public Date getPaymentDate() {
+        return paymentDate;
+    }
+
+    public void setPaymentDate(Date paymentDate) {
+        this.paymentDate = paymentDate;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+}
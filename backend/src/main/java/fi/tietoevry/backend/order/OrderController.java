@@ -0,0 +1,77 @@
+package fi.tietoevry.backend.order;
+
+import java.math.BigDecimal;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import fi.tietoevry.backend.model.Order;
+import fi.tietoevry.backend.model.OrderDetail;
+import fi.tietoevry.backend.model.Payment;
+import fi.tietoevry.backend.sharding.ShardRouter;
+
+/*
+Requests are routed to the shard of the customer / order before OrderService opens its transaction.
+With backend.group-commit.enabled new orders go through GroupCommitter instead, which routes each batch itself.
+*/
+@RestController
+@RequestMapping("/api")
+public class OrderController {
+
+    private final OrderService orderService;
+    private final ShardRouter shardRouter;
+    private final GroupCommitter groupCommitter; // null unless backend.group-commit.enabled
+
+    public OrderController(OrderService orderService, ShardRouter shardRouter, ObjectProvider<GroupCommitter> groupCommitter) {
+        this.orderService = orderService;
+        this.shardRouter = shardRouter;
+        this.groupCommitter = groupCommitter.getIfAvailable();
+    }
+
+    @PostMapping("/orders")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Order placeOrder(@RequestBody NewOrder request) {
+        try {
+            if (groupCommitter != null) {
+                return groupCommitter.placeOrder(request);
+            }
+            return shardRouter.onCustomer(request.getCustomerNumber(), () -> orderService.placeOrder(request));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), e);
+        }
+    }
+
+    @PutMapping("/orders/{orderNumber}/lines/{productCode}")
+    public OrderDetail updateOrderLine(@PathVariable Long orderNumber, @PathVariable String productCode,
+                                       @RequestParam(required = false) Long quantityOrdered,
+                                       @RequestParam(required = false) BigDecimal priceEach) {
+        try {
+            return shardRouter.onOrder(orderNumber, () -> orderService.updateOrderLine(orderNumber, productCode, quantityOrdered, priceEach));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
+        }
+    }
+
+    @PostMapping("/payments")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Payment recordPayment(@RequestBody NewPayment request) {
+        try {
+            return shardRouter.onCustomer(request.getCustomerNumber(), () -> orderService.recordPayment(request));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package fi.tietoevry.backend.order;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import fi.tietoevry.backend.model.Customer;
+import fi.tietoevry.backend.model.Order;
+import fi.tietoevry.backend.model.OrderDetail;
+import fi.tietoevry.backend.model.Payment;
+import fi.tietoevry.backend.model.Product;
+import fi.tietoevry.backend.pricing.PriceList;
+import fi.tietoevry.backend.pricing.PriceLists;
+
+/*
+The write side for orders and payments. New rows are persist()-ed: save() would merge() an OrderDetail or Payment
+with an assigned key and pay a SELECT for every row. Missing prices come from one price list snapshot.
+*/
+@Service
+public class OrderService {
+
+    static final String NEW_ORDER_STATUS = "In Process";
+
+    private final EntityManager entityManager;
+    private final PriceLists priceLists; // null with backend.pricing.enabled=false
+
+    public OrderService(EntityManager entityManager, ObjectProvider<PriceLists> priceLists) {
+        this.entityManager = entityManager;
+        this.priceLists = priceLists.getIfAvailable();
+    }
+
+    @Transactional
+    public Order placeOrder(NewOrder request) {
+        PreparedOrder order = prepare(request);
+        persist(Collections.singletonList(order));
+        return order.getOrder();
+    }
+
+    // Validates and builds the rows without writing anything, so GroupCommitter can turn a bad order down alone
+    public PreparedOrder prepare(NewOrder request) {
+        Objects.requireNonNull(request.getCustomerNumber(), "customerNumber is required");
+        if (request.getLines() == null || request.getLines().isEmpty()) {
+            throw new IllegalArgumentException("An order needs at least one line");
+        }
+        Date now = new Date();
+        Order order = new Order();
+        order.setCustomer(entityManager.getReference(Customer.class, request.getCustomerNumber())); // no SELECT, we only need the key
+        order.setOrderDate(now);
+        order.setRequiredDate(request.getRequiredDate() != null ? request.getRequiredDate() : new Date(now.getTime() + TimeUnit.DAYS.toMillis(7)));
+        order.setStatus(NEW_ORDER_STATUS);
+        order.setComments(request.getComments());
+
+        PriceList prices = priceList(request.getPriceListVersion());
+        List<OrderDetail> details = new ArrayList<>(request.getLines().size());
+        Set<String> productCodes = new HashSet<>();
+        int lineNumber = 1;
+        for (NewOrder.Line line : request.getLines()) {
+            Objects.requireNonNull(line.getProductCode(), "productCode is required");
+            if (!productCodes.add(line.getProductCode())) {
+                // (orderNumber, productCode) is the key of orderdetails, the flush would fail the whole transaction
+                throw new IllegalArgumentException("Product " + line.getProductCode() + " is on more than one line, order it once");
+            }
+            if (line.getQuantityOrdered() == null || line.getQuantityOrdered() <= 0) {
+                throw new IllegalArgumentException("quantityOrdered must be positive for " + line.getProductCode());
+            }
+            OrderDetail detail = new OrderDetail();
+            detail.setProductCode(line.getProductCode());
+            detail.setOrder(order);
+            detail.setQuantityOrdered(line.getQuantityOrdered());
+            int priceId = prices == null ? -1 : prices.idOf(line.getProductCode());
+            if (line.getPriceEach() != null) {
+                detail.setProduct(entityManager.getReference(Product.class, line.getProductCode()));
+                detail.setPriceEach(line.getPriceEach());
+            } else if (prices != null && prices.contains(priceId)) {
+                detail.setProduct(entityManager.getReference(Product.class, line.getProductCode()));
+                detail.setPriceEach(prices.msrp(priceId));
+            } else {
+                Product product = entityManager.find(Product.class, line.getProductCode());
+                if (product == null) {
+                    throw new IllegalArgumentException("Unknown product " + line.getProductCode());
+                }
+                detail.setProduct(product);
+                detail.setPriceEach(product.getMsrp());
+            }
+            detail.setOrderLineNumber(lineNumber++);
+            details.add(detail);
+        }
+        return new PreparedOrder(order, details);
+    }
+
+    // All orders first, then all lines, so that a JDBC batch size sends one batch per table
+    public void persist(List<PreparedOrder> orders) {
+        for (PreparedOrder prepared : orders) {
+            entityManager.persist(prepared.getOrder()); // the order number comes from orders_seq, the INSERT itself waits for the flush
+        }
+        for (PreparedOrder prepared : orders) {
+            for (OrderDetail detail : prepared.getDetails()) {
+                detail.setOrderNumber(prepared.getOrder().getOrderNumber());
+                entityManager.persist(detail);
+            }
+        }
+    }
+
+    private PriceList priceList(Long version) {
+        if (priceLists == null) {
+            if (version != null) {
+                throw new IllegalArgumentException("Price lists are disabled, priceListVersion can't be used");
+            }
+            return null;
+        }
+        if (version == null) {
+            return priceLists.current();
+        }
+        return priceLists.at(version).orElseThrow(() -> new IllegalArgumentException(
+                "Price list version " + version + " is no longer available, quote again"));
+    }
+
+    @Transactional
+    public OrderDetail updateOrderLine(Long orderNumber, String productCode, Long quantityOrdered, BigDecimal priceEach) {
+        OrderDetail.OrderDetailId id = new OrderDetail.OrderDetailId(orderNumber, productCode);
+        OrderDetail detail = entityManager.find(OrderDetail.class, id);
+        if (detail == null) {
+            throw new IllegalArgumentException("Order " + orderNumber + " has no line for " + productCode);
+        }
+        if (quantityOrdered != null) {
+            detail.setQuantityOrdered(quantityOrdered);
+        }
+        if (priceEach != null) {
+            detail.setPriceEach(priceEach);
+        }
+        return detail; // dirty checking writes the UPDATE on commit
+    }
+
+    @Transactional
+    public Payment recordPayment(NewPayment request) {
+        Objects.requireNonNull(request.getCustomerNumber(), "customerNumber is required");
+        Objects.requireNonNull(request.getCheckNumber(), "checkNumber is required");
+        if (request.getAmount() == null || request.getAmount().signum() <= 0) {
+            throw new IllegalArgumentException("amount must be positive");
+        }
+        Payment payment = new Payment();
+        payment.setCustomerNumber(entityManager.getReference(Customer.class, request.getCustomerNumber()));
+        payment.setCheckNumber(request.getCheckNumber());
+        payment.setPaymentDate(request.getPaymentDate() != null ? request.getPaymentDate() : new Date());
+        payment.setAmount(request.getAmount());
+        entityManager.persist(payment);
+        return payment;
+    }
+
+    // A validated order and its lines, not persisted yet
+    public static final class PreparedOrder {
+        private final Order order;
+        private final List<OrderDetail> details;
+
+        PreparedOrder(Order order, List<OrderDetail> details) {
+            this.order = order;
+            this.details = details;
+        }
+
+        public Order getOrder() {
+            return order;
+        }
+
+        List<OrderDetail> getDetails() {
+            return details;
+        }
+    }
+}
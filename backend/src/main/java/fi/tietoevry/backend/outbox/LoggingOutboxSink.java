@@ -0,0 +1,18 @@
+package fi.tietoevry.backend.outbox;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class LoggingOutboxSink implements OutboxSink {
+
+    private static final Logger log = LoggerFactory.getLogger(LoggingOutboxSink.class);
+
+    @Override
+    public void publish(List<OutboxEvent> events) {
+        for (OutboxEvent event : events) {
+            log.info("{} {} {}: {}", event.getEventType(), event.getAggregateType(), event.getAggregateId(), event.getPayload());
+        }
+    }
+}
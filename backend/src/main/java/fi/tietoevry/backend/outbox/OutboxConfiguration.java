@@ -0,0 +1,53 @@
+package fi.tietoevry.backend.outbox;
+
+import java.nio.file.Paths;
+
+import org.hibernate.integrator.spi.Integrator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fi.tietoevry.backend.config.EventListenerIntegrator;
+import fi.tietoevry.backend.sharding.ShardRouter;
+
+@Configuration
+@EnableConfigurationProperties(OutboxProperties.class)
+public class OutboxConfiguration {
+
+    @Bean
+    public OutboxStats outboxStats() {
+        return new OutboxStats();
+    }
+
+    @Bean
+    public Integrator outboxListenerIntegrator(OutboxProperties properties, OutboxStats stats, ObjectMapper objectMapper) {
+        return new EventListenerIntegrator(new OutboxEventListener(new OutboxWriter(), properties, stats, objectMapper));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "backend.outbox.sink", havingValue = "log", matchIfMissing = true)
+    public OutboxSink loggingOutboxSink() {
+        return new LoggingOutboxSink();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "backend.outbox.sink", havingValue = "file")
+    public OutboxSink fileOutboxSink(OutboxProperties properties, ObjectMapper objectMapper) {
+        return new FileOutboxSink(Paths.get(properties.getFile()), objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "backend.outbox.sink", havingValue = "memory")
+    public InMemoryOutboxSink inMemoryOutboxSink() {
+        return new InMemoryOutboxSink();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "backend.outbox.relay", havingValue = "true", matchIfMissing = true)
+    public OutboxRelay outboxRelay(ShardRouter shardRouter, OutboxSink sink, OutboxProperties properties, OutboxStats stats) {
+        return new OutboxRelay(shardRouter, sink, properties, stats);
+    }
+}
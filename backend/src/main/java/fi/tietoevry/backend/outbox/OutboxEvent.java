@@ -0,0 +1,56 @@
+package fi.tietoevry.backend.outbox;
+
+// One row of the outbox table; id is 0 until the row has been inserted
+public class OutboxEvent {
+
+    private final long id;
+    private final String aggregateType;
+    private final String aggregateId;
+    private final String eventType;
+    private final String payload; // JSON of the entity as the REST API would show it
+    private final long createdAt;
+
+    public OutboxEvent(long id, String aggregateType, String aggregateId, String eventType, String payload, long createdAt) {
+        this.id = id;
+        this.aggregateType = aggregateType;
+        this.aggregateId = aggregateId;
+        this.eventType = eventType;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getAggregateType() {
+        return aggregateType;
+    }
+
+    public String getAggregateId() {
+        return aggregateId;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxEvent{" +
+                "id=" + id +
+                ", aggregateType='" + aggregateType + '\'' +
+                ", aggregateId='" + aggregateId + '\'' +
+                ", eventType='" + eventType + '\'' +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
@@ -0,0 +1,126 @@
+package fi.tietoevry.backend.outbox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fi.tietoevry.backend.config.TransactionScopedListener;
+import fi.tietoevry.backend.model.Order;
+import fi.tietoevry.backend.model.OrderDetail;
+import fi.tietoevry.backend.model.Payment;
+
+/*
+Turns order, order line and payment changes into outbox events, inserted with one batch right before the
+transaction commits.
+*/
+public class OutboxEventListener extends TransactionScopedListener<OutboxEventListener.PendingEvents>
+        implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final transient OutboxWriter writer;
+    private final transient OutboxProperties properties;
+    private final transient OutboxStats stats;
+    private final transient ObjectMapper objectMapper;
+
+    public OutboxEventListener(OutboxWriter writer, OutboxProperties properties, OutboxStats stats, ObjectMapper objectMapper) {
+        this.writer = writer;
+        this.properties = properties;
+        this.stats = stats;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Order) {
+            capture(event.getSession(), "Order", orderId((Order) entity), "OrderCreated", entity);
+        } else if (entity instanceof OrderDetail) {
+            capture(event.getSession(), "Order", orderId((OrderDetail) entity), "OrderLineAdded", entity);
+        } else if (entity instanceof Payment) {
+            Payment payment = (Payment) entity;
+            capture(event.getSession(), "Customer", String.valueOf(payment.getJsonCustomerNumber()), "PaymentReceived", entity);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Order && statusChanged(event)) {
+            capture(event.getSession(), "Order", orderId((Order) entity), "OrderStatusChanged", entity);
+        } else if (entity instanceof OrderDetail) {
+            capture(event.getSession(), "Order", orderId((OrderDetail) entity), "OrderLineChanged", entity);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof OrderDetail) {
+            capture(event.getSession(), "Order", orderId((OrderDetail) entity), "OrderLineRemoved", entity);
+        }
+    }
+
+    private void capture(EventSource session, String aggregateType, String aggregateId, String eventType, Object entity) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(entity);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + entity + " for the outbox", e);
+        }
+        pendingFor(session).events.add(new OutboxEvent(0, aggregateType, aggregateId, eventType, payload, System.currentTimeMillis()));
+        stats.recordCaptured(1);
+    }
+
+    @Override
+    protected PendingEvents newPending() {
+        return new PendingEvents();
+    }
+
+    private static boolean statusChanged(PostUpdateEvent event) {
+        int[] dirty = event.getDirtyProperties();
+        String[] names = event.getPersister().getPropertyNames();
+        if (dirty == null) {
+            return true; // Hibernate didn't track it, better one event too many
+        }
+        for (int index : dirty) {
+            if ("status".equals(names[index])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String orderId(Order order) {
+        return String.valueOf(order.getOrderNumber());
+    }
+
+    private static String orderId(OrderDetail detail) {
+        return String.valueOf(detail.getOrderNumber());
+    }
+
+    class PendingEvents implements BeforeTransactionCompletionProcess {
+
+        private final List<OutboxEvent> events = new ArrayList<>();
+
+        @Override
+        public void doBeforeTransactionCompletion(SessionImplementor session) {
+            if (!events.isEmpty()) {
+                session.doWork(connection -> writer.write(connection, events));
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package fi.tietoevry.backend.outbox;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "backend.outbox")
+public class OutboxProperties {
+
+    public enum SinkType {
+        LOG,
+        FILE, // JSON lines appended to file
+        MEMORY // kept in the InMemoryOutboxSink bean, for tests
+    }
+
+    public enum Cleanup {
+        DELETE, // published rows are deleted, the table stays small
+        MARK // published rows get published_at set and stay around for replay / debugging
+    }
+
+    private boolean enabled = true; // writing events; the relay keeps draining what is already there
+
+    private boolean relay = true; // run the relay in this instance
+
+    private SinkType sink = SinkType.LOG;
+
+    private String file = "outbox/events.jsonl";
+
+    private Cleanup cleanup = Cleanup.DELETE;
+
+    private int batchSize = 1000;
+
+    // How long the relay sleeps after a batch that wasn't full; also the typical delay of an event
+    private Duration pollInterval = Duration.ofMillis(100);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isRelay() {
+        return relay;
+    }
+
+    public void setRelay(boolean relay) {
+        this.relay = relay;
+    }
+
+    public SinkType getSink() {
+        return sink;
+    }
+
+    public void setSink(SinkType sink) {
+        this.sink = sink;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public Cleanup getCleanup() {
+        return cleanup;
+    }
+
+    public void setCleanup(Cleanup cleanup) {
+        this.cleanup = cleanup;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getPollInterval() {
+        return pollInterval;
+    }
+
+    public void setPollInterval(Duration pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+}
@@ -0,0 +1,153 @@
+package fi.tietoevry.backend.outbox;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import fi.tietoevry.backend.outbox.OutboxProperties.Cleanup;
+import fi.tietoevry.backend.sharding.Shard;
+import fi.tietoevry.backend.sharding.ShardRouter;
+
+/*
+Moves outbox rows to the sink in batches, at least once: locks the oldest rows (SKIP LOCKED, so instances don't wait
+on each other), publishes them and deletes or marks them in one transaction. Sharded, every shard's outbox in turn.
+*/
+public class OutboxRelay implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    static final String SELECT_BATCH = "SELECT id, aggregate_type, aggregate_id, event_type, payload, created_at FROM outbox " +
+            "WHERE published_at IS NULL ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final RowMapper<OutboxEvent> ROW_MAPPER = (rs, rowNum) -> new OutboxEvent(rs.getLong(1), rs.getString(2),
+            rs.getString(3), rs.getString(4), rs.getString(5), rs.getTimestamp(6).getTime());
+
+    private final List<ShardOutbox> outboxes = new ArrayList<>();
+    private final OutboxSink sink;
+    private final OutboxProperties properties;
+    private final OutboxStats stats;
+
+    private volatile boolean running;
+    private volatile Thread relayThread;
+
+    public OutboxRelay(ShardRouter shardRouter, OutboxSink sink, OutboxProperties properties, OutboxStats stats) {
+        shardRouter.getShards().forEach(shard -> outboxes.add(new ShardOutbox(shard)));
+        this.sink = sink;
+        this.properties = properties;
+        this.stats = stats;
+    }
+
+    // Relays one batch from every shard, returns how many events it published
+    public int relayOnce() {
+        int relayed = 0;
+        for (ShardOutbox outbox : outboxes) {
+            relayed += relayOnce(outbox);
+        }
+        return relayed;
+    }
+
+    private int relayOnce(ShardOutbox outbox) {
+        List<OutboxEvent> batch = outbox.transactionTemplate.execute(status -> {
+            List<OutboxEvent> events = outbox.jdbcTemplate.query(SELECT_BATCH, ROW_MAPPER, properties.getBatchSize());
+            if (!events.isEmpty()) {
+                sink.publish(events);
+                complete(outbox.jdbcTemplate, events);
+            }
+            return events;
+        });
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+        stats.recordPublished(batch.size(), batch.get(0).getCreatedAt());
+        return batch.size();
+    }
+
+    public OutboxStats getStats() {
+        return stats;
+    }
+
+    private void complete(JdbcTemplate jdbcTemplate, List<OutboxEvent> events) {
+        // the ids were just read from the table, so inlining them is safe and keeps it one statement per batch
+        String ids = events.stream().map(event -> String.valueOf(event.getId())).collect(Collectors.joining(","));
+        if (properties.getCleanup() == Cleanup.DELETE) {
+            jdbcTemplate.update("DELETE FROM outbox WHERE id IN (" + ids + ")");
+        } else {
+            jdbcTemplate.update("UPDATE outbox SET published_at = ? WHERE id IN (" + ids + ")", new Timestamp(System.currentTimeMillis()));
+        }
+    }
+
+    private void relayLoop() {
+        boolean failing = false;
+        while (running) {
+            boolean more = false;
+            boolean failed = false;
+            for (ShardOutbox outbox : outboxes) {
+                try {
+                    more |= relayOnce(outbox) >= properties.getBatchSize(); // a full batch means there is more
+                } catch (RuntimeException e) {
+                    stats.recordFailure();
+                    if (!failing) {
+                        log.warn("Relaying outbox events of {} failed, retrying every {}", outbox.shard, properties.getPollInterval(), e);
+                    }
+                    failed = true;
+                }
+            }
+            failing = failed;
+            if (!more) {
+                LockSupport.parkNanos(properties.getPollInterval().toNanos()); // caught up
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::relayLoop, "outbox-relay");
+        thread.setDaemon(true);
+        relayThread = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = relayThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        relayThread = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private static final class ShardOutbox {
+        private final Shard shard;
+        private final JdbcTemplate jdbcTemplate;
+        private final TransactionTemplate transactionTemplate;
+
+        private ShardOutbox(Shard shard) {
+            this.shard = shard;
+            this.jdbcTemplate = shard.getJdbcTemplate();
+            this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(shard.getDataSource()));
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package fi.tietoevry.backend.outbox;
+
+import java.util.List;
+
+/*
+Where the relay publishes outbox events to (a message broker in real life).
+publish() gets a whole batch in id order and must throw if any of it wasn't published; the batch is then retried,
+so a sink has to tolerate seeing an event twice (delivery is at-least-once).
+*/
+public interface OutboxSink {
+
+    void publish(List<OutboxEvent> events);
+}
@@ -0,0 +1,57 @@
+package fi.tietoevry.backend.outbox;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class OutboxStats {
+
+    private final LongAdder captured = new LongAdder();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile long lagMillis; // age of the oldest event in the last batch when it was published
+
+    void recordCaptured(int count) {
+        captured.add(count);
+    }
+
+    void recordPublished(int count, long oldestCreatedAt) {
+        published.add(count);
+        batches.increment();
+        lagMillis = Math.max(0, System.currentTimeMillis() - oldestCreatedAt);
+    }
+
+    void recordFailure() {
+        failures.increment();
+    }
+
+    public long getCaptured() {
+        return captured.sum();
+    }
+
+    public long getPublished() {
+        return published.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxStats{" +
+                "captured=" + getCaptured() +
+                ", published=" + getPublished() +
+                ", batches=" + getBatches() +
+                ", failures=" + getFailures() +
+                ", lagMillis=" + getLagMillis() +
+                '}';
+    }
+}
@@ -0,0 +1,27 @@
+package fi.tietoevry.backend.outbox;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+// Inserts outbox rows on the connection of the business transaction, so they commit or roll back together with it
+class OutboxWriter {
+
+    static final String INSERT = "INSERT INTO outbox (aggregate_type, aggregate_id, event_type, payload, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    void write(Connection connection, List<OutboxEvent> events) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT)) {
+            for (OutboxEvent event : events) {
+                statement.setString(1, event.getAggregateType());
+                statement.setString(2, event.getAggregateId());
+                statement.setString(3, event.getEventType());
+                statement.setString(4, event.getPayload());
+                statement.setTimestamp(5, new Timestamp(event.getCreatedAt()));
+                statement.addBatch();
+            }
+            statement.executeBatch(); // one batch per transaction instead of an INSERT per changed entity
+        }
+    }
+}
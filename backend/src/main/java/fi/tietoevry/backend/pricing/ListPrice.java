@@ -0,0 +1,35 @@
+package fi.tietoevry.backend.pricing;
+
+import java.math.BigDecimal;
+
+// Response of GET /api/prices/{productCode}
+public class ListPrice {
+
+    private final long priceListVersion;
+    private final String productCode;
+    private final BigDecimal buyPrice;
+    private final BigDecimal msrp;
+
+    public ListPrice(long priceListVersion, String productCode, BigDecimal buyPrice, BigDecimal msrp) {
+        this.priceListVersion = priceListVersion;
+        this.productCode = productCode;
+        this.buyPrice = buyPrice;
+        this.msrp = msrp;
+    }
+
+    public long getPriceListVersion() {
+        return priceListVersion;
+    }
+
+    public String getProductCode() {
+        return productCode;
+    }
+
+    public BigDecimal getBuyPrice() {
+        return buyPrice;
+    }
+
+    public BigDecimal getMsrp() {
+        return msrp;
+    }
+}
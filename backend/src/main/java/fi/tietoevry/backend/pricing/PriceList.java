@@ -0,0 +1,131 @@
+package fi.tietoevry.backend.pricing;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+One immutable version of all product prices in cents, on flat arrays indexed by product id.
+A product code keeps its id in every later version, so callers may keep the id.
+*/
+public final class PriceList {
+
+    private static final long MISSING = Long.MIN_VALUE;
+
+    private final long version;
+    private final long builtAt;
+    private final int products;
+    private final String[] codes; // by id
+    private final long[] buyPriceCents; // by id
+    private final long[] msrpCents; // by id
+    private final int[] slots; // open addressing: id + 1, 0 = empty
+    private final int mask;
+
+    private PriceList(long version, long builtAt, int products, String[] codes, long[] buyPriceCents, long[] msrpCents) {
+        this.version = version;
+        this.builtAt = builtAt;
+        this.products = products;
+        this.codes = codes;
+        this.buyPriceCents = buyPriceCents;
+        this.msrpCents = msrpCents;
+        int capacity = Integer.highestOneBit(Math.max(2, codes.length) * 2 - 1) << 1; // load factor <= 0.5
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+        for (int id = 0; id < codes.length; id++) {
+            int slot = hash(codes[id]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    public static PriceList empty() {
+        return new PriceList(0, 0, 0, new String[0], new long[0], new long[0]);
+    }
+
+    // The prices of a version; codes known to previous keep their ids
+    static PriceList build(long version, long builtAt, PriceList previous, List<ProductPrice> prices) {
+        int size = previous.codes.length;
+        String[] codes = Arrays.copyOf(previous.codes, size + prices.size());
+        long[] buy = new long[codes.length];
+        long[] msrp = new long[codes.length];
+        Arrays.fill(buy, MISSING);
+        Arrays.fill(msrp, MISSING);
+        for (ProductPrice price : prices) {
+            int id = previous.idOf(price.getProductCode());
+            if (id < 0) {
+                id = size++;
+                codes[id] = price.getProductCode();
+            }
+            buy[id] = cents(price.getBuyPrice());
+            msrp[id] = cents(price.getMsrp());
+        }
+        return new PriceList(version, builtAt, prices.size(), Arrays.copyOf(codes, size), Arrays.copyOf(buy, size), Arrays.copyOf(msrp, size));
+    }
+
+    // -1 for a code no version up to this one has seen
+    public int idOf(String productCode) {
+        int slot = hash(productCode) & mask;
+        for (int entry = slots[slot]; entry != 0; entry = slots[slot]) {
+            if (codes[entry - 1].equals(productCode)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // false for unknown ids and for products removed before this version
+    public boolean contains(int id) {
+        return id >= 0 && id < codes.length && msrpCents[id] != MISSING;
+    }
+
+    public String codeOf(int id) {
+        return codes[id];
+    }
+
+    public long buyPriceCents(int id) {
+        return buyPriceCents[id];
+    }
+
+    public long msrpCents(int id) {
+        return msrpCents[id];
+    }
+
+    public BigDecimal buyPrice(int id) {
+        return contains(id) ? BigDecimal.valueOf(buyPriceCents[id], 2) : null;
+    }
+
+    public BigDecimal msrp(int id) {
+        return contains(id) ? BigDecimal.valueOf(msrpCents[id], 2) : null;
+    }
+
+    // table_versions.version of products the prices were read at
+    public long getVersion() {
+        return version;
+    }
+
+    public long getBuiltAt() {
+        return builtAt;
+    }
+
+    public int size() {
+        return products;
+    }
+
+    // Estimated size of the arrays, excluding the product code strings
+    public long memoryBytes() {
+        return 24L * codes.length + 4L * slots.length + 4 * 16;
+    }
+
+    private static int hash(String code) {
+        int h = code.hashCode();
+        return h ^ (h >>> 16); // product codes share long prefixes, spread the bits that differ
+    }
+
+    private static long cents(BigDecimal price) {
+        return price.setScale(2, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,87 @@
+package fi.tietoevry.backend.pricing;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import fi.tietoevry.backend.cache.InvalidationListener;
+import fi.tietoevry.backend.cache.InvalidationMessage;
+
+/*
+Loads the first price list right after start-up and then checks the products' version every refreshInterval.
+A product change made through JPA (on any instance) arrives on the invalidation bus and wakes the check up at once,
+plain SQL changes are picked up by the next regular check.
+*/
+public class PriceListRefresher implements SmartLifecycle, InvalidationListener {
+
+    private static final Logger log = LoggerFactory.getLogger(PriceListRefresher.class);
+
+    private final PriceLists priceLists;
+    private final Duration refreshInterval;
+
+    private volatile boolean running;
+    private volatile Thread refreshThread;
+
+    public PriceListRefresher(PriceLists priceLists, Duration refreshInterval) {
+        this.priceLists = priceLists;
+        this.refreshInterval = refreshInterval;
+    }
+
+    private void refreshLoop() {
+        while (running) {
+            try {
+                priceLists.refresh();
+            } catch (RuntimeException e) {
+                log.warn("Refreshing the price list failed, next try in {}", refreshInterval, e);
+            }
+            LockSupport.parkNanos(refreshInterval.toNanos());
+        }
+    }
+
+    @Override
+    public void onInvalidation(Collection<InvalidationMessage> messages) {
+        for (InvalidationMessage message : messages) {
+            if ("Product".equals(message.getEntityType())) {
+                Thread thread = refreshThread;
+                if (thread != null) {
+                    LockSupport.unpark(thread);
+                }
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::refreshLoop, "price-list-refresh");
+        thread.setDaemon(true);
+        refreshThread = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = refreshThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        refreshThread = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,62 @@
+package fi.tietoevry.backend.pricing;
+
+import java.util.List;
+
+// State of the price lists, published as backend.pricing.* meters (see PricingConfiguration)
+public class PriceListStats {
+
+    private final long version;
+    private final int products;
+    private final long memoryBytes;
+    private final long builtAt;
+    private final long lastBuildMillis;
+    private final long rebuilds;
+    private final List<Long> retainedVersions;
+
+    public PriceListStats(long version, int products, long memoryBytes, long builtAt, long lastBuildMillis, long rebuilds,
+                          List<Long> retainedVersions) {
+        this.version = version;
+        this.products = products;
+        this.memoryBytes = memoryBytes;
+        this.builtAt = builtAt;
+        this.lastBuildMillis = lastBuildMillis;
+        this.rebuilds = rebuilds;
+        this.retainedVersions = retainedVersions;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getProducts() {
+        return products;
+    }
+
+    // Estimated size of the current snapshot's arrays, excluding the product code strings
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public long getBuiltAt() {
+        return builtAt;
+    }
+
+    public long getLastBuildMillis() {
+        return lastBuildMillis;
+    }
+
+    public long getRebuilds() {
+        return rebuilds;
+    }
+
+    // Versions an order can still be priced at, newest first
+    public List<Long> getRetainedVersions() {
+        return retainedVersions;
+    }
+
+    @Override
+    public String toString() {
+        return "PriceListStats{version=" + version + ", products=" + products + ", memoryBytes=" + memoryBytes
+                + ", lastBuildMillis=" + lastBuildMillis + ", rebuilds=" + rebuilds + ", retainedVersions=" + retainedVersions + "}";
+    }
+}
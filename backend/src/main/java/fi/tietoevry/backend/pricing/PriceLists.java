@@ -0,0 +1,123 @@
+package fi.tietoevry.backend.pricing;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/*
+The current price list and the few versions before it. Readers take a snapshot from a volatile field, a refresh
+builds a new one (copy-on-write). Price every line of an order from one snapshot.
+*/
+public class PriceLists {
+
+    private static final Logger log = LoggerFactory.getLogger(PriceLists.class);
+
+    static final String VERSION = "SELECT version FROM table_versions WHERE table_name = 'products'";
+    static final String LOAD_PRICES = "SELECT productCode, buyPrice, MSRP FROM products";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshotTransaction;
+    private final int retainedVersions;
+    private final long versionCheckIntervalMillis;
+    private final AtomicLong nextVersionCheck = new AtomicLong();
+
+    private volatile PriceList current; // null until the first load
+    private volatile List<PriceList> retained = new ArrayList<>(); // newest first, never modified after it is published
+    private volatile long lastBuildMillis;
+    private volatile long rebuilds;
+
+    public PriceLists(JdbcTemplate jdbcTemplate, TransactionTemplate snapshotTransaction, int retainedVersions,
+                      Duration versionCheckInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotTransaction = snapshotTransaction;
+        this.retainedVersions = Math.max(1, retainedVersions);
+        this.versionCheckIntervalMillis = versionCheckInterval.toMillis();
+    }
+
+    public PriceList current() {
+        PriceList list = current;
+        return list != null ? list : firstLoad();
+    }
+
+    // The snapshot of a quote; newer versions are looked for at most once per version check interval
+    public Optional<PriceList> at(long version) {
+        if (version > current().getVersion() && claimVersionCheck()) {
+            refresh();
+        }
+        for (PriceList list : retained) {
+            if (list.getVersion() == version) {
+                return Optional.of(list);
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Swaps in a new snapshot if the products' version moved since the current one; true if it did
+    public synchronized boolean refresh() {
+        PriceList previous = current;
+        Long latest = version();
+        if (previous != null && (latest == null || latest == previous.getVersion())) {
+            if (latest == null) {
+                log.warn("table_versions has no products row, keeping price list version {}", previous.getVersion());
+            }
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        PriceList built = snapshotTransaction.execute(status -> {
+            Long version = version();
+            if (version == null) {
+                throw new IllegalStateException("table_versions has no products row, the prices can't be versioned");
+            }
+            List<ProductPrice> prices = jdbcTemplate.query(LOAD_PRICES,
+                    (rs, row) -> new ProductPrice(rs.getString(1), rs.getBigDecimal(2), rs.getBigDecimal(3)));
+            return PriceList.build(version, System.currentTimeMillis(), previous != null ? previous : PriceList.empty(), prices);
+        });
+        List<PriceList> versions = new ArrayList<>(retainedVersions);
+        versions.add(built);
+        for (PriceList list : retained) {
+            if (versions.size() < retainedVersions) {
+                versions.add(list);
+            }
+        }
+        retained = versions;
+        current = built;
+        lastBuildMillis = System.currentTimeMillis() - start;
+        rebuilds++;
+        log.debug("Loaded price list version {} with {} products in {} ms", built.getVersion(), built.size(), lastBuildMillis);
+        return true;
+    }
+
+    public PriceListStats stats() {
+        PriceList list = current();
+        List<Long> versions = new ArrayList<>();
+        for (PriceList retainedList : retained) {
+            versions.add(retainedList.getVersion());
+        }
+        return new PriceListStats(list.getVersion(), list.size(), list.memoryBytes(), list.getBuiltAt(), lastBuildMillis, rebuilds, versions);
+    }
+
+    private Long version() {
+        List<Long> versions = jdbcTemplate.queryForList(VERSION, Long.class);
+        return versions.isEmpty() ? null : versions.get(0);
+    }
+
+    private boolean claimVersionCheck() {
+        long now = System.currentTimeMillis();
+        long next = nextVersionCheck.get();
+        return now >= next && nextVersionCheck.compareAndSet(next, now + versionCheckIntervalMillis);
+    }
+
+    private synchronized PriceList firstLoad() {
+        if (current == null) {
+            refresh();
+        }
+        return current;
+    }
+}
@@ -0,0 +1,85 @@
+package fi.tietoevry.backend.pricing;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Response of POST /api/prices/quote: every line priced at MSRP from the same price list version
+public class PriceQuote {
+
+    private final long priceListVersion;
+    private final List<Line> lines;
+    private final BigDecimal total;
+
+    private PriceQuote(long priceListVersion, List<Line> lines, BigDecimal total) {
+        this.priceListVersion = priceListVersion;
+        this.lines = Collections.unmodifiableList(lines);
+        this.total = total;
+    }
+
+    public static PriceQuote of(PriceList prices, List<QuoteRequest.Line> requested) {
+        if (requested == null || requested.isEmpty()) {
+            throw new IllegalArgumentException("A quote needs at least one line");
+        }
+        List<Line> lines = new ArrayList<>(requested.size());
+        long totalCents = 0;
+        for (QuoteRequest.Line line : requested) {
+            if (line.getQuantityOrdered() == null || line.getQuantityOrdered() <= 0) {
+                throw new IllegalArgumentException("quantityOrdered must be positive for " + line.getProductCode());
+            }
+            int id = line.getProductCode() == null ? -1 : prices.idOf(line.getProductCode());
+            if (!prices.contains(id)) {
+                throw new IllegalArgumentException("Unknown product " + line.getProductCode());
+            }
+            long lineCents = Math.multiplyExact(prices.msrpCents(id), line.getQuantityOrdered());
+            totalCents = Math.addExact(totalCents, lineCents);
+            lines.add(new Line(line.getProductCode(), line.getQuantityOrdered(), prices.msrp(id), BigDecimal.valueOf(lineCents, 2)));
+        }
+        return new PriceQuote(prices.getVersion(), lines, BigDecimal.valueOf(totalCents, 2));
+    }
+
+    // Pass it as priceListVersion of the order to get exactly these prices
+    public long getPriceListVersion() {
+        return priceListVersion;
+    }
+
+    public List<Line> getLines() {
+        return lines;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public static class Line {
+
+        private final String productCode;
+        private final long quantityOrdered;
+        private final BigDecimal priceEach;
+        private final BigDecimal lineTotal;
+
+        public Line(String productCode, long quantityOrdered, BigDecimal priceEach, BigDecimal lineTotal) {
+            this.productCode = productCode;
+            this.quantityOrdered = quantityOrdered;
+            this.priceEach = priceEach;
+            this.lineTotal = lineTotal;
+        }
+
+        public String getProductCode() {
+            return productCode;
+        }
+
+        public long getQuantityOrdered() {
+            return quantityOrdered;
+        }
+
+        public BigDecimal getPriceEach() {
+            return priceEach;
+        }
+
+        public BigDecimal getLineTotal() {
+            return lineTotal;
+        }
+    }
+}
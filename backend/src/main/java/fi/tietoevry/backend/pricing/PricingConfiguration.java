@@ -0,0 +1,53 @@
+package fi.tietoevry.backend.pricing;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import fi.tietoevry.backend.cache.InvalidationBus;
+
+@Configuration
+@EnableConfigurationProperties(PricingProperties.class)
+@ConditionalOnProperty(name = "backend.pricing.enabled", havingValue = "true", matchIfMissing = true)
+public class PricingConfiguration {
+
+    @Bean
+    public PriceLists priceLists(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, PricingProperties properties) {
+        TransactionTemplate snapshot = new TransactionTemplate(transactionManager);
+        snapshot.setReadOnly(true);
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ); // version and prices from one snapshot
+        return new PriceLists(jdbcTemplate, snapshot, properties.getRetainedVersions(), properties.getVersionCheckInterval());
+    }
+
+    // GET /actuator/metrics/backend.pricing.version etc.; every read takes a stats() snapshot
+    @Bean
+    public MeterBinder pricingMetrics(PriceLists priceLists) {
+        return registry -> {
+            Gauge.builder("backend.pricing.version", priceLists, lists -> lists.stats().getVersion()).register(registry);
+            Gauge.builder("backend.pricing.products", priceLists, lists -> lists.stats().getProducts()).register(registry);
+            Gauge.builder("backend.pricing.memory", priceLists, lists -> lists.stats().getMemoryBytes()).baseUnit("bytes").register(registry);
+            Gauge.builder("backend.pricing.retained.versions", priceLists, lists -> lists.stats().getRetainedVersions().size()).register(registry);
+            Gauge.builder("backend.pricing.last.build", priceLists, lists -> lists.stats().getLastBuildMillis()).baseUnit("milliseconds")
+                    .register(registry);
+            FunctionCounter.builder("backend.pricing.rebuilds", priceLists, lists -> lists.stats().getRebuilds()).register(registry);
+        };
+    }
+
+    @Bean
+    public PriceListRefresher priceListRefresher(PriceLists priceLists, PricingProperties properties,
+                                                 ObjectProvider<InvalidationBus> invalidationBus) {
+        PriceListRefresher refresher = new PriceListRefresher(priceLists, properties.getRefreshInterval());
+        invalidationBus.ifAvailable(bus -> bus.subscribe(refresher));
+        return refresher;
+    }
+}
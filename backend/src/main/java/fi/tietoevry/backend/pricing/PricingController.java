@@ -0,0 +1,43 @@
+package fi.tietoevry.backend.pricing;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+// Prices from the in-memory price list, none of these touch the database
+@RestController
+public class PricingController {
+
+    private final PriceLists priceLists;
+
+    public PricingController(PriceLists priceLists) {
+        this.priceLists = priceLists;
+    }
+
+    @GetMapping("/api/prices/{productCode}")
+    public ListPrice price(@PathVariable String productCode) {
+        PriceList prices = priceLists.current();
+        int id = prices.idOf(productCode);
+        if (!prices.contains(id)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No product " + productCode);
+        }
+        return new ListPrice(prices.getVersion(), productCode, prices.buyPrice(id), prices.msrp(id));
+    }
+
+    // e.g. {"lines": [{"productCode": "S10_1678", "quantityOrdered": 2}]}, add "priceListVersion" to re-quote an earlier version
+    @PostMapping("/api/prices/quote")
+    public PriceQuote quote(@RequestBody QuoteRequest request) {
+        PriceList prices = request.getPriceListVersion() == null ? priceLists.current() : priceLists.at(request.getPriceListVersion())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Price list version " + request.getPriceListVersion() + " is no longer available, quote again"));
+        try {
+            return PriceQuote.of(prices, request.getLines());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+}
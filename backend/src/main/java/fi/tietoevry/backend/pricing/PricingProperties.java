@@ -0,0 +1,52 @@
+package fi.tietoevry.backend.pricing;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "backend.pricing")
+public class PricingProperties {
+
+    private boolean enabled = true;
+
+    // How often the products' version is checked; JPA changes to products wake the refresh up right away
+    private Duration refreshInterval = Duration.ofSeconds(5);
+
+    // Versions kept for orders quoted earlier; every product change makes a new version
+    private int retainedVersions = 16;
+
+    // At most one database check per interval for quoted versions newer than the current one
+    private Duration versionCheckInterval = Duration.ofSeconds(1);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public void setRefreshInterval(Duration refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+
+    public int getRetainedVersions() {
+        return retainedVersions;
+    }
+
+    public void setRetainedVersions(int retainedVersions) {
+        this.retainedVersions = retainedVersions;
+    }
+
+    public Duration getVersionCheckInterval() {
+        return versionCheckInterval;
+    }
+
+    public void setVersionCheckInterval(Duration versionCheckInterval) {
+        this.versionCheckInterval = versionCheckInterval;
+    }
+}
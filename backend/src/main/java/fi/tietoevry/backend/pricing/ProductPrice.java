@@ -0,0 +1,29 @@
+package fi.tietoevry.backend.pricing;
+
+import java.math.BigDecimal;
+
+// One row of products as the price list loads it
+final class ProductPrice {
+
+    private final String productCode;
+    private final BigDecimal buyPrice;
+    private final BigDecimal msrp;
+
+    ProductPrice(String productCode, BigDecimal buyPrice, BigDecimal msrp) {
+        this.productCode = productCode;
+        this.buyPrice = buyPrice;
+        this.msrp = msrp;
+    }
+
+    String getProductCode() {
+        return productCode;
+    }
+
+    BigDecimal getBuyPrice() {
+        return buyPrice;
+    }
+
+    BigDecimal getMsrp() {
+        return msrp;
+    }
+}
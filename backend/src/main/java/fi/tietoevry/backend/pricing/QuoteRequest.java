@@ -0,0 +1,60 @@
+package fi.tietoevry.backend.pricing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Request body of POST /api/prices/quote
+public class QuoteRequest {
+
+    private Long priceListVersion; // the current version if not given
+    private List<Line> lines = new ArrayList<>();
+
+    public QuoteRequest() {
+    }
+
+    public Long getPriceListVersion() {
+        return priceListVersion;
+    }
+
+    public void setPriceListVersion(Long priceListVersion) {
+        this.priceListVersion = priceListVersion;
+    }
+
+    public List<Line> getLines() {
+        return lines;
+    }
+
+    public void setLines(List<Line> lines) {
+        this.lines = lines;
+    }
+
+    public static class Line {
+
+        private String productCode;
+        private Long quantityOrdered;
+
+        public Line() {
+        }
+
+        public Line(String productCode, Long quantityOrdered) {
+            this.productCode = productCode;
+            this.quantityOrdered = quantityOrdered;
+        }
+
+        public String getProductCode() {
+            return productCode;
+        }
+
+        public void setProductCode(String productCode) {
+            this.productCode = productCode;
+        }
+
+        public Long getQuantityOrdered() {
+            return quantityOrdered;
+        }
+
+        public void setQuantityOrdered(Long quantityOrdered) {
+            this.quantityOrdered = quantityOrdered;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package fi.tietoevry.backend.recommendation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/*
+Sparse, symmetric product x product matrix: rows[a].get(b) orders contain both a and b, orderCounts[a] contain a.
+Not thread safe, RecommendationEngine guards it.
+*/
+final class CooccurrenceMatrix {
+
+    private IntIntHashMap[] rows;
+    private int[] orderCounts;
+    private long orders;
+
+    CooccurrenceMatrix(int products) {
+        rows = new IntIntHashMap[products];
+        orderCounts = new int[products];
+    }
+
+    // Worker w scans every order but only writes the rows with id % parallelism == w: nothing to lock or merge
+    static CooccurrenceMatrix build(OrderLines lines, int products, ExecutorService workers, int parallelism) {
+        CooccurrenceMatrix matrix = new CooccurrenceMatrix(products);
+        matrix.orders = lines.orders();
+        List<Future<?>> tasks = new ArrayList<>(parallelism);
+        for (int worker = 0; worker < parallelism; worker++) {
+            int owner = worker;
+            tasks.add(workers.submit(() -> matrix.countRows(lines, owner, parallelism)));
+        }
+        try {
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            tasks.forEach(task -> task.cancel(true));
+            throw new IllegalStateException("Interrupted while building the co-occurrence matrix", e);
+        } catch (ExecutionException e) {
+            tasks.forEach(task -> task.cancel(true));
+            throw new IllegalStateException("Building the co-occurrence matrix failed", e.getCause());
+        }
+        return matrix;
+    }
+
+    private void countRows(OrderLines lines, int owner, int parallelism) {
+        for (int order = 0; order < lines.orders(); order++) {
+            int start = lines.start(order);
+            int end = lines.end(order);
+            for (int i = start; i < end; i++) {
+                int a = lines.product(i);
+                if (a % parallelism != owner) {
+                    continue;
+                }
+                orderCounts[a]++;
+                IntIntHashMap row = row(a);
+                for (int j = start; j < end; j++) {
+                    if (j != i) {
+                        row.increment(lines.product(j), 1);
+                    }
+                }
+            }
+        }
+    }
+
+    // One new order, products must be distinct
+    void addOrder(int[] products, int length) {
+        int highest = -1;
+        for (int i = 0; i < length; i++) {
+            highest = Math.max(highest, products[i]);
+        }
+        ensureCapacity(highest + 1);
+        orders++;
+        for (int i = 0; i < length; i++) {
+            int a = products[i];
+            orderCounts[a]++;
+            IntIntHashMap row = row(a);
+            for (int j = 0; j < length; j++) {
+                if (j != i) {
+                    row.increment(products[j], 1);
+                }
+            }
+        }
+    }
+
+    // The limit products most often ordered with product, best first (ties by id), by a bounded insertion sort
+    int top(int product, int limit, int[] ids, int[] counts) {
+        if (product < 0 || product >= rows.length || rows[product] == null) {
+            return 0;
+        }
+        int[] found = {0};
+        rows[product].forEach((other, count) -> {
+            int n = found[0];
+            if (n == limit && !better(count, other, counts[n - 1], ids[n - 1])) {
+                return;
+            }
+            int position = n == limit ? n - 1 : n;
+            while (position > 0 && better(count, other, counts[position - 1], ids[position - 1])) {
+                counts[position] = counts[position - 1];
+                ids[position] = ids[position - 1];
+                position--;
+            }
+            counts[position] = count;
+            ids[position] = other;
+            if (n < limit) {
+                found[0] = n + 1;
+            }
+        });
+        return found[0];
+    }
+
+    int orderCount(int product) {
+        return product >= 0 && product < orderCounts.length ? orderCounts[product] : 0;
+    }
+
+    long orders() {
+        return orders;
+    }
+
+    // Distinct (a, b) pairs, each pair counted in both directions
+    long pairs() {
+        long pairs = 0;
+        for (IntIntHashMap row : rows) {
+            if (row != null) {
+                pairs += row.size();
+            }
+        }
+        return pairs;
+    }
+
+    long memoryBytes() {
+        long bytes = 16 + 4L * rows.length + 16 + 4L * orderCounts.length + 32;
+        for (IntIntHashMap row : rows) {
+            if (row != null) {
+                bytes += row.memoryBytes();
+            }
+        }
+        return bytes;
+    }
+
+    private IntIntHashMap row(int product) {
+        IntIntHashMap row = rows[product];
+        if (row == null) {
+            row = new IntIntHashMap(16);
+            rows[product] = row;
+        }
+        return row;
+    }
+
+    private void ensureCapacity(int products) {
+        if (products > rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(products, rows.length * 2));
+            orderCounts = Arrays.copyOf(orderCounts, rows.length);
+        }
+    }
+
+    private static boolean better(int count, int id, int otherCount, int otherId) {
+        return count > otherCount || (count == otherCount && id < otherId);
+    }
+}
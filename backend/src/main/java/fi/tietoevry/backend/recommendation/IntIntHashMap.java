@@ -0,0 +1,113 @@
+package fi.tietoevry.backend.recommendation;
+
+import java.util.Arrays;
+
+/*
+int -> int hash map with open addressing (linear probing) on two parallel int arrays:
+no Integer boxes and no entry objects, a row of the co-occurrence matrix costs 8 bytes per slot.
+Keys must not be negative. Not thread safe.
+*/
+final class IntIntHashMap {
+
+    private static final int FREE = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    IntIntHashMap(int expectedSize) {
+        allocate(tableSize(expectedSize));
+    }
+
+    // Adds delta to the value of key (0 if absent), returns the new value
+    int increment(int key, int delta) {
+        int slot = slot(key);
+        while (true) {
+            int current = keys[slot];
+            if (current == key) {
+                return values[slot] += delta;
+            }
+            if (current == FREE) {
+                keys[slot] = key;
+                values[slot] = delta;
+                if (++size * 2 > keys.length) { // load factor 0.5 keeps the probe sequences short
+                    rehash(keys.length * 2);
+                }
+                return delta;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    int get(int key) {
+        int slot = slot(key);
+        while (true) {
+            int current = keys[slot];
+            if (current == key) {
+                return values[slot];
+            }
+            if (current == FREE) {
+                return 0;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(Entries entries) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != FREE) {
+                entries.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    // Two arrays with their headers plus the map itself
+    long memoryBytes() {
+        return 2L * (16 + 4L * keys.length) + 32;
+    }
+
+    private int slot(int key) {
+        int hash = key * 0x9E3779B9; // Fibonacci hashing, product ids are dense so the low bits alone would cluster
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != FREE) {
+                int target = slot(oldKeys[slot]);
+                while (keys[target] != FREE) {
+                    target = (target + 1) & mask;
+                }
+                keys[target] = oldKeys[slot];
+                values[target] = oldValues[slot];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        Arrays.fill(keys, FREE);
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int tableSize(int expectedSize) {
+        int capacity = 4;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    interface Entries {
+        void accept(int key, int value);
+    }
+}
@@ -0,0 +1,74 @@
+package fi.tietoevry.backend.recommendation;
+
+import java.util.Arrays;
+
+/*
+Order lines in compressed sparse row form: the products of order i are products[offsets[i]] .. products[offsets[i + 1] - 1].
+Three primitive arrays instead of a list of lists, 4 bytes per line; lines have to be added grouped by order.
+*/
+final class OrderLines {
+
+    private long[] orderNumbers = new long[1024];
+    private int[] offsets = new int[1025];
+    private int[] products = new int[4096];
+    private int orders;
+    private int lines;
+    private boolean sorted = true;
+    private long[] sortedOrderNumbers; // only when the orders weren't added in order, e.g. one shard after another
+
+    void add(long orderNumber, int productId) {
+        if (orders == 0 || orderNumbers[orders - 1] != orderNumber) {
+            if (orders == orderNumbers.length) {
+                orderNumbers = Arrays.copyOf(orderNumbers, orders * 2);
+                offsets = Arrays.copyOf(offsets, orders * 2 + 1);
+            }
+            sorted &= orders == 0 || orderNumbers[orders - 1] < orderNumber;
+            sortedOrderNumbers = null;
+            orderNumbers[orders++] = orderNumber;
+        }
+        if (lines == products.length) {
+            products = Arrays.copyOf(products, lines * 2);
+        }
+        products[lines++] = productId;
+        offsets[orders] = lines;
+    }
+
+    int orders() {
+        return orders;
+    }
+
+    int lines() {
+        return lines;
+    }
+
+    long orderNumber(int order) {
+        return orderNumbers[order];
+    }
+
+    int start(int order) {
+        return offsets[order];
+    }
+
+    int end(int order) {
+        return offsets[order + 1];
+    }
+
+    int product(int line) {
+        return products[line];
+    }
+
+    boolean containsOrder(long orderNumber) {
+        if (sorted) {
+            return Arrays.binarySearch(orderNumbers, 0, orders, orderNumber) >= 0;
+        }
+        if (sortedOrderNumbers == null) {
+            sortedOrderNumbers = Arrays.copyOf(orderNumbers, orders);
+            Arrays.sort(sortedOrderNumbers);
+        }
+        return Arrays.binarySearch(sortedOrderNumbers, orderNumber) >= 0;
+    }
+
+    long memoryBytes() {
+        return 8L * orderNumbers.length + 4L * offsets.length + 4L * products.length + 3 * 16 + 32;
+    }
+}
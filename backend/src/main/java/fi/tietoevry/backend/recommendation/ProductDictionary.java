@@ -0,0 +1,39 @@
+package fi.tietoevry.backend.recommendation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+Product codes <-> dense int ids, so the matrix can index arrays with them.
+The only boxed map left is this one, used once per request / order line, never in the counting loops.
+*/
+final class ProductDictionary {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> codes = new ArrayList<>();
+
+    int idOf(String productCode) {
+        Integer id = ids.get(productCode);
+        return id != null ? id : -1;
+    }
+
+    int register(String productCode) {
+        Integer id = ids.get(productCode);
+        if (id == null) {
+            id = codes.size();
+            ids.put(productCode, id);
+            codes.add(productCode);
+        }
+        return id;
+    }
+
+    String codeOf(int id) {
+        return codes.get(id);
+    }
+
+    int size() {
+        return codes.size();
+    }
+}
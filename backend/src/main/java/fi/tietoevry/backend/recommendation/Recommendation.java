@@ -0,0 +1,34 @@
+package fi.tietoevry.backend.recommendation;
+
+// "Customers who bought this also bought": a product and how often it was ordered together with the requested one
+public class Recommendation {
+
+    private final String productCode;
+    private final int orders;
+    private final double confidence;
+
+    public Recommendation(String productCode, int orders, double confidence) {
+        this.productCode = productCode;
+        this.orders = orders;
+        this.confidence = confidence;
+    }
+
+    public String getProductCode() {
+        return productCode;
+    }
+
+    // Orders containing both products
+    public int getOrders() {
+        return orders;
+    }
+
+    // Share of the requested product's orders that also contain this one
+    public double getConfidence() {
+        return confidence;
+    }
+
+    @Override
+    public String toString() {
+        return productCode + " (" + orders + " orders, " + Math.round(confidence * 100) + "%)";
+    }
+}
@@ -0,0 +1,51 @@
+package fi.tietoevry.backend.recommendation;
+
+import org.hibernate.integrator.spi.Integrator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import fi.tietoevry.backend.config.EventListenerIntegrator;
+import fi.tietoevry.backend.sharding.ScatterGather;
+
+@Configuration
+@EnableConfigurationProperties(RecommendationProperties.class)
+@ConditionalOnProperty(name = "backend.recommendations.enabled", havingValue = "true", matchIfMissing = true)
+public class RecommendationConfiguration {
+
+    @Bean(destroyMethod = "shutdown")
+    public RecommendationEngine recommendationEngine(ScatterGather scatterGather, RecommendationProperties properties) {
+        // Connector/J only streams the order lines with the default Integer.MIN_VALUE (or a positive fetch size plus
+        // useCursorFetch=true on the URL); any other value buffers the whole result set in memory
+        return new RecommendationEngine(scatterGather, properties.getFetchSize(), properties.getParallelism());
+    }
+
+    @Bean
+    public Integrator recommendationListenerIntegrator(RecommendationEngine engine) {
+        return new EventListenerIntegrator(new RecommendationListener(engine));
+    }
+
+    // GET /actuator/metrics/backend.recommendations.pairs etc.; every read takes a stats() snapshot
+    @Bean
+    public MeterBinder recommendationMetrics(RecommendationEngine engine) {
+        return registry -> {
+            Gauge.builder("backend.recommendations.products", engine, e -> e.stats().getProducts()).register(registry);
+            Gauge.builder("backend.recommendations.orders", engine, e -> e.stats().getOrders()).register(registry);
+            Gauge.builder("backend.recommendations.pairs", engine, e -> e.stats().getPairs()).register(registry);
+            Gauge.builder("backend.recommendations.memory", engine, e -> e.stats().getMemoryBytes()).baseUnit("bytes").register(registry);
+            Gauge.builder("backend.recommendations.last.build", engine, e -> e.stats().getLastBuildMillis()).baseUnit("milliseconds")
+                    .register(registry);
+            Gauge.builder("backend.recommendations.incremental.orders", engine, e -> e.stats().getIncrementalOrders())
+                    .description("Orders added since the last full build").register(registry);
+        };
+    }
+
+    @Bean
+    public RecommendationRefresher recommendationRefresher(RecommendationEngine engine, RecommendationProperties properties) {
+        return new RecommendationRefresher(engine, properties.getRebuildInterval());
+    }
+}
@@ -0,0 +1,32 @@
+package fi.tietoevry.backend.recommendation;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+public class RecommendationController {
+
+    private final RecommendationEngine engine;
+    private final RecommendationProperties properties;
+
+    public RecommendationController(RecommendationEngine engine, RecommendationProperties properties) {
+        this.engine = engine;
+        this.properties = properties;
+    }
+
+    // Empty for unknown products and while the first build is still running
+    @GetMapping("/api/products/{productCode}/recommendations")
+    public List<Recommendation> recommendations(@PathVariable String productCode, @RequestParam(required = false) Integer limit) {
+        int count = limit != null ? limit : properties.getDefaultLimit();
+        if (count < 1 || count > properties.getMaxLimit()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + properties.getMaxLimit());
+        }
+        return engine.recommend(productCode, count);
+    }
+}
@@ -0,0 +1,180 @@
+package fi.tietoevry.backend.recommendation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import fi.tietoevry.backend.sharding.ScatterGather;
+
+/*
+"Customers who bought this also bought", from an in-memory co-occurrence matrix of the not cancelled orders.
+New orders are added as they commit; a rebuild counts into a new matrix and replays the orders added meanwhile.
+*/
+public class RecommendationEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(RecommendationEngine.class);
+
+    static final String LOAD_LINES = "SELECT d.orderNumber, d.productCode FROM orderdetails d " +
+            "JOIN orders o ON o.orderNumber = d.orderNumber WHERE o.status <> 'Cancelled' ORDER BY d.orderNumber";
+
+    private final ScatterGather scatterGather;
+    private final int fetchSize;
+    private final int parallelism;
+    private final ExecutorService workers;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // guarded by lock
+    private ProductDictionary dictionary = new ProductDictionary();
+    private CooccurrenceMatrix matrix = new CooccurrenceMatrix(0);
+    private List<AddedOrder> addedDuringRebuild; // not null while a rebuild loads
+    private long incrementalOrders;
+
+    private volatile long lastBuildMillis;
+    private volatile long lastBuildAt;
+
+    public RecommendationEngine(ScatterGather scatterGather, int fetchSize, int parallelism) {
+        this.scatterGather = scatterGather;
+        this.fetchSize = fetchSize;
+        this.parallelism = Math.max(1, parallelism);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(this.parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "recommendations-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public synchronized RecommendationStats rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            addedDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            ProductDictionary loadedProducts = new ProductDictionary();
+            OrderLines lines = new OrderLines();
+            scatterGather.stream(LOAD_LINES, fetchSize, rs -> {
+                lines.add(rs.getLong(1), loadedProducts.register(rs.getString(2)));
+            });
+            CooccurrenceMatrix built = CooccurrenceMatrix.build(lines, loadedProducts.size(), workers, parallelism);
+
+            lock.writeLock().lock();
+            try {
+                long replayed = 0;
+                for (AddedOrder order : addedDuringRebuild) {
+                    if (!lines.containsOrder(order.orderNumber)) {
+                        add(loadedProducts, built, order.productCodes);
+                        replayed++;
+                    }
+                }
+                dictionary = loadedProducts;
+                matrix = built;
+                incrementalOrders = replayed;
+            } finally {
+                addedDuringRebuild = null;
+                lock.writeLock().unlock();
+            }
+            lastBuildMillis = System.currentTimeMillis() - start;
+            lastBuildAt = System.currentTimeMillis();
+            RecommendationStats stats = stats();
+            log.info("Built product recommendations from {} order lines: {}", lines.lines(), stats);
+            return stats;
+        } finally {
+            if (addedDuringRebuild != null) { // the load failed, stop collecting
+                lock.writeLock().lock();
+                addedDuringRebuild = null;
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // A committed order and the products on it
+    public void addOrder(long orderNumber, Collection<String> productCodes) {
+        if (productCodes.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            add(dictionary, matrix, productCodes);
+            incrementalOrders++;
+            if (addedDuringRebuild != null) {
+                addedDuringRebuild.add(new AddedOrder(orderNumber, new ArrayList<>(productCodes)));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Recommendation> recommend(String productCode, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        int[] ids = new int[limit];
+        int[] counts = new int[limit];
+        lock.readLock().lock();
+        try {
+            int product = dictionary.idOf(productCode);
+            int found = matrix.top(product, limit, ids, counts);
+            if (found == 0) {
+                return Collections.emptyList();
+            }
+            double orders = matrix.orderCount(product);
+            List<Recommendation> recommendations = new ArrayList<>(found);
+            for (int i = 0; i < found; i++) {
+                recommendations.add(new Recommendation(dictionary.codeOf(ids[i]), counts[i], counts[i] / orders));
+            }
+            return recommendations;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public RecommendationStats stats() {
+        lock.readLock().lock();
+        try {
+            return new RecommendationStats(dictionary.size(), matrix.orders(), matrix.pairs(), matrix.memoryBytes(),
+                    lastBuildMillis, lastBuildAt, incrementalOrders);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private static void add(ProductDictionary dictionary, CooccurrenceMatrix matrix, Collection<String> productCodes) {
+        int[] products = new int[productCodes.size()];
+        int distinct = 0;
+        for (String productCode : productCodes) {
+            int id = dictionary.register(productCode);
+            boolean seen = false;
+            for (int i = 0; i < distinct && !seen; i++) {
+                seen = products[i] == id;
+            }
+            if (!seen) {
+                products[distinct++] = id;
+            }
+        }
+        matrix.addOrder(products, distinct);
+    }
+
+    private static final class AddedOrder {
+        private final long orderNumber;
+        private final List<String> productCodes;
+
+        private AddedOrder(long orderNumber, List<String> productCodes) {
+            this.orderNumber = orderNumber;
+            this.productCodes = productCodes;
+        }
+    }
+}
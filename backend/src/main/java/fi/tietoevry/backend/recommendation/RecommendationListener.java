@@ -0,0 +1,71 @@
+package fi.tietoevry.backend.recommendation;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+
+import fi.tietoevry.backend.config.TransactionScopedListener;
+import fi.tietoevry.backend.model.Order;
+import fi.tietoevry.backend.model.OrderDetail;
+
+/*
+Feeds new orders into the RecommendationEngine once their transaction has committed.
+Only orders inserted in the same transaction as their lines count as new; lines added to an existing order,
+changed quantities and cancellations don't change what was ordered together much and wait for the next full rebuild.
+*/
+public class RecommendationListener extends TransactionScopedListener<RecommendationListener.PendingOrders> implements PostInsertEventListener {
+
+    private static final String CANCELLED = "Cancelled";
+
+    private final transient RecommendationEngine engine;
+
+    public RecommendationListener(RecommendationEngine engine) {
+        this.engine = engine;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Order) {
+            Order order = (Order) entity;
+            if (!CANCELLED.equals(order.getStatus())) {
+                pendingFor(event.getSession()).newOrders.add(order.getOrderNumber());
+            }
+        } else if (entity instanceof OrderDetail) {
+            OrderDetail detail = (OrderDetail) entity;
+            pendingFor(event.getSession()).lines.computeIfAbsent(detail.getOrderNumber(), orderNumber -> new ArrayList<>())
+                    .add(detail.getProductCode());
+        }
+    }
+
+    @Override
+    protected PendingOrders newPending() {
+        return new PendingOrders();
+    }
+
+    class PendingOrders implements AfterTransactionCompletionProcess {
+
+        private final Set<Long> newOrders = new HashSet<>();
+        private final Map<Long, List<String>> lines = new LinkedHashMap<>();
+
+        @Override
+        public void doAfterTransactionCompletion(boolean success, SharedSessionContractImplementor session) {
+            if (!success) {
+                return;
+            }
+            lines.forEach((orderNumber, productCodes) -> {
+                if (newOrders.contains(orderNumber)) {
+                    engine.addOrder(orderNumber, productCodes);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package fi.tietoevry.backend.recommendation;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "backend.recommendations")
+public class RecommendationProperties {
+
+    private boolean enabled = true;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors(); // workers of a full build
+
+    // Full rebuilds pick up what incremental updates don't see: cancellations, changed or removed lines, SQL imports
+    private Duration rebuildInterval = Duration.ofHours(1);
+
+    private int defaultLimit = 10;
+
+    private int maxLimit = 100;
+
+    // MySQL Connector/J only streams a result set row by row with Integer.MIN_VALUE, other drivers want a positive value
+    private int fetchSize = Integer.MIN_VALUE;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public Duration getRebuildInterval() {
+        return rebuildInterval;
+    }
+
+    public void setRebuildInterval(Duration rebuildInterval) {
+        this.rebuildInterval = rebuildInterval;
+    }
+
+    public int getDefaultLimit() {
+        return defaultLimit;
+    }
+
+    public void setDefaultLimit(int defaultLimit) {
+        this.defaultLimit = defaultLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+}
@@ -0,0 +1,69 @@
+package fi.tietoevry.backend.recommendation;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+/*
+Builds the recommendations in the background right after start-up (so start-up doesn't wait for the order lines to load,
+until then recommendations are empty) and rebuilds them every rebuildInterval.
+*/
+public class RecommendationRefresher implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(RecommendationRefresher.class);
+
+    private final RecommendationEngine engine;
+    private final Duration rebuildInterval;
+
+    private volatile boolean running;
+    private volatile Thread refreshThread;
+
+    public RecommendationRefresher(RecommendationEngine engine, Duration rebuildInterval) {
+        this.engine = engine;
+        this.rebuildInterval = rebuildInterval;
+    }
+
+    private void refreshLoop() {
+        while (running) {
+            try {
+                engine.rebuild();
+            } catch (RuntimeException e) {
+                log.warn("Building product recommendations failed, next try in {}", rebuildInterval, e);
+            }
+            LockSupport.parkNanos(rebuildInterval.toNanos());
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::refreshLoop, "recommendations-refresh");
+        thread.setDaemon(true);
+        refreshThread = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = refreshThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        refreshThread = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
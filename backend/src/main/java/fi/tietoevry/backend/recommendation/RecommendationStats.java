@@ -0,0 +1,60 @@
+package fi.tietoevry.backend.recommendation;
+
+// State of the co-occurrence matrix, published as backend.recommendations.* meters (see RecommendationConfiguration)
+public class RecommendationStats {
+
+    private final int products;
+    private final long orders;
+    private final long pairs;
+    private final long memoryBytes;
+    private final long lastBuildMillis;
+    private final long lastBuildAt;
+    private final long incrementalOrders;
+
+    public RecommendationStats(int products, long orders, long pairs, long memoryBytes, long lastBuildMillis, long lastBuildAt,
+                               long incrementalOrders) {
+        this.products = products;
+        this.orders = orders;
+        this.pairs = pairs;
+        this.memoryBytes = memoryBytes;
+        this.lastBuildMillis = lastBuildMillis;
+        this.lastBuildAt = lastBuildAt;
+        this.incrementalOrders = incrementalOrders;
+    }
+
+    public int getProducts() {
+        return products;
+    }
+
+    public long getOrders() {
+        return orders;
+    }
+
+    public long getPairs() {
+        return pairs;
+    }
+
+    // Estimated size of the matrix and the product dictionary's arrays, excluding the product code strings
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public long getLastBuildMillis() {
+        return lastBuildMillis;
+    }
+
+    public long getLastBuildAt() {
+        return lastBuildAt;
+    }
+
+    // Orders added since the last full build
+    public long getIncrementalOrders() {
+        return incrementalOrders;
+    }
+
+    @Override
+    public String toString() {
+        return products + " products, " + orders + " orders, " + pairs + " pairs, " + memoryBytes / 1024 + " KiB, built in "
+                + lastBuildMillis + " ms, " + incrementalOrders + " orders added since";
+    }
+}
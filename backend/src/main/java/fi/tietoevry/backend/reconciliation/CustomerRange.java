@@ -0,0 +1,36 @@
+package fi.tietoevry.backend.reconciliation;
+
+// One partition of the job: customers with from <= customerNumber <= to
+public final class CustomerRange {
+
+    private final int index;
+    private final long from;
+    private final long to;
+
+    public CustomerRange(int index, long from, long to) {
+        this.index = index;
+        this.from = from;
+        this.to = to;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public long getFrom() {
+        return from;
+    }
+
+    public long getTo() {
+        return to;
+    }
+
+    @Override
+    public String toString() {
+        return "CustomerRange{" +
+                "index=" + index +
+                ", from=" + from +
+                ", to=" + to +
+                '}';
+    }
+}
@@ -0,0 +1,47 @@
+package fi.tietoevry.backend.reconciliation;
+
+import java.math.BigDecimal;
+
+// A customer whose payments don't add up to what they ordered
+public final class Discrepancy {
+
+    private final long customerNumber;
+    private final BigDecimal ordered;
+    private final BigDecimal paid;
+
+    public Discrepancy(long customerNumber, BigDecimal ordered, BigDecimal paid) {
+        this.customerNumber = customerNumber;
+        this.ordered = ordered;
+        this.paid = paid;
+    }
+
+    public long getCustomerNumber() {
+        return customerNumber;
+    }
+
+    public BigDecimal getOrdered() {
+        return ordered;
+    }
+
+    public BigDecimal getPaid() {
+        return paid;
+    }
+
+    // positive = the customer still owes us, negative = the customer paid more than ordered
+    public BigDecimal getOutstanding() {
+        return ordered.subtract(paid);
+    }
+
+    String toCsv() {
+        return customerNumber + "," + ordered.toPlainString() + "," + paid.toPlainString() + "," + getOutstanding().toPlainString();
+    }
+
+    @Override
+    public String toString() {
+        return "Discrepancy{" +
+                "customerNumber=" + customerNumber +
+                ", ordered=" + ordered +
+                ", paid=" + paid +
+                '}';
+    }
+}
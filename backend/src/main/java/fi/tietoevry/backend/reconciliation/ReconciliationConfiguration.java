@@ -0,0 +1,34 @@
+package fi.tietoevry.backend.reconciliation;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import fi.tietoevry.backend.sharding.ShardRouter;
+
+@Configuration
+@EnableConfigurationProperties(ReconciliationProperties.class)
+public class ReconciliationConfiguration {
+
+    private static final Logger log = LoggerFactory.getLogger(ReconciliationConfiguration.class);
+
+    @Bean
+    public ReconciliationJob reconciliationJob(DataSource dataSource, ShardRouter shardRouter, ReconciliationProperties properties) {
+        return new ReconciliationJob(dataSource, shardRouter, properties);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "backend.reconciliation.run", havingValue = "true")
+    public ApplicationRunner reconciliationRunner(ReconciliationJob job, ReconciliationProperties properties) {
+        return args -> {
+            ReconciliationResult result = properties.getJobId() != null ? job.run(properties.getJobId()) : job.run();
+            log.info("Payment reconciliation finished: {} ({} customers/s)", result, Math.round(result.getCustomersPerSecond()));
+        };
+    }
+}
@@ -0,0 +1,271 @@
+package fi.tietoevry.backend.reconciliation;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import fi.tietoevry.backend.sharding.Shard;
+import fi.tietoevry.backend.sharding.ShardRouter;
+
+/*
+Compares what every customer ordered with what they paid, over the whole history. Customer ranges are streamed in
+parallel into reportDirectory/jobId/partition-N.csv; a partition-N.done marker lets a rerun of the job skip them.
+Sharded, the totals of every shard are merged per customer.
+*/
+public class ReconciliationJob {
+
+    private static final Logger log = LoggerFactory.getLogger(ReconciliationJob.class);
+
+    private static final String PLAN_FILE = "partitions.csv";
+    private static final DateTimeFormatter JOB_ID_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private static final RowMapper<CustomerTotals> TOTALS_MAPPER = (rs, rowNum) ->
+            new CustomerTotals(rs.getLong(1), rs.getBigDecimal(2), rs.getBigDecimal(3));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final List<JdbcTemplate> shards = new ArrayList<>();
+    private final ReconciliationProperties properties;
+
+    public ReconciliationJob(DataSource dataSource, ReconciliationProperties properties) {
+        this(dataSource, ShardRouter.unsharded(dataSource), properties);
+    }
+
+    // The customers come from dataSource, their orders and payments from the shards
+    public ReconciliationJob(DataSource dataSource, ShardRouter router, ReconciliationProperties properties) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        for (Shard shard : router.getShards()) {
+            JdbcTemplate shardTemplate = new JdbcTemplate(shard.getDataSource());
+            // The full history doesn't fit in memory. Connector/J only streams with the default Integer.MIN_VALUE (or with
+            // useCursorFetch=true in the URL), any other fetch size without it still buffers the whole result set
+            shardTemplate.setFetchSize(properties.getFetchSize());
+            shards.add(shardTemplate);
+        }
+        this.properties = properties;
+    }
+
+    public ReconciliationResult run() {
+        return run(LocalDateTime.now().format(JOB_ID_TIME) + "-" + UUID.randomUUID().toString().substring(0, 8));
+    }
+
+    public ReconciliationResult run(String jobId) {
+        long start = System.currentTimeMillis();
+        Path directory = Paths.get(properties.getReportDirectory(), jobId);
+        List<CustomerRange> ranges;
+        try {
+            Files.createDirectories(directory);
+            ranges = loadOrCreatePlan(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not prepare reconciliation job " + jobId, e);
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, properties.getThreads()),
+                runnable -> new Thread(runnable, "reconciliation-" + threadNumber.incrementAndGet()));
+        int skipped = 0;
+        long customers = 0;
+        long discrepancies = 0;
+        List<CustomerRange> failed = new ArrayList<>();
+        try {
+            List<CustomerRange> submitted = new ArrayList<>();
+            List<Future<long[]>> results = new ArrayList<>();
+            for (CustomerRange range : ranges) {
+                long[] done = readDoneMarker(directory, range);
+                if (done != null) {
+                    skipped++;
+                    customers += done[0];
+                    discrepancies += done[1];
+                } else {
+                    submitted.add(range);
+                    results.add(workers.submit(() -> reconcile(directory, range)));
+                }
+            }
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    long[] counts = results.get(i).get();
+                    customers += counts[0];
+                    discrepancies += counts[1];
+                } catch (ExecutionException e) {
+                    log.error("Reconciliation of {} failed, run job {} again to retry it", submitted.get(i), jobId, e.getCause());
+                    failed.add(submitted.get(i));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reconciliation job " + jobId + " was interrupted", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the done markers of reconciliation job " + jobId, e);
+        } finally {
+            workers.shutdownNow();
+        }
+        return new ReconciliationResult(jobId, ranges.size(), skipped, failed, customers, discrepancies,
+                System.currentTimeMillis() - start);
+    }
+
+    // Returns {customers checked, discrepancies found}
+    long[] reconcile(Path directory, CustomerRange range) throws IOException {
+        Path report = directory.resolve("partition-" + range.getIndex() + ".csv");
+        Path temporary = directory.resolve("partition-" + range.getIndex() + ".csv.tmp");
+        long[] counts = new long[2];
+        List<Stream<CustomerTotals>> streams = new ArrayList<>();
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            writer.write("customerNumber,ordered,paid,outstanding");
+            writer.newLine();
+            // every shard's totals come sorted by customerNumber, merged k-way
+            PriorityQueue<Cursor> cursors = new PriorityQueue<>(Math.max(1, shards.size()),
+                    Comparator.comparingLong(cursor -> cursor.current.customerNumber));
+            for (JdbcTemplate shard : shards) {
+                Stream<CustomerTotals> stream = shard.queryForStream(totalsSql(), TOTALS_MAPPER, totalsParameters(range));
+                streams.add(stream);
+                Cursor cursor = new Cursor(stream.iterator());
+                if (cursor.next()) {
+                    cursors.add(cursor);
+                }
+            }
+            while (!cursors.isEmpty()) {
+                long customerNumber = cursors.peek().current.customerNumber;
+                BigDecimal ordered = BigDecimal.ZERO;
+                BigDecimal paid = BigDecimal.ZERO;
+                while (!cursors.isEmpty() && cursors.peek().current.customerNumber == customerNumber) {
+                    Cursor cursor = cursors.poll();
+                    ordered = ordered.add(cursor.current.ordered);
+                    paid = paid.add(cursor.current.paid);
+                    if (cursor.next()) {
+                        cursors.add(cursor);
+                    }
+                }
+                counts[0]++;
+                if (ordered.compareTo(paid) != 0) {
+                    counts[1]++;
+                    writer.write(new Discrepancy(customerNumber, ordered, paid).toCsv());
+                    writer.newLine();
+                }
+            }
+        } finally {
+            streams.forEach(Stream::close);
+        }
+        // the report only appears under its real name once complete, the done marker is written last
+        Files.move(temporary, report, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.write(doneMarker(directory, range), (counts[0] + "," + counts[1]).getBytes(StandardCharsets.UTF_8));
+        return counts;
+    }
+
+    private String totalsSql() {
+        String statusFilter = properties.getExcludedOrderStatuses().isEmpty() ? ""
+                : " AND o.status NOT IN (" + String.join(",", Collections.nCopies(properties.getExcludedOrderStatuses().size(), "?")) + ")";
+        return "SELECT customerNumber, SUM(ordered), SUM(paid) FROM ("
+                + " SELECT o.customerNumber AS customerNumber, od.quantityOrdered * od.priceEach AS ordered, 0 AS paid"
+                + " FROM orders o JOIN orderdetails od ON od.orderNumber = o.orderNumber"
+                + " WHERE o.customerNumber BETWEEN ? AND ?" + statusFilter
+                + " UNION ALL"
+                + " SELECT p.customerNumber, 0, p.amount FROM payments p WHERE p.customerNumber BETWEEN ? AND ?"
+                + ") totals GROUP BY customerNumber ORDER BY customerNumber";
+    }
+
+    private Object[] totalsParameters(CustomerRange range) {
+        List<Object> parameters = new ArrayList<>();
+        parameters.add(range.getFrom());
+        parameters.add(range.getTo());
+        parameters.addAll(properties.getExcludedOrderStatuses());
+        parameters.add(range.getFrom());
+        parameters.add(range.getTo());
+        return parameters.toArray();
+    }
+
+    private List<CustomerRange> loadOrCreatePlan(Path directory) throws IOException {
+        Path plan = directory.resolve(PLAN_FILE);
+        List<CustomerRange> ranges = new ArrayList<>();
+        if (Files.exists(plan)) {
+            for (String line : Files.readAllLines(plan, StandardCharsets.UTF_8)) {
+                String[] columns = line.split(",");
+                ranges.add(new CustomerRange(Integer.parseInt(columns[0]), Long.parseLong(columns[1]), Long.parseLong(columns[2])));
+            }
+            return ranges;
+        }
+
+        List<Long> customerNumbers = jdbcTemplate.queryForList("SELECT customerNumber FROM customers ORDER BY customerNumber", Long.class);
+        int partitions = Math.max(1, Math.min(customerNumbers.size(), properties.getThreads() * properties.getPartitionsPerThread()));
+        int perPartition = (customerNumbers.size() + partitions - 1) / Math.max(1, partitions);
+        // ranges touch each other, so customers created after planning still belong to some partition
+        long from = Long.MIN_VALUE;
+        for (int index = 0; perPartition > 0 && (index + 1) * perPartition < customerNumbers.size(); index++) {
+            long nextFrom = customerNumbers.get((index + 1) * perPartition);
+            ranges.add(new CustomerRange(index, from, nextFrom - 1));
+            from = nextFrom;
+        }
+        ranges.add(new CustomerRange(ranges.size(), from, Long.MAX_VALUE));
+
+        List<String> lines = new ArrayList<>();
+        for (CustomerRange range : ranges) {
+            lines.add(range.getIndex() + "," + range.getFrom() + "," + range.getTo());
+        }
+        Files.write(plan, lines, StandardCharsets.UTF_8);
+        return ranges;
+    }
+
+    private static Path doneMarker(Path directory, CustomerRange range) {
+        return directory.resolve("partition-" + range.getIndex() + ".done");
+    }
+
+    private static long[] readDoneMarker(Path directory, CustomerRange range) throws IOException {
+        Path marker = doneMarker(directory, range);
+        if (!Files.exists(marker)) {
+            return null;
+        }
+        String[] columns = new String(Files.readAllBytes(marker), StandardCharsets.UTF_8).trim().split(",");
+        return new long[]{Long.parseLong(columns[0]), Long.parseLong(columns[1])};
+    }
+
+    private static final class CustomerTotals {
+        private final long customerNumber;
+        private final BigDecimal ordered;
+        private final BigDecimal paid;
+
+        private CustomerTotals(long customerNumber, BigDecimal ordered, BigDecimal paid) {
+            this.customerNumber = customerNumber;
+            this.ordered = ordered;
+            this.paid = paid;
+        }
+    }
+
+    private static final class Cursor {
+        private final Iterator<CustomerTotals> rows;
+        private CustomerTotals current;
+
+        private Cursor(Iterator<CustomerTotals> rows) {
+            this.rows = rows;
+        }
+
+        private boolean next() {
+            current = rows.hasNext() ? rows.next() : null;
+            return current != null;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package fi.tietoevry.backend.reconciliation;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "backend.reconciliation")
+public class ReconciliationProperties {
+
+    // Run the job once on application start, e.g. mvn spring-boot:run -Dspring-boot.run.arguments="--backend.reconciliation.run=true"
+    private boolean run;
+
+    // Pass the id of an unfinished run to resume it: its finished partitions are skipped. Unset, every run gets a new id
+    private String jobId;
+
+    private String reportDirectory = "reconciliation";
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    // More partitions than threads, so one slow partition doesn't leave the other workers idle at the end
+    private int partitionsPerThread = 4;
+
+    // MySQL Connector/J only streams a result set row by row with Integer.MIN_VALUE, other drivers want a positive value
+    private int fetchSize = Integer.MIN_VALUE;
+
+    // Orders in these statuses are not expected to be paid for
+    private List<String> excludedOrderStatuses = Collections.singletonList("Cancelled");
+
+    public boolean isRun() {
+        return run;
+    }
+
+    public void setRun(boolean run) {
+        this.run = run;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getReportDirectory() {
+        return reportDirectory;
+    }
+
+    public void setReportDirectory(String reportDirectory) {
+        this.reportDirectory = reportDirectory;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getPartitionsPerThread() {
+        return partitionsPerThread;
+    }
+
+    public void setPartitionsPerThread(int partitionsPerThread) {
+        this.partitionsPerThread = partitionsPerThread;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public List<String> getExcludedOrderStatuses() {
+        return excludedOrderStatuses;
+    }
+
+    public void setExcludedOrderStatuses(List<String> excludedOrderStatuses) {
+        this.excludedOrderStatuses = excludedOrderStatuses;
+    }
+}
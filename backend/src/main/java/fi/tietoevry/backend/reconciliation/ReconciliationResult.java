@@ -0,0 +1,74 @@
+package fi.tietoevry.backend.reconciliation;
+
+import java.util.List;
+
+public final class ReconciliationResult {
+
+    private final String jobId;
+    private final int partitions;
+    private final int partitionsSkipped; // already done by an earlier run with the same job id
+    private final List<CustomerRange> failedPartitions;
+    private final long customersChecked;
+    private final long discrepancies;
+    private final long elapsedMillis;
+
+    public ReconciliationResult(String jobId, int partitions, int partitionsSkipped, List<CustomerRange> failedPartitions,
+                                long customersChecked, long discrepancies, long elapsedMillis) {
+        this.jobId = jobId;
+        this.partitions = partitions;
+        this.partitionsSkipped = partitionsSkipped;
+        this.failedPartitions = failedPartitions;
+        this.customersChecked = customersChecked;
+        this.discrepancies = discrepancies;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public int getPartitionsSkipped() {
+        return partitionsSkipped;
+    }
+
+    public List<CustomerRange> getFailedPartitions() {
+        return failedPartitions;
+    }
+
+    public boolean isComplete() {
+        return failedPartitions.isEmpty();
+    }
+
+    public long getCustomersChecked() {
+        return customersChecked;
+    }
+
+    public long getDiscrepancies() {
+        return discrepancies;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getCustomersPerSecond() {
+        return elapsedMillis == 0 ? 0 : customersChecked * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ReconciliationResult{" +
+                "jobId='" + jobId + '\'' +
+                ", partitions=" + partitions +
+                ", partitionsSkipped=" + partitionsSkipped +
+                ", failedPartitions=" + failedPartitions +
+                ", customersChecked=" + customersChecked +
+                ", discrepancies=" + discrepancies +
+                ", elapsedMillis=" + elapsedMillis +
+                '}';
+    }
+}
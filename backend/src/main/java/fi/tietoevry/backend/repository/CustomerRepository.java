@@ -0,0 +1,16 @@
+package fi.tietoevry.backend.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import fi.tietoevry.backend.model.Customer;
+
+@Repository
+public interface CustomerRepository extends JpaRepository<Customer, Long> {
+
+    List<Customer> findByCountry(String country);
+
+    List<Customer> findByCountryAndCity(String country, String city);
+}
@@ -0,0 +1,15 @@
+package fi.tietoevry.backend.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import fi.tietoevry.backend.model.OrderDetail;
+import fi.tietoevry.backend.model.OrderDetail.OrderDetailId;
+
+@Repository
+public interface OrderDetailRepository extends JpaRepository<OrderDetail, OrderDetailId> {
+
+    List<OrderDetail> findByOrderNumber(Long orderNumber);
+}
@@ -0,0 +1,20 @@
+package fi.tietoevry.backend.repository;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import fi.tietoevry.backend.model.Order;
+
+@Repository
+public interface OrderRepository extends JpaRepository<Order, Long> {
+
+    // Derived queries: Spring Data builds the JPQL from the method name
+    List<Order> findByStatusOrderByOrderDateDesc(String status);
+
+    List<Order> findByOrderDateBetween(Date from, Date to);
+
+    List<Order> findByStatusAndOrderDateBetween(String status, Date from, Date to);
+}
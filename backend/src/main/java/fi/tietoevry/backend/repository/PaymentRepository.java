@@ -0,0 +1,16 @@
+package fi.tietoevry.backend.repository;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import fi.tietoevry.backend.model.Payment;
+import fi.tietoevry.backend.model.Payment.PaymentId;
+
+@Repository
+public interface PaymentRepository extends JpaRepository<Payment, PaymentId> {
+
+    List<Payment> findByPaymentDateBetween(Date from, Date to);
+}
@@ -0,0 +1,10 @@
+package fi.tietoevry.backend.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import fi.tietoevry.backend.model.ProductLine;
+
+@Repository
+public interface ProductLineRepository extends JpaRepository<ProductLine, String> {
+}
@@ -0,0 +1,14 @@
+package fi.tietoevry.backend.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import fi.tietoevry.backend.model.Product;
+
+@Repository
+public interface ProductRepository extends JpaRepository<Product, String> {
+
+    List<Product> findByProductVendor(String productVendor);
+}
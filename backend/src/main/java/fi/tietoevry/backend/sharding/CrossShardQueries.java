@@ -0,0 +1,61 @@
+package fi.tietoevry.backend.sharding;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import fi.tietoevry.backend.model.Order;
+
+// Reports over all territories, built on ScatterGather; unsharded they are ordinary single database queries
+public class CrossShardQueries {
+
+    private static final RowMapper<Order> ORDER_MAPPER = (rs, rowNum) -> {
+        Order order = new Order();
+        order.setOrderNumber(rs.getLong("orderNumber"));
+        order.setOrderDate(rs.getDate("orderDate"));
+        order.setRequiredDate(rs.getDate("requiredDate"));
+        order.setShippedDate(rs.getDate("shippedDate"));
+        order.setStatus(rs.getString("status"));
+        order.setComments(rs.getString("comments"));
+        return order;
+    };
+
+    private static final Comparator<Order> NEWEST_FIRST = Comparator.comparing(Order::getOrderDate).reversed()
+            .thenComparing(Comparator.comparing(Order::getOrderNumber).reversed());
+
+    private final ScatterGather scatterGather;
+
+    public CrossShardQueries(ScatterGather scatterGather) {
+        this.scatterGather = scatterGather;
+    }
+
+    // Sorted merge: every shard returns its newest orders, the overall newest are picked from those
+    public List<Order> latestOrders(int limit) {
+        return scatterGather.querySorted("SELECT orderNumber, orderDate, requiredDate, shippedDate, status, comments FROM orders " +
+                "ORDER BY orderDate DESC, orderNumber DESC LIMIT ?", ORDER_MAPPER, NEWEST_FIRST, limit, limit);
+    }
+
+    // Aggregate merge: per shard counts add up
+    public Map<String, Long> orderCountByStatus() {
+        return scatterGather.aggregate("SELECT status, COUNT(*) FROM orders GROUP BY status", rs -> {
+            Map<String, Long> counts = new TreeMap<>();
+            while (rs.next()) {
+                counts.put(rs.getString(1), rs.getLong(2));
+            }
+            return counts;
+        }, (a, b) -> {
+            Map<String, Long> sum = new TreeMap<>(a);
+            b.forEach((status, count) -> sum.merge(status, count, Long::sum));
+            return sum;
+        });
+    }
+
+    public BigDecimal totalPayments() {
+        return scatterGather.aggregate("SELECT COALESCE(SUM(amount), 0) FROM payments",
+                rs -> rs.next() ? rs.getBigDecimal(1) : BigDecimal.ZERO, BigDecimal::add);
+    }
+}
@@ -0,0 +1,165 @@
+package fi.tietoevry.backend.sharding;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import fi.tietoevry.backend.cache.InvalidationListener;
+import fi.tietoevry.backend.cache.InvalidationMessage;
+
+/*
+Copies the reference data the shard rows refer to from the global database to the shards: changes as their
+invalidation messages arrive, whole tables with syncAll() at start-up.
+*/
+public class ReferenceDataSync implements InvalidationListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ReferenceDataSync.class);
+
+    // in foreign key order
+    enum Table {
+        PRODUCT_LINES("ProductLine", "productlines", "productLine"),
+        PRODUCTS("Product", "products", "productCode"),
+        OFFICES("Office", "offices", "officeCode"),
+        EMPLOYEES("Employee", "employees", "employeeNumber"),
+        CUSTOMERS("Customer", "customers", "customerNumber");
+
+        private final String entityType;
+        private final String name;
+        private final String key;
+
+        Table(String entityType, String name, String key) {
+            this.entityType = entityType;
+            this.name = name;
+            this.key = key;
+        }
+    }
+
+    private final JdbcTemplate global;
+    private final List<Shard> shards;
+
+    public ReferenceDataSync(DataSource globalDataSource, ShardRouter router) {
+        this.global = new JdbcTemplate(globalDataSource);
+        this.shards = router.getShards();
+    }
+
+    @Override
+    public void onInvalidation(Collection<InvalidationMessage> messages) {
+        for (Table table : Table.values()) {
+            for (InvalidationMessage message : messages) {
+                if (table.entityType.equals(message.getEntityType())) {
+                    sync(table, message.getEntityId());
+                }
+            }
+        }
+    }
+
+    void sync(Table table, Object id) {
+        List<Map<String, Object>> rows = global.queryForList("SELECT * FROM " + table.name + " WHERE " + table.key + " = ?", id);
+        for (Shard shard : shards) {
+            try {
+                if (rows.isEmpty()) {
+                    shard.getJdbcTemplate().update("DELETE FROM " + table.name + " WHERE " + table.key + " = ?", id);
+                } else {
+                    upsert(shard.getJdbcTemplate(), table, rows.get(0));
+                }
+            } catch (DataAccessException e) {
+                log.warn("Could not copy {} {} to {}", table.name, id, shard, e);
+            }
+        }
+    }
+
+    // Copies what differs, table by table, and deletes what the global database doesn't have any more
+    public void syncAll() {
+        for (Shard shard : shards) {
+            JdbcTemplate target = shard.getJdbcTemplate();
+            Map<Table, Map<Object, Map<String, Object>>> leftOver = new HashMap<>();
+            int copied = 0;
+            for (Table table : Table.values()) {
+                Map<Object, Map<String, Object>> existing = new HashMap<>();
+                target.queryForList("SELECT * FROM " + table.name).forEach(row -> existing.put(row.get(table.key), row));
+                List<Map<String, Object>> changed = new ArrayList<>();
+                for (Map<String, Object> row : global.queryForList("SELECT * FROM " + table.name)) {
+                    if (differs(row, existing.remove(row.get(table.key)))) {
+                        changed.add(row);
+                    }
+                }
+                copied += copy(target, table, changed, shard);
+                leftOver.put(table, existing);
+            }
+            int deleted = 0;
+            for (int i = Table.values().length - 1; i >= 0; i--) {
+                Table table = Table.values()[i];
+                for (Object id : leftOver.get(table).keySet()) {
+                    try {
+                        deleted += target.update("DELETE FROM " + table.name + " WHERE " + table.key + " = ?", id);
+                    } catch (DataAccessException e) {
+                        log.warn("Could not delete {} {} from {}, shard rows still refer to it", table.name, id, shard);
+                    }
+                }
+            }
+            log.info("Reference data of {}: {} rows copied, {} deleted", shard, copied, deleted);
+        }
+    }
+
+    // Rows can refer to rows of their own table (employees.reportsTo), those that failed go round again while some succeed
+    private static int copy(JdbcTemplate target, Table table, List<Map<String, Object>> rows, Shard shard) {
+        int copied = 0;
+        List<Map<String, Object>> pending = rows;
+        while (!pending.isEmpty()) {
+            List<Map<String, Object>> failed = new ArrayList<>();
+            DataAccessException lastFailure = null;
+            for (Map<String, Object> row : pending) {
+                try {
+                    upsert(target, table, row);
+                    copied++;
+                } catch (DataAccessException e) {
+                    failed.add(row);
+                    lastFailure = e;
+                }
+            }
+            if (failed.size() == pending.size()) {
+                log.warn("Could not copy {} {} rows to {}", failed.size(), table.name, shard, lastFailure);
+                break;
+            }
+            pending = failed;
+        }
+        return copied;
+    }
+
+    private static void upsert(JdbcTemplate target, Table table, Map<String, Object> row) {
+        List<String> columns = new ArrayList<>(row.keySet());
+        List<Object> values = new ArrayList<>(row.values());
+        List<Object> updateArgs = new ArrayList<>(values);
+        updateArgs.add(row.get(table.key));
+        int updated = target.update("UPDATE " + table.name + " SET " + columns.stream().map(column -> column + " = ?")
+                .collect(Collectors.joining(", ")) + " WHERE " + table.key + " = ?", updateArgs.toArray());
+        if (updated == 0) {
+            target.update("INSERT INTO " + table.name + " (" + String.join(", ", columns) + ") VALUES ("
+                    + columns.stream().map(column -> "?").collect(Collectors.joining(", ")) + ")", values.toArray());
+        }
+    }
+
+    // Only the global database's columns count, a shard may have more
+    private static boolean differs(Map<String, Object> row, Map<String, Object> copy) {
+        if (copy == null) {
+            return true;
+        }
+        for (Map.Entry<String, Object> column : row.entrySet()) {
+            if (!Objects.equals(column.getValue(), copy.get(column.getKey()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,122 @@
+package fi.tietoevry.backend.sharding;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+/*
+Queries that span territories: the same SQL runs on every shard in parallel and the partial results are merged.
+querySorted() merges rows already sorted by the comparator, aggregate() combines partial aggregates (sums, not averages),
+stream() reads the shards one after the other.
+*/
+public class ScatterGather {
+
+    private final ShardRouter router;
+    private final ExecutorService executor;
+
+    public ScatterGather(ShardRouter router, int parallelism) {
+        this.router = router;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "scatter-gather-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+        List<T> rows = new ArrayList<>();
+        fanOut(shard -> shard.getJdbcTemplate().query(sql, rowMapper, args)).forEach(rows::addAll);
+        return rows;
+    }
+
+    public <T> List<T> querySorted(String sql, RowMapper<T> rowMapper, Comparator<? super T> order, int limit, Object... args) {
+        List<List<T>> partials = fanOut(shard -> shard.getJdbcTemplate().query(sql, rowMapper, args));
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(Math.max(1, partials.size()), (a, b) -> order.compare(a.value, b.value));
+        for (List<T> partial : partials) {
+            Iterator<T> rows = partial.iterator();
+            if (rows.hasNext()) {
+                heads.add(new Head<>(rows.next(), rows));
+            }
+        }
+        List<T> merged = new ArrayList<>(limit);
+        while (merged.size() < limit && !heads.isEmpty()) {
+            Head<T> head = heads.poll();
+            merged.add(head.value);
+            if (head.rest.hasNext()) {
+                heads.add(new Head<>(head.rest.next(), head.rest));
+            }
+        }
+        return merged;
+    }
+
+    public <R> R aggregate(String sql, ResultSetExtractor<R> extractor, BinaryOperator<R> combiner, Object... args) {
+        return fanOut(shard -> shard.getJdbcTemplate().query(sql, extractor, args)).stream().reduce(combiner)
+                .orElseThrow(IllegalStateException::new);
+    }
+
+    public void stream(String sql, RowCallbackHandler handler, Object... args) {
+        stream(sql, -1, handler, args); // the driver's default fetch size
+    }
+
+    public void stream(String sql, int fetchSize, RowCallbackHandler handler, Object... args) {
+        for (Shard shard : router.getShards()) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(shard.getDataSource());
+            jdbcTemplate.setFetchSize(fetchSize);
+            jdbcTemplate.query(sql, handler, args);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <R> List<R> fanOut(Function<Shard, R> shardQuery) {
+        List<Shard> shards = router.getShards();
+        if (shards.size() == 1) {
+            return Collections.singletonList(shardQuery.apply(shards.get(0)));
+        }
+        List<CompletableFuture<R>> futures = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            futures.add(CompletableFuture.supplyAsync(() -> shardQuery.apply(shard), executor));
+        }
+        List<R> results = new ArrayList<>(shards.size());
+        try {
+            for (CompletableFuture<R> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(false));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    private static final class Head<T> {
+        private final T value;
+        private final Iterator<T> rest;
+
+        private Head(T value, Iterator<T> rest) {
+            this.value = value;
+            this.rest = rest;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package fi.tietoevry.backend.sharding;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// One territory database; index is baked into the order numbers allocated on it, so it must never change
+public class Shard {
+
+    private final String territory;
+    private final int index;
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardIdAllocator idAllocator; // null when not sharded
+
+    public Shard(String territory, int index, DataSource dataSource, ShardIdAllocator idAllocator) {
+        this.territory = territory;
+        this.index = index;
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.idAllocator = idAllocator;
+    }
+
+    public String getTerritory() {
+        return territory;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    public ShardIdAllocator getIdAllocator() {
+        return idAllocator;
+    }
+
+    @Override
+    public String toString() {
+        return "Shard{" + territory + "#" + index + '}';
+    }
+}
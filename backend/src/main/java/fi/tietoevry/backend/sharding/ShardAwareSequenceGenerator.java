@@ -0,0 +1,19 @@
+package fi.tietoevry.backend.sharding;
+
+import java.io.Serializable;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+// Order number generator: the orders_seq sequence as before, unless a shard is bound (then see ShardIdAllocator)
+public class ShardAwareSequenceGenerator extends SequenceStyleGenerator {
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        Shard shard = ShardContext.current();
+        if (shard != null && shard.getIdAllocator() != null) {
+            return shard.getIdAllocator().nextOrderNumber(shard);
+        }
+        return super.generate(session, object);
+    }
+}
@@ -0,0 +1,30 @@
+package fi.tietoevry.backend.sharding;
+
+import java.util.function.Supplier;
+
+// The shard the current thread works on; read by ShardRoutingDataSource when a connection is opened
+public final class ShardContext {
+
+    private static final ThreadLocal<Shard> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static Shard current() {
+        return CURRENT.get();
+    }
+
+    static <T> T call(Shard shard, Supplier<T> work) {
+        Shard previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
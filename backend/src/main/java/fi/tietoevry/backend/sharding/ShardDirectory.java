@@ -0,0 +1,86 @@
+package fi.tietoevry.backend.sharding;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import fi.tietoevry.backend.cache.InvalidationListener;
+import fi.tietoevry.backend.cache.InvalidationMessage;
+import fi.tietoevry.backend.model.Customer;
+import fi.tietoevry.backend.model.Employee;
+import fi.tietoevry.backend.model.Office;
+
+/*
+Which territory a customer belongs to: that of the office of their sales rep.
+Cached until the invalidation bus reports a change of the customer, an employee or an office.
+*/
+public class ShardDirectory implements InvalidationListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardDirectory.class);
+
+    private static final String CUSTOMER = Customer.class.getSimpleName();
+    private static final String EMPLOYEE = Employee.class.getSimpleName();
+    private static final String OFFICE = Office.class.getSimpleName();
+
+    static final String TERRITORY_SQL = "SELECT c.customerNumber, o.territory FROM customers c " +
+            "LEFT JOIN employees e ON e.employeeNumber = c.salesRepEmployeeNumber " +
+            "LEFT JOIN offices o ON o.officeCode = e.officeCode";
+
+    private final JdbcTemplate globalJdbcTemplate;
+    private final Map<Long, String> territories = new ConcurrentHashMap<>();
+
+    public ShardDirectory(JdbcTemplate globalJdbcTemplate) {
+        this.globalJdbcTemplate = globalJdbcTemplate;
+    }
+
+    // null if the customer has no sales rep or doesn't exist
+    public String territoryOf(Long customerNumber) {
+        String territory = territories.get(customerNumber);
+        if (territory != null) {
+            return territory;
+        }
+        territory = load(customerNumber);
+        if (territory != null) {
+            territories.put(customerNumber, territory);
+        }
+        return territory;
+    }
+
+    public void refresh() {
+        territories.clear();
+        globalJdbcTemplate.query(TERRITORY_SQL, rs -> {
+            String territory = rs.getString(2);
+            if (territory != null) {
+                territories.put(rs.getLong(1), territory);
+            }
+        });
+    }
+
+    @Override
+    public void onInvalidation(Collection<InvalidationMessage> messages) {
+        for (InvalidationMessage message : messages) {
+            if (EMPLOYEE.equals(message.getEntityType()) || OFFICE.equals(message.getEntityType())) {
+                territories.clear(); // a sales rep moved, or an office changed its territory: anyone may have moved
+                return;
+            }
+            if (CUSTOMER.equals(message.getEntityType())) {
+                try {
+                    territories.remove(Long.valueOf(message.getEntityId()));
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring invalidation of customer {}", message.getEntityId());
+                }
+            }
+        }
+    }
+
+    private String load(Long customerNumber) {
+        List<String> found = globalJdbcTemplate.query(TERRITORY_SQL + " WHERE c.customerNumber = ?",
+                (rs, rowNum) -> rs.getString(2), customerNumber);
+        return found.isEmpty() ? null : found.get(0);
+    }
+}
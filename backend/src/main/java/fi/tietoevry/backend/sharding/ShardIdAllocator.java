@@ -0,0 +1,77 @@
+package fi.tietoevry.backend.sharding;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+
+/*
+Order numbers that say which shard they live on: idBase + sequence * idSlots + shard index, the sequence from
+orders_seq of the global database. Numbers below idBase are older and may be on any shard.
+*/
+public class ShardIdAllocator {
+
+    private final DataSource globalDataSource;
+    private final long idBase;
+    private final int idSlots;
+    private final int blockSize;
+
+    private long next; // next sequence value to hand out
+    private long last; // last value of the current block
+
+    public ShardIdAllocator(DataSource globalDataSource, long idBase, int idSlots, int blockSize) {
+        this.globalDataSource = globalDataSource;
+        this.idBase = idBase;
+        this.idSlots = idSlots;
+        this.blockSize = blockSize;
+    }
+
+    public long nextOrderNumber(Shard shard) {
+        return idBase + nextSequenceValue() * idSlots + shard.getIndex();
+    }
+
+    // Index of the shard an order number was allocated on, -1 for order numbers from before sharding
+    public int shardIndexOf(long orderNumber) {
+        return orderNumber < idBase ? -1 : (int) ((orderNumber - idBase) % idSlots);
+    }
+
+    private synchronized long nextSequenceValue() {
+        if (next == 0 || next > last) {
+            last = reserveBlock();
+            next = last - blockSize + 1;
+        }
+        return next++;
+    }
+
+    // A connection of its own, outside of the caller's transaction, so a rolled back order doesn't give numbers back
+    private long reserveBlock() {
+        try (Connection connection = globalDataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                long hi;
+                try (PreparedStatement select = connection.prepareStatement("SELECT next_val FROM orders_seq FOR UPDATE");
+                     ResultSet rs = select.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new IllegalStateException("orders_seq has no row, see V5__orders_sequence.sql");
+                    }
+                    hi = rs.getLong(1);
+                }
+                try (PreparedStatement update = connection.prepareStatement("UPDATE orders_seq SET next_val = ?")) {
+                    update.setLong(1, hi + blockSize);
+                    update.executeUpdate();
+                }
+                connection.commit();
+                return hi;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Could not reserve order numbers from orders_seq", e);
+        }
+    }
+}
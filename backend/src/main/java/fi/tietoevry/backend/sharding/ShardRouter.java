@@ -0,0 +1,135 @@
+package fi.tietoevry.backend.sharding;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/*
+Picks the shard for a customer or an order and binds it to the thread while the work runs, so that the
+application's DataSource (JPA included) goes to it. Choose it before the transaction starts.
+*/
+public class ShardRouter {
+
+    private final boolean sharded;
+    private final Map<String, Shard> shardsByTerritory;
+    private final Shard defaultShard;
+    private final ShardDirectory directory;
+    private final ShardIdAllocator idAllocator;
+
+    ShardRouter(List<Shard> shards, String defaultTerritory, ShardDirectory directory, ShardIdAllocator idAllocator) {
+        this.sharded = true;
+        this.shardsByTerritory = new LinkedHashMap<>();
+        shards.forEach(shard -> shardsByTerritory.put(shard.getTerritory(), shard));
+        this.defaultShard = shardsByTerritory.get(defaultTerritory);
+        if (defaultShard == null) {
+            throw new IllegalArgumentException("No shard configured for the default territory " + defaultTerritory);
+        }
+        this.directory = directory;
+        this.idAllocator = idAllocator;
+    }
+
+    private ShardRouter(DataSource dataSource) {
+        this.sharded = false;
+        this.defaultShard = new Shard("ALL", 0, dataSource, null);
+        this.shardsByTerritory = Collections.singletonMap(defaultShard.getTerritory(), defaultShard);
+        this.directory = null;
+        this.idAllocator = null;
+    }
+
+    public static ShardRouter unsharded(DataSource dataSource) {
+        return new ShardRouter(dataSource);
+    }
+
+    public boolean isSharded() {
+        return sharded;
+    }
+
+    public List<Shard> getShards() {
+        return new ArrayList<>(shardsByTerritory.values());
+    }
+
+    // Orders and payments of customers of territories without a shard of their own, and of customers without a sales rep, go to the default shard
+    ShardDirectory getDirectory() {
+        return directory;
+    }
+
+    public Shard shardForCustomer(Long customerNumber) {
+        if (!sharded || customerNumber == null) {
+            return defaultShard;
+        }
+        String territory = directory.territoryOf(customerNumber);
+        Shard shard = territory == null ? null : shardsByTerritory.get(territory);
+        return shard != null ? shard : defaultShard;
+    }
+
+    public Shard shardForOrder(Long orderNumber) {
+        if (!sharded || orderNumber == null) {
+            return defaultShard;
+        }
+        int index = idAllocator.shardIndexOf(orderNumber);
+        for (Shard shard : shardsByTerritory.values()) {
+            if (index >= 0 ? shard.getIndex() == index : containsOrder(shard, orderNumber)) {
+                return shard;
+            }
+        }
+        return defaultShard; // unknown order, let the work find out
+    }
+
+    // The shard an order number was allocated on, or every shard for numbers that don't tell (without asking them first)
+    public List<Shard> shardsForOrder(Long orderNumber) {
+        if (sharded && orderNumber != null) {
+            int index = idAllocator.shardIndexOf(orderNumber);
+            for (Shard shard : shardsByTerritory.values()) {
+                if (shard.getIndex() == index) {
+                    return Collections.singletonList(shard);
+                }
+            }
+        }
+        return getShards();
+    }
+
+    public <T> T onCustomer(Long customerNumber, Supplier<T> work) {
+        return onShard(shardForCustomer(customerNumber), work);
+    }
+
+    public <T> T onOrder(Long orderNumber, Supplier<T> work) {
+        return onShard(shardForOrder(orderNumber), work);
+    }
+
+    public <T> T onShard(Shard shard, Supplier<T> work) {
+        if (!sharded) {
+            return work.get();
+        }
+        Shard current = ShardContext.current();
+        if (current == shard) {
+            return work.get();
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Can't switch to " + shard + " inside a transaction, route before it starts");
+        }
+        return ShardContext.call(shard, work);
+    }
+
+    // Closes the shard pools, the unsharded router doesn't own its DataSource
+    public void close() throws Exception {
+        if (!sharded) {
+            return;
+        }
+        for (Shard shard : shardsByTerritory.values()) {
+            if (shard.getDataSource() instanceof AutoCloseable) {
+                ((AutoCloseable) shard.getDataSource()).close();
+            }
+        }
+    }
+
+    private static boolean containsOrder(Shard shard, Long orderNumber) {
+        return !shard.getJdbcTemplate().queryForList("SELECT 1 FROM orders WHERE orderNumber = ?", Integer.class, orderNumber).isEmpty();
+    }
+}
@@ -0,0 +1,40 @@
+package fi.tietoevry.backend.sharding;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import fi.tietoevry.backend.sharding.ShardingProperties.ShardProperties;
+
+// Builds a sharded ShardRouter from the properties; the DataSources are created by the caller (pools or embedded databases)
+final class ShardRouterFactory {
+
+    private ShardRouterFactory() {
+    }
+
+    static ShardRouter create(ShardingProperties properties, DataSource globalDataSource, Function<ShardProperties, DataSource> dataSources) {
+        if (properties.getShards().isEmpty()) {
+            throw new IllegalArgumentException("backend.sharding.enabled=true needs at least one backend.sharding.shards entry");
+        }
+        ShardIdAllocator idAllocator = new ShardIdAllocator(globalDataSource, properties.getIdBase(), properties.getIdSlots(),
+                properties.getIdBlockSize());
+        Set<Integer> indexes = new HashSet<>();
+        List<Shard> shards = new ArrayList<>();
+        for (Map.Entry<String, ShardProperties> entry : properties.getShards().entrySet()) {
+            int index = entry.getValue().getIndex();
+            if (index < 0 || index >= properties.getIdSlots() || !indexes.add(index)) {
+                throw new IllegalArgumentException("Shard " + entry.getKey() + " needs a unique index between 0 and "
+                        + (properties.getIdSlots() - 1) + ", got " + index);
+            }
+            shards.add(new Shard(entry.getKey(), index, dataSources.apply(entry.getValue()), idAllocator));
+        }
+        return new ShardRouter(shards, properties.getDefaultTerritory(), new ShardDirectory(new JdbcTemplate(globalDataSource)), idAllocator);
+    }
+}
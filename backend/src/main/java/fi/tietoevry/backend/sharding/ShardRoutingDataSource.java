@@ -0,0 +1,31 @@
+package fi.tietoevry.backend.sharding;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/*
+The application's DataSource when sharding is on: connections come from the shard bound by ShardRouter,
+or from the global database (reference data, the order number sequence, outbox, audit, ...) when none is bound.
+*/
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    public ShardRoutingDataSource(DataSource globalDataSource, Iterable<Shard> shards) {
+        Map<Object, Object> targets = new HashMap<>();
+        for (Shard shard : shards) {
+            targets.put(shard.getTerritory(), shard.getDataSource());
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(globalDataSource);
+        setLenientFallback(false); // a bound shard without a DataSource is a bug, not a reason to write to the global database
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Shard shard = ShardContext.current();
+        return shard == null ? null : shard.getTerritory();
+    }
+}
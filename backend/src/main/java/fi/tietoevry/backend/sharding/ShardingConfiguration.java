@@ -0,0 +1,102 @@
+package fi.tietoevry.backend.sharding;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import fi.tietoevry.backend.cache.InvalidationBus;
+
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "backend.sharding.enabled", havingValue = "false", matchIfMissing = true)
+    public ShardRouter unshardedRouter(DataSource dataSource) {
+        return ShardRouter.unsharded(dataSource);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ScatterGather scatterGather(ShardRouter router, ShardingProperties properties) {
+        return new ScatterGather(router, properties.getParallelism());
+    }
+
+    @Bean
+    public CrossShardQueries crossShardQueries(ScatterGather scatterGather) {
+        return new CrossShardQueries(scatterGather);
+    }
+
+    /*
+    spring.datasource becomes the global database (customers, employees, offices, products, orders_seq, ...)
+    and every territory in backend.sharding.shards gets a pool of its own for its orders, payments, outbox and customer_stats.
+    The application's DataSource routes between them.
+    */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(name = "backend.sharding.enabled", havingValue = "true")
+    static class Sharded {
+
+        @Bean(destroyMethod = "close")
+        HikariDataSource globalDataSource(DataSourceProperties dataSourceProperties) {
+            return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        }
+
+        @Bean(destroyMethod = "close")
+        ShardRouter shardRouter(ShardingProperties properties, HikariDataSource globalDataSource, DataSourceProperties dataSourceProperties,
+                                ObjectProvider<InvalidationBus> invalidationBus) {
+            ShardRouter router = ShardRouterFactory.create(properties, globalDataSource, shard -> DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(dataSourceProperties.determineDriverClassName())
+                    .url(shard.getUrl())
+                    .username(shard.getUsername() != null ? shard.getUsername() : dataSourceProperties.determineUsername())
+                    .password(shard.getPassword() != null ? shard.getPassword() : dataSourceProperties.determinePassword())
+                    .build());
+            invalidationBus.ifAvailable(bus -> bus.subscribe(router.getDirectory())); // customers getting another sales rep
+            return router;
+        }
+
+        @Bean
+        @Primary
+        DataSource dataSource(HikariDataSource globalDataSource, ShardRouter shardRouter) {
+            return new ShardRoutingDataSource(globalDataSource, shardRouter.getShards());
+        }
+
+        @Bean
+        ReferenceDataSync referenceDataSync(HikariDataSource globalDataSource, ShardRouter shardRouter,
+                                            ObjectProvider<InvalidationBus> invalidationBus) {
+            ReferenceDataSync sync = new ReferenceDataSync(globalDataSource, shardRouter);
+            invalidationBus.ifAvailable(bus -> bus.subscribe(sync));
+            return sync;
+        }
+
+        // after the migrations, catches up with whatever changed while this instance wasn't listening
+        @Bean
+        ApplicationRunner referenceDataSyncRunner(ReferenceDataSync referenceDataSync) {
+            return args -> referenceDataSync.syncAll();
+        }
+
+        // every shard gets the same migrations as the global database
+        @Bean
+        @ConditionalOnClass(Flyway.class)
+        FlywayMigrationStrategy shardedMigrationStrategy(ShardRouter shardRouter) {
+            return flyway -> {
+                flyway.migrate();
+                for (Shard shard : shardRouter.getShards()) {
+                    Flyway.configure().configuration(flyway.getConfiguration()).dataSource(shard.getDataSource()).load().migrate();
+                }
+            };
+        }
+    }
+}
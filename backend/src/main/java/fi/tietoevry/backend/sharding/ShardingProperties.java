@@ -0,0 +1,124 @@
+package fi.tietoevry.backend.sharding;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "backend.sharding")
+public class ShardingProperties {
+
+    private boolean enabled = false;
+
+    // keyed by Office.territory (NA, EMEA, APAC, Japan); territories without a shard use the default one
+    private Map<String, ShardProperties> shards = new LinkedHashMap<>();
+
+    private String defaultTerritory = "NA";
+
+    private long idBase = 1_000_000_000L; // order numbers from this on encode their shard, see ShardIdAllocator
+
+    private int idSlots = 16; // room for this many shards without renumbering
+
+    private int idBlockSize = 50; // must match the allocationSize of the orders_seq generator
+
+    private int parallelism = 4; // scatter-gather threads
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Map<String, ShardProperties> getShards() {
+        return shards;
+    }
+
+    public void setShards(Map<String, ShardProperties> shards) {
+        this.shards = shards;
+    }
+
+    public String getDefaultTerritory() {
+        return defaultTerritory;
+    }
+
+    public void setDefaultTerritory(String defaultTerritory) {
+        this.defaultTerritory = defaultTerritory;
+    }
+
+    public long getIdBase() {
+        return idBase;
+    }
+
+    public void setIdBase(long idBase) {
+        this.idBase = idBase;
+    }
+
+    public int getIdSlots() {
+        return idSlots;
+    }
+
+    public void setIdSlots(int idSlots) {
+        this.idSlots = idSlots;
+    }
+
+    public int getIdBlockSize() {
+        return idBlockSize;
+    }
+
+    public void setIdBlockSize(int idBlockSize) {
+        this.idBlockSize = idBlockSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public static class ShardProperties {
+
+        private int index = -1; // fixed forever once orders were allocated on the shard
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        public int getIndex() {
+            return index;
+        }
+
+        public void setIndex(int index) {
+            this.index = index;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package fi.tietoevry.backend.startup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+/*
+Stops the application as soon as it has fully started.
+Used for the class data sharing training run (mvn package -Pcds): the JVM dumps every class loaded so far on exit.
+*/
+@Component
+@ConditionalOnProperty(name = "backend.startup.exit-after-start", havingValue = "true")
+public class ExitAfterStartListener implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(ExitAfterStartListener.class);
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        log.info("Application started, exiting as requested by backend.startup.exit-after-start");
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
@@ -0,0 +1,34 @@
+package fi.tietoevry.backend.statistics;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.EntityType;
+
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import fi.tietoevry.backend.model.Customer;
+
+@Configuration
+@Profile("hibernate-stats")
+public class HibernateStatisticsConfiguration {
+
+    // Waits for the EntityManagerFactory, even with the deferred bootstrap of the prod profile: this profile is for diagnosis
+    @Bean
+    public HibernateStatisticsEndpoint hibernateStatisticsEndpoint(EntityManagerFactory entityManagerFactory,
+                                                                   @Value("${backend.hibernate-stats.max-queries:50}") int maxQueries) {
+        String modelPackage = Customer.class.getPackage().getName();
+        List<String> entityNames = entityManagerFactory.getMetamodel().getEntities().stream()
+                .map(EntityType::getJavaType)
+                .filter(type -> type.getPackage().getName().equals(modelPackage))
+                .map(Class::getName)
+                .sorted()
+                .collect(Collectors.toList());
+        return new HibernateStatisticsEndpoint(entityManagerFactory.unwrap(SessionFactory.class).getStatistics(), entityNames, maxQueries);
+    }
+}
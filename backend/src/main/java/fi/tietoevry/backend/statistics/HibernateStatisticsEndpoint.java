@@ -0,0 +1,103 @@
+package fi.tietoevry.backend.statistics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.CollectionStatistics;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import fi.tietoevry.backend.statistics.HibernateStatisticsReport.CacheRegionMetrics;
+import fi.tietoevry.backend.statistics.HibernateStatisticsReport.CollectionMetrics;
+import fi.tietoevry.backend.statistics.HibernateStatisticsReport.EntityMetrics;
+import fi.tietoevry.backend.statistics.HibernateStatisticsReport.QueryMetrics;
+import fi.tietoevry.backend.statistics.HibernateStatisticsReport.SessionMetrics;
+
+/*
+GET /actuator/hibernate: Hibernate's statistics per entity, collection, query and cache region;
+DELETE /actuator/hibernate resets them.
+*/
+@Endpoint(id = "hibernate")
+public class HibernateStatisticsEndpoint {
+
+    private final Statistics statistics;
+    private final Collection<String> entityNames;
+    private final int maxQueries;
+
+    public HibernateStatisticsEndpoint(Statistics statistics, Collection<String> entityNames, int maxQueries) {
+        this.statistics = statistics;
+        this.entityNames = entityNames;
+        this.maxQueries = maxQueries;
+    }
+
+    @ReadOperation
+    public HibernateStatisticsReport report() {
+        SessionMetrics sessions = new SessionMetrics(statistics.getSessionOpenCount(), statistics.getSessionCloseCount(),
+                statistics.getTransactionCount(), statistics.getSuccessfulTransactionCount(), statistics.getFlushCount(),
+                statistics.getConnectCount(), statistics.getPrepareStatementCount(), statistics.getOptimisticFailureCount(),
+                statistics.getEntityLoadCount());
+
+        Map<String, EntityMetrics> entities = new TreeMap<>();
+        for (String entityName : entityNames) {
+            EntityStatistics entity = statistics.getEntityStatistics(entityName);
+            entities.put(simpleName(entityName), new EntityMetrics(entity.getLoadCount(), entity.getFetchCount(), entity.getInsertCount(),
+                    entity.getUpdateCount(), entity.getDeleteCount(), entity.getOptimisticFailureCount()));
+        }
+
+        Map<String, CollectionMetrics> collections = new TreeMap<>();
+        for (String role : statistics.getCollectionRoleNames()) {
+            CollectionStatistics collection = statistics.getCollectionStatistics(role);
+            collections.put(simpleName(role), new CollectionMetrics(collection.getLoadCount(), collection.getFetchCount(),
+                    collection.getRecreateCount(), collection.getUpdateCount(), collection.getRemoveCount()));
+        }
+
+        List<QueryMetrics> queries = new ArrayList<>();
+        for (String query : statistics.getQueries()) {
+            QueryStatistics stats = statistics.getQueryStatistics(query);
+            if (stats.getExecutionCount() > 0) {
+                queries.add(new QueryMetrics(query, stats.getExecutionCount(), stats.getExecutionRowCount(), stats.getExecutionTotalTime(),
+                        stats.getExecutionAvgTime(), stats.getExecutionMaxTime(), stats.getExecutionMinTime(),
+                        stats.getCacheHitCount(), stats.getCacheMissCount()));
+            }
+        }
+        queries = queries.stream()
+                .sorted(Comparator.comparingLong(QueryMetrics::getTotalMillis).reversed())
+                .limit(maxQueries)
+                .collect(Collectors.toList());
+
+        Map<String, CacheRegionMetrics> secondLevelCache = new TreeMap<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics cache = statistics.getDomainDataRegionStatistics(region);
+            if (cache != null) {
+                secondLevelCache.put(region, new CacheRegionMetrics(cache.getHitCount(), cache.getMissCount(), cache.getPutCount(),
+                        cache.getElementCountInMemory()));
+            }
+        }
+        CacheRegionMetrics queryCache = new CacheRegionMetrics(statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount(),
+                statistics.getQueryCachePutCount(), -1);
+
+        return new HibernateStatisticsReport(statistics.isStatisticsEnabled(), statistics.getStartTime(), sessions, entities,
+                collections, queries, secondLevelCache, queryCache);
+    }
+
+    @DeleteOperation
+    public void reset() {
+        statistics.clear();
+    }
+
+    // fi.tietoevry.backend.model.Order -> Order, fi.tietoevry.backend.model.Order.orderDetails -> Order.orderDetails
+    private static String simpleName(String name) {
+        String prefix = "fi.tietoevry.backend.model.";
+        return name.startsWith(prefix) ? name.substring(prefix.length()) : name;
+    }
+}
@@ -0,0 +1,314 @@
+package fi.tietoevry.backend.statistics;
+
+import java.util.List;
+import java.util.Map;
+
+// What GET /actuator/hibernate returns; counts are since start-up or the last reset
+public class HibernateStatisticsReport {
+
+    private final boolean enabled;
+    private final long since;
+    private final SessionMetrics sessions;
+    private final Map<String, EntityMetrics> entities;
+    private final Map<String, CollectionMetrics> collections;
+    private final List<QueryMetrics> queries;
+    private final Map<String, CacheRegionMetrics> secondLevelCache;
+    private final CacheRegionMetrics queryCache;
+
+    public HibernateStatisticsReport(boolean enabled, long since, SessionMetrics sessions, Map<String, EntityMetrics> entities,
+                                     Map<String, CollectionMetrics> collections, List<QueryMetrics> queries,
+                                     Map<String, CacheRegionMetrics> secondLevelCache, CacheRegionMetrics queryCache) {
+        this.enabled = enabled;
+        this.since = since;
+        this.sessions = sessions;
+        this.entities = entities;
+        this.collections = collections;
+        this.queries = queries;
+        this.secondLevelCache = secondLevelCache;
+        this.queryCache = queryCache;
+    }
+
+    // false when the application runs without hibernate.generate_statistics, then everything is 0
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Epoch millis of the start or the last reset
+    public long getSince() {
+        return since;
+    }
+
+    public SessionMetrics getSessions() {
+        return sessions;
+    }
+
+    public Map<String, EntityMetrics> getEntities() {
+        return entities;
+    }
+
+    public Map<String, CollectionMetrics> getCollections() {
+        return collections;
+    }
+
+    // Slowest first (by total time)
+    public List<QueryMetrics> getQueries() {
+        return queries;
+    }
+
+    public Map<String, CacheRegionMetrics> getSecondLevelCache() {
+        return secondLevelCache;
+    }
+
+    public CacheRegionMetrics getQueryCache() {
+        return queryCache;
+    }
+
+    public static class SessionMetrics {
+
+        private final long opened;
+        private final long closed;
+        private final long transactions;
+        private final long successfulTransactions;
+        private final long flushes;
+        private final long connections;
+        private final long statements;
+        private final long optimisticFailures;
+        private final double statementsPerSession;
+        private final double entityLoadsPerSession;
+
+        public SessionMetrics(long opened, long closed, long transactions, long successfulTransactions, long flushes, long connections,
+                              long statements, long optimisticFailures, long entityLoads) {
+            this.opened = opened;
+            this.closed = closed;
+            this.transactions = transactions;
+            this.successfulTransactions = successfulTransactions;
+            this.flushes = flushes;
+            this.connections = connections;
+            this.statements = statements;
+            this.optimisticFailures = optimisticFailures;
+            this.statementsPerSession = opened > 0 ? statements / (double) opened : 0;
+            this.entityLoadsPerSession = opened > 0 ? entityLoads / (double) opened : 0;
+        }
+
+        public long getOpened() {
+            return opened;
+        }
+
+        public long getClosed() {
+            return closed;
+        }
+
+        public long getTransactions() {
+            return transactions;
+        }
+
+        public long getSuccessfulTransactions() {
+            return successfulTransactions;
+        }
+
+        public long getFlushes() {
+            return flushes;
+        }
+
+        public long getConnections() {
+            return connections;
+        }
+
+        // JDBC statements prepared
+        public long getStatements() {
+            return statements;
+        }
+
+        public long getOptimisticFailures() {
+            return optimisticFailures;
+        }
+
+        // A jump here is the first sign of an N+1 select
+        public double getStatementsPerSession() {
+            return statementsPerSession;
+        }
+
+        public double getEntityLoadsPerSession() {
+            return entityLoadsPerSession;
+        }
+    }
+
+    public static class EntityMetrics {
+
+        private final long loads;
+        private final long fetches;
+        private final long inserts;
+        private final long updates;
+        private final long deletes;
+        private final long optimisticFailures;
+
+        public EntityMetrics(long loads, long fetches, long inserts, long updates, long deletes, long optimisticFailures) {
+            this.loads = loads;
+            this.fetches = fetches;
+            this.inserts = inserts;
+            this.updates = updates;
+            this.deletes = deletes;
+            this.optimisticFailures = optimisticFailures;
+        }
+
+        public long getLoads() {
+            return loads;
+        }
+
+        // Loads caused by initializing a lazy proxy or association, i.e. the extra SELECTs
+        public long getFetches() {
+            return fetches;
+        }
+
+        public long getInserts() {
+            return inserts;
+        }
+
+        public long getUpdates() {
+            return updates;
+        }
+
+        public long getDeletes() {
+            return deletes;
+        }
+
+        public long getOptimisticFailures() {
+            return optimisticFailures;
+        }
+    }
+
+    public static class CollectionMetrics {
+
+        private final long loads;
+        private final long fetches;
+        private final long recreates;
+        private final long updates;
+        private final long removes;
+
+        public CollectionMetrics(long loads, long fetches, long recreates, long updates, long removes) {
+            this.loads = loads;
+            this.fetches = fetches;
+            this.recreates = recreates;
+            this.updates = updates;
+            this.removes = removes;
+        }
+
+        public long getLoads() {
+            return loads;
+        }
+
+        // Lazy collections initialized on access
+        public long getFetches() {
+            return fetches;
+        }
+
+        public long getRecreates() {
+            return recreates;
+        }
+
+        public long getUpdates() {
+            return updates;
+        }
+
+        public long getRemoves() {
+            return removes;
+        }
+    }
+
+    public static class QueryMetrics {
+
+        private final String query;
+        private final long executions;
+        private final long rows;
+        private final long totalMillis;
+        private final long avgMillis;
+        private final long maxMillis;
+        private final long minMillis;
+        private final long cacheHits;
+        private final long cacheMisses;
+
+        public QueryMetrics(String query, long executions, long rows, long totalMillis, long avgMillis, long maxMillis, long minMillis,
+                            long cacheHits, long cacheMisses) {
+            this.query = query;
+            this.executions = executions;
+            this.rows = rows;
+            this.totalMillis = totalMillis;
+            this.avgMillis = avgMillis;
+            this.maxMillis = maxMillis;
+            this.minMillis = minMillis;
+            this.cacheHits = cacheHits;
+            this.cacheMisses = cacheMisses;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        public long getExecutions() {
+            return executions;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getTotalMillis() {
+            return totalMillis;
+        }
+
+        public long getAvgMillis() {
+            return avgMillis;
+        }
+
+        public long getMaxMillis() {
+            return maxMillis;
+        }
+
+        public long getMinMillis() {
+            return minMillis;
+        }
+
+        public long getCacheHits() {
+            return cacheHits;
+        }
+
+        public long getCacheMisses() {
+            return cacheMisses;
+        }
+    }
+
+    public static class CacheRegionMetrics {
+
+        private final long hits;
+        private final long misses;
+        private final long puts;
+        private final long elementsInMemory; // -1: the cache provider doesn't say
+
+        public CacheRegionMetrics(long hits, long misses, long puts, long elementsInMemory) {
+            this.hits = hits;
+            this.misses = misses;
+            this.puts = puts;
+            this.elementsInMemory = elementsInMemory;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getPuts() {
+            return puts;
+        }
+
+        public long getElementsInMemory() {
+            return elementsInMemory;
+        }
+
+        public double getHitRatio() {
+            return hits + misses > 0 ? hits / (double) (hits + misses) : 0;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package fi.tietoevry.backend.timeseries;
+
+import java.util.Arrays;
+
+/*
+Immutable daily amounts in cents for the closed days firstDay <= day < endDay, as running totals:
+the sum over any range is one subtraction.
+*/
+final class DailySeries {
+
+    private final long firstDay;
+    private final long[] prefix;
+
+    private DailySeries(long firstDay, long[] prefix) {
+        this.firstDay = firstDay;
+        this.prefix = prefix;
+    }
+
+    static DailySeries of(long firstDay, long[] dailyCents) {
+        long[] prefix = new long[dailyCents.length + 1];
+        for (int i = 0; i < dailyCents.length; i++) {
+            prefix[i + 1] = prefix[i] + dailyCents[i];
+        }
+        return new DailySeries(firstDay, prefix);
+    }
+
+    // A new series with more closed days appended, the old one stays valid for readers still holding it
+    DailySeries append(long[] dailyCents) {
+        if (dailyCents.length == 0) {
+            return this;
+        }
+        long[] extended = Arrays.copyOf(prefix, prefix.length + dailyCents.length);
+        for (int i = 0; i < dailyCents.length; i++) {
+            extended[prefix.length + i] = extended[prefix.length + i - 1] + dailyCents[i];
+        }
+        return new DailySeries(firstDay, extended);
+    }
+
+    // A new series of only the days before day, null if that leaves nothing
+    DailySeries truncate(long day) {
+        if (day <= firstDay) {
+            return null;
+        }
+        if (day >= endDay()) {
+            return this;
+        }
+        return new DailySeries(firstDay, Arrays.copyOf(prefix, (int) (day - firstDay) + 1));
+    }
+
+    long endDay() {
+        return firstDay + prefix.length - 1;
+    }
+
+    // Sum of the days fromDay <= day < toDay; days outside the series count as zero
+    long sumCents(long fromDay, long toDay) {
+        long from = Math.max(fromDay, firstDay);
+        long to = Math.min(toDay, endDay());
+        if (from >= to) {
+            return 0;
+        }
+        return prefix[(int) (to - firstDay)] - prefix[(int) (from - firstDay)];
+    }
+}
@@ -0,0 +1,57 @@
+package fi.tietoevry.backend.timeseries;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+public enum Granularity {
+
+    DAY {
+        @Override
+        LocalDate periodStart(LocalDate date) {
+            return date;
+        }
+
+        @Override
+        LocalDate next(LocalDate periodStart) {
+            return periodStart.plusDays(1);
+        }
+    },
+    WEEK { // ISO weeks, starting on Monday
+        @Override
+        LocalDate periodStart(LocalDate date) {
+            return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+
+        @Override
+        LocalDate next(LocalDate periodStart) {
+            return periodStart.plusWeeks(1);
+        }
+    },
+    MONTH {
+        @Override
+        LocalDate periodStart(LocalDate date) {
+            return date.withDayOfMonth(1);
+        }
+
+        @Override
+        LocalDate next(LocalDate periodStart) {
+            return periodStart.plusMonths(1);
+        }
+    },
+    YEAR {
+        @Override
+        LocalDate periodStart(LocalDate date) {
+            return date.withDayOfYear(1);
+        }
+
+        @Override
+        LocalDate next(LocalDate periodStart) {
+            return periodStart.plusYears(1);
+        }
+    };
+
+    abstract LocalDate periodStart(LocalDate date);
+
+    abstract LocalDate next(LocalDate periodStart);
+}
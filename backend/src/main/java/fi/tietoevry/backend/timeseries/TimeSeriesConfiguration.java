@@ -0,0 +1,32 @@
+package fi.tietoevry.backend.timeseries;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import org.hibernate.integrator.spi.Integrator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import fi.tietoevry.backend.cache.InvalidationBus;
+import fi.tietoevry.backend.config.EventListenerIntegrator;
+import fi.tietoevry.backend.sharding.ScatterGather;
+
+@Configuration
+public class TimeSeriesConfiguration {
+
+    @Bean
+    public TimeSeriesService timeSeriesService(ScatterGather scatterGather,
+                                               @Value("${backend.timeseries.open-period-ttl:5s}") Duration openPeriodTtl,
+                                               ObjectProvider<InvalidationBus> invalidationBus) {
+        TimeSeriesService service = new TimeSeriesService(scatterGather, Clock.systemDefaultZone(), openPeriodTtl);
+        invalidationBus.ifAvailable(bus -> bus.subscribe(service));
+        return service;
+    }
+
+    @Bean
+    public Integrator timeSeriesListenerIntegrator(TimeSeriesService timeSeriesService, ObjectProvider<InvalidationBus> invalidationBus) {
+        return new EventListenerIntegrator(new TimeSeriesListener(timeSeriesService, invalidationBus));
+    }
+}
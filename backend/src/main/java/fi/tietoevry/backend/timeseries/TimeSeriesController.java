@@ -0,0 +1,45 @@
+package fi.tietoevry.backend.timeseries;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import fi.tietoevry.backend.timeseries.TimeSeriesService.Metric;
+
+/*
+GET /api/timeseries/revenue?from=2003-01-01&to=2005-05-31&granularity=month
+GET /api/timeseries/payments?from=2003-01-01&to=2005-05-31&granularity=day&maxPoints=100
+*/
+@RestController
+@RequestMapping("/api/timeseries")
+public class TimeSeriesController {
+
+    private final TimeSeriesService timeSeriesService;
+
+    public TimeSeriesController(TimeSeriesService timeSeriesService) {
+        this.timeSeriesService = timeSeriesService;
+    }
+
+    @GetMapping("/{metric}")
+    public List<TimeSeriesPoint> series(@PathVariable String metric,
+                                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                        @RequestParam(defaultValue = "month") String granularity,
+                                        @RequestParam(defaultValue = "1000") int maxPoints) {
+        try {
+            return timeSeriesService.series(Metric.valueOf(metric.toUpperCase(Locale.ROOT)), from, to,
+                    Granularity.valueOf(granularity.toUpperCase(Locale.ROOT)), maxPoints);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+}
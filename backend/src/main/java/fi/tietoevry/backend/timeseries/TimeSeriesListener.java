@@ -0,0 +1,150 @@
+package fi.tietoevry.backend.timeseries;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.hibernate.Hibernate;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.ObjectProvider;
+
+import fi.tietoevry.backend.cache.InvalidationBus;
+import fi.tietoevry.backend.cache.InvalidationMessage;
+import fi.tietoevry.backend.config.TransactionScopedListener;
+import fi.tietoevry.backend.model.Order;
+import fi.tietoevry.backend.model.OrderDetail;
+import fi.tietoevry.backend.model.Payment;
+import fi.tietoevry.backend.timeseries.TimeSeriesService.Metric;
+
+/*
+Publishes the closed days whose revenue or cash-in a transaction changed once it has committed, so that every
+instance's TimeSeriesService drops its history from that day on. Changes of today publish nothing.
+*/
+public class TimeSeriesListener extends TransactionScopedListener<TimeSeriesListener.PendingDays>
+        implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final transient TimeSeriesService service;
+    private final transient ObjectProvider<InvalidationBus> bus;
+
+    public TimeSeriesListener(TimeSeriesService service, ObjectProvider<InvalidationBus> bus) {
+        this.service = service;
+        this.bus = bus;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        changed(event.getSession(), event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        Object entity = event.getEntity();
+        Object[] oldState = event.getOldState();
+        if (oldState != null && entity instanceof Order) {
+            pendingFor(event.getSession()).add(Metric.REVENUE, (Date) value(event.getPersister(), oldState, "orderDate"));
+        } else if (oldState != null && entity instanceof Payment) {
+            pendingFor(event.getSession()).add(Metric.PAYMENTS, (Date) value(event.getPersister(), oldState, "paymentDate"));
+        }
+        changed(event.getSession(), entity);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        changed(event.getSession(), event.getEntity());
+    }
+
+    private void changed(EventSource session, Object entity) {
+        if (entity instanceof Order) {
+            Order order = (Order) entity;
+            PendingDays pending = pendingFor(session);
+            pending.orderDates.put(order.getOrderNumber(), order.getOrderDate());
+            pending.add(Metric.REVENUE, order.getOrderDate());
+        } else if (entity instanceof OrderDetail) {
+            OrderDetail detail = (OrderDetail) entity;
+            PendingDays pending = pendingFor(session);
+            if (pending.orderDates.containsKey(detail.getOrderNumber())) {
+                return; // the order's day is already in
+            }
+            Order order = detail.getOrder();
+            if (order != null && Hibernate.isInitialized(order)) {
+                pending.orderDates.put(detail.getOrderNumber(), order.getOrderDate());
+                pending.add(Metric.REVENUE, order.getOrderDate());
+            } else {
+                pending.unresolvedOrders.add(detail.getOrderNumber());
+            }
+        } else if (entity instanceof Payment) {
+            pendingFor(session).add(Metric.PAYMENTS, ((Payment) entity).getPaymentDate());
+        }
+    }
+
+    @Override
+    protected PendingDays newPending() {
+        return new PendingDays();
+    }
+
+    private static Object value(EntityPersister persister, Object[] state, String property) {
+        String[] names = persister.getPropertyNames();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(property)) {
+                return state[i];
+            }
+        }
+        throw new IllegalArgumentException(persister.getEntityName() + " has no property " + property);
+    }
+
+    // java.sql.Date when loaded, java.util.Date when set by OrderService
+    private static LocalDate day(Date date) {
+        if (date instanceof java.sql.Date) {
+            return ((java.sql.Date) date).toLocalDate();
+        }
+        return Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    class PendingDays implements AfterTransactionCompletionProcess {
+
+        private final Map<Long, Date> orderDates = new HashMap<>();
+        private final Set<Long> unresolvedOrders = new HashSet<>();
+        private final Set<InvalidationMessage> messages = new LinkedHashSet<>();
+
+        void add(Metric metric, Date date) {
+            if (date != null && service.isClosed(day(date))) {
+                messages.add(TimeSeriesService.changedDay(metric, day(date)));
+            }
+        }
+
+        @Override
+        public void doAfterTransactionCompletion(boolean success, SharedSessionContractImplementor session) {
+            if (!success) {
+                return;
+            }
+            unresolvedOrders.removeAll(orderDates.keySet());
+            if (!unresolvedOrders.isEmpty()) {
+                service.orderDates(unresolvedOrders).forEach(date -> add(Metric.REVENUE, date));
+            }
+            if (messages.isEmpty()) {
+                return;
+            }
+            InvalidationBus invalidationBus = bus.getIfAvailable();
+            if (invalidationBus != null) {
+                messages.forEach(invalidationBus::publish); // local subscribers, this instance's service included, right away
+            } else {
+                service.onInvalidation(messages);
+            }
+        }
+    }
+}
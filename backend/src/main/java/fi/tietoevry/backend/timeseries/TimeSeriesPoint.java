@@ -0,0 +1,31 @@
+package fi.tietoevry.backend.timeseries;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public final class TimeSeriesPoint {
+
+    private final LocalDate periodStart;
+    private final BigDecimal amount;
+
+    public TimeSeriesPoint(LocalDate periodStart, BigDecimal amount) {
+        this.periodStart = periodStart;
+        this.amount = amount;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    @Override
+    public String toString() {
+        return "TimeSeriesPoint{" +
+                "periodStart=" + periodStart +
+                ", amount=" + amount +
+                '}';
+    }
+}
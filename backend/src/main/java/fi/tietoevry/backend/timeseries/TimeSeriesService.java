@@ -0,0 +1,229 @@
+package fi.tietoevry.backend.timeseries;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fi.tietoevry.backend.cache.InvalidationListener;
+import fi.tietoevry.backend.cache.InvalidationMessage;
+import fi.tietoevry.backend.sharding.ScatterGather;
+
+/*
+Revenue (by order date) and cash-in (by payment date) over time. Closed days are loaded once and kept in a DailySeries,
+only today is read again, at most once per openPeriodTtl. Changed closed days arrive as invalidations from
+TimeSeriesListener and cut the history back to the day before. Sharded, the shards' sums are added up.
+*/
+public class TimeSeriesService implements InvalidationListener {
+
+    private static final Logger log = LoggerFactory.getLogger(TimeSeriesService.class);
+
+    // A range is at most this many days long, whatever the granularity; a century of days is still only 36 600 points
+    static final long MAX_RANGE_DAYS = 36_600;
+
+    public enum Metric {
+        REVENUE("SELECT o.orderDate, SUM(od.quantityOrdered * od.priceEach) FROM orders o"
+                + " JOIN orderdetails od ON od.orderNumber = o.orderNumber"
+                + " WHERE o.orderDate >= ? AND o.orderDate < ? AND o.status <> 'Cancelled' GROUP BY o.orderDate",
+                "SELECT MIN(orderDate) FROM orders", "RevenueDay"),
+        PAYMENTS("SELECT paymentDate, SUM(amount) FROM payments WHERE paymentDate >= ? AND paymentDate < ? GROUP BY paymentDate",
+                "SELECT MIN(paymentDate) FROM payments", "PaymentsDay");
+
+        private final String dailySumsSql;
+        private final String firstDateSql;
+        private final String changedDayType; // invalidation entity type, the id is the ISO date
+
+        Metric(String dailySumsSql, String firstDateSql, String changedDayType) {
+            this.dailySumsSql = dailySumsSql;
+            this.firstDateSql = firstDateSql;
+            this.changedDayType = changedDayType;
+        }
+    }
+
+    private final ScatterGather scatterGather;
+    private final Clock clock;
+    private final Duration openPeriodTtl;
+
+    private final ConcurrentMap<Metric, DailySeries> closed = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Metric, OpenDay> open = new ConcurrentHashMap<>();
+
+    public TimeSeriesService(ScatterGather scatterGather, Clock clock, Duration openPeriodTtl) {
+        this.scatterGather = scatterGather;
+        this.clock = clock;
+        this.openPeriodTtl = openPeriodTtl;
+    }
+
+    // Amounts per period, from and to inclusive; neighbouring periods are summed up to at most maxPoints (0 = no limit)
+    public List<TimeSeriesPoint> series(Metric metric, LocalDate from, LocalDate to, Granularity granularity, int maxPoints) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from " + from + " is after to " + to);
+        }
+        if (to.toEpochDay() - from.toEpochDay() >= MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("from " + from + " to " + to + " is more than " + MAX_RANGE_DAYS + " days");
+        }
+        LocalDate today = LocalDate.now(clock);
+        DailySeries history = closedSeries(metric, today);
+        long todayCents = to.isBefore(today) || from.isAfter(today) ? 0 : openDayCents(metric, today);
+
+        List<LocalDate> starts = new ArrayList<>();
+        List<Long> cents = new ArrayList<>();
+        long toDay = to.toEpochDay() + 1;
+        for (LocalDate period = granularity.periodStart(from); !period.isAfter(to); period = granularity.next(period)) {
+            long periodFrom = Math.max(period.toEpochDay(), from.toEpochDay());
+            long periodTo = Math.min(granularity.next(period).toEpochDay(), toDay);
+            long sum = history.sumCents(periodFrom, periodTo);
+            if (today.toEpochDay() >= periodFrom && today.toEpochDay() < periodTo) {
+                sum += todayCents;
+            }
+            starts.add(LocalDate.ofEpochDay(periodFrom));
+            cents.add(sum);
+        }
+        return downsample(starts, cents, maxPoints);
+    }
+
+    // Forget everything, e.g. after historical data was corrected directly in the database
+    public synchronized void refresh() {
+        closed.clear();
+        open.clear();
+    }
+
+    // Changed days published by TimeSeriesListener, on this instance or another one
+    @Override
+    public void onInvalidation(Collection<InvalidationMessage> messages) {
+        Map<Metric, Long> earliest = new EnumMap<>(Metric.class);
+        for (InvalidationMessage message : messages) {
+            for (Metric metric : Metric.values()) {
+                if (metric.changedDayType.equals(message.getEntityType())) {
+                    try {
+                        earliest.merge(metric, LocalDate.parse(message.getEntityId()).toEpochDay(), Math::min);
+                    } catch (DateTimeParseException e) {
+                        log.warn("Ignoring invalidation of {} {}", message.getEntityType(), message.getEntityId());
+                    }
+                }
+            }
+        }
+        earliest.forEach(this::invalidateFrom);
+    }
+
+    static InvalidationMessage changedDay(Metric metric, LocalDate day) {
+        return new InvalidationMessage(metric.changedDayType, day.toString(), System.currentTimeMillis());
+    }
+
+    // Days before today are cached as closed, today is the open period
+    boolean isClosed(LocalDate day) {
+        return day.isBefore(LocalDate.now(clock));
+    }
+
+    // Order dates of the given orders, for lines changed without their order loaded
+    List<Date> orderDates(Collection<Long> orderNumbers) {
+        String inList = orderNumbers.stream().map(String::valueOf).collect(Collectors.joining(","));
+        return scatterGather.query("SELECT DISTINCT orderDate FROM orders WHERE orderNumber IN (" + inList + ")",
+                (rs, rowNum) -> rs.getDate(1));
+    }
+
+    // Forgets the closed days from fromDay (epoch day) on, the next request reloads them
+    private synchronized void invalidateFrom(Metric metric, long fromDay) {
+        DailySeries series = closed.get(metric);
+        if (series == null || fromDay >= series.endDay()) {
+            return;
+        }
+        DailySeries kept = series.truncate(fromDay);
+        if (kept != null) {
+            closed.put(metric, kept);
+        } else {
+            closed.remove(metric); // changed before the first day we had, e.g. a backdated order, load all again
+        }
+    }
+
+    private static List<TimeSeriesPoint> downsample(List<LocalDate> starts, List<Long> cents, int maxPoints) {
+        int perPoint = maxPoints <= 0 ? 1 : (starts.size() + maxPoints - 1) / maxPoints;
+        List<TimeSeriesPoint> points = new ArrayList<>(starts.size() / Math.max(1, perPoint) + 1);
+        for (int i = 0; i < starts.size(); i += perPoint) {
+            long sum = 0;
+            for (int j = i; j < Math.min(starts.size(), i + perPoint); j++) {
+                sum += cents.get(j);
+            }
+            points.add(new TimeSeriesPoint(starts.get(i), BigDecimal.valueOf(sum, 2)));
+        }
+        return points;
+    }
+
+    // History up to (not including) today, loading only the days that are missing
+    private DailySeries closedSeries(Metric metric, LocalDate today) {
+        DailySeries series = closed.get(metric);
+        if (series != null && series.endDay() >= today.toEpochDay()) {
+            return series;
+        }
+        synchronized (this) {
+            series = closed.get(metric);
+            if (series == null) {
+                Date first = scatterGather.aggregate(metric.firstDateSql, rs -> rs.next() ? rs.getDate(1) : null,
+                        (a, b) -> a == null || (b != null && b.before(a)) ? b : a);
+                long firstDay = first == null ? today.toEpochDay() : Math.min(first.toLocalDate().toEpochDay(), today.toEpochDay());
+                series = DailySeries.of(firstDay, dailyCents(metric, firstDay, today.toEpochDay()));
+            } else if (series.endDay() < today.toEpochDay()) {
+                series = series.append(dailyCents(metric, series.endDay(), today.toEpochDay()));
+            }
+            closed.put(metric, series);
+            return series;
+        }
+    }
+
+    private long openDayCents(Metric metric, LocalDate today) {
+        long now = clock.millis();
+        OpenDay cached = open.get(metric);
+        if (cached != null && cached.day == today.toEpochDay() && now - cached.loadedAt < openPeriodTtl.toMillis()) {
+            return cached.cents;
+        }
+        long cents = dailyCents(metric, today.toEpochDay(), today.toEpochDay() + 1)[0];
+        open.put(metric, new OpenDay(today.toEpochDay(), cents, now));
+        return cents;
+    }
+
+    private long[] dailyCents(Metric metric, long fromDay, long toDay) {
+        int days = (int) (toDay - fromDay);
+        if (days == 0) {
+            return new long[0];
+        }
+        return scatterGather.aggregate(metric.dailySumsSql, rs -> {
+            long[] cents = new long[days];
+            while (rs.next()) {
+                long day = rs.getDate(1).toLocalDate().toEpochDay();
+                BigDecimal amount = rs.getBigDecimal(2);
+                cents[(int) (day - fromDay)] = amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+            }
+            return cents;
+        }, (a, b) -> {
+            for (int i = 0; i < a.length; i++) {
+                a[i] += b[i];
+            }
+            return a;
+        }, Date.valueOf(LocalDate.ofEpochDay(fromDay)), Date.valueOf(LocalDate.ofEpochDay(toDay)));
+    }
+
+    private static final class OpenDay {
+        final long day;
+        final long cents;
+        final long loadedAt;
+
+        OpenDay(long day, long cents, long loadedAt) {
+            this.day = day;
+            this.cents = cents;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+/*
+Change log polled by every backend instance, see fi.tietoevry.backend.cache.JdbcInvalidationBus.
+IF NOT EXISTS: databases created before Flyway was introduced got this table from a docker init script.
+*/
+CREATE TABLE IF NOT EXISTS `cache_invalidation` (
+  `seq` bigint(20) NOT NULL AUTO_INCREMENT,
+  `entity_type` varchar(50) NOT NULL,
+  `entity_id` varchar(64) NOT NULL,
+  `node_id` varchar(64) NOT NULL,
+  `published_at` bigint(20) NOT NULL,
+  PRIMARY KEY (`seq`),
+  KEY `published_at` (`published_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
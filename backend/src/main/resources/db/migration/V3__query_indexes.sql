@@ -0,0 +1,24 @@
+/*
+Indexes for the repository queries (fi.tietoevry.backend.repository) and the JDBC reports.
+InnoDB secondary indexes also contain the primary key columns, so an index "covers" a query when it holds
+every other column the query reads - then MySQL never has to look at the table rows.
+QueryPlanAdvisorTests fails the build when a repository query scans a large table again.
+*/
+
+-- OrderRepository.findByStatus...: filter on status, sorted / ranged by orderDate
+CREATE INDEX `orders_status_orderDate` ON `orders` (`status`, `orderDate`);
+
+-- OrderRepository.findByOrderDateBetween and the revenue time series (orderDate range, status <> 'Cancelled'), covering
+CREATE INDEX `orders_orderDate_status` ON `orders` (`orderDate`, `status`);
+
+-- Payment reconciliation reads the orders of a customer range together with their status, covering
+CREATE INDEX `orders_customerNumber_status` ON `orders` (`customerNumber`, `status`);
+
+-- PaymentRepository.findByPaymentDateBetween and the cash-in time series, covering (customerNumber, checkNumber are the primary key)
+CREATE INDEX `payments_paymentDate_amount` ON `payments` (`paymentDate`, `amount`);
+
+-- CustomerRepository.findByCountry / findByCountryAndCity
+CREATE INDEX `customers_country_city` ON `customers` (`country`, `city`);
+
+-- ProductRepository.findByProductVendor
+CREATE INDEX `products_productVendor` ON `products` (`productVendor`);
@@ -0,0 +1,16 @@
+/*
+Append-only change history written by fi.tietoevry.backend.audit.AuditTrail.
+No foreign keys on purpose: audit rows must outlive the rows they describe and must never block a write.
+*/
+CREATE TABLE `audit_log` (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT,
+  `entity_type` varchar(50) NOT NULL,
+  `entity_id` varchar(64) NOT NULL,
+  `operation` varchar(10) NOT NULL,
+  `field` varchar(50) NOT NULL,
+  `old_value` varchar(255) DEFAULT NULL,
+  `new_value` varchar(255) DEFAULT NULL,
+  `changed_at` datetime(3) NOT NULL,
+  PRIMARY KEY (`id`),
+  KEY `audit_log_entity` (`entity_type`, `entity_id`, `changed_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
@@ -0,0 +1,10 @@
+/*
+Table backed sequence for Order.orderNumber (see @GenericGenerator on Order: ShardAwareSequenceGenerator reads it while
+no shard is bound, sharded order numbers come from ShardIdAllocator, which reserves its blocks in the global orders_seq).
+Hibernate's pooled optimizer hands out the 50 values up to next_val (next_val - 49 ... next_val), so the first new order gets MAX + 1.
+*/
+CREATE TABLE `orders_seq` (
+  `next_val` bigint(20) NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+INSERT INTO `orders_seq` (`next_val`) SELECT COALESCE(MAX(`orderNumber`), 0) + 50 FROM `orders`;
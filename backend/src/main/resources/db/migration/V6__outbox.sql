@@ -0,0 +1,16 @@
+/*
+Transactional outbox: order, order line and payment events are inserted in the same transaction as the change
+and moved to the sink by fi.tietoevry.backend.outbox.OutboxRelay.
+published_at stays NULL until the relay has published the row (only kept with backend.outbox.cleanup=mark).
+*/
+CREATE TABLE `outbox` (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT,
+  `aggregate_type` varchar(50) NOT NULL,
+  `aggregate_id` varchar(64) NOT NULL,
+  `event_type` varchar(50) NOT NULL,
+  `payload` text NOT NULL,
+  `created_at` datetime(3) NOT NULL,
+  `published_at` datetime(3) DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  KEY `outbox_unpublished` (`published_at`, `id`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
@@ -0,0 +1,29 @@
+/*
+Per customer totals kept up to date by fi.tietoevry.backend.customerstats.CustomerStatsListener in the same transaction
+as the order / payment change, so customer lists can sort and filter on them with an index.
+Cancelled orders don't count. outstanding_balance is derived by MySQL itself.
+*/
+CREATE TABLE `customer_stats` (
+  `customerNumber` int(11) NOT NULL,
+  `lifetime_revenue` decimal(12,2) NOT NULL DEFAULT 0,
+  `total_paid` decimal(12,2) NOT NULL DEFAULT 0,
+  `outstanding_balance` decimal(12,2) AS (`lifetime_revenue` - `total_paid`) STORED,
+  `order_count` int(11) NOT NULL DEFAULT 0,
+  `last_order_date` date DEFAULT NULL,
+  `updated_at` datetime(3) NOT NULL,
+  PRIMARY KEY (`customerNumber`),
+  KEY `customer_stats_outstanding_balance` (`outstanding_balance`),
+  KEY `customer_stats_lifetime_revenue` (`lifetime_revenue`),
+  KEY `customer_stats_last_order_date` (`last_order_date`),
+  CONSTRAINT `customer_stats_customer` FOREIGN KEY (`customerNumber`) REFERENCES `customers` (`customerNumber`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+INSERT INTO `customer_stats` (`customerNumber`, `lifetime_revenue`, `total_paid`, `order_count`, `last_order_date`, `updated_at`)
+SELECT c.customerNumber,
+       COALESCE((SELECT SUM(d.quantityOrdered * d.priceEach) FROM orders o JOIN orderdetails d ON d.orderNumber = o.orderNumber
+                 WHERE o.customerNumber = c.customerNumber AND o.status <> 'Cancelled'), 0),
+       COALESCE((SELECT SUM(p.amount) FROM payments p WHERE p.customerNumber = c.customerNumber), 0),
+       (SELECT COUNT(*) FROM orders o WHERE o.customerNumber = c.customerNumber AND o.status <> 'Cancelled'),
+       (SELECT MAX(o.orderDate) FROM orders o WHERE o.customerNumber = c.customerNumber AND o.status <> 'Cancelled'),
+       NOW(3)
+FROM customers c;
@@ -0,0 +1,29 @@
+/*
+Version counters of the catalog tables, bumped by triggers on every row written (through JPA or plain SQL),
+in the same transaction as the write. The catalog endpoints derive their ETags from them (fi.tietoevry.backend.catalog).
+The counters start at the current time in millis, so a re-created database never repeats an old ETag.
+Catalog writes serialize on the counter row; products and product lines change a few times a day.
+*/
+CREATE TABLE `table_versions` (
+  `table_name` varchar(64) NOT NULL,
+  `version` bigint(20) NOT NULL,
+  PRIMARY KEY (`table_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+INSERT INTO `table_versions` (`table_name`, `version`) VALUES
+  ('products', FLOOR(UNIX_TIMESTAMP(NOW(3)) * 1000)),
+  ('productlines', FLOOR(UNIX_TIMESTAMP(NOW(3)) * 1000));
+
+CREATE TRIGGER `products_version_insert` AFTER INSERT ON `products` FOR EACH ROW
+  UPDATE `table_versions` SET `version` = `version` + 1 WHERE `table_name` = 'products';
+CREATE TRIGGER `products_version_update` AFTER UPDATE ON `products` FOR EACH ROW
+  UPDATE `table_versions` SET `version` = `version` + 1 WHERE `table_name` = 'products';
+CREATE TRIGGER `products_version_delete` AFTER DELETE ON `products` FOR EACH ROW
+  UPDATE `table_versions` SET `version` = `version` + 1 WHERE `table_name` = 'products';
+
+CREATE TRIGGER `productlines_version_insert` AFTER INSERT ON `productlines` FOR EACH ROW
+  UPDATE `table_versions` SET `version` = `version` + 1 WHERE `table_name` = 'productlines';
+CREATE TRIGGER `productlines_version_update` AFTER UPDATE ON `productlines` FOR EACH ROW
+  UPDATE `table_versions` SET `version` = `version` + 1 WHERE `table_name` = 'productlines';
+CREATE TRIGGER `productlines_version_delete` AFTER DELETE ON `productlines` FOR EACH ROW
+  UPDATE `table_versions` SET `version` = `version` + 1 WHERE `table_name` = 'productlines';
@@ -2,8 +2,17 @@ package fi.tietoevry.backend;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
 
-@SpringBootTest
+import fi.tietoevry.backend.support.SampleDatabase;
+
+// On the H2 sample database; H2 has no FOR UPDATE SKIP LOCKED for the outbox relay and no streaming fetch size
+@SpringBootTest(properties = {
+		"spring.flyway.enabled=false",
+		"spring.jpa.show-sql=false",
+		"backend.outbox.relay=false",
+		"backend.recommendations.fetch-size=500"})
+@Import(SampleDatabase.Configuration.class)
 class BackendApplicationTests {
 
 	@Test
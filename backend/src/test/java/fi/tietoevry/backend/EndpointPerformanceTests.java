@@ -0,0 +1,260 @@
+package fi.tietoevry.backend;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import fi.tietoevry.backend.support.RecordedStatement;
+import fi.tietoevry.backend.support.RecordingDataSource;
+import fi.tietoevry.backend.support.SampleDatabase;
+
+/*
+Performance regression suite: the whole application on the sample database in H2 (no docker needed).
+Every endpoint is called a few times to warm up and then measured against endpoint-baselines.properties:
+the most statements a request sent (an N+1 shows up as a higher count) and whether any SELECT read a whole table
+of more than -Dendpoints.maxScannedRows rows (default 100) according to H2's EXPLAIN.
+The median latency budgets are checked with mvn test -Pbenchmark -Dtest=EndpointPerformanceTests.
+Audit rows are written synchronously and the outbox relay is off, so every statement belongs to the request that caused it.
+*/
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.show-sql=false",
+        "backend.cache.invalidation.transport=local",
+        "backend.audit.mode=sync",
+        "backend.outbox.relay=false",
+        "backend.recommendations.fetch-size=500",
+        "backend.catalog.version-ttl=1h",
+        "backend.pricing.refresh-interval=1h",
+        "backend.leaderboard.rebuild-interval=1h"})
+@Import({SampleDatabase.Configuration.class, RecordingDataSource.Configuration.class})
+class EndpointPerformanceTests {
+
+    private static final int WARM_UP = 5;
+    private static final int MEASURED = 21;
+    private static final long MAX_SCANNED_ROWS = Long.getLong("endpoints.maxScannedRows", 100);
+    private static final Pattern TABLE_SCAN = Pattern.compile("(\\w+)\\.(\\w+)\\.tableScan");
+    private static final Path MEASURED_BASELINES = Paths.get("target", "endpoint-baselines.properties");
+
+    private static final Properties baselines = new Properties();
+    private static final Map<String, Object> measured = new LinkedHashMap<>();
+    private static final AtomicInteger checkNumbers = new AtomicInteger();
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private RecordingDataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Map<String, Long> rowCounts = new HashMap<>();
+
+    static Stream<Endpoint> endpoints() {
+        return Stream.of(
+                Endpoint.get("products", "/api/products"),
+                Endpoint.get("product-lines", "/api/productlines"),
+                Endpoint.get("product", "/api/products/S18_3232"),
+                Endpoint.get("product-line", "/api/productlines/Classic Cars"),
+                Endpoint.get("customer-search", "/api/customers/search?country=USA&state=CA"),
+                Endpoint.get("customer-stats", "/api/customers/stats?sort=outstandingBalance&limit=20"),
+                Endpoint.get("revenue-timeseries", "/api/timeseries/revenue?from=2003-01-01&to=2005-05-31&granularity=month"),
+                Endpoint.get("recommendations", "/api/products/S18_3232/recommendations"),
+                Endpoint.get("price", "/api/prices/S18_3232"),
+                Endpoint.post("price-quote", "/api/prices/quote", EndpointPerformanceTests::quoteRequest),
+                Endpoint.get("leaderboard", "/api/leaderboard/reps?window=30d&limit=10"),
+                Endpoint.get("office-leaderboard", "/api/leaderboard/offices?window=90d"),
+                Endpoint.post("order-details-lookup", "/api/lookup/order-details",
+                        () -> LongStream.range(10100, 10110).boxed().collect(Collectors.toList())),
+                Endpoint.post("place-order", "/api/orders", EndpointPerformanceTests::newOrder),
+                Endpoint.post("record-payment", "/api/payments", EndpointPerformanceTests::newPayment));
+    }
+
+    @BeforeAll
+    static void loadBaselines() throws IOException {
+        try (InputStream in = EndpointPerformanceTests.class.getResourceAsStream("/endpoint-baselines.properties")) {
+            baselines.load(in);
+        }
+    }
+
+    @AfterAll
+    static void writeMeasuredBaselines() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("# measured by EndpointPerformanceTests, latency budgets (-Pbenchmark) at 3x the measured median");
+        measured.forEach((key, value) -> lines.add(key + "=" + value));
+        Files.createDirectories(MEASURED_BASELINES.getParent());
+        Files.write(MEASURED_BASELINES, lines, StandardCharsets.ISO_8859_1);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("endpoints")
+    void staysWithinStatementBaseline(Endpoint endpoint) {
+        int maxStatements = Integer.parseInt(baseline(endpoint, "statements"));
+        warmUp(endpoint);
+        List<RecordedStatement> mostStatements = Collections.emptyList();
+        for (int i = 0; i < MEASURED; i++) {
+            List<RecordedStatement> statements = dataSource.record(() -> call(endpoint));
+            if (statements.size() > mostStatements.size()) {
+                mostStatements = statements;
+            }
+        }
+        measured.put(endpoint.name + ".statements", mostStatements.size());
+        System.out.printf("%-22s %3d statements (baseline %3d)%n", endpoint.name, mostStatements.size(), maxStatements);
+
+        assertThat(mostStatements).as("statements of %s", endpoint.name).hasSizeLessThanOrEqualTo(maxStatements);
+        assertThat(fullScans(mostStatements)).as("full scans of %s", endpoint.name).isEmpty();
+    }
+
+    // Wall-clock time depends on the machine and whatever else runs on it, so only mvn test -Pbenchmark checks it
+    @Tag("benchmark")
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("endpoints")
+    void staysWithinLatencyBudget(Endpoint endpoint) {
+        long latencyBudget = Long.parseLong(baseline(endpoint, "p50-ms"));
+        warmUp(endpoint);
+        long[] nanos = new long[MEASURED];
+        for (int i = 0; i < MEASURED; i++) {
+            long start = System.nanoTime();
+            call(endpoint);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        double medianMillis = nanos[MEASURED / 2] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        measured.put(endpoint.name + ".p50-ms", Math.max(5, (long) Math.ceil(3 * medianMillis)));
+        System.out.printf("%-22s p50 %7.2f ms (budget %4d ms)%n", endpoint.name, medianMillis, latencyBudget);
+
+        assertThat(medianMillis).as("median latency of %s in ms", endpoint.name).isLessThanOrEqualTo(latencyBudget);
+    }
+
+    private void warmUp(Endpoint endpoint) {
+        for (int i = 0; i < WARM_UP; i++) {
+            call(endpoint);
+        }
+    }
+
+    private void call(Endpoint endpoint) {
+        Object body = endpoint.body != null ? endpoint.body.get() : null;
+        ResponseEntity<String> response = rest.exchange(endpoint.path, endpoint.method, new HttpEntity<>(body), String.class);
+        assertThat(response.getStatusCode().is2xxSuccessful()).as("%s %s: %s", endpoint.method, endpoint.path, response.getBody()).isTrue();
+    }
+
+    // SELECTs that H2 answers by reading every row of a table larger than MAX_SCANNED_ROWS
+    private List<String> fullScans(List<RecordedStatement> statements) {
+        List<String> fullScans = new ArrayList<>();
+        for (RecordedStatement statement : statements) {
+            if (!statement.isSelect()) {
+                continue;
+            }
+            String plan = jdbcTemplate.queryForObject("EXPLAIN " + statement.getSql(), String.class, statement.getParameters());
+            Matcher scan = TABLE_SCAN.matcher(plan);
+            while (scan.find()) {
+                String table = scan.group(1) + "." + scan.group(2);
+                long rows = rowCounts.computeIfAbsent(table, name -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + name, Long.class));
+                if (rows > MAX_SCANNED_ROWS) {
+                    fullScans.add(table + " (" + rows + " rows): " + statement.getSql());
+                }
+            }
+        }
+        return fullScans;
+    }
+
+    private static String baseline(Endpoint endpoint, String key) {
+        String value = baselines.getProperty(endpoint.name + "." + key);
+        assertThat(value).as("%s.%s in endpoint-baselines.properties", endpoint.name, key).isNotNull();
+        return value;
+    }
+
+    private static Map<String, Object> newOrder() {
+        Map<String, Object> order = new HashMap<>();
+        order.put("customerNumber", 141);
+        order.put("comments", "endpoint performance test");
+        order.put("lines", lines()); // no priceEach: the product's MSRP
+        return order;
+    }
+
+    private static Map<String, Object> quoteRequest() {
+        return Collections.singletonMap("lines", lines());
+    }
+
+    private static List<Map<String, Object>> lines() {
+        List<Map<String, Object>> lines = new ArrayList<>();
+        for (String productCode : Arrays.asList("S10_1678", "S18_3232", "S24_2000")) {
+            Map<String, Object> line = new HashMap<>();
+            line.put("productCode", productCode);
+            line.put("quantityOrdered", 2);
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    private static Map<String, Object> newPayment() {
+        Map<String, Object> payment = new HashMap<>();
+        payment.put("customerNumber", 141);
+        payment.put("checkNumber", "PERF" + checkNumbers.incrementAndGet());
+        payment.put("amount", "100.00");
+        return payment;
+    }
+
+    static final class Endpoint {
+        private final String name;
+        private final HttpMethod method;
+        private final String path;
+        private final Supplier<Object> body;
+
+        private Endpoint(String name, HttpMethod method, String path, Supplier<Object> body) {
+            this.name = name;
+            this.method = method;
+            this.path = path;
+            this.body = body;
+        }
+
+        static Endpoint get(String name, String path) {
+            return new Endpoint(name, HttpMethod.GET, path, null);
+        }
+
+        static Endpoint post(String name, String path, Supplier<Object> body) {
+            return new Endpoint(name, HttpMethod.POST, path, body);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package fi.tietoevry.backend.admission;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+class AdmissionControlTests {
+
+    @Test
+    void classifiesRequestsByMethodAndPath() {
+        AdmissionControl control = new AdmissionControl(new AdmissionProperties());
+
+        assertThat(control.classify("POST", "/api/orders")).isEqualTo(Priority.ORDER_ENTRY);
+        assertThat(control.classify("PUT", "/api/orders/10100/lines/S18_1749")).isEqualTo(Priority.ORDER_ENTRY);
+        assertThat(control.classify("POST", "/api/payments")).isEqualTo(Priority.ORDER_ENTRY);
+        assertThat(control.classify("POST", "/api/lookup/order-details")).isEqualTo(Priority.REPORTING);
+        assertThat(control.classify("GET", "/api/timeseries/revenue")).isEqualTo(Priority.REPORTING);
+        assertThat(control.classify("GET", "/api/orders")).isEqualTo(Priority.INTERACTIVE);
+        assertThat(control.classify("GET", "/api/admission")).isEqualTo(Priority.INTERACTIVE);
+        assertThat(control.classify("GET", "/api/products")).isEqualTo(Priority.PASS_THROUGH);
+        assertThat(control.classify("GET", "/api/products/S10_1678")).isEqualTo(Priority.INTERACTIVE); // read by id
+        assertThat(control.classify("GET", "/api/products/S10_1678/recommendations")).isEqualTo(Priority.PASS_THROUGH);
+        assertThat(control.classify("POST", "/api/prices/quote")).isEqualTo(Priority.PASS_THROUGH);
+        assertThat(control.classify("GET", "/api/leaderboard/reps")).isEqualTo(Priority.PASS_THROUGH);
+        assertThat(control.bulkhead(Priority.PASS_THROUGH)).isNull();
+    }
+
+    @Test
+    void defaultPermitsFitTheDefaultConnectionPool() {
+        AdmissionProperties properties = new AdmissionProperties();
+        assertThat(properties.permits(Priority.INTERACTIVE)).isEqualTo(2);
+        assertThat(properties.connectionBudget()).isEqualTo(10); // Hikari's default maximum-pool-size
+
+        properties.getReporting().setPermits(3);
+        assertThat(properties.permits(Priority.INTERACTIVE)).isEqualTo(1); // nothing left, but never shut out
+        assertThat(properties.connectionBudget()).isEqualTo(17);
+    }
+
+    @Test
+    void interactiveGetsWhatTheOtherClassesLeaveOfThePool() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.usePoolSize(30);
+        assertThat(properties.permits(Priority.INTERACTIVE)).isEqualTo(22);
+        assertThat(new AdmissionControl(properties).bulkhead(Priority.INTERACTIVE).getPermits()).isEqualTo(22);
+
+        properties.getInteractive().setPermits(5); // set explicitly
+        assertThat(properties.permits(Priority.INTERACTIVE)).isEqualTo(5);
+    }
+
+    @Test
+    void shedsRequestsWhenTheQueueIsFull() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(Priority.REPORTING, 1, 1, Duration.ofSeconds(10));
+        assertThat(bulkhead.acquire()).isTrue();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> queued = executor.submit(bulkhead::acquire);
+            waitFor(() -> bulkhead.getQueueDepth() == 1);
+
+            assertThat(bulkhead.acquire()).isFalse(); // the one queue slot is taken
+            assertThat(bulkhead.getStats().getRejected()).isEqualTo(1);
+
+            bulkhead.release();
+            assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(bulkhead.getInFlight()).isEqualTo(1);
+            assertThat(bulkhead.getStats().getQueued()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void givesUpAfterTheDeadline() throws InterruptedException {
+        Bulkhead bulkhead = new Bulkhead(Priority.REPORTING, 1, 10, Duration.ofMillis(50));
+        assertThat(bulkhead.acquire()).isTrue();
+
+        long start = System.nanoTime();
+        assertThat(bulkhead.acquire()).isFalse();
+
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+        assertThat(bulkhead.getStats().getTimedOut()).isEqualTo(1);
+        assertThat(bulkhead.getStats().getMaxWaitMillis()).isGreaterThanOrEqualTo(50);
+        assertThat(bulkhead.getQueueDepth()).isZero();
+    }
+
+    @Test
+    void saturatedReportingDoesNotHoldUpOrderEntry() throws Exception {
+        AdmissionControl control = new AdmissionControl(new AdmissionProperties());
+        Bulkhead reporting = control.bulkhead(Priority.REPORTING);
+        CountDownLatch exportsRunning = new CountDownLatch(1);
+        CountDownLatch finishExports = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int i = 0; i < 4; i++) {
+                executor.submit(() -> {
+                    if (reporting.acquire()) {
+                        exportsRunning.countDown();
+                        finishExports.await();
+                        reporting.release();
+                    }
+                    return null;
+                });
+            }
+            assertThat(exportsRunning.await(5, TimeUnit.SECONDS)).isTrue();
+            waitFor(() -> reporting.getQueueDepth() == 3);
+
+            Bulkhead orderEntry = control.bulkhead(Priority.ORDER_ENTRY);
+            for (int i = 0; i < 100; i++) {
+                assertThat(orderEntry.acquire()).isTrue();
+                orderEntry.release();
+            }
+            assertThat(orderEntry.getStats().getQueued()).isZero();
+        } finally {
+            finishExports.countDown();
+            executor.shutdown();
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Timed out waiting");
+            }
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package fi.tietoevry.backend.admission;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/*
+Order entry latency while bulk exports hammer the database, with and without admission control.
+Needs the database from docker-compose.yml, run with: mvn test -Pbenchmark -Dtest=AdmissionLoadBenchmark
+The orders created here are deleted again at the end.
+*/
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT,
+        properties = {"spring.jpa.show-sql=false", "backend.audit.enabled=false", "backend.outbox.enabled=false"})
+class AdmissionLoadBenchmark {
+
+    private static final int ORDERS = 500;
+    private static final int EXPORT_THREADS = 8;
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AdmissionProperties properties;
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    private final List<Long> createdOrders = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    void orderEntryLatencyUnderExportLoad() throws InterruptedException {
+        Long customerNumber = jdbcTemplate.queryForObject("SELECT MIN(customerNumber) FROM customers", Long.class);
+        String productCode = jdbcTemplate.queryForObject("SELECT MIN(productCode) FROM products", String.class);
+        List<Long> allOrders = new ArrayList<>();
+        for (long orderNumber = 10000; orderNumber < 20000; orderNumber++) {
+            allOrders.add(orderNumber);
+        }
+
+        properties.setEnabled(true);
+        placeOrders("warm-up", customerNumber, productCode);
+        placeOrders("no exports", customerNumber, productCode);
+
+        properties.setEnabled(false);
+        withExports(allOrders, () -> placeOrders("exports, admission off", customerNumber, productCode));
+
+        properties.setEnabled(true);
+        withExports(allOrders, () -> placeOrders("exports, admission on", customerNumber, productCode));
+        admissionControl.getBulkheads().forEach(bulkhead -> System.out.println(bulkhead.getPriority() + ": " + bulkhead.getStats()));
+    }
+
+    private void withExports(List<Long> orderNumbers, Runnable measurement) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger exports = new AtomicInteger();
+        AtomicInteger shed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(EXPORT_THREADS);
+        for (int i = 0; i < EXPORT_THREADS; i++) {
+            executor.submit(() -> {
+                while (running.get()) {
+                    ResponseEntity<String> response = rest.postForEntity("/api/lookup/order-details", orderNumbers, String.class);
+                    if (response.getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE) {
+                        shed.incrementAndGet();
+                    } else {
+                        exports.incrementAndGet();
+                    }
+                }
+            });
+        }
+        TimeUnit.SECONDS.sleep(2); // let the exports saturate the pool
+        try {
+            measurement.run();
+        } finally {
+            running.set(false);
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        System.out.printf("  exports completed %d, shed %d%n", exports.get(), shed.get());
+    }
+
+    private void placeOrders(String label, Long customerNumber, String productCode) {
+        List<Long> nanos = new ArrayList<>(ORDERS);
+        int rejected = 0;
+        for (int i = 0; i < ORDERS; i++) {
+            Map<String, Object> line = new HashMap<>();
+            line.put("productCode", productCode);
+            line.put("quantityOrdered", 1);
+            Map<String, Object> order = new HashMap<>();
+            order.put("customerNumber", customerNumber);
+            order.put("comments", "admission benchmark");
+            order.put("lines", Collections.singletonList(line));
+
+            long start = System.nanoTime();
+            @SuppressWarnings("rawtypes")
+            ResponseEntity<Map> response = rest.postForEntity("/api/orders", order, Map.class);
+            nanos.add(System.nanoTime() - start);
+            if (response.getStatusCode() == HttpStatus.CREATED) {
+                createdOrders.add(((Number) response.getBody().get("orderNumber")).longValue());
+            } else {
+                rejected++;
+            }
+        }
+        Collections.sort(nanos);
+        System.out.printf("Order entry, %-22s: p50 %7.2f ms, p99 %7.2f ms, max %7.2f ms, rejected %d%n", label,
+                millis(nanos.get(ORDERS / 2)), millis(nanos.get(ORDERS * 99 / 100)), millis(nanos.get(ORDERS - 1)), rejected);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @AfterEach
+    void deleteCreatedOrders() {
+        properties.setEnabled(true);
+        synchronized (createdOrders) {
+            for (int from = 0; from < createdOrders.size(); from += 500) {
+                String ids = createdOrders.subList(from, Math.min(from + 500, createdOrders.size())).toString().replaceAll("[\\[\\] ]", "");
+                jdbcTemplate.update("DELETE FROM orderdetails WHERE orderNumber IN (" + ids + ")");
+                jdbcTemplate.update("DELETE FROM orders WHERE orderNumber IN (" + ids + ")");
+            }
+            createdOrders.clear();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package fi.tietoevry.backend.audit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import fi.tietoevry.backend.audit.AuditEvent.Operation;
+import fi.tietoevry.backend.audit.AuditProperties.BackpressurePolicy;
+
+class AuditTrailTests {
+
+    @Test
+    void writesBufferedEventsInBatches() throws InterruptedException {
+        RecordingWriter writer = new RecordingWriter();
+        AuditTrail trail = new AuditTrail(writer, properties(BackpressurePolicy.BLOCK, 1024));
+        trail.start();
+        for (int i = 0; i < 1000; i++) {
+            trail.enqueue(Collections.singletonList(event(i)));
+        }
+        trail.stop(); // flushes the buffer
+
+        assertThat(writer.written).hasSize(1000);
+        assertThat(trail.getStats().getBatches()).isLessThan(1000);
+        assertThat(trail.getStats().getDropped()).isZero();
+    }
+
+    @Test
+    void dropPolicyNeverWaitsForAStuckWriter() throws InterruptedException {
+        RecordingWriter writer = new RecordingWriter();
+        writer.stuck = new CountDownLatch(1);
+        AuditTrail trail = new AuditTrail(writer, properties(BackpressurePolicy.DROP, 16));
+        trail.start();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            trail.enqueue(Collections.singletonList(event(i)));
+        }
+        long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        writer.stuck.countDown();
+        trail.stop();
+
+        assertThat(tookMillis).isLessThan(1000);
+        assertThat(trail.getStats().getDropped()).isPositive();
+        assertThat(writer.written.size() + trail.getStats().getDropped()).isEqualTo(1000);
+    }
+
+    @Test
+    void callerRunsPolicyWritesOverflowItself() throws InterruptedException {
+        RecordingWriter writer = new RecordingWriter();
+        AuditTrail trail = new AuditTrail(writer, properties(BackpressurePolicy.CALLER_RUNS, 16)); // not started: nothing drains
+        List<AuditEvent> events = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            events.add(event(i));
+        }
+        trail.enqueue(events);
+
+        assertThat(trail.getBuffered()).isEqualTo(16);
+        assertThat(writer.written).hasSize(4);
+        assertThat(trail.getStats().getDropped()).isZero();
+    }
+
+    private static AuditProperties properties(BackpressurePolicy backpressure, int bufferSize) {
+        AuditProperties properties = new AuditProperties();
+        properties.setBackpressure(backpressure);
+        properties.setBufferSize(bufferSize);
+        properties.setBatchSize(100);
+        properties.setIdleWait(Duration.ofMillis(1));
+        return properties;
+    }
+
+    private static AuditEvent event(int i) {
+        return new AuditEvent("Order", String.valueOf(10100 + i), Operation.UPDATE, "status", "In Process", "Shipped", System.currentTimeMillis());
+    }
+
+    private static class RecordingWriter extends AuditWriter {
+        final List<AuditEvent> written = new CopyOnWriteArrayList<>();
+        volatile CountDownLatch stuck;
+
+        RecordingWriter() {
+            super(null);
+        }
+
+        @Override
+        public void write(List<AuditEvent> events) {
+            CountDownLatch latch = stuck;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            written.addAll(events);
+        }
+    }
+}
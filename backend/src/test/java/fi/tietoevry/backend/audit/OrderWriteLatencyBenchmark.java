@@ -0,0 +1,79 @@
+package fi.tietoevry.backend.audit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import fi.tietoevry.backend.audit.AuditProperties.DurabilityMode;
+import fi.tietoevry.backend.model.Order;
+import fi.tietoevry.backend.repository.OrderRepository;
+
+/*
+Latency of a transaction changing Order.status with the audit trail off, ASYNC and SYNC.
+Needs the database from docker-compose.yml, run with: mvn test -Pbenchmark -Dtest=OrderWriteLatencyBenchmark
+Every order is switched back to its original status at the end (which is audited too).
+*/
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class OrderWriteLatencyBenchmark {
+
+    private static final int ROUNDS = 2000;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private AuditProperties auditProperties;
+
+    @Autowired
+    private AuditTrail auditTrail;
+
+    @Test
+    void orderStatusUpdateLatency() {
+        List<Long> orderNumbers = new ArrayList<>();
+        orderRepository.findAll(PageRequest.of(0, 100)).forEach(order -> orderNumbers.add(order.getOrderNumber()));
+
+        measure("warm-up", orderNumbers, false, DurabilityMode.ASYNC);
+        measure("audit off", orderNumbers, false, DurabilityMode.ASYNC);
+        measure("audit async", orderNumbers, true, DurabilityMode.ASYNC);
+        measure("audit sync", orderNumbers, true, DurabilityMode.SYNC);
+        auditProperties.setEnabled(true);
+        auditProperties.setMode(DurabilityMode.ASYNC);
+        System.out.println("Audit trail after the benchmark: " + auditTrail.getStats());
+    }
+
+    private void measure(String label, List<Long> orderNumbers, boolean auditEnabled, DurabilityMode mode) {
+        auditProperties.setEnabled(auditEnabled);
+        auditProperties.setMode(mode);
+        List<Long> nanos = new ArrayList<>(ROUNDS);
+        for (int i = 0; i < ROUNDS; i++) {
+            Long orderNumber = orderNumbers.get(i % orderNumbers.size());
+            long start = System.nanoTime();
+            transactionTemplate.executeWithoutResult(status -> {
+                Order order = orderRepository.findById(orderNumber).orElseThrow(IllegalStateException::new);
+                String current = order.getStatus();
+                // two flips per order and pass, so every order ends with the status it started with
+                order.setStatus(current.endsWith("*") ? current.substring(0, current.length() - 1) : current + "*");
+            });
+            nanos.add(System.nanoTime() - start);
+        }
+        Collections.sort(nanos);
+        System.out.printf("Order write latency, %-11s: p50 %6.2f ms, p99 %6.2f ms, max %6.2f ms%n", label,
+                millis(nanos.get(ROUNDS / 2)), millis(nanos.get(ROUNDS * 99 / 100)), millis(nanos.get(ROUNDS - 1)));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
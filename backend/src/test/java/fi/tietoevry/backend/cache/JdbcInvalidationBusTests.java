@@ -0,0 +1,144 @@
+package fi.tietoevry.backend.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import fi.tietoevry.backend.model.Customer;
+import fi.tietoevry.backend.model.Product;
+
+// Two "instances" of the backend in one JVM, sharing one embedded database
+class JdbcInvalidationBusTests {
+
+    private EmbeddedDatabase database;
+    private JdbcInvalidationBus nodeA;
+    private JdbcInvalidationBus nodeB;
+
+    @BeforeEach
+    void startNodes() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .setName("cache-invalidation-" + UUID.randomUUID() + ";MODE=MySQL") // the MySQL migration as is
+                .addScript("classpath:db/migration/V2__cache_invalidation.sql")
+                .build();
+        nodeA = node("A", Duration.ofHours(1)); // flushed by hand
+        nodeB = node("B", Duration.ofMillis(10));
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodeA.stop();
+        nodeB.stop();
+        database.shutdown();
+    }
+
+    @Test
+    void invalidationsReachTheOtherNodeCoalesced() throws InterruptedException {
+        List<InvalidationMessage> receivedByA = new CopyOnWriteArrayList<>();
+        List<InvalidationMessage> receivedByB = new CopyOnWriteArrayList<>();
+        CountDownLatch bothOnB = new CountDownLatch(2);
+        nodeA.subscribe(receivedByA::addAll);
+        nodeB.subscribe((Collection<InvalidationMessage> messages) -> {
+            receivedByB.addAll(messages);
+            messages.forEach(m -> bothOnB.countDown());
+        });
+
+        for (int i = 0; i < 100; i++) {
+            nodeA.publish(Product.class, "S10_1678"); // the same product updated over and over
+        }
+        nodeA.publish(Customer.class, 103L);
+        nodeA.flush(); // one flush, coalescing only holds within a flush
+
+        assertThat(bothOnB.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(receivedByB).extracting(InvalidationMessage::getEntityType, InvalidationMessage::getEntityId)
+                .containsExactlyInAnyOrder(
+                        tuple("Product", "S10_1678"),
+                        tuple("Customer", "103"));
+        assertThat(nodeA.getStats().getPublished()).isEqualTo(101);
+        assertThat(nodeA.getStats().getSent()).isEqualTo(2); // coalesced before hitting the table
+        assertThat(nodeB.getStats().getReceived()).isEqualTo(2);
+        assertThat(nodeB.getStats().getMaxLatencyMillis()).isLessThan(5000);
+        assertThat(receivedByA).hasSize(101); // local delivery is immediate and never comes back from the table
+    }
+
+    @Test
+    void lateCommittedRowInsideAGapIsStillDelivered() throws InterruptedException {
+        CountDownLatch first = new CountDownLatch(1);
+        CountDownLatch both = new CountDownLatch(2);
+        nodeB.subscribe(messages -> messages.forEach(m -> {
+            first.countDown();
+            both.countDown();
+        }));
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        String insert = "INSERT INTO cache_invalidation (seq, entity_type, entity_id, node_id, published_at) VALUES (?, 'Office', ?, 'C', ?)";
+
+        // simulate a slow transaction: seq 1000 becomes visible before seq 999
+        jdbcTemplate.update(insert, 1000, "1", System.currentTimeMillis());
+        assertThat(first.await(5, TimeUnit.SECONDS)).isTrue();
+        jdbcTemplate.update(insert, 999, "2", System.currentTimeMillis());
+
+        assertThat(both.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(nodeB.getStats().getReceived()).isEqualTo(2);
+    }
+
+    @Test
+    void aFailedChunkIsRetriedWithoutTheChunksAlreadyWritten() {
+        InvalidationBusProperties properties = new InvalidationBusProperties();
+        properties.setNodeId("C");
+        properties.setBatchSize(2);
+        AtomicInteger batches = new AtomicInteger();
+        JdbcInvalidationBus bus = new JdbcInvalidationBus(new JdbcTemplate(database) {
+            @Override
+            public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize, ParameterizedPreparedStatementSetter<T> pss) {
+                if (batches.incrementAndGet() == 2) {
+                    throw new TransientDataAccessResourceException("connection lost");
+                }
+                return super.batchUpdate(sql, batchArgs, batchSize, pss);
+            }
+        }, properties); // never started, flushed by hand
+        for (long customerNumber = 1; customerNumber <= 4; customerNumber++) {
+            bus.publish(Customer.class, customerNumber);
+        }
+
+        bus.flush(); // customers 1 and 2 are written, 3 and 4 fail
+        bus.flush();
+        bus.stop();
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        assertThat(jdbcTemplate.queryForList("SELECT entity_id FROM cache_invalidation WHERE node_id = 'C' ORDER BY seq", String.class))
+                .containsExactly("1", "2", "3", "4");
+        assertThat(bus.getStats().getSent()).isEqualTo(4);
+    }
+
+    private JdbcInvalidationBus node(String nodeId, Duration flushInterval) {
+        InvalidationBusProperties properties = new InvalidationBusProperties();
+        properties.setNodeId(nodeId);
+        properties.setFlushInterval(flushInterval);
+        properties.setPollInterval(Duration.ofMillis(20));
+        JdbcInvalidationBus bus = new JdbcInvalidationBus(new JdbcTemplate(database), properties);
+        bus.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!bus.isPolling() && System.currentTimeMillis() < deadline) {
+            Thread.yield();
+        }
+        return bus;
+    }
+}
@@ -0,0 +1,147 @@
+package fi.tietoevry.backend.catalog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/*
+Replays the same client workload (full catalogs and single products, with a catalog change every 500 requests)
+once with clients that ignore ETags and compression and once with clients that revalidate and accept gzip,
+and reports bytes on the wire and database calls. HttpURLConnection doesn't decompress, so the byte counts are
+what went over the network. Needs the database from docker-compose.yml, run with:
+mvn test -Pbenchmark -Dtest=CatalogBenchmark
+*/
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = {"spring.jpa.show-sql=false", "backend.admission.enabled=false"})
+class CatalogBenchmark {
+
+    private static final int CLIENTS = 20;
+    private static final int REQUESTS_PER_CLIENT = 250;
+    private static final int CHANGE_EVERY = 500;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CatalogStats stats;
+
+    private int changes;
+
+    @AfterEach
+    void undoChanges() {
+        jdbcTemplate.update("UPDATE products SET quantityInStock = quantityInStock - ? WHERE productCode = (SELECT code FROM " +
+                "(SELECT MIN(productCode) AS code FROM products) first)", changes);
+    }
+
+    @Test
+    void bytesAndDatabaseCallsForAReplayedWorkload() {
+        List<String> productCodes = jdbcTemplate.queryForList("SELECT productCode FROM products", String.class);
+        List<String> trace = trace(productCodes);
+
+        replay("plain clients", trace, false);
+        replay("conditional + gzip", trace, true);
+    }
+
+    private void replay(String label, List<String> trace, boolean conditional) {
+        List<Map<String, String>> etags = new ArrayList<>();
+        for (int client = 0; client < CLIENTS; client++) {
+            etags.add(new HashMap<>());
+        }
+        long bytes = 0;
+        int notModified = 0;
+        long databaseCalls = stats.getDatabaseCalls();
+        long start = System.nanoTime();
+        for (int i = 0; i < trace.size(); i++) {
+            if (i % CHANGE_EVERY == CHANGE_EVERY - 1) {
+                jdbcTemplate.update("UPDATE products SET quantityInStock = quantityInStock + 1 WHERE productCode = (SELECT code FROM " +
+                        "(SELECT MIN(productCode) AS code FROM products) first)");
+                changes++;
+            }
+            String path = trace.get(i);
+            Map<String, String> clientEtags = etags.get(i % CLIENTS);
+            Response response = get(path, conditional ? clientEtags.get(path) : null, conditional);
+            bytes += response.bytes;
+            if (response.status == 304) {
+                notModified++;
+            } else if (response.etag != null) {
+                clientEtags.put(path, response.etag);
+            }
+        }
+        System.out.printf("%-20s %6d requests: %9d KiB received, %5d x 304, %5d database calls, %6d ms%n", label, trace.size(),
+                bytes / 1024, notModified, stats.getDatabaseCalls() - databaseCalls, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // 30 % full product catalog, 10 % product lines, the rest single products, the popular ones more often
+    private static List<String> trace(List<String> productCodes) {
+        Random random = new Random(2022);
+        List<String> trace = new ArrayList<>();
+        for (int i = 0; i < CLIENTS * REQUESTS_PER_CLIENT; i++) {
+            int kind = random.nextInt(10);
+            if (kind < 3) {
+                trace.add("/api/products");
+            } else if (kind < 4) {
+                trace.add("/api/productlines");
+            } else {
+                trace.add("/api/products/" + productCodes.get((int) (productCodes.size() * Math.pow(random.nextDouble(), 3))));
+            }
+        }
+        return trace;
+    }
+
+    private Response get(String path, String etag, boolean gzip) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+            connection.setRequestProperty("Accept-Encoding", gzip ? "gzip" : "identity");
+            if (etag != null) {
+                connection.setRequestProperty("If-None-Match", etag);
+            }
+            int status = connection.getResponseCode();
+            long bytes = 0;
+            if (status == 200) {
+                try (InputStream in = connection.getInputStream()) {
+                    ByteArrayOutputStream body = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[16384];
+                    for (int read; (read = in.read(buffer)) > 0; ) {
+                        body.write(buffer, 0, read);
+                    }
+                    bytes = body.size();
+                }
+            }
+            return new Response(status, connection.getHeaderField("ETag"), bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class Response {
+        private final int status;
+        private final String etag;
+        private final long bytes;
+
+        private Response(int status, String etag, long bytes) {
+            this.status = status;
+            this.etag = etag;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package fi.tietoevry.backend.catalog;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fi.tietoevry.backend.cache.InvalidationMessage;
+import fi.tietoevry.backend.model.Customer;
+import fi.tietoevry.backend.model.Product;
+
+class CatalogTests {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private MutableClock clock;
+    private CatalogStats stats;
+    private CatalogVersions versions;
+
+    @BeforeEach
+    void createDatabase() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:catalog-schema.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        clock = new MutableClock();
+        stats = new CatalogStats();
+        versions = new CatalogVersions(jdbcTemplate, clock, Duration.ofSeconds(1), stats);
+    }
+
+    @AfterEach
+    void shutdown() {
+        database.shutdown();
+    }
+
+    @Test
+    void versionsAreReadOncePerTtl() {
+        assertThat(versions.version(CatalogTable.PRODUCTS)).isEqualTo(1000);
+        assertThat(versions.version(CatalogTable.PRODUCT_LINES)).isEqualTo(2000);
+        bump("products");
+
+        clock.advance(999);
+        assertThat(versions.version(CatalogTable.PRODUCTS)).isEqualTo(1000); // plain SQL change, not seen yet
+        clock.advance(1);
+        assertThat(versions.version(CatalogTable.PRODUCTS)).isEqualTo(1001);
+        assertThat(stats.getVersionReads()).isEqualTo(2);
+    }
+
+    @Test
+    void invalidationsForceARead() {
+        versions.version(CatalogTable.PRODUCTS);
+        bump("productlines");
+
+        versions.onInvalidation(Collections.singletonList(InvalidationMessage.of(Customer.class, 103)));
+        assertThat(versions.version(CatalogTable.PRODUCT_LINES)).isEqualTo(2000);
+        versions.onInvalidation(Collections.singletonList(new InvalidationMessage("ProductLine", "Motorcycles", 0)));
+        assertThat(versions.version(CatalogTable.PRODUCT_LINES)).isEqualTo(2001);
+        assertThat(stats.getVersionReads()).isEqualTo(2);
+    }
+
+    @Test
+    void catalogsAreBuiltOncePerVersion() throws IOException {
+        AtomicInteger loads = new AtomicInteger();
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Product product = new Product();
+            product.setProductCode("S10_" + i);
+            product.setProductName("Model " + i);
+            products.add(product);
+        }
+        Map<CatalogTable, Supplier<List<?>>> loaders = new EnumMap<>(CatalogTable.class);
+        loaders.put(CatalogTable.PRODUCTS, () -> {
+            loads.incrementAndGet();
+            return products;
+        });
+        loaders.put(CatalogTable.PRODUCT_LINES, Collections::emptyList);
+        ObjectMapper objectMapper = new ObjectMapper().addMixIn(Product.class, WithoutProductLine.class);
+        CatalogService service = new CatalogService(versions, loaders, objectMapper,
+                new TransactionTemplate(new DataSourceTransactionManager(database)), 2048, stats);
+
+        CatalogBody first = service.catalog(CatalogTable.PRODUCTS);
+        assertThat(service.catalog(CatalogTable.PRODUCTS)).isSameAs(first);
+        assertThat(first.getEtag()).isEqualTo("W/\"products-1000\"").isEqualTo(service.etag(CatalogTable.PRODUCTS));
+        assertThat(gunzip(first.getGzip())).isEqualTo(first.getJson());
+        assertThat(first.getGzip().length).isLessThan(first.getJson().length / 4);
+        assertThat(service.catalog(CatalogTable.PRODUCT_LINES).getGzip()).isNull(); // "[]" isn't worth compressing
+
+        bump("products");
+        versions.onInvalidation(Collections.singletonList(InvalidationMessage.of(Product.class, "S10_1")));
+        CatalogBody second = service.catalog(CatalogTable.PRODUCTS);
+        assertThat(second.getEtag()).isEqualTo("W/\"products-1001\"");
+        assertThat(loads).hasValue(2);
+        assertThat(stats.getCatalogLoads()).isEqualTo(3);
+    }
+
+    @Test
+    void parsesAcceptEncoding() {
+        assertThat(CatalogController.acceptsGzip("gzip, deflate, br")).isTrue();
+        assertThat(CatalogController.acceptsGzip("br;q=1.0, GZIP;q=0.5")).isTrue();
+        assertThat(CatalogController.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(CatalogController.acceptsGzip("identity")).isFalse();
+        assertThat(CatalogController.acceptsGzip(null)).isFalse();
+    }
+
+    private void bump(String table) {
+        jdbcTemplate.update("UPDATE table_versions SET version = version + 1 WHERE table_name = ?", table);
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            byte[] buffer = new byte[8192];
+            for (int read; (read = in.read(buffer)) > 0; ) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    // the test products have no ProductLine to point at
+    private abstract static class WithoutProductLine {
+        @JsonIgnore
+        abstract String getJsonProductLine();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private long millis = 1_000_000;
+
+        void advance(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package fi.tietoevry.backend.customerstats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import fi.tietoevry.backend.model.Order;
+import fi.tietoevry.backend.repository.CustomerRepository;
+import fi.tietoevry.backend.repository.OrderRepository;
+import fi.tietoevry.backend.support.SampleDatabase;
+
+// Changes made through JPA on the sample database, checked against the aggregate
+@SpringBootTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.show-sql=false",
+        "backend.outbox.relay=false",
+        "backend.recommendations.fetch-size=500"})
+@Import(SampleDatabase.Configuration.class)
+class CustomerStatsListenerTests {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private CustomerStatsUpdater updater;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void anOrderMovingToAnotherCustomerUpdatesBothCustomers() {
+        Long orderNumber = jdbcTemplate.queryForObject("SELECT MIN(orderNumber) FROM orders WHERE customerNumber = 363 " +
+                "AND status <> 'Cancelled'", Long.class);
+        List<Long> customers = Arrays.asList(363L, 141L);
+        assertThat(updater.findMismatches(jdbcTemplate, customers)).isEmpty();
+
+        moveOrder(orderNumber, 141L);
+        assertThat(jdbcTemplate.queryForObject("SELECT customerNumber FROM orders WHERE orderNumber = ?", Long.class, orderNumber))
+                .isEqualTo(141L);
+        assertThat(updater.findMismatches(jdbcTemplate, customers)).isEmpty();
+
+        moveOrder(orderNumber, 363L); // and back, the context is shared
+        assertThat(updater.findMismatches(jdbcTemplate, customers)).isEmpty();
+    }
+
+    private void moveOrder(Long orderNumber, Long customerNumber) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Order order = orderRepository.findById(orderNumber).orElseThrow(IllegalStateException::new);
+            order.setCustomer(customerRepository.getById(customerNumber));
+        });
+    }
+}
@@ -0,0 +1,180 @@
+package fi.tietoevry.backend.customerstats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import fi.tietoevry.backend.sharding.ScatterGather;
+import fi.tietoevry.backend.sharding.ShardRouter;
+
+class CustomerStatsTests {
+
+    private static final int CUSTOMERS = 50;
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private CustomerStatsUpdater updater;
+    private CustomerStatsRebuild rebuild;
+
+    @BeforeEach
+    void createData() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:customer-stats-schema.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        List<Object[]> customers = new ArrayList<>();
+        List<Object[]> orders = new ArrayList<>();
+        List<Object[]> lines = new ArrayList<>();
+        List<Object[]> payments = new ArrayList<>();
+        int orderNumber = 10000;
+        for (int customer = 1; customer <= CUSTOMERS; customer++) {
+            customers.add(new Object[]{customer, "Customer " + customer, customer % 2 == 0 ? "Finland" : "Sweden"});
+            for (int order = 0; order < customer % 5; order++, orderNumber++) { // every fifth customer has no orders
+                String status = order == 2 ? "Cancelled" : "Shipped";
+                orders.add(new Object[]{orderNumber, Date.valueOf("2004-0" + (1 + order) + "-1" + customer % 10), status, customer});
+                for (int line = 1; line <= 3; line++) {
+                    lines.add(new Object[]{orderNumber, "S10_" + line, line * customer, BigDecimal.valueOf(1000 + line, 2), line});
+                }
+            }
+            payments.add(new Object[]{customer, "CH" + customer, Date.valueOf("2004-06-01"), BigDecimal.valueOf(customer * 100L, 2)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO customers VALUES (?, ?, ?)", customers);
+        jdbcTemplate.batchUpdate("INSERT INTO orders VALUES (?, ?, ?, ?)", orders);
+        jdbcTemplate.batchUpdate("INSERT INTO orderdetails VALUES (?, ?, ?, ?, ?)", lines);
+        jdbcTemplate.batchUpdate("INSERT INTO payments VALUES (?, ?, ?, ?)", payments);
+
+        CustomerStatsProperties properties = new CustomerStatsProperties();
+        properties.setThreads(3);
+        properties.setCustomersPerTransaction(7);
+        updater = new CustomerStatsUpdater();
+        rebuild = new CustomerStatsRebuild(ShardRouter.unsharded(database), updater, properties);
+    }
+
+    @AfterEach
+    void shutdown() {
+        database.shutdown();
+    }
+
+    @Test
+    void rebuildMatchesTheAggregate() {
+        assertThat(rebuild.rebuild()).isEqualTo(CUSTOMERS);
+        assertThat(rebuild.check(false)).isEmpty();
+
+        // customer 4: orders 0, 1 and 3 count, 2 is cancelled
+        Map<String, Object> row = stats(4);
+        assertThat((BigDecimal) row.get("lifetime_revenue")).isEqualByComparingTo(revenue(4).multiply(BigDecimal.valueOf(3)));
+        assertThat((BigDecimal) row.get("total_paid")).isEqualByComparingTo("4.00");
+        assertThat(row.get("order_count")).isEqualTo(3);
+        assertThat(row.get("last_order_date")).isEqualTo(Date.valueOf("2004-04-14"));
+        assertThat(stats(5).get("order_count")).isEqualTo(0);
+        assertThat(stats(5).get("last_order_date")).isNull();
+    }
+
+    @Test
+    void incrementalChangesEndUpLikeTheAggregate() {
+        rebuild.rebuild();
+        jdbcTemplate.update("INSERT INTO orders VALUES (20000, DATE '2005-01-01', 'In Process', 3)");
+        jdbcTemplate.update("INSERT INTO orders VALUES (20001, DATE '2005-02-01', 'Cancelled', 3)");
+        jdbcTemplate.update("INSERT INTO orderdetails VALUES (20000, 'S10_1', 10, 20.00, 1), (20000, 'S10_2', 1, 5.50, 2)");
+        jdbcTemplate.update("INSERT INTO orderdetails VALUES (20001, 'S10_1', 99, 99.00, 1)");
+        jdbcTemplate.update("UPDATE orderdetails SET quantityOrdered = quantityOrdered + 1 WHERE orderNumber = 10000 AND productCode = 'S10_1'");
+        jdbcTemplate.update("INSERT INTO payments VALUES (3, 'CH9', DATE '2005-01-02', 150.00), (8, 'CH9', DATE '2005-01-02', 1.25)");
+
+        CustomerStatsDelta delta = new CustomerStatsDelta();
+        delta.addOrder(20000L);
+        delta.addOrder(20001L);
+        delta.addLineRevenue(20000L, new BigDecimal("200.00"));
+        delta.addLineRevenue(20000L, new BigDecimal("5.50"));
+        delta.addLineRevenue(20001L, new BigDecimal("9801.00")); // cancelled, ignored
+        delta.addLineRevenue(10000L, new BigDecimal("10.01"));
+        delta.addPayment(3L, new BigDecimal("150.00"));
+        delta.addPayment(8L, new BigDecimal("1.25"));
+        updater.apply(jdbcTemplate, delta);
+
+        assertThat(rebuild.check(false)).isEmpty();
+        assertThat(stats(3).get("order_count")).isEqualTo(3);
+        assertThat(stats(3).get("last_order_date")).isEqualTo(Date.valueOf("2005-01-01"));
+    }
+
+    @Test
+    void statusChangesRecomputeTheCustomer() {
+        rebuild.rebuild();
+        jdbcTemplate.update("UPDATE orders SET status = 'Cancelled' WHERE customerNumber = 4 AND orderDate = DATE '2004-04-14'");
+        jdbcTemplate.update("UPDATE orders SET status = 'Shipped' WHERE customerNumber = 4 AND status = 'Cancelled' AND orderDate < DATE '2004-04-01'");
+        Long orderNumber = jdbcTemplate.queryForObject("SELECT MIN(orderNumber) FROM orders WHERE customerNumber = 4", Long.class);
+
+        CustomerStatsDelta delta = new CustomerStatsDelta();
+        delta.recomputeOrder(orderNumber);
+        updater.apply(jdbcTemplate, delta);
+
+        assertThat(rebuild.check(false)).isEmpty();
+        assertThat(stats(4).get("last_order_date")).isEqualTo(Date.valueOf("2004-03-14"));
+    }
+
+    @Test
+    void checkFindsAndRepairsDrift() {
+        rebuild.rebuild();
+        jdbcTemplate.update("UPDATE customer_stats SET total_paid = total_paid + 1 WHERE customerNumber = 7");
+        jdbcTemplate.update("UPDATE customer_stats SET order_count = 0 WHERE customerNumber = 21");
+        jdbcTemplate.update("DELETE FROM customer_stats WHERE customerNumber = 44");
+
+        assertThat(rebuild.check(false)).containsExactly(7L, 21L, 44L);
+        assertThat(rebuild.check(true)).containsExactly(7L, 21L, 44L);
+        assertThat(rebuild.check(false)).isEmpty();
+    }
+
+    @Test
+    void listsSortAndFilterOnTheStats() {
+        rebuild.rebuild();
+        ScatterGather scatterGather = new ScatterGather(ShardRouter.unsharded(database), 1);
+        CustomerStatsService service = new CustomerStatsService(scatterGather);
+
+        List<CustomerStats> byBalance = service.list(CustomerStatsService.Sort.OUTSTANDING_BALANCE, true, null, null, 5);
+        assertThat(byBalance).hasSize(5);
+        List<BigDecimal> balances = new ArrayList<>();
+        byBalance.forEach(stats -> balances.add(stats.getOutstandingBalance()));
+        List<BigDecimal> sorted = new ArrayList<>(balances);
+        sorted.sort(Collections.reverseOrder());
+        assertThat(balances).isEqualTo(sorted);
+        assertThat(byBalance.get(0).getOutstandingBalance())
+                .isEqualByComparingTo(byBalance.get(0).getLifetimeRevenue().subtract(byBalance.get(0).getTotalPaid()));
+
+        List<CustomerStats> noOrders = service.list(CustomerStatsService.Sort.LIFETIME_REVENUE, false, null, null, 10);
+        assertThat(noOrders).extracting(CustomerStats::getCustomerNumber).startsWith(5L, 10L, 15L);
+
+        BigDecimal minBalance = new BigDecimal("5000");
+        assertThat(service.list(CustomerStatsService.Sort.LAST_ORDER_DATE, true, minBalance, null, 100))
+                .isNotEmpty()
+                .allSatisfy(stats -> assertThat(stats.getOutstandingBalance()).isGreaterThanOrEqualTo(minBalance));
+        scatterGather.shutdown();
+    }
+
+    // revenue of one (three line) order of the customer
+    private static BigDecimal revenue(int customer) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int line : Arrays.asList(1, 2, 3)) {
+            total = total.add(BigDecimal.valueOf(1000 + line, 2).multiply(BigDecimal.valueOf((long) line * customer)));
+        }
+        return total;
+    }
+
+    private Map<String, Object> stats(int customer) {
+        return jdbcTemplate.queryForMap("SELECT * FROM customer_stats WHERE customerNumber = ?", customer);
+    }
+}
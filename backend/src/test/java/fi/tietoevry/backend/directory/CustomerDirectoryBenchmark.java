@@ -0,0 +1,128 @@
+package fi.tietoevry.backend.directory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/*
+Directory searches against the same filters in SQL (LIKE 'prefix%', =), with 50 000 extra customers copied from
+the sample ones so the scans have something to scan. The extra customers are removed again afterwards.
+Needs the database from docker-compose.yml, run with: mvn test -Pbenchmark -Dtest=CustomerDirectoryBenchmark
+*/
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class CustomerDirectoryBenchmark {
+
+    private static final int EXTRA_CUSTOMERS = 50_000;
+    private static final long FIRST_EXTRA = 1_000_000;
+
+    @Autowired
+    private CustomerDirectory directory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void removeExtraCustomers() {
+        jdbcTemplate.update("DELETE FROM customers WHERE customerNumber >= ?", FIRST_EXTRA);
+    }
+
+    @Test
+    void searchLatency() {
+        insertExtraCustomers();
+        directory.reload();
+
+        report("country", query(null, null, null, null, "USA", null));
+        report("country + state", query(null, null, "CA", null, "USA", null));
+        report("country + city", query(null, "NYC", null, null, "USA", null));
+        report("name prefix", query("Mini", null, null, null, null, null));
+        report("sales rep + country", query(null, null, null, null, "France", 1370L));
+        report("postal code prefix", query(null, null, null, "94", null, null));
+        report("name + country + rep", query("Euro", null, null, null, "Spain", 1702L));
+    }
+
+    private void report(String label, CustomerQuery query) {
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (query.getName() != null) {
+            where.append(" AND customerName LIKE ?");
+            args.add(query.getName() + "%");
+        }
+        if (query.getCity() != null) {
+            where.append(" AND city = ?");
+            args.add(query.getCity());
+        }
+        if (query.getState() != null) {
+            where.append(" AND state = ?");
+            args.add(query.getState());
+        }
+        if (query.getPostalCode() != null) {
+            where.append(" AND postalCode LIKE ?");
+            args.add(query.getPostalCode() + "%");
+        }
+        if (query.getCountry() != null) {
+            where.append(" AND country = ?");
+            args.add(query.getCountry());
+        }
+        if (query.getSalesRep() != null) {
+            where.append(" AND salesRepEmployeeNumber = ?");
+            args.add(query.getSalesRep());
+        }
+        String sql = "SELECT customerNumber FROM customers" + where + " ORDER BY customerNumber LIMIT 50";
+
+        int sqlRows = measure(label + ", SQL", () -> jdbcTemplate.queryForList(sql, Long.class, args.toArray()).size());
+        int indexRows = measure(label + ", index", () -> directory.findCustomerNumbers(query, 50).size());
+        measure(label + ", index + hydrate", () -> directory.find(query, 50).size());
+        if (sqlRows != indexRows) {
+            throw new IllegalStateException(label + ": SQL found " + sqlRows + ", the index " + indexRows);
+        }
+    }
+
+    private static int measure(String label, Supplier<Integer> search) {
+        for (int i = 0; i < 20; i++) {
+            search.get(); // warm-up
+        }
+        int rounds = 200;
+        int rows = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            rows = search.get();
+        }
+        double micros = (System.nanoTime() - start) / (double) rounds / TimeUnit.MICROSECONDS.toNanos(1);
+        System.out.printf("%-40s %10.1f us (%d rows)%n", label, micros, rows);
+        return rows;
+    }
+
+    private void insertExtraCustomers() {
+        List<Object[]> samples = jdbcTemplate.query("SELECT customerName, city, state, postalCode, country, salesRepEmployeeNumber FROM customers",
+                (rs, rowNum) -> new Object[]{rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5), rs.getObject(6)});
+        Random random = new Random(1);
+        List<Object[]> rows = new ArrayList<>(EXTRA_CUSTOMERS);
+        for (int i = 0; i < EXTRA_CUSTOMERS; i++) {
+            Object[] sample = samples.get(random.nextInt(samples.size()));
+            rows.add(new Object[]{FIRST_EXTRA + i, sample[0] + " " + i, sample[1], sample[2], sample[3], sample[4], sample[5]});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO customers (customerNumber, customerName, contactLastName, contactFirstName, phone, " +
+                "addressLine1, city, state, postalCode, country, salesRepEmployeeNumber) VALUES (?, LEFT(?, 50), 'Doe', 'Jane', '555', 'Street 1', ?, ?, ?, ?, ?)", rows);
+    }
+
+    private static CustomerQuery query(String name, String city, String state, String postalCode, String country, Long salesRep) {
+        CustomerQuery query = new CustomerQuery();
+        query.setName(name);
+        query.setCity(city);
+        query.setState(state);
+        query.setPostalCode(postalCode);
+        query.setCountry(country);
+        query.setSalesRep(salesRep);
+        return query;
+    }
+}
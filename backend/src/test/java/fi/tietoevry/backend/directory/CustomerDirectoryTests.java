@@ -0,0 +1,175 @@
+package fi.tietoevry.backend.directory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import fi.tietoevry.backend.cache.InvalidationMessage;
+import fi.tietoevry.backend.model.Customer;
+
+class CustomerDirectoryTests {
+
+    private static final String[] COUNTRIES = {"USA", "France", "Finland", "Germany", "Spain"};
+    private static final String[] STATES = {"CA", "NY", "MA", null};
+    private static final String[] CITIES = {"San Francisco", "NYC", "Boston", "Paris", "Nantes", "Helsinki", "Espoo"};
+    private static final String[] NAMES = {"Mini Gifts", "Mini Wheels", "Atelier graphique", "Australian Collectors", "Toys4Grownups", "Land of Toys"};
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private CustomerDirectory directory;
+    private final List<Object[]> customers = new ArrayList<>();
+
+    @BeforeEach
+    void createData() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:directory-schema.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        Random random = new Random(7);
+        for (int customerNumber = 100; customerNumber < 1_100; customerNumber++) {
+            customers.add(new Object[]{customerNumber, NAMES[random.nextInt(NAMES.length)] + " " + customerNumber,
+                    CITIES[random.nextInt(CITIES.length)], STATES[random.nextInt(STATES.length)],
+                    String.valueOf(10_000 + random.nextInt(90_000)), COUNTRIES[random.nextInt(COUNTRIES.length)],
+                    random.nextInt(10) == 0 ? null : 1000 + random.nextInt(8)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO customers VALUES (?, ?, ?, ?, ?, ?, ?)", customers);
+        directory = new CustomerDirectory(jdbcTemplate, null); // findCustomerNumbers() doesn't hydrate
+    }
+
+    @AfterEach
+    void shutdown() {
+        database.shutdown();
+    }
+
+    @Test
+    void combinedFiltersMatchAFullScan() {
+        List<CustomerQuery> queries = new ArrayList<>();
+        queries.add(query(q -> q.setCountry("usa")));
+        queries.add(query(q -> {
+            q.setCountry("USA");
+            q.setState("CA");
+        }));
+        queries.add(query(q -> q.setName("mini")));
+        queries.add(query(q -> {
+            q.setName("Mini W");
+            q.setSalesRep(1003L);
+        }));
+        queries.add(query(q -> q.setCity("nyc")));
+        queries.add(query(q -> {
+            q.setCountry("France");
+            q.setCity("Paris");
+            q.setPostalCode("2");
+        }));
+        queries.add(query(q -> q.setPostalCode("123")));
+        queries.add(query(q -> q.setCountry("Japan")));
+        queries.add(query(q -> {
+            q.setSalesRep(1001L);
+            q.setState("ny");
+            q.setName("land of toys 1");
+        }));
+
+        for (CustomerQuery query : queries) {
+            List<Long> expected = scan(query);
+            assertThat(directory.findCustomerNumbers(query, 10_000)).as(query.toString()).isEqualTo(expected);
+            assertThat(directory.findCustomerNumbers(query, 3)).as(query.toString()).isEqualTo(expected.subList(0, Math.min(3, expected.size())));
+        }
+    }
+
+    @Test
+    void invalidatedCustomersAreReloadedBeforeTheNextSearch() {
+        CustomerQuery helsinki = query(q -> q.setCity("Helsinki"));
+        List<Long> before = directory.findCustomerNumbers(helsinki, 10_000);
+        long moved = customers.stream().filter(customer -> !"Helsinki".equals(customer[2]))
+                .mapToLong(customer -> ((Number) customer[0]).longValue()).findFirst().getAsLong();
+        long gone = before.get(0);
+
+        jdbcTemplate.update("UPDATE customers SET city = 'Helsinki', country = 'Finland' WHERE customerNumber = ?", moved);
+        jdbcTemplate.update("DELETE FROM customers WHERE customerNumber = ?", gone);
+        jdbcTemplate.update("INSERT INTO customers VALUES (5000, 'Nordic Models', 'Helsinki', NULL, '00100', 'Finland', NULL)");
+        assertThat(directory.findCustomerNumbers(helsinki, 10_000)).isEqualTo(before); // nobody said anything changed
+
+        directory.onInvalidation(Arrays.asList(InvalidationMessage.of(Customer.class, moved),
+                InvalidationMessage.of(Customer.class, gone), InvalidationMessage.of(Customer.class, 5000L),
+                new InvalidationMessage("Product", "S10_1678", 0)));
+
+        List<Long> after = directory.findCustomerNumbers(helsinki, 10_000);
+        assertThat(before).doesNotContain(moved);
+        assertThat(after).contains(moved, 5000L).doesNotContain(gone);
+        assertThat(after).isEqualTo(scan(helsinki));
+        assertThat(directory.findCustomerNumbers(query(q -> q.setName("nordic")), 10)).containsExactly(5000L);
+    }
+
+    @Test
+    void reusedSlotsKeepTheIndexesConsistent() {
+        CustomerIndexes indexes = new CustomerIndexes();
+        for (int round = 0; round < 3; round++) {
+            for (long customerNumber = 1; customerNumber <= 200; customerNumber++) {
+                if ((customerNumber + round) % 3 == 0) {
+                    indexes.remove(customerNumber);
+                } else {
+                    indexes.put(new CustomerEntry(customerNumber, "Name " + round, "City", null, null, "Country " + customerNumber % 2, null));
+                }
+            }
+        }
+        CustomerQuery query = query(q -> {
+            q.setCountry("country 0");
+            q.setName("name 2");
+        });
+        List<Long> expected = new ArrayList<>();
+        for (long customerNumber = 2; customerNumber <= 200; customerNumber += 2) {
+            if ((customerNumber + 2) % 3 != 0) {
+                expected.add(customerNumber);
+            }
+        }
+        long[] found = indexes.search(query, 1_000);
+        List<Long> actual = new ArrayList<>();
+        for (long customerNumber : found) {
+            actual.add(customerNumber);
+        }
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    private List<Long> scan(CustomerQuery query) {
+        List<Long> result = new ArrayList<>();
+        for (Object[] row : jdbcTemplate.query("SELECT * FROM customers", (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getString(2),
+                rs.getString(3), rs.getString(4), rs.getString(5), rs.getString(6), rs.getObject(7, Long.class)})) {
+            if (startsWith(row[1], query.getName()) && equal(row[2], query.getCity()) && equal(row[3], query.getState())
+                    && startsWith(row[4], query.getPostalCode()) && equal(row[5], query.getCountry())
+                    && (query.getSalesRep() == null || query.getSalesRep().equals(row[6]))) {
+                result.add((Long) row[0]);
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private static boolean equal(Object value, String filter) {
+        return filter == null || (value != null && ((String) value).equalsIgnoreCase(filter));
+    }
+
+    private static boolean startsWith(Object value, String prefix) {
+        return prefix == null || (value != null && ((String) value).toLowerCase(Locale.ROOT).startsWith(prefix.toLowerCase(Locale.ROOT)));
+    }
+
+    private static CustomerQuery query(Consumer<CustomerQuery> filters) {
+        CustomerQuery query = new CustomerQuery();
+        filters.accept(query);
+        return query;
+    }
+}
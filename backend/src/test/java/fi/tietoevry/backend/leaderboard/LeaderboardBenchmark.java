@@ -0,0 +1,87 @@
+package fi.tietoevry.backend.leaderboard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/*
+Update throughput of the rolling windows (7, 30, 90 and 365 days) with 100 to 10 000 reps, alone and with threads
+reading the top 10 meanwhile, and the cost of moving every window on by a day.
+Pure in-memory, no database needed, run with: mvn test -Pbenchmark -Dtest=LeaderboardBenchmark
+*/
+@Tag("benchmark")
+class LeaderboardBenchmark {
+
+    private static final int[] WINDOWS = {7, 30, 90, 365};
+    private static final int[] REPS = {100, 1_000, 10_000};
+    private static final long MEASURE_MILLIS = 2_000;
+    private static final int READERS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    @Test
+    void updateThroughput() throws InterruptedException {
+        for (int reps : REPS) {
+            RollingRevenue revenue = filled(reps);
+            measure(revenue, reps, 0);
+            measure(revenue, reps, READERS);
+
+            long start = System.nanoTime();
+            for (int day = 1; day <= 30; day++) {
+                revenue.advanceTo(revenue.getToday() + 1);
+            }
+            System.out.printf("%,7d reps: moving the windows on by a day takes %.2f ms, %,d bytes%n",
+                    reps, (System.nanoTime() - start) / 30 / 1e6, revenue.memoryBytes());
+        }
+    }
+
+    // A year of orders, about 20 per rep
+    private static RollingRevenue filled(int reps) {
+        RollingRevenue revenue = new RollingRevenue(WINDOWS, 20_000, reps);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < reps * 20; i++) {
+            revenue.add(random.nextInt(reps), 20_000 - random.nextInt(365), 1_000 + random.nextInt(1_000_000));
+        }
+        return revenue;
+    }
+
+    private void measure(RollingRevenue revenue, int reps, int readers) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder reads = new LongAdder();
+        List<Thread> threads = new ArrayList<>();
+        for (int r = 0; r < readers; r++) {
+            Thread reader = new Thread(() -> {
+                long count = 0;
+                while (running.get()) {
+                    revenue.top(count % WINDOWS.length == 0 ? 0 : 1, 10);
+                    count++;
+                }
+                reads.add(count);
+            });
+            threads.add(reader);
+            reader.start();
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long updates = 0;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(MEASURE_MILLIS);
+        while (System.nanoTime() < end) {
+            for (int i = 0; i < 1_000; i++) {
+                revenue.add(random.nextInt(reps), revenue.getToday() - random.nextInt(90), 1_000 + random.nextInt(1_000_000));
+            }
+            updates += 1_000;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        System.out.printf("%,7d reps, %2d readers: %,12.0f updates/s, %,12.0f top-10 reads/s%n",
+                reps, readers, updates / seconds, reads.sum() / seconds);
+    }
+}
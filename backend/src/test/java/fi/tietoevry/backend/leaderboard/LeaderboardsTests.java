@@ -0,0 +1,205 @@
+package fi.tietoevry.backend.leaderboard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import fi.tietoevry.backend.cache.InvalidationMessage;
+import fi.tietoevry.backend.sharding.ScatterGather;
+import fi.tietoevry.backend.sharding.ShardRouter;
+import fi.tietoevry.backend.support.SampleDatabase;
+
+// The in-memory rankings against the same rankings computed in SQL on the sample database, the day after its last order
+class LeaderboardsTests {
+
+    private static final List<String> WINDOWS = Arrays.asList("30d", "90d", "365d");
+
+    private static final String REP_RANKING = "SELECT c.salesRepEmployeeNumber, SUM(d.quantityOrdered * d.priceEach) AS revenue " +
+            "FROM orders o JOIN orderdetails d ON d.orderNumber = o.orderNumber JOIN customers c ON c.customerNumber = o.customerNumber " +
+            "WHERE o.status <> 'Cancelled' AND o.orderDate > ? AND o.orderDate <= ? AND c.salesRepEmployeeNumber IS NOT NULL " +
+            "GROUP BY c.salesRepEmployeeNumber ORDER BY revenue DESC, c.salesRepEmployeeNumber";
+    private static final String OFFICE_RANKING = "SELECT e.officeCode, SUM(d.quantityOrdered * d.priceEach) AS revenue " +
+            "FROM orders o JOIN orderdetails d ON d.orderNumber = o.orderNumber JOIN customers c ON c.customerNumber = o.customerNumber " +
+            "JOIN employees e ON e.employeeNumber = c.salesRepEmployeeNumber " +
+            "WHERE o.status <> 'Cancelled' AND o.orderDate > ? AND o.orderDate <= ? " +
+            "GROUP BY e.officeCode ORDER BY revenue DESC, e.officeCode";
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private MutableClock clock;
+    private ScatterGather scatterGather;
+    private Leaderboards leaderboards;
+    private long nextOrderNumber = 900_000;
+
+    @BeforeEach
+    void createDatabase() {
+        dataSource = SampleDatabase.create();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        clock = new MutableClock(LocalDate.of(2005, 6, 1));
+        scatterGather = new ScatterGather(ShardRouter.unsharded(dataSource), 1);
+        leaderboards = new Leaderboards(jdbcTemplate, scatterGather, clock, Arrays.asList(Duration.ofDays(30), Duration.ofDays(90), Duration.ofDays(365)));
+    }
+
+    @AfterEach
+    void shutdown() throws Exception {
+        scatterGather.shutdown();
+        // not jdbcTemplate.execute(sql), which asks the closed statement for its warnings when debug logging is on
+        jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> connection.createStatement().execute("SHUTDOWN"));
+        if (dataSource instanceof AutoCloseable) {
+            ((AutoCloseable) dataSource).close();
+        }
+    }
+
+    @Test
+    void rankingsMatchSql() {
+        LeaderboardStats stats = leaderboards.rebuild();
+
+        assertThat(stats.getWindows()).isEqualTo(WINDOWS);
+        assertThat(stats.getLoadedOrders()).isPositive();
+        assertThat(reps("30d")).isNotEmpty(); // the sample database's last orders are from May 2005
+        assertMatchesSql();
+    }
+
+    @Test
+    void committedOrdersCountRightAway() {
+        leaderboards.rebuild();
+        placeOrder(103, LocalDate.of(2005, 5, 31), "S10_1678", 40, "95.70");
+        placeOrder(141, LocalDate.of(2005, 6, 1), "S18_3232", 100, "169.34");
+        placeOrder(124, LocalDate.of(2005, 3, 15), "S24_2000", 12, "76.17"); // only in the 90 and 365 day windows
+        placeOrder(496, LocalDate.of(2003, 1, 6), "S24_2000", 50, "76.17"); // before every window
+
+        assertMatchesSql();
+        assertThat(leaderboards.stats().getAddedOrders()).isEqualTo(4);
+    }
+
+    @Test
+    void windowsExpireAsTheDaysGoBy() {
+        leaderboards.rebuild();
+        placeOrder(141, LocalDate.of(2005, 6, 1), "S18_3232", 100, "169.34");
+
+        clock.advanceDays(10);
+        assertMatchesSql();
+        clock.advanceDays(35); // May is out of the 30 day window
+        assertMatchesSql();
+        assertThat(reps("30d")).isEmpty();
+        clock.advanceDays(400);
+        assertThat(reps("365d")).isEmpty();
+        assertThat(leaderboards.offices("365d", 10)).isEmpty();
+    }
+
+    @Test
+    void limitTakesTheTopOfTheRanking() {
+        leaderboards.rebuild();
+
+        List<RepStanding> all = leaderboards.reps("365d", 100);
+        List<RepStanding> top3 = leaderboards.reps("365d", 3);
+
+        assertThat(all.size()).isGreaterThan(3);
+        assertThat(top3).extracting(RepStanding::getEmployeeNumber)
+                .containsExactlyElementsOf(all.subList(0, 3).stream().map(RepStanding::getEmployeeNumber).collect(Collectors.toList()));
+        assertThat(top3).extracting(RepStanding::getRank).containsExactly(1, 2, 3);
+        assertThat(top3.get(0).getName()).isNotBlank();
+        assertThatThrownBy(() -> leaderboards.reps("14d", 3)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void customersMovedToAnotherRepBringTheirNewOrders() {
+        leaderboards.rebuild();
+        BigDecimal before = revenueOf(1165, "365d");
+        jdbcTemplate.update("UPDATE customers SET salesRepEmployeeNumber = 1165 WHERE customerNumber = 103"); // was 1370
+        leaderboards.onInvalidation(Collections.singletonList(new InvalidationMessage("Customer", "103", System.currentTimeMillis())));
+
+        assertThat(leaderboards.applyCustomerChanges()).isFalse(); // 1165 is known, no rebuild needed
+        placeOrder(103, LocalDate.of(2005, 5, 31), "S10_1678", 10, "100.00");
+
+        assertThat(revenueOf(1165, "365d")).isEqualByComparingTo(before.add(new BigDecimal("1000.00")));
+    }
+
+    private void assertMatchesSql() {
+        LocalDate today = LocalDate.now(clock);
+        for (String window : WINDOWS) {
+            Date from = Date.valueOf(today.minusDays(Long.parseLong(window.substring(0, window.length() - 1))));
+            Date to = Date.valueOf(today);
+            List<String> sqlReps = jdbcTemplate.query(REP_RANKING, (rs, row) -> rs.getLong(1) + "=" + amount(rs.getBigDecimal(2)), from, to);
+            List<String> sqlOffices = jdbcTemplate.query(OFFICE_RANKING, (rs, row) -> rs.getString(1) + "=" + amount(rs.getBigDecimal(2)), from, to);
+
+            assertThat(reps(window)).as("reps over %s to %s", window, today).isEqualTo(sqlReps);
+            assertThat(leaderboards.offices(window, 100).stream()
+                    .map(standing -> standing.getOfficeCode() + "=" + amount(standing.getRevenue())).collect(Collectors.toList()))
+                    .as("offices over %s to %s", window, today).isEqualTo(sqlOffices);
+        }
+    }
+
+    private List<String> reps(String window) {
+        return leaderboards.reps(window, 100).stream()
+                .map(standing -> standing.getEmployeeNumber() + "=" + amount(standing.getRevenue())).collect(Collectors.toList());
+    }
+
+    private BigDecimal revenueOf(long employeeNumber, String window) {
+        return leaderboards.reps(window, 100).stream().filter(standing -> standing.getEmployeeNumber() == employeeNumber)
+                .map(RepStanding::getRevenue).findFirst().orElse(BigDecimal.ZERO);
+    }
+
+    // What OrderService and LeaderboardListener do for a new order with one line
+    private void placeOrder(long customerNumber, LocalDate orderDate, String productCode, int quantity, String priceEach) {
+        long orderNumber = nextOrderNumber++;
+        jdbcTemplate.update("INSERT INTO orders (orderNumber, orderDate, requiredDate, status, customerNumber) VALUES (?, ?, ?, 'In Process', ?)",
+                orderNumber, Date.valueOf(orderDate), Date.valueOf(orderDate.plusDays(7)), customerNumber);
+        jdbcTemplate.update("INSERT INTO orderdetails (orderNumber, productCode, quantityOrdered, priceEach, orderLineNumber) VALUES (?, ?, ?, ?, 1)",
+                orderNumber, productCode, quantity, new BigDecimal(priceEach));
+        leaderboards.addOrder(orderNumber, customerNumber, Date.valueOf(orderDate), new BigDecimal(priceEach).multiply(BigDecimal.valueOf(quantity)));
+    }
+
+    private static String amount(BigDecimal value) {
+        return value.setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(LocalDate today) {
+            this.now = today.atTime(12, 0).toInstant(ZoneOffset.UTC);
+        }
+
+        void advanceDays(long days) {
+            now = now.plus(Duration.ofDays(days));
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
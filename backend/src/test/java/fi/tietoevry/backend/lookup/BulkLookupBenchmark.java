@@ -0,0 +1,102 @@
+package fi.tietoevry.backend.lookup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import fi.tietoevry.backend.model.Customer;
+import fi.tietoevry.backend.model.Payment;
+import fi.tietoevry.backend.repository.OrderDetailRepository;
+import fi.tietoevry.backend.repository.PaymentRepository;
+
+/*
+Bulk lookups against what a client does today: findByOrderNumber() per order and findAllById() with composite
+payment ids (Spring Data runs one find per id for an @IdClass). Ids beyond the sample data don't exist, which costs
+the same index lookups. Needs the database from docker-compose.yml, run with: mvn test -Pbenchmark -Dtest=BulkLookupBenchmark
+*/
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+class BulkLookupBenchmark {
+
+    private static final int[] SIZES = {10, 100, 1_000, 10_000};
+
+    @Autowired
+    private BulkLookupService lookupService;
+
+    @Autowired
+    private OrderDetailRepository orderDetailRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void lookupLatencyByIdCount() {
+        Long firstOrder = jdbcTemplate.queryForObject("SELECT MIN(orderNumber) FROM orders", Long.class);
+        List<PaymentKey> knownPayments = jdbcTemplate.query("SELECT customerNumber, checkNumber FROM payments",
+                (rs, rowNum) -> new PaymentKey(rs.getLong(1), rs.getString(2)));
+
+        for (int size : SIZES) {
+            List<Long> orderNumbers = new ArrayList<>(size);
+            for (long i = 0; i < size; i++) {
+                orderNumbers.add(firstOrder + i);
+            }
+            List<PaymentKey> paymentKeys = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                PaymentKey known = knownPayments.get(i % knownPayments.size());
+                paymentKeys.add(i < knownPayments.size() ? known : new PaymentKey(known.getCustomerNumber(), "XX" + i));
+            }
+
+            report("order lines, per-order query", size, () -> transactionTemplate.execute(status -> {
+                int rows = 0;
+                for (Long orderNumber : orderNumbers) {
+                    rows += orderDetailRepository.findByOrderNumber(orderNumber).size();
+                }
+                entityManager.clear();
+                return rows;
+            }));
+            report("order lines, bulk", size, () -> lookupService.findOrderDetails(orderNumbers).values().stream().mapToInt(List::size).sum());
+            report("payments, findAllById", size, () -> transactionTemplate.execute(status -> {
+                List<Payment.PaymentId> ids = new ArrayList<>(size);
+                for (PaymentKey key : paymentKeys) {
+                    ids.add(new Payment.PaymentId(entityManager.getReference(Customer.class, key.getCustomerNumber()), key.getCheckNumber()));
+                }
+                int rows = paymentRepository.findAllById(ids).size();
+                entityManager.clear();
+                return rows;
+            }));
+            report("payments, bulk", size, () -> lookupService.findPayments(paymentKeys).size());
+        }
+    }
+
+    private static void report(String label, int size, Supplier<Integer> lookup) {
+        lookup.get(); // warm-up
+        int rounds = size >= 10_000 ? 3 : 10;
+        long best = Long.MAX_VALUE;
+        int rows = 0;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            rows = lookup.get();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-30s %6d ids: %9.2f ms (%d rows)%n", label, size, best / (double) TimeUnit.MILLISECONDS.toNanos(1), rows);
+    }
+}
@@ -0,0 +1,147 @@
+package fi.tietoevry.backend.lookup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import fi.tietoevry.backend.model.OrderDetail;
+import fi.tietoevry.backend.model.Payment;
+import fi.tietoevry.backend.sharding.ShardRouter;
+import fi.tietoevry.backend.support.RecordedStatement;
+import fi.tietoevry.backend.support.RecordingDataSource;
+
+class BulkLookupServiceTests {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private RecordingDataSource recording;
+    private BulkLookupService service;
+
+    @BeforeEach
+    void createData() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:lookup-schema.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        recording = new RecordingDataSource(database);
+        List<Object[]> lines = new ArrayList<>();
+        List<Object[]> payments = new ArrayList<>();
+        for (int orderNumber = 10000; orderNumber < 12000; orderNumber++) {
+            for (int line = 1; line <= 1 + orderNumber % 4; line++) {
+                lines.add(new Object[]{orderNumber, "S10_" + line, line, BigDecimal.valueOf(line * 100, 2), 5 - line}); // line numbers reversed on purpose
+            }
+            payments.add(new Object[]{orderNumber % 100, "CH" + orderNumber, Date.valueOf("2004-01-01"), BigDecimal.valueOf(orderNumber, 2)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO orderdetails VALUES (?, ?, ?, ?, ?)", lines);
+        jdbcTemplate.batchUpdate("INSERT INTO payments VALUES (?, ?, ?, ?)", payments);
+        service = new BulkLookupService(ShardRouter.unsharded(recording), properties(64));
+    }
+
+    @AfterEach
+    void shutdown() {
+        service.shutdown();
+        database.shutdown();
+    }
+
+    @Test
+    void paddsChunksToPowersOfTwo() {
+        assertThat(PaddedInList.paddedSize(1, 512)).isEqualTo(1);
+        assertThat(PaddedInList.paddedSize(5, 512)).isEqualTo(8);
+        assertThat(PaddedInList.paddedSize(256, 512)).isEqualTo(256);
+        assertThat(PaddedInList.paddedSize(300, 512)).isEqualTo(512);
+        assertThat(PaddedInList.paddedSize(300, 500)).isEqualTo(500);
+
+        List<List<Integer>> chunks = PaddedInList.chunks(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11), 8);
+        assertThat(chunks).containsExactly(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8), Arrays.asList(9, 10, 11, 11));
+    }
+
+    @Test
+    void findsOrderLinesOfManyOrdersInRequestOrder() {
+        List<Long> orderNumbers = new ArrayList<>();
+        for (long orderNumber = 11999; orderNumber >= 10000; orderNumber -= 3) {
+            orderNumbers.add(orderNumber);
+        }
+        orderNumbers.add(11999L); // duplicate
+        orderNumbers.add(99999L); // unknown
+
+        Map<Long, List<OrderDetail>> lines = service.findOrderDetails(orderNumbers);
+
+        List<Long> expected = new ArrayList<>(orderNumbers.subList(0, orderNumbers.size() - 2));
+        expected.add(99999L);
+        assertThat(lines.keySet()).containsExactlyElementsOf(expected);
+        assertThat(lines.get(99999L)).isEmpty();
+        assertThat(lines.get(11999L)).extracting(OrderDetail::getProductCode).containsExactly("S10_4", "S10_3", "S10_2", "S10_1");
+        for (Long orderNumber : expected.subList(0, expected.size() - 1)) {
+            assertThat(lines.get(orderNumber)).hasSize(1 + (int) (orderNumber % 4));
+        }
+    }
+
+    @Test
+    void usesFewDistinctStatementsForAnyNumberOfIds() {
+        List<RecordedStatement> statements = recording.record(() -> {
+            for (int count = 1; count <= 300; count++) {
+                List<Long> orderNumbers = new ArrayList<>();
+                for (long orderNumber = 10000; orderNumber < 10000 + count; orderNumber++) {
+                    orderNumbers.add(orderNumber);
+                }
+                assertThat(service.findOrderDetails(orderNumbers)).hasSize(count);
+            }
+        });
+        assertThat(statements.stream().map(RecordedStatement::getSql).distinct()).hasSize(7); // 1, 2, 4, ... 64
+    }
+
+    @Test
+    void findsPaymentsByCompositeKey() {
+        List<PaymentKey> keys = new ArrayList<>();
+        for (int orderNumber = 10000; orderNumber < 12000; orderNumber += 7) {
+            keys.add(new PaymentKey((long) orderNumber % 100, "CH" + orderNumber));
+        }
+        keys.add(new PaymentKey(1L, "CH10000")); // customer and check number exist, but not together
+
+        Map<PaymentKey, Payment> payments = service.findPayments(keys);
+
+        assertThat(payments.keySet()).containsExactlyElementsOf(keys.subList(0, keys.size() - 1));
+        Payment payment = payments.get(new PaymentKey(7L, "CH10007"));
+        assertThat(payment.getJsonCustomerNumber()).isEqualTo(7L);
+        assertThat(payment.getAmount()).isEqualByComparingTo("100.07");
+    }
+
+    @Test
+    void rejectsTooManyIds() {
+        BulkLookupProperties properties = properties(64);
+        properties.setMaxIds(10);
+        BulkLookupService limited = new BulkLookupService(ShardRouter.unsharded(recording), properties);
+        try {
+            List<Long> orderNumbers = new ArrayList<>();
+            for (long orderNumber = 0; orderNumber < 11; orderNumber++) {
+                orderNumbers.add(orderNumber);
+            }
+            assertThatThrownBy(() -> limited.findOrderDetails(orderNumbers)).isInstanceOf(IllegalArgumentException.class);
+        } finally {
+            limited.shutdown();
+        }
+    }
+
+    private static BulkLookupProperties properties(int maxChunkSize) {
+        BulkLookupProperties properties = new BulkLookupProperties();
+        properties.setMaxChunkSize(maxChunkSize);
+        properties.setParallelism(4);
+        return properties;
+    }
+}
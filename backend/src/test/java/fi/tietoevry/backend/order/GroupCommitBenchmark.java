@@ -0,0 +1,118 @@
+package fi.tietoevry.backend.order;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import fi.tietoevry.backend.model.Order;
+import fi.tietoevry.backend.sharding.ShardRouter;
+
+/*
+Orders per second and latency with 1, 16 and 256 concurrent clients placing orders (3 lines each), one transaction per
+order (OrderService, as without backend.group-commit.enabled) against group commit.
+Needs the database from docker-compose.yml, run with: mvn test -Pbenchmark -Dtest=GroupCommitBenchmark
+The orders created here are deleted again at the end.
+*/
+@Tag("benchmark")
+@SpringBootTest(properties = {"spring.jpa.show-sql=false", "backend.group-commit.enabled=true"})
+class GroupCommitBenchmark {
+
+    private static final int ORDERS = 4096;
+    private static final int[] CLIENTS = {1, 16, 256};
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private GroupCommitter groupCommitter;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> createdOrders = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    void ordersPerSecond() throws Exception {
+        Long customerNumber = jdbcTemplate.queryForObject("SELECT MIN(customerNumber) FROM customers", Long.class);
+        List<String> productCodes = jdbcTemplate.queryForList("SELECT productCode FROM products ORDER BY productCode LIMIT 3", String.class);
+        NewOrder order = order(customerNumber, productCodes);
+        Function<NewOrder, Order> direct = request -> shardRouter.onCustomer(request.getCustomerNumber(), () -> orderService.placeOrder(request));
+
+        measure("warm-up", 16, order, direct);
+        measure("warm-up", 16, order, groupCommitter::placeOrder);
+        for (int clients : CLIENTS) {
+            measure("one per order", clients, order, direct);
+            measure("group commit", clients, order, groupCommitter::placeOrder);
+        }
+        System.out.println("Group commit: " + groupCommitter.getStats());
+    }
+
+    private void measure(String label, int clients, NewOrder order, Function<NewOrder, Order> placeOrder) throws Exception {
+        int orders = clients == 1 ? ORDERS / 4 : ORDERS;
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        List<Future<List<Long>>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            int perClient = orders / clients;
+            results.add(executor.submit(() -> {
+                List<Long> nanos = new ArrayList<>(perClient);
+                for (int i = 0; i < perClient; i++) {
+                    long placed = System.nanoTime();
+                    createdOrders.add(placeOrder.apply(order).getOrderNumber());
+                    nanos.add(System.nanoTime() - placed);
+                }
+                return nanos;
+            }));
+        }
+        List<Long> nanos = new ArrayList<>(orders);
+        for (Future<List<Long>> result : results) {
+            nanos.addAll(result.get());
+        }
+        double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+        executor.shutdown();
+        Collections.sort(nanos);
+        System.out.printf("%-13s %3d clients: %7.0f orders/s, p50 %7.2f ms, p99 %7.2f ms%n", label, clients,
+                nanos.size() / seconds, millis(nanos.get(nanos.size() / 2)), millis(nanos.get(nanos.size() * 99 / 100)));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static NewOrder order(Long customerNumber, List<String> productCodes) {
+        NewOrder order = new NewOrder();
+        order.setCustomerNumber(customerNumber);
+        order.setComments("group commit benchmark");
+        for (String productCode : productCodes) {
+            order.getLines().add(new NewOrder.Line(productCode, 1L, null));
+        }
+        return order;
+    }
+
+    @AfterEach
+    void deleteCreatedOrders() {
+        List<Long> created = new ArrayList<>(createdOrders);
+        for (int from = 0; from < created.size(); from += 500) {
+            List<Long> chunk = created.subList(from, Math.min(from + 500, created.size()));
+            String ids = chunk.toString().replaceAll("[\\[\\] ]", "");
+            jdbcTemplate.update("DELETE FROM orderdetails WHERE orderNumber IN (" + ids + ")");
+            jdbcTemplate.update("DELETE FROM orders WHERE orderNumber IN (" + ids + ")");
+        }
+        createdOrders.clear();
+    }
+}
@@ -0,0 +1,137 @@
+package fi.tietoevry.backend.order;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import fi.tietoevry.backend.model.Order;
+import fi.tietoevry.backend.support.SampleDatabase;
+
+@SpringBootTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.show-sql=false",
+        "backend.cache.invalidation.transport=local",
+        "backend.outbox.relay=false",
+        "backend.recommendations.fetch-size=500",
+        "backend.group-commit.enabled=true",
+        "backend.group-commit.max-batch-size=32",
+        "backend.group-commit.max-delay=5ms"})
+@Import(SampleDatabase.Configuration.class)
+class GroupCommitterTests {
+
+    @Autowired
+    private GroupCommitter groupCommitter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentOrdersShareTransactions() throws Exception {
+        long transactionsBefore = groupCommitter.getStats().getTransactions();
+        List<CompletableFuture<Order>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(groupCommitter.submit(order(141L, line("S10_1678", 1), line("S18_3232", 2))));
+        }
+
+        for (CompletableFuture<Order> future : futures) {
+            Order order = future.get(10, TimeUnit.SECONDS);
+            assertThat(linesOf(order)).isEqualTo(2);
+        }
+        assertThat(groupCommitter.getStats().getTransactions() - transactionsBefore).isLessThan(200);
+        assertThat(groupCommitter.getStats().getLargestBatch()).isGreaterThan(1).isLessThanOrEqualTo(32);
+    }
+
+    @Test
+    void invalidOrdersFailAloneWithoutRollingBackTheBatch() throws Exception {
+        long rollbacksBefore = groupCommitter.getStats().getRollbacks();
+        List<CompletableFuture<Order>> valid = new ArrayList<>();
+        List<CompletableFuture<Order>> invalid = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            valid.add(groupCommitter.submit(order(141L, line("S10_1678", 1))));
+            invalid.add(groupCommitter.submit(order(141L, line("S99_9999", 1))));
+            invalid.add(groupCommitter.submit(order(141L, line("S10_1678", 0))));
+            invalid.add(groupCommitter.submit(order(141L, line("S10_1678", 1), line("S18_3232", 1), line("S10_1678", 2))));
+        }
+
+        for (CompletableFuture<Order> future : valid) {
+            assertThat(linesOf(future.get(10, TimeUnit.SECONDS))).isEqualTo(1);
+        }
+        for (CompletableFuture<Order> future : invalid) {
+            assertThat(failureOf(future)).isInstanceOf(IllegalArgumentException.class);
+        }
+        assertThat(groupCommitter.getStats().getRollbacks()).isEqualTo(rollbacksBefore);
+    }
+
+    @Test
+    void aFailingInsertIsSplitOffAndTheRestCommits() throws Exception {
+        List<CompletableFuture<Order>> valid = new ArrayList<>();
+        List<CompletableFuture<Order>> unknownCustomers = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            valid.add(groupCommitter.submit(order(141L, line("S18_3232", 1))));
+            if (i % 10 == 5) {
+                // passes prepare(), the foreign key fails the whole transaction
+                unknownCustomers.add(groupCommitter.submit(order(999_999L, line("S18_3232", 1))));
+            }
+        }
+
+        for (CompletableFuture<Order> future : valid) {
+            assertThat(linesOf(future.get(10, TimeUnit.SECONDS))).isEqualTo(1);
+        }
+        for (CompletableFuture<Order> future : unknownCustomers) {
+            assertThat(failureOf(future)).isNotNull();
+        }
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE customerNumber = 999999", Integer.class)).isZero();
+        assertThat(groupCommitter.getStats().getFailed()).isGreaterThanOrEqualTo(3);
+    }
+
+    @Test
+    void pricesLinesLikeTheDirectPath() throws Exception {
+        Order order = groupCommitter.placeOrder(order(141L, line("S10_1678", 2), new NewOrder.Line("S24_2000", 3L, new BigDecimal("70.00"))));
+
+        List<BigDecimal> prices = jdbcTemplate.queryForList(
+                "SELECT priceEach FROM orderdetails WHERE orderNumber = ? ORDER BY orderLineNumber", BigDecimal.class, order.getOrderNumber());
+        BigDecimal msrp = jdbcTemplate.queryForObject("SELECT MSRP FROM products WHERE productCode = 'S10_1678'", BigDecimal.class);
+        assertThat(prices).usingElementComparator(BigDecimal::compareTo).containsExactly(msrp, new BigDecimal("70.00"));
+        assertThat(order.getStatus()).isEqualTo(OrderService.NEW_ORDER_STATUS);
+    }
+
+    private int linesOf(Order order) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orderdetails WHERE orderNumber = ?", Integer.class, order.getOrderNumber());
+    }
+
+    private static Throwable failureOf(CompletableFuture<Order> future) throws InterruptedException {
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (TimeoutException e) {
+            throw new AssertionError("The order never completed", e);
+        }
+    }
+
+    private static NewOrder order(Long customerNumber, NewOrder.Line... lines) {
+        NewOrder order = new NewOrder();
+        order.setCustomerNumber(customerNumber);
+        order.setComments("group commit test");
+        order.setLines(new ArrayList<>(Arrays.asList(lines)));
+        return order;
+    }
+
+    private static NewOrder.Line line(String productCode, long quantityOrdered) {
+        return new NewOrder.Line(productCode, quantityOrdered, null); // priced at MSRP
+    }
+}
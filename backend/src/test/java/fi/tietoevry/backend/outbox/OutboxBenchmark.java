@@ -0,0 +1,125 @@
+package fi.tietoevry.backend.outbox;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import fi.tietoevry.backend.order.NewOrder;
+import fi.tietoevry.backend.order.OrderService;
+
+/*
+Added latency of placing an order (3 lines, so 4 events) with the outbox on, and end-to-end event throughput
+from commit to the sink. Needs the database from docker-compose.yml, run with: mvn test -Pbenchmark -Dtest=OutboxBenchmark
+The orders created here are deleted again at the end.
+*/
+@Tag("benchmark")
+@SpringBootTest(properties = {"spring.jpa.show-sql=false", "backend.outbox.sink=memory", "backend.audit.enabled=false"})
+class OutboxBenchmark {
+
+    private static final int ROUNDS = 2000;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OutboxProperties properties;
+
+    @Autowired
+    private OutboxRelay relay;
+
+    @Autowired
+    private InMemoryOutboxSink sink;
+
+    private final List<Long> createdOrders = new ArrayList<>();
+
+    @Test
+    void orderWriteLatencyAndRelayThroughput() throws InterruptedException {
+        Long customerNumber = jdbcTemplate.queryForObject("SELECT MIN(customerNumber) FROM customers", Long.class);
+        List<String> productCodes = jdbcTemplate.queryForList("SELECT productCode FROM products ORDER BY productCode LIMIT 3", String.class);
+
+        measure("warm-up", customerNumber, productCodes, true);
+        measure("outbox off", customerNumber, productCodes, false);
+        measure("outbox on", customerNumber, productCodes, true);
+
+        // end to end: everything written by both passes with the outbox on has to reach the sink
+        long start = System.nanoTime();
+        int expected = ROUNDS * (1 + productCodes.size());
+        while (sink.size() < expected * 2 && System.nanoTime() - start < TimeUnit.MINUTES.toNanos(2)) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+        System.out.printf("Outbox caught up with %d events %.2f s after the last write, %s%n", sink.size(), seconds, relay.getStats());
+
+        sink.clear();
+        drainAfterBurst(customerNumber, productCodes);
+    }
+
+    // Writes a backlog with the relay stopped, then times how long the relay needs to publish all of it
+    private void drainAfterBurst(Long customerNumber, List<String> productCodes) throws InterruptedException {
+        properties.setEnabled(true);
+        relay.stop();
+        for (int i = 0; i < ROUNDS; i++) {
+            createdOrders.add(orderService.placeOrder(order(customerNumber, productCodes)).getOrderNumber());
+        }
+        int expected = ROUNDS * (1 + productCodes.size());
+        long start = System.nanoTime();
+        relay.start();
+        while (sink.size() < expected && System.nanoTime() - start < TimeUnit.MINUTES.toNanos(2)) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+        System.out.printf("Outbox relay throughput: %d events in %.2f s, %.0f events/s (batch size %d)%n",
+                sink.size(), seconds, sink.size() / seconds, properties.getBatchSize());
+    }
+
+    private void measure(String label, Long customerNumber, List<String> productCodes, boolean outboxEnabled) {
+        properties.setEnabled(outboxEnabled);
+        List<Long> nanos = new ArrayList<>(ROUNDS);
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            Long orderNumber = orderService.placeOrder(order(customerNumber, productCodes)).getOrderNumber();
+            nanos.add(System.nanoTime() - start);
+            createdOrders.add(orderNumber);
+        }
+        Collections.sort(nanos);
+        System.out.printf("Place order latency, %-10s: p50 %6.2f ms, p99 %6.2f ms, max %6.2f ms%n", label,
+                millis(nanos.get(ROUNDS / 2)), millis(nanos.get(ROUNDS * 99 / 100)), millis(nanos.get(ROUNDS - 1)));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static NewOrder order(Long customerNumber, List<String> productCodes) {
+        NewOrder order = new NewOrder();
+        order.setCustomerNumber(customerNumber);
+        order.setComments("outbox benchmark");
+        for (String productCode : productCodes) {
+            order.getLines().add(new NewOrder.Line(productCode, 1L, null));
+        }
+        return order;
+    }
+
+    @AfterEach
+    void deleteCreatedOrders() {
+        properties.setEnabled(true);
+        for (int from = 0; from < createdOrders.size(); from += 500) {
+            List<Long> chunk = createdOrders.subList(from, Math.min(from + 500, createdOrders.size()));
+            String ids = chunk.toString().replaceAll("[\\[\\] ]", "");
+            jdbcTemplate.update("DELETE FROM orderdetails WHERE orderNumber IN (" + ids + ")");
+            jdbcTemplate.update("DELETE FROM orders WHERE orderNumber IN (" + ids + ")");
+        }
+        createdOrders.clear();
+    }
+}
@@ -0,0 +1,154 @@
+package fi.tietoevry.backend.pricing;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToLongFunction;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/*
+Price lookups from snapshots against the same lookups from one HashMap behind a read-write lock, with 1 to
+availableProcessors reader threads while a writer publishes a new version every few milliseconds.
+Pure in-memory with 10 000 synthetic products, no database needed, run with: mvn test -Pbenchmark -Dtest=PriceListBenchmark
+*/
+@Tag("benchmark")
+class PriceListBenchmark {
+
+    private static final int PRODUCTS = 10_000;
+    private static final long MEASURE_MILLIS = 2_000;
+    private static final long WRITE_INTERVAL_MILLIS = 5;
+
+    @Test
+    void lookupThroughput() throws InterruptedException {
+        String[] codes = new String[PRODUCTS];
+        for (int i = 0; i < PRODUCTS; i++) {
+            codes[i] = String.format("S%02d_%04d", i % 100, i);
+        }
+        int processors = Runtime.getRuntime().availableProcessors();
+        List<Integer> readerCounts = new ArrayList<>();
+        for (int readers = 1; readers < processors; readers *= 2) {
+            readerCounts.add(readers);
+        }
+        readerCounts.add(processors);
+        for (int readers : readerCounts) {
+            Snapshots snapshots = new Snapshots(codes);
+            LockedMap locked = new LockedMap(codes);
+            double snapshotRate = run(readers, codes, snapshots::msrpCents, snapshots::publish);
+            double lockedRate = run(readers, codes, locked::msrpCents, locked::publish);
+            System.out.printf("%3d readers: snapshot %,12.0f lookups/s, locked map %,12.0f lookups/s (%.1fx)%n",
+                    readers, snapshotRate, lockedRate, snapshotRate / lockedRate);
+        }
+    }
+
+    // Lookups per second over all readers while the writer publishes
+    private double run(int readers, String[] codes, ToLongFunction<String> lookup, Runnable publish) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder lookups = new LongAdder();
+        CountDownLatch done = new CountDownLatch(readers + 1);
+        List<Thread> threads = new ArrayList<>();
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                long sink = 0;
+                while (running.get()) {
+                    sink += lookup.applyAsLong(codes[random.nextInt(codes.length)]);
+                    count++;
+                }
+                lookups.add(count + (sink == 42 ? 1 : 0));
+                done.countDown();
+            }));
+        }
+        threads.add(new Thread(() -> {
+            while (running.get()) {
+                publish.run();
+                try {
+                    Thread.sleep(WRITE_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+            done.countDown();
+        }));
+        threads.forEach(Thread::start);
+        Thread.sleep(MEASURE_MILLIS);
+        running.set(false);
+        done.await(10, TimeUnit.SECONDS);
+        return lookups.sum() * 1000.0 / MEASURE_MILLIS;
+    }
+
+    private static List<ProductPrice> prices(String[] codes, long version) {
+        List<ProductPrice> prices = new ArrayList<>(codes.length);
+        for (int i = 0; i < codes.length; i++) {
+            long msrpCents = 10_000 + i + version % 100;
+            prices.add(new ProductPrice(codes[i], BigDecimal.valueOf(msrpCents / 2, 2), BigDecimal.valueOf(msrpCents, 2)));
+        }
+        return prices;
+    }
+
+    // What PriceLists does: build the next version aside, publish it through a volatile field
+    private static final class Snapshots {
+        private final String[] codes;
+        private volatile PriceList current;
+        private long version;
+
+        Snapshots(String[] codes) {
+            this.codes = codes;
+            this.current = PriceList.build(0, 0, PriceList.empty(), prices(codes, 0));
+        }
+
+        long msrpCents(String productCode) {
+            PriceList prices = current;
+            return prices.msrpCents(prices.idOf(productCode));
+        }
+
+        void publish() {
+            current = PriceList.build(++version, System.currentTimeMillis(), current, prices(codes, version));
+        }
+    }
+
+    // The usual alternative: one map updated in place, readers and the writer share a lock
+    private static final class LockedMap {
+        private final String[] codes;
+        private final Map<String, BigDecimal> msrp = new HashMap<>();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private long version;
+
+        LockedMap(String[] codes) {
+            this.codes = codes;
+            publish();
+        }
+
+        long msrpCents(String productCode) {
+            lock.readLock().lock();
+            try {
+                return msrp.get(productCode).unscaledValue().longValue();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void publish() {
+            List<ProductPrice> prices = prices(codes, version++); // built outside the lock, like the snapshot
+            lock.writeLock().lock();
+            try {
+                for (ProductPrice price : prices) {
+                    msrp.put(price.getProductCode(), price.getMsrp());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package fi.tietoevry.backend.pricing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class PriceListTests {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private PriceLists priceLists;
+
+    @BeforeEach
+    void createDatabase() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:pricing-schema.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        TransactionTemplate snapshot = new TransactionTemplate(new DataSourceTransactionManager(database));
+        snapshot.setReadOnly(true);
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        priceLists = new PriceLists(jdbcTemplate, snapshot, 3, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void shutdown() {
+        database.shutdown();
+    }
+
+    @Test
+    void pricesAreLoadedOnFirstUse() {
+        PriceList prices = priceLists.current();
+
+        assertThat(prices.getVersion()).isEqualTo(1000);
+        assertThat(prices.size()).isEqualTo(3);
+        int id = prices.idOf("S18_3232");
+        assertThat(prices.codeOf(id)).isEqualTo("S18_3232");
+        assertThat(prices.buyPrice(id)).isEqualByComparingTo("101.51");
+        assertThat(prices.msrp(id)).isEqualByComparingTo("169.34");
+        assertThat(prices.msrpCents(id)).isEqualTo(16934);
+        assertThat(prices.idOf("S99_9999")).isEqualTo(-1);
+        assertThat(prices.msrp(-1)).isNull();
+    }
+
+    @Test
+    void unchangedVersionIsNotReloaded() {
+        priceLists.current();
+        jdbcTemplate.update("UPDATE products SET MSRP = 1 WHERE productCode = 'S18_3232'"); // version not bumped
+
+        assertThat(priceLists.refresh()).isFalse();
+        assertThat(priceLists.stats().getRebuilds()).isEqualTo(1);
+        PriceList prices = priceLists.current();
+        assertThat(prices.msrp(prices.idOf("S18_3232"))).isEqualByComparingTo("169.34");
+    }
+
+    @Test
+    void newVersionIsSwappedInAndOldSnapshotsStayUnchanged() {
+        PriceList before = priceLists.current();
+        int id = before.idOf("S18_3232");
+        jdbcTemplate.update("UPDATE products SET MSRP = 175.00 WHERE productCode = 'S18_3232'");
+        jdbcTemplate.update("INSERT INTO products VALUES ('S24_2000', 34.35, 76.17)");
+        bumpVersion();
+
+        assertThat(priceLists.refresh()).isTrue();
+        PriceList after = priceLists.current();
+
+        assertThat(after.getVersion()).isEqualTo(1001);
+        assertThat(after.size()).isEqualTo(4);
+        assertThat(after.idOf("S18_3232")).isEqualTo(id); // ids are stable across versions
+        assertThat(after.msrp(id)).isEqualByComparingTo("175.00");
+        assertThat(after.contains(after.idOf("S24_2000"))).isTrue();
+        assertThat(before.msrp(id)).isEqualByComparingTo("169.34");
+        assertThat(before.idOf("S24_2000")).isEqualTo(-1);
+    }
+
+    @Test
+    void removedProductsKeepTheirIdButHaveNoPrice() {
+        int id = priceLists.current().idOf("S10_1949");
+        jdbcTemplate.update("DELETE FROM products WHERE productCode = 'S10_1949'");
+        bumpVersion();
+        priceLists.refresh();
+        jdbcTemplate.update("INSERT INTO products VALUES ('S10_1949', 98.58, 220.00)");
+        bumpVersion();
+        priceLists.refresh();
+
+        assertThat(priceLists.at(1001).get().contains(id)).isFalse();
+        assertThat(priceLists.at(1001).get().size()).isEqualTo(2);
+        assertThat(priceLists.current().idOf("S10_1949")).isEqualTo(id);
+        assertThat(priceLists.current().msrp(id)).isEqualByComparingTo("220.00");
+    }
+
+    @Test
+    void onlyTheNewestVersionsAreRetained() {
+        priceLists.current();
+        for (int i = 0; i < 3; i++) {
+            bumpVersion();
+            priceLists.refresh();
+        }
+
+        assertThat(priceLists.stats().getRetainedVersions()).containsExactly(1003L, 1002L, 1001L);
+        assertThat(priceLists.at(1000)).isEmpty();
+        assertThat(priceLists.at(1002).get().getVersion()).isEqualTo(1002);
+    }
+
+    @Test
+    void aNewerVersionIsLoadedOnDemand() {
+        priceLists.current();
+        bumpVersion(); // e.g. quoted by another instance that refreshed first
+
+        assertThat(priceLists.at(1001).get().getVersion()).isEqualTo(1001);
+        assertThat(priceLists.current().getVersion()).isEqualTo(1001);
+    }
+
+    @Test
+    void unknownVersionsDontHitTheDatabaseOnEveryCall() {
+        priceLists.current();
+
+        assertThat(priceLists.at(5000)).isEmpty(); // checks once
+        bumpVersion();
+        assertThat(priceLists.at(1001)).isEmpty(); // not again within the interval
+        assertThat(priceLists.stats().getRebuilds()).isEqualTo(1);
+        assertThat(priceLists.refresh()).isTrue(); // the refresher still picks it up
+        assertThat(priceLists.at(1001).get().getVersion()).isEqualTo(1001);
+    }
+
+    @Test
+    void aMissingVersionRowKeepsTheCurrentPrices() {
+        priceLists.current();
+        jdbcTemplate.update("DELETE FROM table_versions WHERE table_name = 'products'");
+
+        assertThat(priceLists.refresh()).isFalse();
+        assertThat(priceLists.current().getVersion()).isEqualTo(1000);
+    }
+
+    @Test
+    void quotePricesEveryLineFromOneSnapshot() {
+        PriceList prices = priceLists.current();
+        jdbcTemplate.update("UPDATE products SET MSRP = MSRP * 2");
+        bumpVersion();
+        priceLists.refresh();
+
+        PriceQuote quote = PriceQuote.of(prices, Arrays.asList(
+                new QuoteRequest.Line("S10_1678", 3L),
+                new QuoteRequest.Line("S18_3232", 2L)));
+
+        assertThat(quote.getPriceListVersion()).isEqualTo(1000);
+        assertThat(quote.getLines()).extracting(PriceQuote.Line::getLineTotal)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("287.10"), new BigDecimal("338.68"));
+        assertThat(quote.getTotal()).isEqualByComparingTo("625.78");
+    }
+
+    @Test
+    void quoteRejectsUnknownProductsAndBadQuantities() {
+        PriceList prices = priceLists.current();
+
+        assertThatThrownBy(() -> PriceQuote.of(prices, new ArrayList<>()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PriceQuote.of(prices, lines(new QuoteRequest.Line("S99_9999", 1L))))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("S99_9999");
+        assertThatThrownBy(() -> PriceQuote.of(prices, lines(new QuoteRequest.Line("S18_3232", 0L))))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("quantityOrdered");
+    }
+
+    private List<QuoteRequest.Line> lines(QuoteRequest.Line line) {
+        List<QuoteRequest.Line> lines = new ArrayList<>();
+        lines.add(line);
+        return lines;
+    }
+
+    private void bumpVersion() {
+        jdbcTemplate.update("UPDATE table_versions SET version = version + 1 WHERE table_name = 'products'");
+    }
+}
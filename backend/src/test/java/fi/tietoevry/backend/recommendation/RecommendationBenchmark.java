@@ -0,0 +1,98 @@
+package fi.tietoevry.backend.recommendation;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/*
+Build time, memory and top-10 latency of the co-occurrence matrix at 1x, 100x and 1000x the sample orders.
+The scaled order sets are copies of the real order lines with the product ids rotated per copy, so the number of
+lines grows with the scale factor while the catalog stays the same (as it would).
+Needs the database from docker-compose.yml, run with: mvn test -Pbenchmark -Dtest=RecommendationBenchmark
+*/
+@Tag("benchmark")
+@SpringBootTest(properties = {"spring.jpa.show-sql=false", "backend.recommendations.enabled=false"})
+class RecommendationBenchmark {
+
+    private static final int[] SCALE_FACTORS = {1, 100, 1_000};
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void buildAndLookupByScaleFactor() {
+        ProductDictionary products = new ProductDictionary();
+        OrderLines sample = new OrderLines();
+        jdbcTemplate.query(RecommendationEngine.LOAD_LINES, rs -> {
+            sample.add(rs.getLong(1), products.register(rs.getString(2)));
+        });
+        ExecutorService workers = Executors.newFixedThreadPool(PARALLELISM);
+        try {
+            for (int scale : SCALE_FACTORS) {
+                OrderLines lines = scaled(sample, scale, products.size());
+                report(scale, lines, products.size(), workers, 1);
+                report(scale, lines, products.size(), workers, PARALLELISM);
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private static void report(int scale, OrderLines lines, int products, ExecutorService workers, int parallelism) {
+        CooccurrenceMatrix.build(lines, products, workers, parallelism); // warm-up
+        long bestBuild = Long.MAX_VALUE;
+        CooccurrenceMatrix matrix = null;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            matrix = CooccurrenceMatrix.build(lines, products, workers, parallelism);
+            bestBuild = Math.min(bestBuild, System.nanoTime() - start);
+        }
+
+        int[] ids = new int[10];
+        int[] counts = new int[10];
+        int rounds = 200;
+        long found = 0;
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (int product = 0; product < products; product++) {
+                found += matrix.top(product, 10, ids, counts);
+            }
+        }
+        double topNanos = (System.nanoTime() - start) / (double) (rounds * products);
+
+        int[] order = new int[5];
+        start = System.nanoTime();
+        for (int i = 0; i < 100_000; i++) {
+            for (int line = 0; line < order.length; line++) {
+                order[line] = (i + line) % products; // five distinct products, the catalog has ~100
+            }
+            matrix.addOrder(order, order.length);
+        }
+        double addNanos = (System.nanoTime() - start) / 100_000.0;
+
+        System.out.printf("%5dx %8d orders %9d lines, %2d threads: build %8.1f ms, matrix %7d KiB (%d pairs), lines %8d KiB, " +
+                        "top-10 %6.0f ns, add order %5.0f ns (%d found)%n",
+                scale, lines.orders(), lines.lines(), parallelism, bestBuild / (double) TimeUnit.MILLISECONDS.toNanos(1),
+                matrix.memoryBytes() / 1024, matrix.pairs(), lines.memoryBytes() / 1024, topNanos, addNanos, found);
+    }
+
+    private static OrderLines scaled(OrderLines sample, int scale, int products) {
+        OrderLines lines = new OrderLines();
+        for (int copy = 0; copy < scale; copy++) {
+            long orderNumberBase = copy * 1_000_000L; // copies stay sorted by order number
+            for (int order = 0; order < sample.orders(); order++) {
+                for (int line = sample.start(order); line < sample.end(order); line++) {
+                    lines.add(orderNumberBase + sample.orderNumber(order), (sample.product(line) + copy) % products);
+                }
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,186 @@
+package fi.tietoevry.backend.recommendation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import fi.tietoevry.backend.sharding.ScatterGather;
+import fi.tietoevry.backend.sharding.ShardRouter;
+
+class RecommendationEngineTests {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private ScatterGather scatterGather;
+    private final List<RecommendationEngine> engines = new ArrayList<>();
+
+    @BeforeEach
+    void createDatabase() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:recommendation-schema.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        scatterGather = new ScatterGather(ShardRouter.unsharded(database), 1);
+    }
+
+    @AfterEach
+    void shutdown() {
+        engines.forEach(RecommendationEngine::shutdown);
+        scatterGather.shutdown();
+        database.shutdown();
+    }
+
+    @Test
+    void countsOrdersTogether() {
+        insertOrder(1, "Shipped", "A", "B", "C");
+        insertOrder(2, "Shipped", "A", "B");
+        insertOrder(3, "In Process", "A", "D");
+        insertOrder(4, "Shipped", "B", "C");
+        insertOrder(5, "Cancelled", "A", "D", "E");
+        RecommendationEngine engine = engine(2);
+        RecommendationStats stats = engine.rebuild();
+
+        assertThat(stats.getOrders()).isEqualTo(4);
+        assertThat(stats.getProducts()).isEqualTo(4); // E was only in the cancelled order
+        List<Recommendation> forA = engine.recommend("A", 10);
+        assertThat(forA).extracting(Recommendation::getProductCode).containsExactly("B", "C", "D"); // C and D tie, C got the lower id
+        assertThat(forA.get(0).getOrders()).isEqualTo(2);
+        assertThat(forA.get(0).getConfidence()).isEqualTo(2 / 3.0);
+        assertThat(engine.recommend("A", 1)).extracting(Recommendation::getProductCode).containsExactly("B");
+        assertThat(engine.recommend("E", 10)).isEmpty();
+        assertThat(engine.recommend("unknown", 10)).isEmpty();
+    }
+
+    @Test
+    void addedOrdersCountRightAway() {
+        insertOrder(1, "Shipped", "A", "B");
+        RecommendationEngine engine = engine(1);
+        engine.rebuild();
+
+        engine.addOrder(2, Arrays.asList("A", "C", "C")); // the same product twice still is one order
+        engine.addOrder(3, Arrays.asList("A", "C", "F"));
+
+        assertThat(engine.recommend("A", 10)).extracting(Recommendation::getProductCode).containsExactly("C", "B", "F");
+        assertThat(engine.recommend("C", 10)).extracting(Recommendation::getOrders).containsExactly(2, 1);
+        assertThat(engine.recommend("F", 10)).extracting(Recommendation::getProductCode).containsExactly("A", "C");
+        assertThat(engine.stats().getIncrementalOrders()).isEqualTo(2);
+        assertThat(engine.stats().getOrders()).isEqualTo(3);
+    }
+
+    @Test
+    void incrementalAndParallelBuildsAgreeWithASingleThreadedBuild() {
+        Random random = new Random(42);
+        List<List<String>> orders = randomOrders(random, 2_000, 60);
+        for (int i = 0; i < 1_000; i++) {
+            insertOrder(i, "Shipped", orders.get(i).toArray(new String[0]));
+        }
+        RecommendationEngine incremental = engine(4);
+        incremental.rebuild();
+        for (int i = 1_000; i < orders.size(); i++) {
+            insertOrder(i, "Shipped", orders.get(i).toArray(new String[0]));
+            incremental.addOrder(i, orders.get(i));
+        }
+        RecommendationEngine parallel = engine(7);
+        parallel.rebuild();
+        RecommendationEngine single = engine(1);
+        single.rebuild();
+
+        for (int product = 0; product < 60; product++) {
+            List<Integer> expected = orderCounts(single.recommend("P" + product, 60));
+            assertThat(orderCounts(parallel.recommend("P" + product, 60))).isEqualTo(expected);
+            assertThat(orderCounts(incremental.recommend("P" + product, 60))).isEqualTo(expected);
+        }
+        assertThat(parallel.stats().getPairs()).isEqualTo(single.stats().getPairs());
+        assertThat(incremental.stats().getOrders()).isEqualTo(orders.size());
+    }
+
+    @Test
+    void rebuildKeepsNothingTwice() {
+        insertOrder(1, "Shipped", "A", "B");
+        RecommendationEngine engine = engine(2);
+        engine.rebuild();
+        insertOrder(2, "Shipped", "A", "B");
+        engine.addOrder(2, Arrays.asList("A", "B"));
+        engine.rebuild();
+
+        assertThat(engine.recommend("A", 10).get(0).getOrders()).isEqualTo(2);
+        assertThat(engine.stats().getIncrementalOrders()).isZero();
+    }
+
+    @Test
+    void hashMapGrowsAndKeepsCounts() {
+        IntIntHashMap map = new IntIntHashMap(2);
+        for (int round = 1; round <= 3; round++) {
+            for (int key = 0; key < 10_000; key += 3) {
+                map.increment(key, round);
+            }
+        }
+        assertThat(map.size()).isEqualTo(3_334);
+        assertThat(map.get(9_999)).isEqualTo(6);
+        assertThat(map.get(1)).isZero();
+        long[] sum = {0};
+        map.forEach((key, value) -> sum[0] += value);
+        assertThat(sum[0]).isEqualTo(3_334L * 6);
+    }
+
+    @Test
+    void findsOrdersLoadedOneShardAfterAnother() {
+        OrderLines lines = new OrderLines();
+        for (long orderNumber : new long[]{10100, 10107, 10103, 10105}) {
+            lines.add(orderNumber, 0);
+        }
+        assertThat(lines.containsOrder(10103)).isTrue();
+        assertThat(lines.containsOrder(10104)).isFalse();
+        lines.add(10104, 0);
+        assertThat(lines.containsOrder(10104)).isTrue();
+    }
+
+    private RecommendationEngine engine(int parallelism) {
+        RecommendationEngine engine = new RecommendationEngine(scatterGather, 100, parallelism);
+        engines.add(engine);
+        return engine;
+    }
+
+    private void insertOrder(int orderNumber, String status, String... productCodes) {
+        jdbcTemplate.update("INSERT INTO orders VALUES (?, ?)", orderNumber, status);
+        for (String productCode : new LinkedHashSet<>(Arrays.asList(productCodes))) {
+            jdbcTemplate.update("INSERT INTO orderdetails VALUES (?, ?)", orderNumber, productCode);
+        }
+    }
+
+    // product popularity skewed like a real catalog, 1 to 8 lines per order
+    private static List<List<String>> randomOrders(Random random, int count, int products) {
+        List<List<String>> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Set<String> lines = new LinkedHashSet<>();
+            int size = 1 + random.nextInt(8);
+            while (lines.size() < size) {
+                lines.add("P" + (int) (products * Math.pow(random.nextDouble(), 2)));
+            }
+            orders.add(new ArrayList<>(lines));
+        }
+        return orders;
+    }
+
+    // ids differ between engines, so compare the counts (already sorted best first)
+    private static List<Integer> orderCounts(List<Recommendation> recommendations) {
+        List<Integer> counts = new ArrayList<>();
+        recommendations.forEach(recommendation -> counts.add(recommendation.getOrders()));
+        return counts;
+    }
+}
@@ -0,0 +1,77 @@
+package fi.tietoevry.backend.recommendation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import fi.tietoevry.backend.model.Customer;
+import fi.tietoevry.backend.model.Order;
+import fi.tietoevry.backend.model.OrderDetail;
+import fi.tietoevry.backend.model.Product;
+import fi.tietoevry.backend.support.SampleDatabase;
+
+@SpringBootTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.show-sql=false",
+        "backend.outbox.relay=false",
+        "backend.recommendations.fetch-size=500"})
+@Import(SampleDatabase.Configuration.class)
+class RecommendationListenerTests {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private RecommendationEngine engine;
+
+    @Test
+    void addsAnOrderPlacedWithoutSpringTransactionSynchronization() {
+        long before = engine.stats().getIncrementalOrders();
+        EntityManager entityManager = entityManagerFactory.createEntityManager(); // a resource local transaction of its own
+        try {
+            entityManager.getTransaction().begin();
+            Order order = new Order();
+            order.setCustomer(entityManager.getReference(Customer.class, 112L));
+            order.setOrderDate(new Date());
+            order.setRequiredDate(new Date());
+            order.setStatus("In Process");
+            entityManager.persist(order);
+            List<OrderDetail> details = new ArrayList<>();
+            int lineNumber = 1;
+            for (String productCode : Arrays.asList("S10_1678", "S10_1949")) {
+                OrderDetail detail = new OrderDetail();
+                detail.setOrderNumber(order.getOrderNumber());
+                detail.setProductCode(productCode);
+                detail.setOrder(order);
+                detail.setProduct(entityManager.getReference(Product.class, productCode));
+                detail.setQuantityOrdered(1L);
+                detail.setPriceEach(BigDecimal.TEN);
+                detail.setOrderLineNumber(lineNumber++);
+                entityManager.persist(detail);
+                details.add(detail);
+            }
+            entityManager.getTransaction().commit();
+
+            assertThat(engine.stats().getIncrementalOrders()).isEqualTo(before + 1);
+
+            entityManager.getTransaction().begin(); // the context is shared
+            details.forEach(entityManager::remove);
+            entityManager.remove(order);
+            entityManager.getTransaction().commit();
+        } finally {
+            entityManager.close();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package fi.tietoevry.backend.reconciliation;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+// Throughput from 1 to N workers, run with: mvn test -Pbenchmark -Dtest=ReconciliationBenchmark -Dreconciliation.benchmark.customers=100000
+@Tag("benchmark")
+class ReconciliationBenchmark {
+
+    @TempDir
+    Path reports;
+
+    @Test
+    void throughputByWorkerThreads() {
+        int customers = Integer.getInteger("reconciliation.benchmark.customers", 50_000);
+        int maxThreads = Integer.getInteger("reconciliation.benchmark.maxThreads", Runtime.getRuntime().availableProcessors());
+        EmbeddedDatabase database = ReconciliationTestData.create(customers);
+        try {
+            new ReconciliationJob(database, ReconciliationTestData.properties(reports.toString(), 1)).run("warmup");
+            double single = 0;
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                ReconciliationResult result = new ReconciliationJob(database, ReconciliationTestData.properties(reports.toString(), threads))
+                        .run("threads-" + threads);
+                if (threads == 1) {
+                    single = result.getCustomersPerSecond();
+                }
+                System.out.printf("Reconciliation of %d customers with %2d threads: %6d ms, %9.0f customers/s, speed-up %.2fx%n",
+                        customers, threads, result.getElapsedMillis(), result.getCustomersPerSecond(), result.getCustomersPerSecond() / single);
+            }
+        } finally {
+            database.shutdown();
+        }
+    }
+}
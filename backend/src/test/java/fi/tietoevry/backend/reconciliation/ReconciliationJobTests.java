@@ -0,0 +1,89 @@
+package fi.tietoevry.backend.reconciliation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+class ReconciliationJobTests {
+
+    @TempDir
+    Path reports;
+
+    private EmbeddedDatabase database;
+
+    @BeforeEach
+    void createData() {
+        database = ReconciliationTestData.create(200);
+    }
+
+    @AfterEach
+    void dropData() {
+        database.shutdown();
+    }
+
+    @Test
+    void reportsUnderpaidCustomersFromAllPartitions() throws IOException {
+        ReconciliationResult result = new ReconciliationJob(database, ReconciliationTestData.properties(reports.toString(), 4)).run("test");
+
+        assertThat(result.isComplete()).isTrue();
+        assertThat(result.getPartitions()).isEqualTo(16);
+        assertThat(result.getCustomersChecked()).isEqualTo(200);
+        assertThat(result.getDiscrepancies()).isEqualTo(20); // customers 100, 110, ..., 290
+        assertThat(reportLines(reports.resolve("test")))
+                .hasSize(20)
+                .anySatisfy(line -> assertThat(line).startsWith("110,282.00,281.00,1.00")); // 3 orders * 94.00, paid 1.00 short
+    }
+
+    @Test
+    void restartOnlyRunsUnfinishedPartitions() throws IOException {
+        ReconciliationProperties properties = ReconciliationTestData.properties(reports.toString(), 2);
+        new ReconciliationJob(database, properties).run("restart");
+        Files.delete(reports.resolve("restart").resolve("partition-3.done")); // as if the worker died before finishing
+
+        ReconciliationResult result = new ReconciliationJob(database, properties).run("restart");
+
+        assertThat(result.getPartitionsSkipped()).isEqualTo(result.getPartitions() - 1);
+        assertThat(result.getCustomersChecked()).isEqualTo(200);
+        assertThat(result.getDiscrepancies()).isEqualTo(20);
+    }
+
+    @Test
+    void runsWithoutAnIdNeverReuseAnEarlierReport() {
+        ReconciliationProperties properties = ReconciliationTestData.properties(reports.toString(), 2);
+        ReconciliationResult first = new ReconciliationJob(database, properties).run();
+        new JdbcTemplate(database).update("DELETE FROM payments WHERE customerNumber = 101"); // fully paid until now
+
+        ReconciliationResult second = new ReconciliationJob(database, properties).run();
+
+        assertThat(second.getJobId()).isNotEqualTo(first.getJobId());
+        assertThat(second.getPartitionsSkipped()).isZero();
+        assertThat(second.getDiscrepancies()).isEqualTo(first.getDiscrepancies() + 1);
+    }
+
+    private static List<String> reportLines(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".csv") && file.getFileName().toString().startsWith("partition-"))
+                    .flatMap(file -> {
+                        try {
+                            return Files.readAllLines(file).stream().skip(1); // header
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package fi.tietoevry.backend.reconciliation;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+// Generated customers with 3 orders of 4 lines each; every 10th customer underpaid by 1.00, every 7th has a cancelled order
+final class ReconciliationTestData {
+
+    private ReconciliationTestData() {
+    }
+
+    static EmbeddedDatabase create(int customers) {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:reconciliation-schema.sql")
+                .build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        List<Object[]> customerRows = new ArrayList<>();
+        List<Object[]> orderRows = new ArrayList<>();
+        List<Object[]> lineRows = new ArrayList<>();
+        List<Object[]> paymentRows = new ArrayList<>();
+        int orderNumber = 10000;
+        for (int customer = 100; customer < 100 + customers; customer++) {
+            customerRows.add(new Object[]{customer});
+            BigDecimal total = BigDecimal.ZERO;
+            for (int order = 0; order < 3; order++) {
+                orderNumber++;
+                boolean cancelled = customer % 7 == 0 && order == 2;
+                orderRows.add(new Object[]{orderNumber, cancelled ? "Cancelled" : "Shipped", customer});
+                for (int line = 0; line < 4; line++) {
+                    BigDecimal price = new BigDecimal("10.25").add(BigDecimal.valueOf(line));
+                    lineRows.add(new Object[]{orderNumber, "S10_" + line, 2, price});
+                    if (!cancelled) {
+                        total = total.add(price.multiply(BigDecimal.valueOf(2)));
+                    }
+                }
+            }
+            paymentRows.add(new Object[]{customer, "CH" + customer, customer % 10 == 0 ? total.subtract(BigDecimal.ONE) : total});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO customers VALUES (?)", customerRows);
+        jdbcTemplate.batchUpdate("INSERT INTO orders VALUES (?, ?, ?)", orderRows);
+        jdbcTemplate.batchUpdate("INSERT INTO orderdetails VALUES (?, ?, ?, ?)", lineRows);
+        jdbcTemplate.batchUpdate("INSERT INTO payments VALUES (?, ?, ?)", paymentRows);
+        return database;
+    }
+
+    static ReconciliationProperties properties(String reportDirectory, int threads) {
+        ReconciliationProperties properties = new ReconciliationProperties();
+        properties.setReportDirectory(reportDirectory);
+        properties.setThreads(threads);
+        properties.setFetchSize(500); // H2 doesn't accept MySQL's Integer.MIN_VALUE streaming hint
+        return properties;
+    }
+}
@@ -0,0 +1,152 @@
+package fi.tietoevry.backend.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ReflectionUtils;
+
+import fi.tietoevry.backend.support.RecordedStatement;
+import fi.tietoevry.backend.support.RecordingDataSource;
+
+/*
+Index advisor: runs every query method declared in our repositories, captures the SQL Hibernate sends
+and asks MySQL for its plan with EXPLAIN. A plan that reads a whole table (type ALL) or a whole index (type index)
+estimated at more than -Dqueryplan.maxScannedRows rows (default 100) fails the build,
+together with the indexes MySQL considered, so the fix is usually a new index in db/migration.
+Needs the database from docker-compose.yml, run with: mvn test -Pmysql
+*/
+@Tag("mysql")
+@SpringBootTest
+@Import(RecordingDataSource.Configuration.class)
+class QueryPlanAdvisorTests {
+
+    private static final long MAX_SCANNED_ROWS = Long.getLong("queryplan.maxScannedRows", 100);
+
+    // Realistic values from the sample database, so MySQL plans the query like it would in production
+    private static final Map<String, Object> SAMPLE_ARGUMENTS = new HashMap<>();
+
+    static {
+        SAMPLE_ARGUMENTS.put("status", "Shipped");
+        SAMPLE_ARGUMENTS.put("country", "USA");
+        SAMPLE_ARGUMENTS.put("city", "NYC");
+        SAMPLE_ARGUMENTS.put("productVendor", "Min Lin Diecast");
+        SAMPLE_ARGUMENTS.put("from", Date.valueOf(LocalDate.of(2004, 1, 1)));
+        SAMPLE_ARGUMENTS.put("to", Date.valueOf(LocalDate.of(2004, 3, 31)));
+    }
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private RecordingDataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void repositoryQueriesDontScanLargeTables() {
+        Repositories repositories = new Repositories(applicationContext);
+        List<String> fullScans = new ArrayList<>();
+        int explained = 0;
+        for (Class<?> domainType : repositories) {
+            RepositoryInformation information = repositories.getRequiredRepositoryInformation(domainType);
+            if (!information.getRepositoryInterface().getPackage().getName().equals(getClass().getPackage().getName())) {
+                continue; // only our own repositories
+            }
+            Object repository = repositories.getRepositoryFor(domainType).orElseThrow(IllegalStateException::new);
+            for (Method method : information.getQueryMethods()) {
+                Object[] arguments = sampleArguments(method);
+                List<RecordedStatement> statements = dataSource.record(() -> transactionTemplate.executeWithoutResult(status -> {
+                    ReflectionUtils.invokeMethod(method, repository, arguments);
+                    status.setRollbackOnly(); // modifying queries must not change the sample data
+                }));
+                for (RecordedStatement statement : statements) {
+                    if (!statement.isSelect()) {
+                        continue;
+                    }
+                    explained++;
+                    for (Map<String, Object> row : jdbcTemplate.queryForList("EXPLAIN " + statement.getSql(), statement.getParameters())) {
+                        String type = String.valueOf(row.get("type"));
+                        long rows = row.get("rows") == null ? 0 : ((Number) row.get("rows")).longValue();
+                        if (("ALL".equals(type) || "index".equals(type)) && rows > MAX_SCANNED_ROWS) {
+                            fullScans.add(information.getRepositoryInterface().getSimpleName() + "." + method.getName()
+                                    + ": " + type + " scan of " + row.get("table") + " (~" + rows + " rows, possible keys: "
+                                    + row.get("possible_keys") + ")\n    " + statement.getSql());
+                        }
+                    }
+                }
+            }
+        }
+        assertThat(explained).isPositive();
+        assertThat(fullScans).as("Repository queries scanning more than %d rows", MAX_SCANNED_ROWS).isEmpty();
+    }
+
+    private static Object[] sampleArguments(Method method) {
+        Parameter[] parameters = method.getParameters();
+        Object[] arguments = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            arguments[i] = SAMPLE_ARGUMENTS.containsKey(parameters[i].getName())
+                    ? SAMPLE_ARGUMENTS.get(parameters[i].getName())
+                    : sampleOfType(parameters[i].getType());
+        }
+        return arguments;
+    }
+
+    private static Object sampleOfType(Class<?> type) {
+        if (type == String.class) {
+            return "S10_1678";
+        }
+        if (type == Long.class || type == long.class) {
+            return 10100L;
+        }
+        if (type == Integer.class || type == int.class) {
+            return 10100;
+        }
+        if (type == BigDecimal.class) {
+            return BigDecimal.valueOf(100);
+        }
+        if (java.util.Date.class.isAssignableFrom(type)) {
+            return Date.valueOf(LocalDate.of(2004, 1, 1));
+        }
+        if (type == LocalDate.class) {
+            return LocalDate.of(2004, 1, 1);
+        }
+        if (Collection.class.isAssignableFrom(type)) {
+            return Collections.singletonList(10100L);
+        }
+        if (type == Pageable.class) {
+            return PageRequest.of(0, 20);
+        }
+        if (type == Sort.class) {
+            return Sort.unsorted();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,319 @@
+package fi.tietoevry.backend.sharding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import fi.tietoevry.backend.cache.InvalidationMessage;
+import fi.tietoevry.backend.customerstats.CustomerStats;
+import fi.tietoevry.backend.customerstats.CustomerStatsProperties;
+import fi.tietoevry.backend.customerstats.CustomerStatsRebuild;
+import fi.tietoevry.backend.customerstats.CustomerStatsService;
+import fi.tietoevry.backend.customerstats.CustomerStatsUpdater;
+import fi.tietoevry.backend.lookup.BulkLookupProperties;
+import fi.tietoevry.backend.lookup.BulkLookupService;
+import fi.tietoevry.backend.model.Customer;
+import fi.tietoevry.backend.model.Employee;
+import fi.tietoevry.backend.model.Order;
+import fi.tietoevry.backend.model.OrderDetail;
+import fi.tietoevry.backend.model.Product;
+import fi.tietoevry.backend.model.ProductLine;
+import fi.tietoevry.backend.reconciliation.ReconciliationJob;
+import fi.tietoevry.backend.reconciliation.ReconciliationProperties;
+import fi.tietoevry.backend.reconciliation.ReconciliationResult;
+import fi.tietoevry.backend.sharding.ShardingProperties.ShardProperties;
+
+// One embedded database per territory shard plus the global one
+class ShardingTests {
+
+    private EmbeddedDatabase global;
+    private final Map<String, EmbeddedDatabase> shardDatabases = new HashMap<>();
+    private ShardRouter router;
+    private ShardRoutingDataSource routingDataSource;
+    private ScatterGather scatterGather;
+
+    @BeforeEach
+    void createShards() {
+        global = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:sharding-global-schema.sql")
+                .build();
+        JdbcTemplate globalJdbc = new JdbcTemplate(global);
+        globalJdbc.update("INSERT INTO offices VALUES ('1', 'NA'), ('4', 'EMEA'), ('5', 'Japan'), ('6', 'APAC')");
+        globalJdbc.update("INSERT INTO employees VALUES (1165, '1'), (1370, '4'), (1621, '5'), (1611, '6')");
+        globalJdbc.update("INSERT INTO customers VALUES (124, 1165), (141, 1370), (148, 1621), (114, 1611), (125, NULL)");
+        globalJdbc.update("INSERT INTO productlines VALUES ('Classic Cars')");
+        globalJdbc.update("INSERT INTO products VALUES ('S10_1678', 'Classic Cars')");
+
+        ShardingProperties properties = new ShardingProperties();
+        properties.setEnabled(true);
+        properties.setIdBlockSize(10);
+        int index = 0;
+        for (String territory : new String[]{"NA", "EMEA", "APAC"}) { // no Japan shard: its customers go to NA
+            ShardProperties shard = new ShardProperties();
+            shard.setIndex(index++);
+            shard.setUrl(territory);
+            properties.getShards().put(territory, shard);
+            EmbeddedDatabase shardDatabase = new EmbeddedDatabaseBuilder()
+                    .setType(EmbeddedDatabaseType.H2)
+                    .generateUniqueName(true)
+                    .addScript("classpath:sharding-shard-schema.sql")
+                    .build();
+            JdbcTemplate shardJdbc = new JdbcTemplate(shardDatabase); // the reference data copy
+            shardJdbc.update("INSERT INTO customers (customerNumber, salesRepEmployeeNumber) " +
+                    "VALUES (124, 1165), (141, 1370), (148, 1621), (114, 1611), (125, NULL)");
+            shardJdbc.update("INSERT INTO productlines VALUES ('Classic Cars')");
+            shardJdbc.update("INSERT INTO products VALUES ('S10_1678', 'Classic Cars')");
+            shardDatabases.put(territory, shardDatabase);
+        }
+        router = ShardRouterFactory.create(properties, global, shard -> shardDatabases.get(shard.getUrl()));
+        routingDataSource = new ShardRoutingDataSource(global, router.getShards());
+        routingDataSource.afterPropertiesSet();
+        scatterGather = new ScatterGather(router, 4);
+    }
+
+    @AfterEach
+    void shutdown() {
+        scatterGather.shutdown();
+        shardDatabases.values().forEach(EmbeddedDatabase::shutdown);
+        global.shutdown();
+    }
+
+    @Test
+    void routesCustomersToTheTerritoryOfTheirSalesRep() {
+        assertThat(router.shardForCustomer(124L).getTerritory()).isEqualTo("NA");
+        assertThat(router.shardForCustomer(141L).getTerritory()).isEqualTo("EMEA");
+        assertThat(router.shardForCustomer(114L).getTerritory()).isEqualTo("APAC");
+        assertThat(router.shardForCustomer(148L).getTerritory()).isEqualTo("NA"); // Japan has no shard
+        assertThat(router.shardForCustomer(125L).getTerritory()).isEqualTo("NA"); // no sales rep
+        assertThat(router.shardForCustomer(999L).getTerritory()).isEqualTo("NA"); // unknown
+    }
+
+    @Test
+    void territoriesAreCachedUntilInvalidatedAndMissesAreNot() {
+        JdbcTemplate globalJdbc = new JdbcTemplate(global);
+        assertThat(router.shardForCustomer(999L).getTerritory()).isEqualTo("NA");
+        globalJdbc.update("INSERT INTO customers VALUES (999, 1370)");
+        assertThat(router.shardForCustomer(999L).getTerritory()).isEqualTo("EMEA"); // the miss wasn't kept
+
+        router.shardForCustomer(141L);
+        router.shardForCustomer(114L);
+        globalJdbc.update("UPDATE customers SET salesRepEmployeeNumber = 1165 WHERE customerNumber = 141");
+        globalJdbc.update("UPDATE employees SET officeCode = '4' WHERE employeeNumber = 1611");
+        assertThat(router.shardForCustomer(141L).getTerritory()).isEqualTo("EMEA");
+        assertThat(router.shardForCustomer(114L).getTerritory()).isEqualTo("APAC");
+
+        router.getDirectory().onInvalidation(Collections.singleton(InvalidationMessage.of(Customer.class, 141L)));
+        assertThat(router.shardForCustomer(141L).getTerritory()).isEqualTo("NA");
+        assertThat(router.shardForCustomer(114L).getTerritory()).isEqualTo("APAC");
+
+        router.getDirectory().onInvalidation(Collections.singleton(InvalidationMessage.of(Employee.class, 1611L)));
+        assertThat(router.shardForCustomer(114L).getTerritory()).isEqualTo("EMEA");
+    }
+
+    @Test
+    void writesThroughTheRoutingDataSourceLandOnTheCustomersShard() {
+        JdbcTemplate application = new JdbcTemplate(routingDataSource);
+        router.onCustomer(141L, () -> application.update("INSERT INTO payments VALUES (141, 'CH1', DATE '2005-01-01', 10.00)"));
+        router.onCustomer(114L, () -> application.update("INSERT INTO payments VALUES (114, 'CH2', DATE '2005-01-01', 20.00)"));
+
+        assertThat(count("EMEA", "payments")).isEqualTo(1);
+        assertThat(count("APAC", "payments")).isEqualTo(1);
+        assertThat(count("NA", "payments")).isZero();
+        // nothing bound: the global database
+        assertThat(application.queryForObject("SELECT COUNT(*) FROM customers", Integer.class)).isEqualTo(5);
+    }
+
+    @Test
+    void orderNumbersTellTheirShard() {
+        Set<Long> allocated = new HashSet<>();
+        for (Shard shard : router.getShards()) {
+            for (int i = 0; i < 100; i++) {
+                long orderNumber = shard.getIdAllocator().nextOrderNumber(shard);
+                assertThat(allocated.add(orderNumber)).isTrue();
+                assertThat(router.shardForOrder(orderNumber)).isSameAs(shard);
+            }
+        }
+        // order numbers from before sharding are looked up on every shard
+        insertOrder("APAC", 10100, "2003-01-06", "Shipped");
+        assertThat(router.shardForOrder(10100L).getTerritory()).isEqualTo("APAC");
+    }
+
+    @Test
+    void scatterGatherMergesSortedAndAggregatedResults() {
+        List<Order> all = new ArrayList<>();
+        String[] territories = {"NA", "EMEA", "APAC"};
+        for (int i = 0; i < 60; i++) {
+            String territory = territories[i % 3];
+            String date = LocalDate.of(2004, 1, 1).plusDays((i * 37) % 90).toString();
+            String status = i % 4 == 0 ? "In Process" : "Shipped";
+            insertOrder(territory, 10100 + i, date, status);
+            Order order = new Order();
+            order.setOrderNumber(10100L + i);
+            order.setOrderDate(Date.valueOf(date));
+            order.setStatus(status);
+            all.add(order);
+        }
+        CrossShardQueries queries = new CrossShardQueries(scatterGather);
+
+        List<Long> expected = all.stream()
+                .sorted(Comparator.comparing(Order::getOrderDate).reversed().thenComparing(Comparator.comparing(Order::getOrderNumber).reversed()))
+                .limit(7).map(Order::getOrderNumber).collect(Collectors.toList());
+        assertThat(queries.latestOrders(7)).extracting(Order::getOrderNumber).containsExactlyElementsOf(expected);
+
+        assertThat(queries.orderCountByStatus()).containsEntry("In Process", 15L).containsEntry("Shipped", 45L);
+
+        new JdbcTemplate(shardDatabases.get("NA")).update("INSERT INTO payments VALUES (124, 'A', DATE '2005-01-01', 1.50)");
+        new JdbcTemplate(shardDatabases.get("EMEA")).update("INSERT INTO payments VALUES (141, 'B', DATE '2005-01-01', 2.25)");
+        assertThat(queries.totalPayments()).isEqualByComparingTo(new BigDecimal("3.75"));
+    }
+
+    @Test
+    void shardIsChosenBeforeTheTransactionStarts() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(routingDataSource));
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> router.onCustomer(141L, () -> 1)))
+                .isInstanceOf(IllegalStateException.class);
+        // the right way round
+        int inserted = router.onCustomer(141L, () -> transactionTemplate.execute(status -> new JdbcTemplate(routingDataSource)
+                .update("INSERT INTO payments VALUES (141, 'CH3', DATE '2005-01-01', 10.00)")));
+        assertThat(inserted).isEqualTo(1);
+        assertThat(count("EMEA", "payments")).isEqualTo(1);
+    }
+
+    @Test
+    void customerStatsStayOnTheCustomersShardAndListsMergeThem() {
+        insertOrder("EMEA", 10100, "2004-01-10", "Shipped", 141);
+        new JdbcTemplate(shardDatabases.get("EMEA")).update("INSERT INTO orderdetails VALUES (10100, 'S10_1678', 10, 100.00, 1)");
+        new JdbcTemplate(shardDatabases.get("NA")).update("INSERT INTO payments VALUES (124, 'A', DATE '2005-01-01', 300.00)");
+        new JdbcTemplate(shardDatabases.get("APAC")).update("INSERT INTO payments VALUES (114, 'B', DATE '2005-01-01', 200.00)");
+        for (EmbeddedDatabase shardDatabase : shardDatabases.values()) { // what V7 leaves on every shard
+            new JdbcTemplate(shardDatabase).update("INSERT INTO customer_stats (customerNumber, updated_at) SELECT customerNumber, " +
+                    "CURRENT_TIMESTAMP FROM customers");
+        }
+
+        CustomerStatsRebuild rebuild = new CustomerStatsRebuild(router, new CustomerStatsUpdater(), new CustomerStatsProperties());
+        assertThat(rebuild.rebuild()).isEqualTo(5);
+        assertThat(count("NA", "customer_stats")).isEqualTo(3); // 124, Japan's 148 and 125 without a sales rep
+        assertThat(count("EMEA", "customer_stats")).isEqualTo(1);
+        assertThat(count("APAC", "customer_stats")).isEqualTo(1);
+        assertThat(rebuild.check(false)).isEmpty();
+
+        CustomerStatsService service = new CustomerStatsService(scatterGather);
+        assertThat(service.list(CustomerStatsService.Sort.OUTSTANDING_BALANCE, true, null, null, 5))
+                .extracting(CustomerStats::getCustomerNumber).containsExactly(141L, 148L, 125L, 114L, 124L);
+        assertThat(service.list(CustomerStatsService.Sort.OUTSTANDING_BALANCE, false, null, null, 2))
+                .extracting(CustomerStats::getCustomerNumber).containsExactly(124L, 114L);
+    }
+
+    @Test
+    void referenceDataCreatedAfterTheShardsIsCopiedToThem() {
+        JdbcTemplate globalJdbc = new JdbcTemplate(global);
+        globalJdbc.update("INSERT INTO productlines VALUES ('Trains')");
+        globalJdbc.update("INSERT INTO products VALUES ('S18_3259', 'Trains')");
+        globalJdbc.update("INSERT INTO customers VALUES (500, 1370)");
+        assertThatThrownBy(() -> insertOrder("EMEA", 10100, "2005-01-01", "In Process", 500))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        ReferenceDataSync sync = new ReferenceDataSync(global, router);
+        sync.onInvalidation(Arrays.asList(InvalidationMessage.of(Product.class, "S18_3259"), InvalidationMessage.of(Customer.class, 500L),
+                InvalidationMessage.of(ProductLine.class, "Trains"))); // copied in foreign key order whatever order they came in
+        insertOrder("EMEA", 10100, "2005-01-01", "In Process", 500);
+        new JdbcTemplate(shardDatabases.get("EMEA")).update("INSERT INTO orderdetails VALUES (10100, 'S18_3259', 1, 95.00, 1)");
+        assertThat(count("NA", "products")).isEqualTo(2);
+
+        // changed while nobody listened
+        globalJdbc.update("UPDATE customers SET salesRepEmployeeNumber = 1165 WHERE customerNumber = 141");
+        globalJdbc.update("INSERT INTO customers VALUES (501, NULL)");
+        globalJdbc.update("DELETE FROM customers WHERE customerNumber IN (125, 500)");
+        sync.syncAll();
+        for (EmbeddedDatabase shardDatabase : shardDatabases.values()) {
+            JdbcTemplate shardJdbc = new JdbcTemplate(shardDatabase);
+            assertThat(shardJdbc.queryForList("SELECT customerNumber FROM customers ORDER BY customerNumber", Long.class))
+                    .containsExactlyElementsOf(shardDatabase == shardDatabases.get("EMEA")
+                            ? Arrays.asList(114L, 124L, 141L, 148L, 500L, 501L) // 500 still has an order there
+                            : Arrays.asList(114L, 124L, 141L, 148L, 501L));
+            assertThat(shardJdbc.queryForObject("SELECT salesRepEmployeeNumber FROM customers WHERE customerNumber = 141", Long.class))
+                    .isEqualTo(1165L);
+            assertThat(count(shardJdbc, "employees")).isEqualTo(4);
+        }
+    }
+
+    @Test
+    void bulkLookupsFindTheLinesOnEveryShard() {
+        insertOrder("EMEA", 10100, "2004-01-10", "Shipped", 141);
+        insertOrder("APAC", 10101, "2004-01-10", "Shipped", 114);
+        new JdbcTemplate(shardDatabases.get("EMEA")).update("INSERT INTO orderdetails VALUES (10100, 'S10_1678', 10, 100.00, 1)");
+        new JdbcTemplate(shardDatabases.get("APAC")).update("INSERT INTO orderdetails VALUES (10101, 'S10_1678', 20, 90.00, 1)");
+        BulkLookupService lookups = new BulkLookupService(router, new BulkLookupProperties());
+        try {
+            Map<Long, List<OrderDetail>> lines = lookups.findOrderDetails(Arrays.asList(10101L, 10100L, 10102L));
+            assertThat(lines.get(10100L)).extracting(OrderDetail::getQuantityOrdered).containsExactly(10L);
+            assertThat(lines.get(10101L)).extracting(OrderDetail::getQuantityOrdered).containsExactly(20L);
+            assertThat(lines.get(10102L)).isEmpty();
+        } finally {
+            lookups.shutdown();
+        }
+    }
+
+    @Test
+    void reconciliationAddsUpTheHistoryOfACustomerFromEveryShard(@TempDir Path reports) {
+        insertOrder("EMEA", 10100, "2004-01-10", "Shipped", 141);
+        new JdbcTemplate(shardDatabases.get("EMEA")).update("INSERT INTO orderdetails VALUES (10100, 'S10_1678', 10, 100.00, 1)");
+        new JdbcTemplate(shardDatabases.get("NA")).update("INSERT INTO payments VALUES (141, 'A', DATE '2004-01-01', 600.00)"); // before it moved
+        new JdbcTemplate(shardDatabases.get("EMEA")).update("INSERT INTO payments VALUES (141, 'B', DATE '2004-02-01', 400.00)");
+        new JdbcTemplate(shardDatabases.get("APAC")).update("INSERT INTO payments VALUES (114, 'C', DATE '2004-02-01', 50.00)");
+        ReconciliationProperties properties = new ReconciliationProperties();
+        properties.setReportDirectory(reports.toString());
+        properties.setThreads(2);
+        properties.setFetchSize(100);
+
+        ReconciliationResult result = new ReconciliationJob(global, router, properties).run("sharded");
+
+        assertThat(result.getCustomersChecked()).isEqualTo(2);
+        assertThat(result.getDiscrepancies()).isEqualTo(1); // 114 paid for nothing, 141 is even
+    }
+
+    private void insertOrder(String territory, long orderNumber, String date, String status) {
+        insertOrder(territory, orderNumber, date, status, 124);
+    }
+
+    private void insertOrder(String territory, long orderNumber, String date, String status, long customerNumber) {
+        new JdbcTemplate(shardDatabases.get(territory)).update("INSERT INTO orders VALUES (?, ?, ?, NULL, ?, NULL, ?)",
+                orderNumber, Date.valueOf(date), Date.valueOf(date), status, customerNumber);
+    }
+
+    private int count(String territory, String table) {
+        return count(new JdbcTemplate(shardDatabases.get(territory)), table);
+    }
+
+    private static int count(JdbcTemplate jdbcTemplate, String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+}
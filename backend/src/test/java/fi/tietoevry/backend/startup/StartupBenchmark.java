@@ -0,0 +1,91 @@
+package fi.tietoevry.backend.startup;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/*
+Time from launching a fresh JVM to the first HTTP request being served, run with: mvn test -Pbenchmark
+ -Dstartup.benchmark.runs=5              number of cold starts (default 5)
+ -Dstartup.benchmark.jvmArgs="..."       e.g. "-XX:SharedArchiveFile=target/cds/app.jsa"
+ -Dstartup.benchmark.classpath=...       e.g. the classpath from target/cds/classpath.txt when measuring CDS
+ -Dstartup.benchmark.profiles=prod       Spring profiles to start with (default prod)
+The database doesn't have to be running: migrations are skipped and with the prod profile nothing else touches it before the first query.
+*/
+@Tag("benchmark")
+class StartupBenchmark {
+
+    @Test
+    void timeToFirstServedRequest() throws Exception {
+        int runs = Integer.getInteger("startup.benchmark.runs", 5);
+        List<Long> millis = new ArrayList<>();
+        for (int i = 0; i < runs; i++) {
+            millis.add(coldStart());
+        }
+        Collections.sort(millis);
+        System.out.printf("Startup benchmark (%s): median %d ms, min %d ms, max %d ms over %d runs%n",
+                System.getProperty("startup.benchmark.jvmArgs", "no extra JVM args"),
+                millis.get(millis.size() / 2), millis.get(0), millis.get(millis.size() - 1), runs);
+    }
+
+    private long coldStart() throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        String jvmArgs = System.getProperty("startup.benchmark.jvmArgs", "").trim();
+        if (!jvmArgs.isEmpty()) {
+            command.addAll(Arrays.asList(jvmArgs.split("\\s+")));
+        }
+        command.add("-cp");
+        command.add(System.getProperty("startup.benchmark.classpath", System.getProperty("java.class.path")));
+        command.add("fi.tietoevry.backend.BackendApplication");
+        command.add("--server.port=" + port);
+        command.add("--spring.profiles.active=" + System.getProperty("startup.benchmark.profiles", "prod"));
+        command.add("--spring.flyway.enabled=false");
+
+        File log = File.createTempFile("startup-benchmark", ".log");
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+        try {
+            while (!served(port)) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with " + process.exitValue() + " before serving a request, see " + log);
+                }
+                Thread.sleep(5);
+            }
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } finally {
+            process.destroy();
+            process.waitFor(10, TimeUnit.SECONDS);
+            log.deleteOnExit();
+        }
+    }
+
+    // Any HTTP status counts: we measure when Tomcat and the DispatcherServlet answer, not what they answer
+    private static boolean served(int port) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/").openConnection();
+            connection.setConnectTimeout(100);
+            connection.setReadTimeout(5000);
+            return connection.getResponseCode() > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package fi.tietoevry.backend.statistics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.CollectionStatistics;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import fi.tietoevry.backend.statistics.HibernateStatisticsReport.QueryMetrics;
+
+class HibernateStatisticsEndpointTests {
+
+    private final Statistics statistics = mock(Statistics.class);
+    private HibernateStatisticsEndpoint endpoint;
+
+    @BeforeEach
+    void createEndpoint() {
+        when(statistics.isStatisticsEnabled()).thenReturn(true);
+        when(statistics.getSessionOpenCount()).thenReturn(4L);
+        when(statistics.getPrepareStatementCount()).thenReturn(42L);
+        when(statistics.getEntityLoadCount()).thenReturn(10L);
+
+        EntityStatistics orders = mock(EntityStatistics.class);
+        when(orders.getLoadCount()).thenReturn(7L);
+        when(orders.getFetchCount()).thenReturn(3L);
+        when(orders.getInsertCount()).thenReturn(1L);
+        when(statistics.getEntityStatistics("fi.tietoevry.backend.model.Order")).thenReturn(orders);
+        when(statistics.getEntityStatistics("fi.tietoevry.backend.model.Office")).thenReturn(mock(EntityStatistics.class));
+
+        CollectionStatistics details = mock(CollectionStatistics.class);
+        when(details.getFetchCount()).thenReturn(5L);
+        when(statistics.getCollectionRoleNames()).thenReturn(new String[]{"fi.tietoevry.backend.model.Order.orderDetails"});
+        when(statistics.getCollectionStatistics("fi.tietoevry.backend.model.Order.orderDetails")).thenReturn(details);
+
+        // built before stubbing statistics: query() stubs mocks of its own, which can't happen inside another when()
+        QueryStatistics fast = query(100, 1);
+        QueryStatistics slow = query(2, 400);
+        QueryStatistics never = query(0, 0);
+        when(statistics.getQueries()).thenReturn(new String[]{"fast", "slow", "never"});
+        when(statistics.getQueryStatistics("fast")).thenReturn(fast);
+        when(statistics.getQueryStatistics("slow")).thenReturn(slow);
+        when(statistics.getQueryStatistics("never")).thenReturn(never);
+
+        CacheRegionStatistics products = mock(CacheRegionStatistics.class);
+        when(products.getHitCount()).thenReturn(3L);
+        when(products.getMissCount()).thenReturn(1L);
+        when(statistics.getSecondLevelCacheRegionNames()).thenReturn(new String[]{"Product"});
+        when(statistics.getDomainDataRegionStatistics("Product")).thenReturn(products);
+
+        endpoint = new HibernateStatisticsEndpoint(statistics,
+                Arrays.asList("fi.tietoevry.backend.model.Order", "fi.tietoevry.backend.model.Office"), 10);
+    }
+
+    @Test
+    void reportsEveryEntityQueryAndRegion() {
+        HibernateStatisticsReport report = endpoint.report();
+
+        assertThat(report.isEnabled()).isTrue();
+        assertThat(report.getEntities()).containsOnlyKeys("Office", "Order");
+        assertThat(report.getEntities().get("Order").getFetches()).isEqualTo(3);
+        assertThat(report.getEntities().get("Office").getLoads()).isZero();
+        assertThat(report.getCollections().get("Order.orderDetails").getFetches()).isEqualTo(5);
+        assertThat(report.getSessions().getStatementsPerSession()).isEqualTo(10.5);
+        assertThat(report.getSecondLevelCache().get("Product").getHitRatio()).isEqualTo(0.75);
+        // by total time: 2 * 400 ms before 100 * 1 ms, queries that never ran are left out
+        assertThat(report.getQueries()).extracting(QueryMetrics::getQuery).containsExactly("slow", "fast");
+    }
+
+    @Test
+    void keepsOnlyTheSlowestQueries() {
+        endpoint = new HibernateStatisticsEndpoint(statistics, Arrays.asList("fi.tietoevry.backend.model.Order"), 1);
+
+        assertThat(endpoint.report().getQueries()).extracting(QueryMetrics::getQuery).containsExactly("slow");
+    }
+
+    @Test
+    void resetClearsTheCounters() {
+        endpoint.reset();
+
+        verify(statistics).clear();
+    }
+
+    private static QueryStatistics query(long executions, long avgMillis) {
+        QueryStatistics query = mock(QueryStatistics.class);
+        when(query.getExecutionCount()).thenReturn(executions);
+        when(query.getExecutionAvgTime()).thenReturn(avgMillis);
+        when(query.getExecutionMaxTime()).thenReturn(avgMillis * 2);
+        when(query.getExecutionTotalTime()).thenReturn(executions * avgMillis);
+        return query;
+    }
+}
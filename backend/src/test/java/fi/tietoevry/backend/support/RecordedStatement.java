@@ -0,0 +1,32 @@
+package fi.tietoevry.backend.support;
+
+import java.util.Arrays;
+
+// One SQL statement sent to the database, with the parameters it was executed with
+public final class RecordedStatement {
+
+    private final String sql;
+    private final Object[] parameters;
+
+    RecordedStatement(String sql, Object[] parameters) {
+        this.sql = sql;
+        this.parameters = parameters;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public Object[] getParameters() {
+        return parameters.clone();
+    }
+
+    public boolean isSelect() {
+        return sql.trim().toLowerCase().startsWith("select");
+    }
+
+    @Override
+    public String toString() {
+        return sql + " " + Arrays.toString(parameters);
+    }
+}
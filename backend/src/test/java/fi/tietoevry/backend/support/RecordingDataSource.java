@@ -0,0 +1,109 @@
+package fi.tietoevry.backend.support;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/*
+Wraps the real DataSource and remembers every statement executed through it while recording is switched on.
+Add it to a Spring test with @Import(RecordingDataSource.Configuration.class) and inject RecordingDataSource.
+*/
+public class RecordingDataSource extends DelegatingDataSource {
+
+    private final List<RecordedStatement> statements = new CopyOnWriteArrayList<>();
+    private volatile boolean recording;
+
+    public RecordingDataSource(DataSource target) {
+        super(target);
+    }
+
+    // Runs the action and returns the statements it executed, in execution order
+    public List<RecordedStatement> record(Runnable action) {
+        statements.clear();
+        recording = true;
+        try {
+            action.run();
+        } finally {
+            recording = false;
+        }
+        return new ArrayList<>(statements);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, super.getConnection(), null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, super.getConnection(username, password), null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(Class<T> type, T target, String preparedSql) {
+        TreeMap<Integer, Object> parameters = new TreeMap<>();
+        InvocationHandler handler = (proxy, method, args) -> {
+            String name = method.getName();
+            if (preparedSql != null && name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (preparedSql != null && name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (recording && name.startsWith("execute")) {
+                // a batch is one round trip, recorded once with the parameters of its last row
+                boolean plainSql = args != null && args.length > 0 && args[0] instanceof String;
+                String sql = plainSql ? (String) args[0] : preparedSql;
+                if (sql != null) {
+                    statements.add(new RecordedStatement(sql, plainSql ? new Object[0] : parameters.values().toArray()));
+                }
+            }
+            Object result = invoke(target, method, args);
+            if (result instanceof PreparedStatement && name.equals("prepareStatement")) {
+                return proxy(PreparedStatement.class, (PreparedStatement) result, (String) args[0]);
+            }
+            if (result instanceof Statement && name.equals("createStatement")) {
+                return proxy(Statement.class, (Statement) result, null);
+            }
+            return result;
+        };
+        return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @TestConfiguration
+    public static class Configuration {
+
+        @Bean
+        public static BeanPostProcessor recordingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource && !(bean instanceof RecordingDataSource)
+                            ? new RecordingDataSource((DataSource) bean) : bean;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package fi.tietoevry.backend.support;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.ResourceProvider;
+import org.flywaydb.core.api.resource.LoadableResource;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.StreamUtils;
+
+/*
+The sample database of data/mysqlsampledatabase.sql in an in-memory H2 (MySQL mode), migrated by Flyway with the real
+db/migration scripts, for Spring tests that must run without the docker database.
+H2 can't read the MySQL dump as is, so it is translated on the way in: conditional comments, CREATE DATABASE / USE /
+DROP TABLE and table options are dropped, inline KEYs become CREATE INDEX, foreign keys are added after the data
+(the dump relies on FOREIGN_KEY_CHECKS=0) and MySQL's backslash escapes become plain characters.
+The dump is the baseline (version 1), the migrations are translated by H2Migrations.
+Add it to a Spring test with @Import(SampleDatabase.Configuration.class) and spring.flyway.enabled=false (it is migrated already).
+*/
+public final class SampleDatabase {
+
+    // Surefire runs in backend/, the dump lives next to docker-compose.yml
+    private static final Path DUMP = Paths.get(System.getProperty("sampledatabase.dump", "../data/mysqlsampledatabase.sql"));
+
+    private static final Pattern COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern STATEMENT_END = Pattern.compile(";\\s*(\\r?\\n|$)");
+    private static final Pattern INTEGER_WIDTH = Pattern.compile("\\b(int|smallint)\\(\\d+\\)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CREATE_TABLE = Pattern.compile("CREATE TABLE (\\w+) \\(", Pattern.CASE_INSENSITIVE);
+    private static final Pattern KEY = Pattern.compile("KEY (\\w+) (\\(.*\\))", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ESCAPE = Pattern.compile("\\\\(.)");
+    private static final Pattern STORED_COLUMN = Pattern.compile("\\bAS (\\(.*\\)) STORED", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ROW_TRIGGER = Pattern.compile("(CREATE TRIGGER \\S+ AFTER \\w+ ON \\S+ FOR EACH ROW)\\s+[^;]*",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern UNIX_TIMESTAMP = Pattern.compile("UNIX_TIMESTAMP\\(NOW\\(3\\)\\)", Pattern.CASE_INSENSITIVE);
+
+    private SampleDatabase() {
+    }
+
+    public static DataSource create() {
+        DataSource dataSource = DataSourceBuilder.create()
+                .driverClassName("org.h2.Driver")
+                .url("jdbc:h2:mem:classicmodels-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1")
+                .username("sa")
+                .build();
+        load(new JdbcTemplate(dataSource));
+        Flyway.configure()
+                .dataSource(dataSource)
+                .resourceProvider(new H2Migrations())
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+        return dataSource;
+    }
+
+    static void load(JdbcTemplate jdbcTemplate) {
+        String dump;
+        try {
+            dump = new String(Files.readAllBytes(DUMP), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Sample database dump not found at " + DUMP.toAbsolutePath(), e);
+        }
+        List<String> foreignKeys = new ArrayList<>();
+        for (String statement : STATEMENT_END.split(COMMENT.matcher(dump).replaceAll(""))) {
+            for (String translated : translate(statement.trim(), foreignKeys)) {
+                jdbcTemplate.execute(translated);
+            }
+        }
+        foreignKeys.forEach(jdbcTemplate::execute);
+    }
+
+    // The H2 statements for one statement of the dump; foreign keys are collected to be added after all the data
+    static List<String> translate(String statement, List<String> foreignKeys) {
+        List<String> translated = new ArrayList<>();
+        String upper = statement.toUpperCase();
+        if (statement.isEmpty() || upper.startsWith("CREATE DATABASE") || upper.startsWith("USE ") || upper.startsWith("DROP TABLE")) {
+            return translated;
+        }
+        statement = statement.replace("`", "");
+        if (!upper.startsWith("CREATE TABLE")) {
+            translated.add(unescape(statement));
+            return translated;
+        }
+        Matcher create = CREATE_TABLE.matcher(statement);
+        if (!create.find()) {
+            throw new IllegalArgumentException("Unexpected CREATE TABLE in the sample database: " + statement);
+        }
+        String table = create.group(1);
+        List<String> columns = new ArrayList<>();
+        List<String> indexes = new ArrayList<>();
+        String[] lines = statement.split("\\r?\\n");
+        for (int i = 1; i < lines.length - 1; i++) { // between "CREATE TABLE x (" and ") ENGINE=..."
+            String line = lines[i].trim();
+            if (line.endsWith(",")) {
+                line = line.substring(0, line.length() - 1);
+            }
+            Matcher key = KEY.matcher(line);
+            if (line.startsWith("CONSTRAINT")) {
+                foreignKeys.add("ALTER TABLE " + table + " ADD " + line);
+            } else if (key.matches()) {
+                indexes.add("CREATE INDEX " + table + "_" + key.group(1) + " ON " + table + " " + key.group(2));
+            } else {
+                columns.add(INTEGER_WIDTH.matcher(line).replaceAll("$1"));
+            }
+        }
+        translated.add("CREATE TABLE " + table + " (\n  " + String.join(",\n  ", columns) + "\n)");
+        translated.addAll(indexes);
+        return translated;
+    }
+
+    // \' \" \\ \r \n as MySQL reads them inside string literals
+    private static String unescape(String statement) {
+        Matcher escape = ESCAPE.matcher(statement);
+        StringBuffer unescaped = new StringBuffer(statement.length());
+        while (escape.find()) {
+            char escaped = escape.group(1).charAt(0);
+            String replacement = escaped == 'r' ? "\r" : escaped == 'n' ? "\n" : escaped == '\'' ? "''" : String.valueOf(escaped);
+            escape.appendReplacement(unescaped, Matcher.quoteReplacement(replacement));
+        }
+        escape.appendTail(unescaped);
+        return unescaped.toString();
+    }
+
+    /*
+    The MySQL parts of db/migration that H2 reads differently: a STORED generated column is GENERATED ALWAYS AS,
+    a trigger's body becomes a Java class (only the table_versions triggers of V8 exist so far) and UNIX_TIMESTAMP,
+    an INT of whole seconds in H2, is widened before it is multiplied into millis.
+    */
+    static String translateMigration(String script) {
+        String translated = STORED_COLUMN.matcher(script).replaceAll("GENERATED ALWAYS AS $1");
+        translated = UNIX_TIMESTAMP.matcher(translated).replaceAll("CAST(UNIX_TIMESTAMP() AS BIGINT)");
+        return ROW_TRIGGER.matcher(translated).replaceAll("$1 CALL '" + TableVersionTrigger.class.getName() + "'");
+    }
+
+    // db/migration from the classpath, as Flyway would find it, translated for H2
+    private static final class H2Migrations implements ResourceProvider {
+
+        private final List<LoadableResource> migrations;
+
+        H2Migrations() {
+            try {
+                Resource[] scripts = new PathMatchingResourcePatternResolver().getResources("classpath:db/migration/*.sql");
+                migrations = Arrays.stream(scripts).map(Migration::new).collect(Collectors.toList());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public LoadableResource getResource(String name) {
+            return migrations.stream().filter(migration -> migration.getFilename().equals(name)).findFirst().orElse(null);
+        }
+
+        @Override
+        public Collection<LoadableResource> getResources(String prefix, String[] suffixes) {
+            return migrations.stream()
+                    .filter(migration -> migration.getFilename().startsWith(prefix))
+                    .filter(migration -> Arrays.stream(suffixes).anyMatch(migration.getFilename()::endsWith))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static final class Migration extends LoadableResource {
+
+        private final Resource script;
+
+        Migration(Resource script) {
+            this.script = script;
+        }
+
+        @Override
+        public Reader read() {
+            try {
+                return new StringReader(translateMigration(StreamUtils.copyToString(script.getInputStream(), StandardCharsets.UTF_8)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public String getAbsolutePath() {
+            return "db/migration/" + getFilename();
+        }
+
+        @Override
+        public String getAbsolutePathOnDisk() {
+            return getAbsolutePath();
+        }
+
+        @Override
+        public String getFilename() {
+            return script.getFilename();
+        }
+
+        @Override
+        public String getRelativePath() {
+            return getFilename();
+        }
+    }
+
+    @TestConfiguration
+    public static class Configuration {
+
+        @Bean
+        public DataSource dataSource() {
+            return create();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package fi.tietoevry.backend.support;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.h2.api.Trigger;
+
+// The H2 version of the V8__table_versions triggers: bumps the table's counter in table_versions for every row written
+public class TableVersionTrigger implements Trigger {
+
+    private String table;
+
+    @Override
+    public void init(Connection connection, String schemaName, String triggerName, String tableName, boolean before, int type) {
+        table = tableName.toLowerCase();
+    }
+
+    @Override
+    public void fire(Connection connection, Object[] oldRow, Object[] newRow) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement("UPDATE table_versions SET version = version + 1 WHERE table_name = ?")) {
+            update.setString(1, table);
+            update.executeUpdate();
+        }
+    }
+}
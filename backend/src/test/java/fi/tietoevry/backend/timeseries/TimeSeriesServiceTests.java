@@ -0,0 +1,182 @@
+package fi.tietoevry.backend.timeseries;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import fi.tietoevry.backend.sharding.ScatterGather;
+import fi.tietoevry.backend.sharding.ShardRouter;
+import fi.tietoevry.backend.timeseries.TimeSeriesService.Metric;
+
+class TimeSeriesServiceTests {
+
+    private static final LocalDate FIRST = LocalDate.of(2003, 1, 6);
+    private static final LocalDate TODAY = LocalDate.of(2005, 6, 1);
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate groundTruth;
+    private final AtomicInteger serviceQueries = new AtomicInteger();
+    private ScatterGather scatterGather;
+    private TimeSeriesService service;
+
+    @BeforeEach
+    void createData() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:timeseries-schema.sql")
+                .build();
+        groundTruth = new JdbcTemplate(database);
+        Random random = new Random(42);
+        List<Object[]> orders = new ArrayList<>();
+        List<Object[]> lines = new ArrayList<>();
+        List<Object[]> payments = new ArrayList<>();
+        int days = (int) (TODAY.toEpochDay() - FIRST.toEpochDay()) + 1; // including today, the open period
+        for (int orderNumber = 10000; orderNumber < 13000; orderNumber++) {
+            LocalDate date = FIRST.plusDays(random.nextInt(days));
+            orders.add(new Object[]{orderNumber, Date.valueOf(date), random.nextInt(20) == 0 ? "Cancelled" : "Shipped"});
+            for (int line = 0; line < 1 + random.nextInt(5); line++) {
+                lines.add(new Object[]{orderNumber, "S10_" + line, 1 + random.nextInt(50), BigDecimal.valueOf(1000 + random.nextInt(20000), 2)});
+            }
+            payments.add(new Object[]{orderNumber, "CH" + orderNumber, Date.valueOf(FIRST.plusDays(random.nextInt(days))),
+                    BigDecimal.valueOf(random.nextInt(5_000_000), 2)});
+        }
+        groundTruth.batchUpdate("INSERT INTO orders VALUES (?, ?, ?)", orders);
+        groundTruth.batchUpdate("INSERT INTO orderdetails VALUES (?, ?, ?, ?)", lines);
+        groundTruth.batchUpdate("INSERT INTO payments VALUES (?, ?, ?, ?)", payments);
+
+        DataSource counting = new DelegatingDataSource(database) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                serviceQueries.incrementAndGet(); // the service runs every query on a connection of its own
+                return super.getConnection();
+            }
+        };
+        Clock clock = Clock.fixed(TODAY.atTime(12, 0).toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        scatterGather = new ScatterGather(ShardRouter.unsharded(counting), 1);
+        service = new TimeSeriesService(scatterGather, clock, Duration.ZERO);
+    }
+
+    @AfterEach
+    void dropData() {
+        scatterGather.shutdown();
+        database.shutdown();
+    }
+
+    @Test
+    void monthlyRevenueMatchesSql() {
+        List<TimeSeriesPoint> points = service.series(Metric.REVENUE, FIRST.withDayOfMonth(1), TODAY, Granularity.MONTH, 0);
+
+        assertThat(points).hasSize(30); // January 2003 - June 2005
+        for (TimeSeriesPoint point : points) {
+            BigDecimal expected = groundTruth.queryForObject("SELECT COALESCE(SUM(od.quantityOrdered * od.priceEach), 0) FROM orders o"
+                            + " JOIN orderdetails od ON od.orderNumber = o.orderNumber"
+                            + " WHERE o.status <> 'Cancelled' AND YEAR(o.orderDate) = ? AND MONTH(o.orderDate) = ?",
+                    BigDecimal.class, point.getPeriodStart().getYear(), point.getPeriodStart().getMonthValue());
+            assertThat(point.getAmount()).as(point.getPeriodStart().toString()).isEqualByComparingTo(expected);
+        }
+    }
+
+    @Test
+    void arbitraryPaymentRangesMatchSql() {
+        Random random = new Random(7);
+        for (int i = 0; i < 50; i++) {
+            LocalDate from = FIRST.plusDays(random.nextInt(800));
+            LocalDate to = from.plusDays(random.nextInt(200));
+            Granularity granularity = Granularity.values()[random.nextInt(Granularity.values().length)];
+
+            BigDecimal total = service.series(Metric.PAYMENTS, from, to, granularity, 7).stream()
+                    .map(TimeSeriesPoint::getAmount)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+            BigDecimal expected = groundTruth.queryForObject("SELECT COALESCE(SUM(amount), 0) FROM payments WHERE paymentDate BETWEEN ? AND ?",
+                    BigDecimal.class, Date.valueOf(from), Date.valueOf(to));
+            assertThat(total).as(from + " - " + to + " by " + granularity).isEqualByComparingTo(expected);
+        }
+    }
+
+    @Test
+    void downsamplingKeepsTheTotal() {
+        List<TimeSeriesPoint> daily = service.series(Metric.REVENUE, FIRST, TODAY.minusDays(1), Granularity.DAY, 0);
+        List<TimeSeriesPoint> downsampled = service.series(Metric.REVENUE, FIRST, TODAY.minusDays(1), Granularity.DAY, 100);
+
+        assertThat(downsampled).hasSizeLessThanOrEqualTo(100);
+        assertThat(downsampled.get(0).getPeriodStart()).isEqualTo(FIRST);
+        assertThat(sum(downsampled)).isEqualByComparingTo(sum(daily));
+    }
+
+    @Test
+    void historicalRangesDontQueryTheDatabaseAgain() {
+        service.series(Metric.REVENUE, FIRST, TODAY, Granularity.WEEK, 0);
+        int afterFirstLoad = serviceQueries.get();
+
+        service.series(Metric.REVENUE, LocalDate.of(2004, 1, 1), LocalDate.of(2004, 12, 31), Granularity.DAY, 0);
+        assertThat(serviceQueries.get()).isEqualTo(afterFirstLoad);
+
+        // the open period is re-read, and sees an order entered today
+        groundTruth.update("INSERT INTO orders VALUES (20000, ?, 'In Process')", Date.valueOf(TODAY));
+        groundTruth.update("INSERT INTO orderdetails VALUES (20000, 'S10_1', 1, 12.34)");
+        BigDecimal before = sum(service.series(Metric.REVENUE, FIRST, TODAY.minusDays(1), Granularity.YEAR, 0));
+        BigDecimal withToday = sum(service.series(Metric.REVENUE, FIRST, TODAY, Granularity.YEAR, 0));
+        assertThat(serviceQueries.get()).isEqualTo(afterFirstLoad + 1);
+        BigDecimal todayFromSql = groundTruth.queryForObject("SELECT SUM(od.quantityOrdered * od.priceEach) FROM orders o"
+                + " JOIN orderdetails od ON od.orderNumber = o.orderNumber WHERE o.status <> 'Cancelled' AND o.orderDate = ?",
+                BigDecimal.class, Date.valueOf(TODAY));
+        assertThat(withToday.subtract(before)).isEqualByComparingTo(todayFromSql);
+    }
+
+    @Test
+    void changedClosedDaysAreReloadedFromTheEarliestOne() {
+        LocalDate cancelled = groundTruth.queryForObject("SELECT MIN(orderDate) FROM orders WHERE orderDate >= ? AND status <> 'Cancelled'",
+                Date.class, Date.valueOf(LocalDate.of(2004, 3, 1))).toLocalDate();
+        LocalDate backdated = LocalDate.of(2004, 9, 15);
+        service.series(Metric.REVENUE, FIRST, TODAY.minusDays(1), Granularity.DAY, 0);
+
+        groundTruth.update("UPDATE orders SET status = 'Cancelled' WHERE orderDate = ?", Date.valueOf(cancelled));
+        groundTruth.update("INSERT INTO orders VALUES (20001, ?, 'Shipped')", Date.valueOf(backdated));
+        groundTruth.update("INSERT INTO orderdetails VALUES (20001, 'S10_1', 3, 100.00)");
+        service.onInvalidation(Arrays.asList(TimeSeriesService.changedDay(Metric.REVENUE, backdated),
+                TimeSeriesService.changedDay(Metric.REVENUE, cancelled)));
+
+        assertThat(service.series(Metric.REVENUE, cancelled, cancelled, Granularity.DAY, 0).get(0).getAmount()).isZero();
+        BigDecimal expected = groundTruth.queryForObject("SELECT SUM(od.quantityOrdered * od.priceEach) FROM orders o"
+                + " JOIN orderdetails od ON od.orderNumber = o.orderNumber WHERE o.status <> 'Cancelled' AND o.orderDate < ?",
+                BigDecimal.class, Date.valueOf(TODAY));
+        assertThat(sum(service.series(Metric.REVENUE, FIRST, TODAY.minusDays(1), Granularity.MONTH, 0))).isEqualByComparingTo(expected);
+    }
+
+    @Test
+    void rangesOfMoreThanACenturyAreRejected() {
+        assertThatThrownBy(() -> service.series(Metric.REVENUE, LocalDate.of(1, 1, 1), LocalDate.of(9999, 12, 31), Granularity.DAY, 100))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(serviceQueries.get()).isZero();
+    }
+
+    private static BigDecimal sum(List<TimeSeriesPoint> points) {
+        return points.stream().map(TimeSeriesPoint::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
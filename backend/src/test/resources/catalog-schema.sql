@@ -0,0 +1,3 @@
+-- table_versions without the triggers (H2 triggers are Java classes), the tests bump the versions themselves
+CREATE TABLE table_versions (table_name VARCHAR(64) NOT NULL PRIMARY KEY, version BIGINT NOT NULL);
+INSERT INTO table_versions VALUES ('products', 1000), ('productlines', 2000);
@@ -0,0 +1,11 @@
+-- just the columns customer_stats is computed from
+CREATE TABLE customers (customerNumber INT NOT NULL PRIMARY KEY, customerName VARCHAR(50) NOT NULL, country VARCHAR(50) NOT NULL);
+CREATE TABLE orders (orderNumber INT NOT NULL PRIMARY KEY, orderDate DATE NOT NULL, status VARCHAR(15) NOT NULL, customerNumber INT NOT NULL);
+CREATE TABLE orderdetails (orderNumber INT NOT NULL, productCode VARCHAR(15) NOT NULL, quantityOrdered INT NOT NULL,
+  priceEach DECIMAL(10, 2) NOT NULL, orderLineNumber SMALLINT NOT NULL, PRIMARY KEY (orderNumber, productCode));
+CREATE TABLE payments (customerNumber INT NOT NULL, checkNumber VARCHAR(50) NOT NULL, paymentDate DATE NOT NULL,
+  amount DECIMAL(10, 2) NOT NULL, PRIMARY KEY (customerNumber, checkNumber));
+CREATE TABLE customer_stats (customerNumber INT NOT NULL PRIMARY KEY, lifetime_revenue DECIMAL(12, 2) DEFAULT 0 NOT NULL,
+  total_paid DECIMAL(12, 2) DEFAULT 0 NOT NULL, outstanding_balance DECIMAL(12, 2) GENERATED ALWAYS AS (lifetime_revenue - total_paid),
+  order_count INT DEFAULT 0 NOT NULL, last_order_date DATE, updated_at TIMESTAMP NOT NULL);
+CREATE INDEX customer_stats_outstanding_balance ON customer_stats (outstanding_balance);
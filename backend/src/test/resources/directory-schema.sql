@@ -0,0 +1,3 @@
+-- just the columns the customer directory indexes
+CREATE TABLE customers (customerNumber INT NOT NULL PRIMARY KEY, customerName VARCHAR(50) NOT NULL, city VARCHAR(50) NOT NULL,
+  state VARCHAR(50), postalCode VARCHAR(15), country VARCHAR(50) NOT NULL, salesRepEmployeeNumber INT);
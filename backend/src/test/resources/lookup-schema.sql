@@ -0,0 +1,5 @@
+-- just the columns the bulk lookups read
+CREATE TABLE orderdetails (orderNumber INT NOT NULL, productCode VARCHAR(15) NOT NULL, quantityOrdered INT NOT NULL,
+  priceEach DECIMAL(10, 2) NOT NULL, orderLineNumber SMALLINT NOT NULL, PRIMARY KEY (orderNumber, productCode));
+CREATE TABLE payments (customerNumber INT NOT NULL, checkNumber VARCHAR(50) NOT NULL, paymentDate DATE NOT NULL,
+  amount DECIMAL(10, 2) NOT NULL, PRIMARY KEY (customerNumber, checkNumber));
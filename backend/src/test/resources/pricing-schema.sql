@@ -0,0 +1,10 @@
+-- products as the price list reads them, table_versions without the triggers: the tests bump the version themselves
+CREATE TABLE products (
+  productCode VARCHAR(15) NOT NULL PRIMARY KEY,
+  buyPrice DECIMAL(10, 2) NOT NULL,
+  MSRP DECIMAL(10, 2) NOT NULL
+);
+INSERT INTO products VALUES ('S10_1678', 48.81, 95.70), ('S10_1949', 98.58, 214.30), ('S18_3232', 101.51, 169.34);
+
+CREATE TABLE table_versions (table_name VARCHAR(64) NOT NULL PRIMARY KEY, version BIGINT NOT NULL);
+INSERT INTO table_versions VALUES ('products', 1000), ('productlines', 1000);
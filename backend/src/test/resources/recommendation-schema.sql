@@ -0,0 +1,3 @@
+-- just the columns the co-occurrence build reads
+CREATE TABLE orders (orderNumber INT NOT NULL PRIMARY KEY, status VARCHAR(15) NOT NULL);
+CREATE TABLE orderdetails (orderNumber INT NOT NULL, productCode VARCHAR(15) NOT NULL, PRIMARY KEY (orderNumber, productCode));
@@ -0,0 +1,8 @@
+-- just the columns the reconciliation job reads
+CREATE TABLE customers (customerNumber INT NOT NULL PRIMARY KEY);
+CREATE TABLE orders (orderNumber INT NOT NULL PRIMARY KEY, status VARCHAR(15) NOT NULL, customerNumber INT NOT NULL);
+CREATE TABLE orderdetails (orderNumber INT NOT NULL, productCode VARCHAR(15) NOT NULL, quantityOrdered INT NOT NULL,
+  priceEach DECIMAL(10, 2) NOT NULL, PRIMARY KEY (orderNumber, productCode));
+CREATE TABLE payments (customerNumber INT NOT NULL, checkNumber VARCHAR(50) NOT NULL, amount DECIMAL(10, 2) NOT NULL,
+  PRIMARY KEY (customerNumber, checkNumber));
+CREATE INDEX orders_customer ON orders (customerNumber);
@@ -0,0 +1,8 @@
+-- reference data of the global database, just the columns the shard directory reads, plus the products order lines refer to
+CREATE TABLE productlines (productLine VARCHAR(50) NOT NULL PRIMARY KEY);
+CREATE TABLE products (productCode VARCHAR(15) NOT NULL PRIMARY KEY, productLine VARCHAR(50) NOT NULL REFERENCES productlines (productLine));
+CREATE TABLE offices (officeCode VARCHAR(10) NOT NULL PRIMARY KEY, territory VARCHAR(10) NOT NULL);
+CREATE TABLE employees (employeeNumber INT NOT NULL PRIMARY KEY, officeCode VARCHAR(10) NOT NULL);
+CREATE TABLE customers (customerNumber INT NOT NULL PRIMARY KEY, salesRepEmployeeNumber INT);
+CREATE TABLE orders_seq (next_val BIGINT NOT NULL);
+INSERT INTO orders_seq VALUES (50);
@@ -0,0 +1,21 @@
+-- copy of the reference data of the global database, just the columns the shard directory, customer_stats and order lines read
+CREATE TABLE offices (officeCode VARCHAR(10) NOT NULL PRIMARY KEY, territory VARCHAR(10) NOT NULL);
+CREATE TABLE employees (employeeNumber INT NOT NULL PRIMARY KEY, officeCode VARCHAR(10) NOT NULL);
+CREATE TABLE customers (customerNumber INT NOT NULL PRIMARY KEY, salesRepEmployeeNumber INT, customerName VARCHAR(50), country VARCHAR(50));
+CREATE TABLE productlines (productLine VARCHAR(50) NOT NULL PRIMARY KEY);
+CREATE TABLE products (productCode VARCHAR(15) NOT NULL PRIMARY KEY, productLine VARCHAR(50) NOT NULL REFERENCES productlines (productLine));
+CREATE TABLE orders_seq (next_val BIGINT NOT NULL);
+INSERT INTO orders_seq VALUES (50);
+-- per territory data, with the foreign keys of the real schema into the copies
+CREATE TABLE orders (orderNumber BIGINT NOT NULL PRIMARY KEY, orderDate DATE NOT NULL, requiredDate DATE NOT NULL,
+  shippedDate DATE, status VARCHAR(15) NOT NULL, comments VARCHAR(255), customerNumber INT NOT NULL REFERENCES customers (customerNumber));
+CREATE TABLE orderdetails (orderNumber BIGINT NOT NULL REFERENCES orders (orderNumber), productCode VARCHAR(15) NOT NULL
+  REFERENCES products (productCode), quantityOrdered INT NOT NULL, priceEach DECIMAL(10, 2) NOT NULL, orderLineNumber SMALLINT NOT NULL,
+  PRIMARY KEY (orderNumber, productCode));
+CREATE TABLE payments (customerNumber INT NOT NULL REFERENCES customers (customerNumber), checkNumber VARCHAR(50) NOT NULL,
+  paymentDate DATE NOT NULL, amount DECIMAL(10, 2) NOT NULL, PRIMARY KEY (customerNumber, checkNumber));
+CREATE TABLE outbox (id BIGINT AUTO_INCREMENT PRIMARY KEY, aggregate_type VARCHAR(50) NOT NULL, aggregate_id VARCHAR(64) NOT NULL,
+  event_type VARCHAR(50) NOT NULL, payload VARCHAR(4000) NOT NULL, created_at TIMESTAMP NOT NULL, published_at TIMESTAMP);
+CREATE TABLE customer_stats (customerNumber INT NOT NULL PRIMARY KEY, lifetime_revenue DECIMAL(12, 2) DEFAULT 0 NOT NULL,
+  total_paid DECIMAL(12, 2) DEFAULT 0 NOT NULL, outstanding_balance DECIMAL(12, 2) GENERATED ALWAYS AS (lifetime_revenue - total_paid),
+  order_count INT DEFAULT 0 NOT NULL, last_order_date DATE, updated_at TIMESTAMP NOT NULL);
@@ -0,0 +1,6 @@
+-- just the columns the time series read
+CREATE TABLE orders (orderNumber INT NOT NULL PRIMARY KEY, orderDate DATE NOT NULL, status VARCHAR(15) NOT NULL);
+CREATE TABLE orderdetails (orderNumber INT NOT NULL, productCode VARCHAR(15) NOT NULL, quantityOrdered INT NOT NULL,
+  priceEach DECIMAL(10, 2) NOT NULL, PRIMARY KEY (orderNumber, productCode));
+CREATE TABLE payments (customerNumber INT NOT NULL, checkNumber VARCHAR(50) NOT NULL, paymentDate DATE NOT NULL,
+  amount DECIMAL(10, 2) NOT NULL, PRIMARY KEY (customerNumber, checkNumber));